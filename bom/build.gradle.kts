@@ -5,7 +5,7 @@
 
 dependencies {
     constraints {
-        for (projectName in listOf("common", "format-snbt", "stream", "tree")) {
+        for (projectName in listOf("common", "format-region", "format-snbt", "stream", "tree")) {
             api(project(":$projectName"))
         }
     }
@@ -83,12 +83,15 @@ public enum LinTagId {
      * @return the corresponding {@link LinTagId}
      */
     public static LinTagId fromId(int id) {
-        if (id < 0 || id >= LinTagId.values().length) {
+        if (id < 0 || id >= BY_ID.length) {
             throw new IllegalArgumentException("Invalid NBT ID: " + id);
         }
-        return LinTagId.values()[id];
+        return BY_ID[id];
     }
 
+    // values() clones the array on every call, and this is used for every tag read
+    private static final LinTagId[] BY_ID = values();
+
     private final int id = ordinal();
 
     LinTagId() {
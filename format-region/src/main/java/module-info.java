@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * The region format module of lin-bus. Reads the chunks of Anvil region files using the streaming module.
+ */
+@NullMarked
+module org.enginehub.linbus.format.region {
+    exports org.enginehub.linbus.format.region;
+    requires static transitive org.jspecify;
+    requires transitive org.enginehub.linbus.common;
+    requires transitive org.enginehub.linbus.stream;
+}
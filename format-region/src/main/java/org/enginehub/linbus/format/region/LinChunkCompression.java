@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The compression types of chunks in region files.
+ */
+public enum LinChunkCompression {
+    /**
+     * Gzip compression.
+     */
+    GZIP(1),
+    /**
+     * Zlib compression. This is what the game uses by default.
+     */
+    ZLIB(2),
+    /**
+     * No compression.
+     */
+    NONE(3),
+    ;
+
+    private static final @Nullable LinChunkCompression[] BY_ID = new LinChunkCompression[4];
+
+    static {
+        for (LinChunkCompression compression : values()) {
+            BY_ID[compression.id] = compression;
+        }
+    }
+
+    /**
+     * Get the compression type with the given ID.
+     *
+     * @param id the ID
+     * @return the compression type, or {@code null} if the ID is not supported
+     */
+    public static @Nullable LinChunkCompression fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    private final int id;
+
+    LinChunkCompression(int id) {
+        this.id = id;
+    }
+
+    /**
+     * {@return the ID of this compression type, as stored in the region file}
+     */
+    public int id() {
+        return id;
+    }
+}
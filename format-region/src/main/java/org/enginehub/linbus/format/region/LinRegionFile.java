@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * A memory-mapped Anvil region file, holding a 32 by 32 area of chunks.
+ *
+ * <p>
+ * The file starts with a table of chunk locations and a table of chunk timestamps, each 4 KiB, followed by the
+ * compressed chunk payloads in 4 KiB sectors. Payloads that don't fit in the file are stored in a separate
+ * {@code c.<x>.<z>.mcc} file next to it.
+ * </p>
+ *
+ * <p>
+ * Chunks are read straight from the mapping, without copying the file onto the heap. The file is mapped once, when it
+ * is opened, so changes made to it afterwards may or may not be visible.
+ * </p>
+ */
+public final class LinRegionFile implements Closeable {
+    /**
+     * The number of chunks along each side of a region.
+     */
+    public static final int CHUNKS_PER_SIDE = 32;
+
+    static final int SECTOR_SIZE = 4096;
+    static final int HEADER_SIZE = 2 * SECTOR_SIZE;
+    static final int TIMESTAMPS_OFFSET = SECTOR_SIZE;
+    static final int EXTERNAL_FLAG = 0x80;
+
+    private static final Pattern REGION_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+    /**
+     * Open a region file.
+     *
+     * <p>
+     * If the file is named like {@code r.<x>.<z>.mca}, the region coordinates are taken from the name, and used to
+     * find external chunk files.
+     * </p>
+     *
+     * @param file the file
+     * @return the region file
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRegionFile open(Path file) throws IOException {
+        ByteBuffer mapping;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        // An empty file is a region without any chunks yet
+        if (mapping.capacity() != 0 && mapping.capacity() < HEADER_SIZE) {
+            throw new NbtParseException("Region file is too small for its header: " + mapping.capacity() + " bytes");
+        }
+        return new LinRegionFile(file, mapping);
+    }
+
+    private final Path file;
+    private final ByteBuffer mapping;
+    private volatile boolean closed;
+
+    private LinRegionFile(Path file, ByteBuffer mapping) {
+        this.file = file;
+        this.mapping = mapping;
+    }
+
+    /**
+     * {@return the path of the file}
+     */
+    public Path path() {
+        return file;
+    }
+
+    /**
+     * Get the index of a chunk in the header tables.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the index
+     */
+    static int index(int x, int z) {
+        return (x & (CHUNKS_PER_SIDE - 1)) | ((z & (CHUNKS_PER_SIDE - 1)) * CHUNKS_PER_SIDE);
+    }
+
+    private int headerInt(int offset) {
+        if (closed) {
+            throw new IllegalStateException("Region file is closed");
+        }
+        return mapping.capacity() == 0 ? 0 : mapping.getInt(offset);
+    }
+
+    /**
+     * Check if a chunk is present in the region.
+     *
+     * <p>
+     * Chunk coordinates may be either absolute or relative to the region. Only the lowest 5 bits of each coordinate
+     * are used to find the chunk.
+     * </p>
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return {@code true} if the chunk is present
+     */
+    public boolean hasChunk(int x, int z) {
+        return headerInt(index(x, z) * Integer.BYTES) != 0;
+    }
+
+    /**
+     * Get the time a chunk was last saved, in seconds since the epoch. See {@link #hasChunk(int, int)} for the
+     * coordinates.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the timestamp, or {@code 0} if the chunk is not present
+     */
+    public int timestamp(int x, int z) {
+        return headerInt(TIMESTAMPS_OFFSET + index(x, z) * Integer.BYTES);
+    }
+
+    /**
+     * Read a stream of NBT tokens from a chunk. See {@link #hasChunk(int, int)} for the coordinates.
+     *
+     * <p>
+     * The payload is decompressed as it is read. Uncompressed payloads are read straight from the mapping.
+     * </p>
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the stream of NBT tokens, or {@code null} if the chunk is not present
+     * @throws IOException if an I/O error occurs
+     */
+    public @Nullable LinStream readChunk(int x, int z) throws IOException {
+        return readChunk(x, z, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens from a chunk. See {@link #hasChunk(int, int)} for the coordinates.
+     *
+     * <p>
+     * The payload is decompressed as it is read. Uncompressed payloads are read straight from the mapping.
+     * </p>
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @param options the options for reading
+     * @return the stream of NBT tokens, or {@code null} if the chunk is not present
+     * @throws IOException if an I/O error occurs
+     */
+    public @Nullable LinStream readChunk(int x, int z, LinReadOptions options) throws IOException {
+        ByteBuffer data = readChunkData(x, z);
+        return data == null ? null : LinBinaryIO.readCompressed(data, options);
+    }
+
+    /**
+     * Get the compressed payload of a chunk. See {@link #hasChunk(int, int)} for the coordinates.
+     *
+     * <p>
+     * The payload can be read with {@link LinBinaryIO#readCompressed(ByteBuffer)}, or with a
+     * {@link org.enginehub.linbus.stream.LinParallelReader} to read many chunks in parallel. It is a read-only slice of
+     * the mapping, or a mapping of the external file for chunks that are stored externally.
+     * </p>
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the payload, or {@code null} if the chunk is not present
+     * @throws IOException if an I/O error occurs
+     */
+    public @Nullable ByteBuffer readChunkData(int x, int z) throws IOException {
+        int location = headerInt(index(x, z) * Integer.BYTES);
+        if (location == 0) {
+            return null;
+        }
+        int sectorOffset = location >>> 8;
+        int sectorCount = location & 0xFF;
+        long start = (long) sectorOffset * SECTOR_SIZE;
+        if (sectorOffset < HEADER_SIZE / SECTOR_SIZE || start + Integer.BYTES + 1 > mapping.capacity()) {
+            throw new NbtParseException(
+                "Chunk (" + x + ", " + z + ") starts at sector " + sectorOffset + ", which is not in the file"
+            );
+        }
+        int length = mapping.getInt((int) start);
+        int type = Byte.toUnsignedInt(mapping.get((int) start + Integer.BYTES));
+        // The length includes the compression type
+        if (length < 1 || length + Integer.BYTES > (long) sectorCount * SECTOR_SIZE
+            || start + Integer.BYTES + length > mapping.capacity()) {
+            throw new NbtParseException(
+                "Chunk (" + x + ", " + z + ") has length " + length + ", which does not fit in its sectors"
+            );
+        }
+        if ((type & EXTERNAL_FLAG) != 0) {
+            checkCompressionType(x, z, type & ~EXTERNAL_FLAG);
+            try (var channel = FileChannel.open(externalChunkPath(x, z), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        checkCompressionType(x, z, type);
+        return mapping.slice((int) start + Integer.BYTES + 1, length - 1);
+    }
+
+    private static void checkCompressionType(int x, int z, int type) {
+        // The type is checked, but the compression is detected from the payload itself
+        if (LinChunkCompression.fromId(type) == null) {
+            throw new NbtParseException("Chunk (" + x + ", " + z + ") has unsupported compression type " + type);
+        }
+    }
+
+    /**
+     * Get the path of the external file for a chunk that is too large to store in the region file. This is only used
+     * if the chunk is stored externally.
+     *
+     * <p>
+     * The file name uses absolute chunk coordinates. If the region coordinates are known from the region file's name,
+     * they are used to find them, otherwise the given coordinates are assumed to be absolute.
+     * </p>
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the path of the external file
+     */
+    public Path externalChunkPath(int x, int z) {
+        return externalChunkPath(file, x, z);
+    }
+
+    /**
+     * Get the path of the external file for a chunk of a region file. See {@link #externalChunkPath(int, int)}.
+     *
+     * @param file the region file
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the path of the external file
+     */
+    static Path externalChunkPath(Path file, int x, int z) {
+        Path fileName = file.getFileName();
+        var matcher = REGION_NAME.matcher(fileName == null ? "" : fileName.toString());
+        if (matcher.matches()) {
+            x = Integer.parseInt(matcher.group(1)) * CHUNKS_PER_SIDE + (x & (CHUNKS_PER_SIDE - 1));
+            z = Integer.parseInt(matcher.group(2)) * CHUNKS_PER_SIDE + (z & (CHUNKS_PER_SIDE - 1));
+        }
+        return file.resolveSibling("c." + x + "." + z + ".mcc");
+    }
+
+    /**
+     * Close the region file. The mapping is released once it is no longer referenced, including by any streams that
+     * are still being read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
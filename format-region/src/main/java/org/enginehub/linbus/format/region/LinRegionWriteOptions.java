@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * Options for writing region files.
+ */
+public final class LinRegionWriteOptions {
+
+    /**
+     * Create a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for {@link LinRegionWriteOptions}.
+     */
+    public static final class Builder {
+        private LinChunkCompression compression = LinChunkCompression.ZLIB;
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the compression used for chunks. This defaults to {@link LinChunkCompression#ZLIB}, like the game.
+         *
+         * @param compression the compression
+         * @return this builder
+         */
+        public Builder compression(LinChunkCompression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Set the compression level, from {@code 0} to {@code 9}, or {@link Deflater#DEFAULT_COMPRESSION}. This
+         * defaults to {@link Deflater#DEFAULT_COMPRESSION}.
+         *
+         * @param compressionLevel the compression level
+         * @return this builder
+         */
+        public Builder compressionLevel(int compressionLevel) {
+            if ((compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+                && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+                throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Set the executor that serializes and compresses chunks. This defaults to the
+         * {@linkplain ForkJoinPool#commonPool() common pool}.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Build the options.
+         *
+         * @return the options
+         */
+        public LinRegionWriteOptions build() {
+            return new LinRegionWriteOptions(this);
+        }
+
+        @Override
+        public String toString() {
+            return "LinRegionWriteOptions.Builder{" +
+                "compression=" + compression +
+                ", compressionLevel=" + compressionLevel +
+                ", executor=" + executor +
+                '}';
+        }
+    }
+
+    private final LinChunkCompression compression;
+    private final int compressionLevel;
+    private final Executor executor;
+
+    private LinRegionWriteOptions(Builder builder) {
+        this.compression = builder.compression;
+        this.compressionLevel = builder.compressionLevel;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * {@return the compression used for chunks}
+     */
+    public LinChunkCompression compression() {
+        return compression;
+    }
+
+    /**
+     * {@return the compression level}
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * {@return the executor that serializes and compresses chunks}
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public String toString() {
+        return "LinRegionWriteOptions{" +
+            "compression=" + compression +
+            ", compressionLevel=" + compressionLevel +
+            ", executor=" + executor +
+            '}';
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes chunks to an Anvil region file, creating it if needed.
+ *
+ * <p>
+ * Changes are staged with {@link #writeChunk(int, int, LinStreamable)} and {@link #deleteChunk(int, int)}, and
+ * applied by {@link #flush()} or {@link #close()}. Flushing serializes and compresses the staged chunks in parallel
+ * on the {@linkplain LinRegionWriteOptions#executor() executor}, then writes them in one pass in file order, and
+ * finally updates the header in place.
+ * </p>
+ *
+ * <p>
+ * Sectors freed by rewritten or deleted chunks are reused by later flushes. Sectors are only freed once the header
+ * no longer refers to them, so an interrupted flush leaves the previous chunks intact. Chunks that need more than 255
+ * sectors are stored in an external {@code .mcc} file, see {@link LinRegionFile#externalChunkPath(int, int)}.
+ * </p>
+ *
+ * <p>
+ * A writer must be used by one thread at a time. Staged chunks are streamed on the executor, so they must be safe to
+ * stream from another thread. A {@link LinRegionFile} opened before a flush may not see its changes.
+ * </p>
+ */
+public final class LinRegionWriter implements Closeable {
+    private static final int MAX_SECTOR_COUNT = 0xFF;
+    private static final int MAX_SECTOR_OFFSET = 0xFFFFFF;
+
+    /**
+     * Open a region file for writing, creating it if it does not exist.
+     *
+     * @param file the file
+     * @return the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRegionWriter open(Path file) throws IOException {
+        return open(file, LinRegionWriteOptions.builder().build());
+    }
+
+    /**
+     * Open a region file for writing, creating it if it does not exist.
+     *
+     * @param file the file
+     * @param options the options for writing
+     * @return the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRegionWriter open(Path file, LinRegionWriteOptions options) throws IOException {
+        var channel = FileChannel.open(
+            file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE
+        );
+        try {
+            return new LinRegionWriter(file, channel, options);
+        } catch (Throwable t) {
+            channel.close();
+            throw t;
+        }
+    }
+
+    private record Pending(int x, int z, @Nullable LinStreamable chunk, int timestamp) {
+    }
+
+    private record SectorWrite(int sectorOffset, ByteBuffer data) {
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final LinRegionWriteOptions options;
+    private final ByteBuffer header = ByteBuffer.allocate(LinRegionFile.HEADER_SIZE);
+    private BitSet usedSectors = new BitSet();
+    private final Map<Integer, Pending> pending = new TreeMap<>();
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private boolean closed;
+
+    private LinRegionWriter(Path file, FileChannel channel, LinRegionWriteOptions options) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.options = options;
+        long size = channel.size();
+        if (size != 0) {
+            if (size < LinRegionFile.HEADER_SIZE) {
+                throw new NbtParseException("Region file is too small for its header: " + size + " bytes");
+            }
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+        }
+        usedSectors.set(0, LinRegionFile.HEADER_SIZE / LinRegionFile.SECTOR_SIZE);
+        for (int i = 0; i < LinRegionFile.CHUNKS_PER_SIDE * LinRegionFile.CHUNKS_PER_SIDE; i++) {
+            int location = header.getInt(i * Integer.BYTES);
+            if (location != 0) {
+                usedSectors.set(location >>> 8, (location >>> 8) + (location & 0xFF));
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Region writer is closed");
+        }
+    }
+
+    /**
+     * Stage a chunk to be written, with the current time as its timestamp. See {@link LinRegionFile#hasChunk(int, int)}
+     * for the coordinates.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @param chunk the chunk
+     */
+    public void writeChunk(int x, int z, LinStreamable chunk) {
+        writeChunk(x, z, chunk, (int) (System.currentTimeMillis() / 1000));
+    }
+
+    /**
+     * Stage a chunk to be written. See {@link LinRegionFile#hasChunk(int, int)} for the coordinates.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @param chunk the chunk
+     * @param timestamp the time the chunk was saved, in seconds since the epoch
+     */
+    public void writeChunk(int x, int z, LinStreamable chunk, int timestamp) {
+        ensureOpen();
+        pending.put(LinRegionFile.index(x, z), new Pending(x, z, chunk, timestamp));
+    }
+
+    /**
+     * Stage a chunk to be deleted. See {@link LinRegionFile#hasChunk(int, int)} for the coordinates.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     */
+    public void deleteChunk(int x, int z) {
+        ensureOpen();
+        pending.put(LinRegionFile.index(x, z), new Pending(x, z, null, 0));
+    }
+
+    /**
+     * Write all staged changes to the file. If this fails, the staged changes are kept.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Integer, byte[]> compressed = compressAll();
+
+        // Work on copies, so nothing changes if writing fails
+        ByteBuffer newHeader = ByteBuffer.allocate(LinRegionFile.HEADER_SIZE).put(header.clear()).clear();
+        BitSet newUsedSectors = (BitSet) usedSectors.clone();
+        List<SectorWrite> writes = new ArrayList<>();
+        List<Integer> freedLocations = new ArrayList<>();
+        List<Path> staleExternalFiles = new ArrayList<>();
+        int type = options.compression().id();
+        for (var entry : pending.entrySet()) {
+            int index = entry.getKey();
+            Pending change = entry.getValue();
+            int oldLocation = newHeader.getInt(index * Integer.BYTES);
+            boolean wasExternal = oldLocation != 0 && isExternal(oldLocation);
+            boolean isExternal = false;
+            int newLocation = 0;
+            byte[] data = compressed.get(index);
+            if (data != null) {
+                // The length includes the compression type
+                int length = data.length + 1;
+                int sectorCount = Math.ceilDiv(Integer.BYTES + length, LinRegionFile.SECTOR_SIZE);
+                ByteBuffer sectors;
+                if (sectorCount > MAX_SECTOR_COUNT) {
+                    isExternal = true;
+                    writeExternal(LinRegionFile.externalChunkPath(file, change.x(), change.z()), data);
+                    sectorCount = 1;
+                    sectors = ByteBuffer.allocate(LinRegionFile.SECTOR_SIZE)
+                        .putInt(1)
+                        .put((byte) (type | LinRegionFile.EXTERNAL_FLAG));
+                } else {
+                    sectors = ByteBuffer.allocate(sectorCount * LinRegionFile.SECTOR_SIZE)
+                        .putInt(length)
+                        .put((byte) type)
+                        .put(data);
+                }
+                int sectorOffset = allocate(newUsedSectors, sectorCount);
+                writes.add(new SectorWrite(sectorOffset, sectors.clear()));
+                newLocation = (sectorOffset << 8) | sectorCount;
+            }
+            if (wasExternal && !isExternal) {
+                staleExternalFiles.add(LinRegionFile.externalChunkPath(file, change.x(), change.z()));
+            }
+            if (oldLocation != 0) {
+                freedLocations.add(oldLocation);
+            }
+            newHeader.putInt(index * Integer.BYTES, newLocation);
+            newHeader.putInt(LinRegionFile.TIMESTAMPS_OFFSET + index * Integer.BYTES, change.timestamp());
+        }
+
+        writes.sort(Comparator.comparingInt(SectorWrite::sectorOffset));
+        for (SectorWrite write : writes) {
+            writeFully(write.data(), (long) write.sectorOffset() * LinRegionFile.SECTOR_SIZE);
+        }
+        writeFully(newHeader.clear(), 0);
+
+        header.clear().put(newHeader.clear());
+        for (int location : freedLocations) {
+            newUsedSectors.clear(location >>> 8, (location >>> 8) + (location & 0xFF));
+        }
+        usedSectors = newUsedSectors;
+        pending.clear();
+        for (Path stale : staleExternalFiles) {
+            Files.deleteIfExists(stale);
+        }
+    }
+
+    private Map<Integer, byte[]> compressAll() throws IOException {
+        Map<Integer, CompletableFuture<byte[]>> futures = new TreeMap<>();
+        for (var entry : pending.entrySet()) {
+            LinStreamable chunk = entry.getValue().chunk();
+            if (chunk != null) {
+                futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return compress(chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, options.executor()));
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+        Map<Integer, byte[]> compressed = new TreeMap<>();
+        futures.forEach((index, future) -> compressed.put(index, future.join()));
+        return compressed;
+    }
+
+    private byte[] compress(LinStreamable chunk) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        Deflater deflater = null;
+        OutputStream stream = switch (options.compression()) {
+            case GZIP -> new GZIPOutputStream(bytes) {
+                {
+                    def.setLevel(options.compressionLevel());
+                }
+            };
+            case ZLIB -> {
+                deflater = deflaters.poll();
+                if (deflater == null) {
+                    deflater = new Deflater(options.compressionLevel());
+                }
+                yield new DeflaterOutputStream(bytes, deflater);
+            }
+            case NONE -> bytes;
+        };
+        try (var output = new DataOutputStream(stream)) {
+            LinBinaryIO.write(output, chunk);
+        } finally {
+            if (deflater != null) {
+                deflater.reset();
+                deflaters.offer(deflater);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private boolean isExternal(int location) throws IOException {
+        ByteBuffer type = ByteBuffer.allocate(1);
+        long position = (long) (location >>> 8) * LinRegionFile.SECTOR_SIZE + Integer.BYTES;
+        return channel.read(type, position) == 1 && (type.get(0) & LinRegionFile.EXTERNAL_FLAG) != 0;
+    }
+
+    private static int allocate(BitSet usedSectors, int sectorCount) throws IOException {
+        int start = usedSectors.nextClearBit(0);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectorCount) {
+                break;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+        if (start > MAX_SECTOR_OFFSET) {
+            throw new IOException("Region file is full");
+        }
+        usedSectors.set(start, start + sectorCount);
+        return start;
+    }
+
+    private void writeExternal(Path path, byte[] data) throws IOException {
+        // Replace the file in one step, so a reader never sees it half-written
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, data);
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeFully(ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    /**
+     * Flush any staged changes, then close the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+            for (Deflater deflater; (deflater = deflaters.poll()) != null; ) {
+                deflater.end();
+            }
+        }
+    }
+}
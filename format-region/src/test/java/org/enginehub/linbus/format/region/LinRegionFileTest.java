@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.format.region.RegionTestUtil.chunkNbt;
+import static org.enginehub.linbus.format.region.RegionTestUtil.chunkTokens;
+import static org.enginehub.linbus.format.region.RegionTestUtil.compress;
+import static org.enginehub.linbus.format.region.RegionTestUtil.tokens;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinRegionFileTest {
+    /**
+     * Builds region files by hand, one sector per chunk.
+     */
+    private static final class RegionBuilder {
+        private final ByteBuffer header = ByteBuffer.allocate(LinRegionFile.HEADER_SIZE);
+        private final ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+        private int nextSector = LinRegionFile.HEADER_SIZE / LinRegionFile.SECTOR_SIZE;
+
+        RegionBuilder chunk(int x, int z, int type, byte[] payload, int timestamp) {
+            var sector = ByteBuffer.allocate(LinRegionFile.SECTOR_SIZE)
+                .putInt(payload.length + 1)
+                .put((byte) type)
+                .put(payload);
+            return location(x, z, (nextSector << 8) | 1, sector.array(), timestamp);
+        }
+
+        RegionBuilder location(int x, int z, int location, byte[] sector, int timestamp) {
+            int index = x + z * LinRegionFile.CHUNKS_PER_SIDE;
+            header.putInt(index * Integer.BYTES, location);
+            header.putInt(LinRegionFile.TIMESTAMPS_OFFSET + index * Integer.BYTES, timestamp);
+            sectors.writeBytes(sector);
+            nextSector++;
+            return this;
+        }
+
+        Path write(Path file) throws IOException {
+            try (var output = Files.newOutputStream(file)) {
+                output.write(header.array());
+                sectors.writeTo(output);
+            }
+            return file;
+        }
+    }
+
+    @Test
+    void readsChunks(@TempDir Path dir) throws IOException {
+        var file = new RegionBuilder()
+            .chunk(0, 0, 1, compress(chunkNbt(1), GZIPOutputStream::new), 100)
+            .chunk(31, 0, 2, compress(chunkNbt(2), DeflaterOutputStream::new), 200)
+            .chunk(5, 31, 3, chunkNbt(3), 300)
+            .write(dir.resolve("r.0.0.mca"));
+        try (var region = LinRegionFile.open(file)) {
+            assertEquals(file, region.path());
+            assertThat(tokens(region.readChunk(0, 0))).containsExactlyElementsIn(chunkTokens(1)).inOrder();
+            assertThat(tokens(region.readChunk(31, 0))).containsExactlyElementsIn(chunkTokens(2)).inOrder();
+            assertThat(tokens(region.readChunk(5, 31))).containsExactlyElementsIn(chunkTokens(3)).inOrder();
+            // Absolute coordinates find the same chunks
+            assertThat(tokens(region.readChunk(-1, 32))).containsExactlyElementsIn(chunkTokens(2)).inOrder();
+
+            var data = Objects.requireNonNull(region.readChunkData(5, 31));
+            assertThat(data.isReadOnly()).isTrue();
+            assertThat(data).isEqualTo(ByteBuffer.wrap(chunkNbt(3)));
+            assertThat(region.readChunkData(1, 1)).isNull();
+
+            assertThat(region.hasChunk(5, 31)).isTrue();
+            assertThat(region.timestamp(5, 31)).isEqualTo(300);
+            assertThat(region.hasChunk(1, 1)).isFalse();
+            assertThat(region.timestamp(1, 1)).isEqualTo(0);
+            assertThat(region.readChunk(1, 1)).isNull();
+        }
+    }
+
+    @Test
+    void readsExternalChunks(@TempDir Path dir) throws IOException {
+        var file = new RegionBuilder()
+            .chunk(2, 3, 2 | LinRegionFile.EXTERNAL_FLAG, new byte[0], 100)
+            .write(dir.resolve("r.1.-1.mca"));
+        Files.write(dir.resolve("c.34.-29.mcc"), compress(chunkNbt(4), DeflaterOutputStream::new));
+        try (var region = LinRegionFile.open(file)) {
+            assertEquals(dir.resolve("c.34.-29.mcc"), region.externalChunkPath(2, 3));
+            assertThat(tokens(region.readChunk(2, 3))).containsExactlyElementsIn(chunkTokens(4)).inOrder();
+        }
+
+        // Without region coordinates in the name, the given coordinates are used as-is
+        var renamed = Files.move(file, dir.resolve("region.mca"));
+        try (var region = LinRegionFile.open(renamed)) {
+            assertEquals(dir.resolve("c.34.-29.mcc"), region.externalChunkPath(34, -29));
+        }
+    }
+
+    @Test
+    void emptyFileHasNoChunks(@TempDir Path dir) throws IOException {
+        var file = Files.createFile(dir.resolve("r.0.0.mca"));
+        try (var region = LinRegionFile.open(file)) {
+            assertThat(region.hasChunk(0, 0)).isFalse();
+            assertThat(region.readChunk(0, 0)).isNull();
+        }
+    }
+
+    @Test
+    void closedFileCannotBeRead(@TempDir Path dir) throws IOException {
+        var file = Files.createFile(dir.resolve("r.0.0.mca"));
+        var region = LinRegionFile.open(file);
+        region.close();
+        assertThrows(IllegalStateException.class, () -> region.hasChunk(0, 0));
+    }
+
+    @Test
+    void rejectsCorruptFiles(@TempDir Path dir) throws IOException {
+        var truncated = Files.write(dir.resolve("truncated.mca"), new byte[100]);
+        var ex = assertThrows(NbtParseException.class, () -> LinRegionFile.open(truncated));
+        assertThat(ex).hasMessageThat().isEqualTo("Region file is too small for its header: 100 bytes");
+
+        var sector = new byte[LinRegionFile.SECTOR_SIZE];
+        ByteBuffer.wrap(sector).putInt(LinRegionFile.SECTOR_SIZE);
+        var file = new RegionBuilder()
+            .location(0, 0, (1 << 8) | 1, sector, 0)
+            .location(1, 0, (100 << 8) | 1, sector, 0)
+            .location(2, 0, (4 << 8) | 1, sector, 0)
+            .chunk(3, 0, 4, new byte[0], 0)
+            .write(dir.resolve("r.0.0.mca"));
+        try (var region = LinRegionFile.open(file)) {
+            ex = assertThrows(NbtParseException.class, () -> region.readChunk(0, 0));
+            assertThat(ex).hasMessageThat().isEqualTo("Chunk (0, 0) starts at sector 1, which is not in the file");
+            ex = assertThrows(NbtParseException.class, () -> region.readChunk(1, 0));
+            assertThat(ex).hasMessageThat().isEqualTo("Chunk (1, 0) starts at sector 100, which is not in the file");
+            ex = assertThrows(NbtParseException.class, () -> region.readChunk(2, 0));
+            assertThat(ex).hasMessageThat().isEqualTo(
+                "Chunk (2, 0) has length 4096, which does not fit in its sectors"
+            );
+            ex = assertThrows(NbtParseException.class, () -> region.readChunk(3, 0));
+            assertThat(ex).hasMessageThat().isEqualTo("Chunk (3, 0) has unsupported compression type 4");
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.format.region.RegionTestUtil.chunk;
+import static org.enginehub.linbus.format.region.RegionTestUtil.chunkTokens;
+import static org.enginehub.linbus.format.region.RegionTestUtil.tokens;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinRegionWriterTest {
+    private static int sectorOffset(Path file, int x, int z) throws IOException {
+        var header = ByteBuffer.wrap(Files.readAllBytes(file));
+        return header.getInt(LinRegionFile.index(x, z) * Integer.BYTES) >>> 8;
+    }
+
+    /**
+     * A chunk with a byte array of random bytes, which compresses poorly.
+     */
+    private static LinStreamable randomChunk(int size) {
+        var bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return () -> {
+            // Writing consumes the content buffer, so each stream needs its own tokens
+            var iterator = List.of(
+                new LinToken.Name("", LinTagId.COMPOUND),
+                new LinToken.CompoundStart(),
+                new LinToken.Name("data", LinTagId.BYTE_ARRAY),
+                new LinToken.ByteArrayStart(size),
+                new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes).asReadOnlyBuffer()),
+                new LinToken.ByteArrayEnd(),
+                new LinToken.CompoundEnd()
+            ).iterator();
+            return () -> iterator.hasNext() ? iterator.next() : null;
+        };
+    }
+
+    @Test
+    void writesChunks(@TempDir Path dir) throws IOException {
+        for (var compression : LinChunkCompression.values()) {
+            var file = dir.resolve("r." + compression + ".0.mca");
+            var executor = Executors.newFixedThreadPool(4);
+            var options = LinRegionWriteOptions.builder()
+                .compression(compression)
+                .compressionLevel(1)
+                .executor(executor)
+                .build();
+            try (var writer = LinRegionWriter.open(file, options)) {
+                for (int i = 0; i < 100; i++) {
+                    writer.writeChunk(i % 32, i / 32, chunk(i), 1000 + i);
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            assertThat(Files.size(file) % LinRegionFile.SECTOR_SIZE).isEqualTo(0);
+            try (var region = LinRegionFile.open(file)) {
+                for (int i = 0; i < 100; i++) {
+                    assertThat(tokens(region.readChunk(i % 32, i / 32))).containsExactlyElementsIn(chunkTokens(i))
+                        .inOrder();
+                    assertThat(region.timestamp(i % 32, i / 32)).isEqualTo(1000 + i);
+                }
+                assertThat(region.hasChunk(4, 3)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void reusesFreedSectors(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("r.0.0.mca");
+        try (var writer = LinRegionWriter.open(file)) {
+            writer.writeChunk(0, 0, chunk(1));
+            writer.writeChunk(1, 0, chunk(2));
+            writer.flush();
+            assertThat(sectorOffset(file, 0, 0)).isEqualTo(2);
+            assertThat(sectorOffset(file, 1, 0)).isEqualTo(3);
+
+            // The old sectors are still in use until the header is written
+            writer.writeChunk(0, 0, chunk(3));
+            writer.flush();
+            assertThat(sectorOffset(file, 0, 0)).isEqualTo(4);
+
+            writer.deleteChunk(1, 0);
+            writer.flush();
+            writer.writeChunk(2, 0, chunk(4));
+            writer.writeChunk(3, 0, chunk(5));
+            writer.flush();
+            assertThat(sectorOffset(file, 2, 0)).isEqualTo(2);
+            assertThat(sectorOffset(file, 3, 0)).isEqualTo(3);
+        }
+        assertThat(Files.size(file)).isEqualTo(5 * LinRegionFile.SECTOR_SIZE);
+
+        // Reopening finds the used sectors from the header
+        try (var writer = LinRegionWriter.open(file)) {
+            writer.writeChunk(4, 0, chunk(6));
+        }
+        assertThat(sectorOffset(file, 4, 0)).isEqualTo(5);
+        try (var region = LinRegionFile.open(file)) {
+            assertThat(region.hasChunk(1, 0)).isFalse();
+            assertThat(region.timestamp(1, 0)).isEqualTo(0);
+            assertThat(tokens(region.readChunk(0, 0))).containsExactlyElementsIn(chunkTokens(3)).inOrder();
+            assertThat(tokens(region.readChunk(4, 0))).containsExactlyElementsIn(chunkTokens(6)).inOrder();
+        }
+    }
+
+    @Test
+    void largeChunksAreExternal(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("r.-1.2.mca");
+        var external = dir.resolve("c.-31.66.mcc");
+        var options = LinRegionWriteOptions.builder().compression(LinChunkCompression.NONE).build();
+        var large = randomChunk(2 * 1024 * 1024);
+        try (var writer = LinRegionWriter.open(file, options)) {
+            writer.writeChunk(1, 2, large);
+            writer.writeChunk(2, 2, randomChunk(100_000));
+        }
+        assertThat(Files.exists(external)).isTrue();
+        try (var region = LinRegionFile.open(file)) {
+            assertThat(tokens(region.readChunk(1, 2))).containsExactlyElementsIn(tokens(large.linStream()))
+                .inOrder();
+            assertThat(region.readChunk(2, 2)).isNotNull();
+        }
+
+        try (var writer = LinRegionWriter.open(file, options)) {
+            writer.writeChunk(1, 2, chunk(1));
+        }
+        assertThat(Files.exists(external)).isFalse();
+        try (var region = LinRegionFile.open(file)) {
+            assertThat(tokens(region.readChunk(1, 2))).containsExactlyElementsIn(chunkTokens(1)).inOrder();
+        }
+    }
+
+    @Test
+    void failedFlushKeepsChanges(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("r.0.0.mca");
+        LinStreamable broken = () -> (LinStream) () -> {
+            throw new IOException("broken");
+        };
+        try (var writer = LinRegionWriter.open(file)) {
+            writer.writeChunk(0, 0, chunk(1));
+            writer.writeChunk(1, 0, broken);
+            var ex = assertThrows(IOException.class, writer::flush);
+            assertThat(ex).hasMessageThat().isEqualTo("broken");
+            assertThat(Files.size(file)).isEqualTo(0);
+
+            writer.writeChunk(1, 0, chunk(2));
+        }
+        try (var region = LinRegionFile.open(file)) {
+            assertThat(tokens(region.readChunk(0, 0))).containsExactlyElementsIn(chunkTokens(1)).inOrder();
+            assertThat(tokens(region.readChunk(1, 0))).containsExactlyElementsIn(chunkTokens(2)).inOrder();
+        }
+    }
+
+    @Test
+    void closedWriterCannotBeUsed(@TempDir Path dir) throws IOException {
+        var writer = LinRegionWriter.open(dir.resolve("r.0.0.mca"));
+        writer.close();
+        writer.close();
+        assertThrows(IllegalStateException.class, () -> writer.writeChunk(0, 0, chunk(1)));
+        assertThrows(IllegalStateException.class, () -> writer.deleteChunk(0, 0));
+    }
+
+    @Test
+    void rejectsInvalidCompressionLevel() {
+        var ex = assertThrows(IllegalArgumentException.class,
+            () -> LinRegionWriteOptions.builder().compressionLevel(10));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid compression level: 10");
+    }
+}
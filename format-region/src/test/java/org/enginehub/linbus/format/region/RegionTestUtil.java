@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.format.region;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+public class RegionTestUtil {
+    public interface Compressor {
+        OutputStream wrap(OutputStream output) throws IOException;
+    }
+
+    public static byte[] compress(byte[] bytes, Compressor compressor) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var output = compressor.wrap(compressed)) {
+            output.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    public static byte[] chunkNbt(int value) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(bytes);
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeUTF("");
+        output.writeByte(LinTagId.INT.id());
+        output.writeUTF("value");
+        output.writeInt(value);
+        output.writeByte(LinTagId.END.id());
+        return bytes.toByteArray();
+    }
+
+    public static List<LinToken> chunkTokens(int value) {
+        return List.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("value", LinTagId.INT),
+            new LinToken.Int(value),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    public static LinStreamable chunk(int value) throws IOException {
+        var bytes = chunkNbt(value);
+        return () -> LinBinaryIO.read(ByteBuffer.wrap(bytes));
+    }
+
+    public static List<LinToken> tokens(@Nullable LinStream stream) throws IOException {
+        return ImmutableList.copyOf(Objects.requireNonNull(stream).asIterator());
+    }
+}
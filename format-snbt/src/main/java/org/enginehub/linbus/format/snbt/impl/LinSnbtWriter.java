@@ -26,9 +26,13 @@
 import org.enginehub.linbus.stream.token.LinToken;
 
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayDeque;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -162,6 +166,24 @@ public void write(Appendable output, LinStream tokens) throws IOException {
 
                     stateStack.addLast(new WriteState.List(size.orElseThrow()));
                 }
+                case LinToken.ListContent(Buffer buffer) -> {
+                    if (!(state instanceof WriteState.List(int remainingValues))) {
+                        throw new NbtWriteException("List content outside of a list");
+                    }
+                    for (int i = buffer.position(); i < buffer.limit(); i++) {
+                        if (i > buffer.position()) {
+                            output.append(',');
+                        }
+                        appendNumber(output, buffer, i);
+                    }
+
+                    // The same as handleValueEnd, once for the whole run
+                    int left = remainingValues - buffer.remaining();
+                    replaceLast(new WriteState.List(left));
+                    if (left > 0) {
+                        output.append(',');
+                    }
+                }
                 case LinToken.ListEnd listEnd -> {
                     output.append(']');
 
@@ -210,6 +232,18 @@ public void write(Appendable output, LinStream tokens) throws IOException {
         }
     }
 
+    private static void appendNumber(Appendable output, Buffer buffer, int index) throws IOException {
+        switch (buffer) {
+            case ByteBuffer elements -> output.append(String.valueOf(elements.get(index))).append('B');
+            case ShortBuffer elements -> output.append(String.valueOf(elements.get(index))).append('S');
+            case IntBuffer elements -> output.append(String.valueOf(elements.get(index)));
+            case LongBuffer elements -> output.append(String.valueOf(elements.get(index))).append('L');
+            case FloatBuffer elements -> output.append(String.valueOf(elements.get(index))).append('F');
+            case DoubleBuffer elements -> output.append(String.valueOf(elements.get(index))).append('D');
+            default -> throw new NbtWriteException("Unknown list content: " + buffer);
+        }
+    }
+
     private void handleValueEnd(Appendable output) throws IOException {
         var state = stateStack.pollLast();
         switch (state) {
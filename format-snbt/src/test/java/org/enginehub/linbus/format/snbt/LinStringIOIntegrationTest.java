@@ -22,6 +22,7 @@
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
 import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
 import org.enginehub.linbus.stream.LinStream;
 import org.junit.jupiter.api.Test;
 
@@ -49,8 +50,14 @@ private static <T> T loadResource(String name, ResourceLoader<T> loader) throws
     }
 
     private static <T> T convertNbtStream(String name, Function<LinStream, T> converter) throws IOException {
+        return convertNbtStream(name, LinReadOptions.builder().build(), converter);
+    }
+
+    private static <T> T convertNbtStream(
+        String name, LinReadOptions options, Function<LinStream, T> converter
+    ) throws IOException {
         return loadResource(name, stream -> {
-            LinStream iter = LinBinaryIO.read(new DataInputStream(stream));
+            LinStream iter = LinBinaryIO.read(new DataInputStream(stream), options);
             // Hack - SNBT can't print the RootEntry stuff, so we have to skip it
             iter.nextOrNull();
             return converter.apply(iter);
@@ -77,4 +84,13 @@ void bigTestThroughSnbt() throws IOException {
     void allTypesThroughSnbt() throws IOException {
         assertThroughSnbt("all-types.nbt.gz");
     }
+
+    @Test
+    void packedListsWriteTheSameSnbt() throws IOException {
+        var options = LinReadOptions.builder().packPrimitiveLists(true).arrayChunkSize(16).build();
+        for (String name : ImmutableList.of("bigtest.nbt.gz", "all-types.nbt.gz")) {
+            assertThat(convertNbtStream(name, options, LinStringIO::writeToString))
+                .isEqualTo(convertNbtStream(name, LinStringIO::writeToString));
+        }
+    }
 }
@@ -32,7 +32,6 @@
 import org.enginehub.linbus.tree.LinRootEntry;
 import org.enginehub.linbus.tree.LinTag;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -41,7 +40,6 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.function.BiPredicate;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -99,11 +97,7 @@ private static TreeTableColumn<TagEntry, TagEntry> createValueColumn() {
     }
 
     public static TreeItem<TagEntry> loadTreeItem(Path file, LinReadOptions options) throws IOException {
-        LinRootEntry root;
-        try (var dataInput = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
-            root = LinBinaryIO.readUsing(dataInput, options, LinRootEntry::readFrom);
-        }
-        assert root != null;
+        LinRootEntry root = LinRootEntry.readFrom(LinBinaryIO.readFile(file, options));
         return new TagEntryTreeItem(root.name(), root.value());
     }
 
@@ -69,9 +69,8 @@ private Collection<? extends TreeItem<NbtTreeView.TagEntry>> buildChildren() {
 
     private void updateCompoundTag(TreeModificationEvent<NbtTreeView.TagEntry> event) {
         NbtTreeView.TagEntry currentValue = getValue();
-        LinCompoundTag newTag = ((LinCompoundTag) currentValue.tag()).toBuilder()
-            .put(event.getTreeItem().getValue().name(), event.getTreeItem().getValue().tag())
-            .build();
+        LinCompoundTag newTag = ((LinCompoundTag) currentValue.tag())
+            .with(event.getTreeItem().getValue().name(), event.getTreeItem().getValue().tag());
         setValue(new NbtTreeView.TagEntry(currentValue.name(), newTag));
         event.consume();
     }
@@ -81,9 +80,8 @@ private void updateListTag(TreeModificationEvent<NbtTreeView.TagEntry> event) {
         NbtTreeView.TagEntry currentValue = getValue();
         @SuppressWarnings("unchecked")
         LinListTag<LinTag<?>> cast = (LinListTag<LinTag<?>>) currentValue.tag();
-        LinListTag<?> newTag = cast.toBuilder()
-            .set(Integer.parseInt(event.getTreeItem().getValue().name()), event.getTreeItem().getValue().tag())
-            .build();
+        LinListTag<?> newTag = cast
+            .with(Integer.parseInt(event.getTreeItem().getValue().name()), event.getTreeItem().getValue().tag());
         setValue(new NbtTreeView.TagEntry(currentValue.name(), newTag));
         event.consume();
     }
@@ -6,4 +6,5 @@
 include("stream")
 include("tree")
 include("format-snbt")
+include("format-region")
 include("gui")
@@ -3,6 +3,7 @@
     jacoco
     id("org.enginehub.lin-bus.jvm")
     id("org.enginehub.lin-bus.publishing")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
@@ -18,6 +19,8 @@
     testImplementation(libs.truth) {
         exclude(group = "junit")
     }
+
+    jmhCompileOnly(libs.jspecify.annotations)
 }
 
 publishing {
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStringCache;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The {@link LinNbtReader} before it moved to a primitive state stack, kept as a baseline for benchmarks.
+ */
+public class LegacyLinNbtReader implements LinCursor {
+
+    private sealed interface State {
+        /**
+         * We need to initialize and return the root name.
+         */
+        record Initial() implements State {
+        }
+
+        /**
+         * We need to return {@link Kind#COMPOUND_START}.
+         */
+        record CompoundStart() implements State {
+        }
+
+        /**
+         * We need to give the name of the next entry. We'll load the ID here too.
+         */
+        record CompoundEntryName() implements State {
+        }
+
+        /**
+         * This is a bit hacky, we don't want to fill the stack with entries equal to the size of the list. So we record
+         * the remaining entries and the id of the elements, and replace the entry on the stack with a {@link ReadValue}
+         * at the start of the loop.
+         */
+        record ListEntry(int remaining, LinTagId elementId) implements State {
+        }
+
+        /**
+         * We need to read a value. Usually, we'll just return the value, and not push a new state, unless we need to
+         * read a complex value such as a compound, list, or array.
+         */
+        record ReadValue(LinTagId id) implements State {
+        }
+
+        /**
+         * We're currently reading a byte array. We'll emit content as needed.
+         */
+        record ReadByteArray(int remaining) implements State {
+        }
+
+        /**
+         * We're currently reading an int array. We'll emit content as needed.
+         */
+        record ReadIntArray(int remaining) implements State {
+        }
+
+        /**
+         * We're currently reading a long array. We'll emit content as needed.
+         */
+        record ReadLongArray(int remaining) implements State {
+        }
+    }
+
+    // LinTagId.fromId used to clone values() on every call
+    private static LinTagId legacyFromId(int id) {
+        if (id < 0 || id >= LinTagId.values().length) {
+            throw new IllegalArgumentException("Invalid NBT ID: " + id);
+        }
+        return LinTagId.values()[id];
+    }
+
+    private final NbtInput input;
+    /**
+     * The state stack. We're currently on the one that's LAST.
+     */
+    private final Deque<State> stateStack;
+    private final StringDecoder stringDecoder;
+    private final @Nullable LinStringCache nameCache;
+    private final @Nullable LinStringCache valueCache;
+
+    // The current element. Only the fields relevant to the kind are set.
+    private @Nullable Kind kind;
+    /**
+     * The tag ID of a {@link Kind#NAME}, or the element ID of a {@link Kind#LIST_START}.
+     */
+    private LinTagId id = LinTagId.END;
+    /**
+     * The value of a number, or the size of an array or list. Floating-point numbers are stored as their raw bits.
+     */
+    private long primitive;
+    private @Nullable Buffer content;
+    /**
+     * The raw bytes of the current name or string. The array is reused, and only the first {@link #stringLength}
+     * bytes are valid.
+     */
+    private byte[] stringBytes = new byte[128];
+    private int stringLength;
+    private @Nullable ByteBuffer stringBytesView;
+    private @Nullable String decodedString;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     */
+    public LegacyLinNbtReader(NbtInput input, LinReadOptions options) {
+        this.input = input;
+        this.stateStack = new ArrayDeque<>(List.of(new State.Initial()));
+        this.stringDecoder = new StringDecoder(options.allowNormalUtf8Encoding());
+        this.nameCache = options.stringCache();
+        this.valueCache = options.internStringValues() ? options.stringCache() : null;
+    }
+
+    @Override
+    public Kind advance() throws IOException {
+        content = null;
+        decodedString = null;
+        Kind kind = readNext();
+        this.kind = kind;
+        return kind;
+    }
+
+    private Kind readNext() throws IOException {
+        var state = stateStack.pollLast();
+        return switch (state) {
+            case null -> Kind.END_OF_STREAM;
+            case State.Initial initial -> {
+                if (input.readUnsignedByte() != LinTagId.COMPOUND.id()) {
+                    throw new NbtParseException("NBT stream does not start with a compound tag");
+                }
+                stateStack.addLast(new State.CompoundStart());
+                readStringBytes();
+                id = LinTagId.COMPOUND;
+                yield Kind.NAME;
+            }
+            case State.CompoundStart compoundStart -> {
+                stateStack.addLast(new State.CompoundEntryName());
+                yield Kind.COMPOUND_START;
+            }
+            case State.CompoundEntryName compoundEntryName -> {
+                var id = legacyFromId(input.readUnsignedByte());
+                if (id == LinTagId.END) {
+                    yield Kind.COMPOUND_END;
+                }
+
+                // After we read the value, we'll be back at reading the name.
+                stateStack.addLast(new State.CompoundEntryName());
+                stateStack.addLast(new State.ReadValue(id));
+                readStringBytes();
+                this.id = id;
+                yield Kind.NAME;
+            }
+            case State.ReadValue(LinTagId id) -> handleReadValue(id);
+            case State.ReadByteArray(int remaining) -> {
+                if (remaining == 0) {
+                    // We're done reading the array. Return the end token.
+                    // This will also implicitly return to the state in the stack below the array.
+                    yield Kind.BYTE_ARRAY_END;
+                }
+                ByteBuffer buffer = input.readContent(Math.min(input.defaultContentLength(), remaining));
+                stateStack.addLast(new State.ReadByteArray(remaining - buffer.remaining()));
+                content = buffer;
+                yield Kind.BYTE_ARRAY_CONTENT;
+            }
+            case State.ReadIntArray(int remaining) -> {
+                if (remaining == 0) {
+                    // We're done reading the array. Return the end token.
+                    // This will also implicitly return to the state in the stack below the array.
+                    yield Kind.INT_ARRAY_END;
+                }
+                ByteBuffer buffer = input.readContent(Math.min(input.defaultContentLength() / 4, remaining) * 4);
+                stateStack.addLast(new State.ReadIntArray(remaining - buffer.remaining() / 4));
+                content = buffer.asIntBuffer();
+                yield Kind.INT_ARRAY_CONTENT;
+            }
+            case State.ReadLongArray(int remaining) -> {
+                if (remaining == 0) {
+                    // We're done reading the array. Return the end token.
+                    // This will also implicitly return to the state in the stack below the array.
+                    yield Kind.LONG_ARRAY_END;
+                }
+                ByteBuffer buffer = input.readContent(Math.min(input.defaultContentLength() / 8, remaining) * 8);
+                stateStack.addLast(new State.ReadLongArray(remaining - buffer.remaining() / 8));
+                content = buffer.asLongBuffer();
+                yield Kind.LONG_ARRAY_CONTENT;
+            }
+            case State.ListEntry(int remaining, LinTagId elementId) -> {
+                if (remaining == 0) {
+                    yield Kind.LIST_END;
+                }
+                stateStack.addLast(new State.ListEntry(remaining - 1, elementId));
+                yield handleReadValue(elementId);
+            }
+        };
+    }
+
+    private Kind handleReadValue(LinTagId id) throws IOException {
+        return switch (id) {
+            case BYTE -> {
+                primitive = input.readByte();
+                yield Kind.BYTE;
+            }
+            case SHORT -> {
+                primitive = input.readShort();
+                yield Kind.SHORT;
+            }
+            case INT -> {
+                primitive = input.readInt();
+                yield Kind.INT;
+            }
+            case LONG -> {
+                primitive = input.readLong();
+                yield Kind.LONG;
+            }
+            case FLOAT -> {
+                primitive = input.readInt();
+                yield Kind.FLOAT;
+            }
+            case DOUBLE -> {
+                primitive = input.readLong();
+                yield Kind.DOUBLE;
+            }
+            case BYTE_ARRAY -> {
+                int size = input.readInt();
+                stateStack.addLast(new State.ReadByteArray(size));
+                primitive = size;
+                yield Kind.BYTE_ARRAY_START;
+            }
+            case STRING -> {
+                readStringBytes();
+                yield Kind.STRING;
+            }
+            case LIST -> {
+                var elementId = legacyFromId(input.readUnsignedByte());
+                int size = input.readInt();
+                stateStack.addLast(new State.ListEntry(size, elementId));
+                this.id = elementId;
+                primitive = size;
+                yield Kind.LIST_START;
+            }
+            case COMPOUND -> {
+                stateStack.addLast(new State.CompoundEntryName());
+                yield Kind.COMPOUND_START;
+            }
+            case INT_ARRAY -> {
+                int size = input.readInt();
+                stateStack.addLast(new State.ReadIntArray(size));
+                primitive = size;
+                yield Kind.INT_ARRAY_START;
+            }
+            case LONG_ARRAY -> {
+                int size = input.readInt();
+                stateStack.addLast(new State.ReadLongArray(size));
+                primitive = size;
+                yield Kind.LONG_ARRAY_START;
+            }
+            case END -> throw new NbtParseException("Invalid id: " + id);
+        };
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        switch (stateStack.peekLast()) {
+            case State.ReadValue(LinTagId id) -> {
+                stateStack.removeLast();
+                skip(id);
+            }
+            case State.ListEntry(int remaining, LinTagId elementId) when remaining > 0 -> {
+                stateStack.removeLast();
+                stateStack.addLast(new State.ListEntry(remaining - 1, elementId));
+                skip(elementId);
+            }
+            case null, default -> throw new IllegalStateException("The next element does not start a value");
+        }
+    }
+
+    /**
+     * Skip a value with the given ID, without touching the state stack.
+     *
+     * @param id the ID of the value
+     */
+    private void skip(LinTagId id) throws IOException {
+        switch (id) {
+            case BYTE -> input.skip(Byte.BYTES);
+            case SHORT -> input.skip(Short.BYTES);
+            case INT, FLOAT -> input.skip(Integer.BYTES);
+            case LONG, DOUBLE -> input.skip(Long.BYTES);
+            case BYTE_ARRAY -> input.skip(readSize());
+            case INT_ARRAY -> input.skip(readSize() * (long) Integer.BYTES);
+            case LONG_ARRAY -> input.skip(readSize() * (long) Long.BYTES);
+            case STRING -> input.skip(input.readUnsignedShort());
+            case LIST -> {
+                var elementId = legacyFromId(input.readUnsignedByte());
+                int size = readSize();
+                int width = fixedWidth(elementId);
+                if (width > 0) {
+                    input.skip(size * (long) width);
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        skip(elementId);
+                    }
+                }
+            }
+            case COMPOUND -> {
+                while (true) {
+                    var entryId = legacyFromId(input.readUnsignedByte());
+                    if (entryId == LinTagId.END) {
+                        break;
+                    }
+                    // Skip the name
+                    input.skip(input.readUnsignedShort());
+                    skip(entryId);
+                }
+            }
+            case END -> throw new NbtParseException("Invalid id: " + id);
+        }
+    }
+
+    private int readSize() throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new NbtParseException("Negative size: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * {@return the number of bytes a value with the given ID takes up, or {@code 0} if it varies}
+     *
+     * @param id the ID of the value
+     */
+    private static int fixedWidth(LinTagId id) {
+        return switch (id) {
+            case BYTE -> Byte.BYTES;
+            case SHORT -> Short.BYTES;
+            case INT, FLOAT -> Integer.BYTES;
+            case LONG, DOUBLE -> Long.BYTES;
+            default -> 0;
+        };
+    }
+
+    private void readStringBytes() throws IOException {
+        int length = input.readUnsignedShort();
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+            stringBytesView = null;
+        }
+        input.readFully(stringBytes, 0, length);
+        stringLength = length;
+    }
+
+    private void requireKind(Kind kind) {
+        if (this.kind != kind) {
+            throw new IllegalStateException("Current element is " + this.kind + ", not " + kind);
+        }
+    }
+
+    @Override
+    public @Nullable Kind kind() {
+        return kind;
+    }
+
+    @Override
+    public String name() throws IOException {
+        requireKind(Kind.NAME);
+        return decodeString(nameCache);
+    }
+
+    @Override
+    public ByteBuffer nameBytes() {
+        requireKind(Kind.NAME);
+        return stringBytesView();
+    }
+
+    @Override
+    public LinTagId tagId() {
+        requireKind(Kind.NAME);
+        return id;
+    }
+
+    @Override
+    public byte byteValue() {
+        requireKind(Kind.BYTE);
+        return (byte) primitive;
+    }
+
+    @Override
+    public short shortValue() {
+        requireKind(Kind.SHORT);
+        return (short) primitive;
+    }
+
+    @Override
+    public int intValue() {
+        requireKind(Kind.INT);
+        return (int) primitive;
+    }
+
+    @Override
+    public long longValue() {
+        requireKind(Kind.LONG);
+        return primitive;
+    }
+
+    @Override
+    public float floatValue() {
+        requireKind(Kind.FLOAT);
+        return Float.intBitsToFloat((int) primitive);
+    }
+
+    @Override
+    public double doubleValue() {
+        requireKind(Kind.DOUBLE);
+        return Double.longBitsToDouble(primitive);
+    }
+
+    @Override
+    public String stringValue() throws IOException {
+        requireKind(Kind.STRING);
+        return decodeString(valueCache);
+    }
+
+    @Override
+    public ByteBuffer stringBytes() {
+        requireKind(Kind.STRING);
+        return stringBytesView();
+    }
+
+    @Override
+    public int arraySize() {
+        if (kind != Kind.BYTE_ARRAY_START && kind != Kind.INT_ARRAY_START && kind != Kind.LONG_ARRAY_START) {
+            throw new IllegalStateException("Current element is " + kind + ", not an array start");
+        }
+        return (int) primitive;
+    }
+
+    @Override
+    public int listSize() {
+        requireKind(Kind.LIST_START);
+        return (int) primitive;
+    }
+
+    @Override
+    public LinTagId listElementId() {
+        requireKind(Kind.LIST_START);
+        return id;
+    }
+
+    @Override
+    public ByteBuffer byteArrayContent() {
+        requireKind(Kind.BYTE_ARRAY_CONTENT);
+        return (ByteBuffer) content;
+    }
+
+    @Override
+    public IntBuffer intArrayContent() {
+        requireKind(Kind.INT_ARRAY_CONTENT);
+        return (IntBuffer) content;
+    }
+
+    @Override
+    public LongBuffer longArrayContent() {
+        requireKind(Kind.LONG_ARRAY_CONTENT);
+        return (LongBuffer) content;
+    }
+
+    private ByteBuffer stringBytesView() {
+        ByteBuffer view = stringBytesView;
+        if (view == null) {
+            view = ByteBuffer.wrap(stringBytes).asReadOnlyBuffer();
+            stringBytesView = view;
+        }
+        view.limit(stringLength).position(0);
+        return view;
+    }
+
+    private String decodeString(@Nullable LinStringCache cache) throws IOException {
+        String decoded = decodedString;
+        if (decoded == null) {
+            if (cache != null) {
+                decoded = cache.get(stringBytes, 0, stringLength);
+            }
+            if (decoded == null) {
+                decoded = stringDecoder.decode(stringBytes, stringLength);
+            }
+            decodedString = decoded;
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LinNbtReader} against {@link LegacyLinNbtReader} on chunk-like data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinNbtReaderBenchmark {
+    private static final LinReadOptions OPTIONS = LinReadOptions.builder().build();
+
+    private byte[] data = new byte[0];
+
+    @Setup
+    public void setup() throws IOException {
+        data = chunkLikeData();
+    }
+
+    @Benchmark
+    public void current(Blackhole blackhole) throws IOException {
+        drain(new LinNbtReader(NbtInput.of(ByteBuffer.wrap(data)), OPTIONS), blackhole);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws IOException {
+        drain(new LegacyLinNbtReader(NbtInput.of(ByteBuffer.wrap(data)), OPTIONS), blackhole);
+    }
+
+    private static void drain(LinCursor cursor, Blackhole blackhole) throws IOException {
+        LinCursor.Kind kind;
+        while ((kind = cursor.advance()) != LinCursor.Kind.END_OF_STREAM) {
+            blackhole.consume(kind);
+        }
+    }
+
+    /**
+     * {@return the encoding of a compound shaped like a chunk, with many small lists and compounds}
+     */
+    private static byte[] chunkLikeData() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeByte(LinTagId.COMPOUND.id());
+        out.writeUTF("");
+        entry(out, LinTagId.INT, "DataVersion");
+        out.writeInt(3953);
+        entry(out, LinTagId.INT, "xPos");
+        out.writeInt(12);
+        entry(out, LinTagId.INT, "zPos");
+        out.writeInt(-7);
+
+        entry(out, LinTagId.LIST, "sections");
+        list(out, LinTagId.COMPOUND, 24);
+        for (int y = 0; y < 24; y++) {
+            entry(out, LinTagId.BYTE, "Y");
+            out.writeByte(y - 4);
+            entry(out, LinTagId.COMPOUND, "block_states");
+            entry(out, LinTagId.LIST, "palette");
+            list(out, LinTagId.COMPOUND, 16);
+            for (int i = 0; i < 16; i++) {
+                entry(out, LinTagId.STRING, "Name");
+                out.writeUTF("minecraft:block_" + i);
+                entry(out, LinTagId.COMPOUND, "Properties");
+                entry(out, LinTagId.STRING, "facing");
+                out.writeUTF("north");
+                entry(out, LinTagId.STRING, "waterlogged");
+                out.writeUTF("false");
+                out.writeByte(LinTagId.END.id());
+                out.writeByte(LinTagId.END.id());
+            }
+            entry(out, LinTagId.LONG_ARRAY, "data");
+            out.writeInt(256);
+            for (int i = 0; i < 256; i++) {
+                out.writeLong(i * 0x9E3779B97F4A7C15L);
+            }
+            out.writeByte(LinTagId.END.id());
+            out.writeByte(LinTagId.END.id());
+        }
+
+        entry(out, LinTagId.LIST, "block_entities");
+        list(out, LinTagId.COMPOUND, 64);
+        for (int i = 0; i < 64; i++) {
+            entry(out, LinTagId.STRING, "id");
+            out.writeUTF("minecraft:chest");
+            entry(out, LinTagId.INT, "x");
+            out.writeInt(i);
+            entry(out, LinTagId.INT, "y");
+            out.writeInt(64);
+            entry(out, LinTagId.INT, "z");
+            out.writeInt(-i);
+            entry(out, LinTagId.LIST, "Motion");
+            list(out, LinTagId.DOUBLE, 3);
+            out.writeDouble(0);
+            out.writeDouble(-0.08);
+            out.writeDouble(0);
+            out.writeByte(LinTagId.END.id());
+        }
+
+        entry(out, LinTagId.COMPOUND, "Heightmaps");
+        for (String name : new String[]{"MOTION_BLOCKING", "OCEAN_FLOOR", "WORLD_SURFACE"}) {
+            entry(out, LinTagId.LONG_ARRAY, name);
+            out.writeInt(37);
+            for (int i = 0; i < 37; i++) {
+                out.writeLong(i);
+            }
+        }
+        out.writeByte(LinTagId.END.id());
+        out.writeByte(LinTagId.END.id());
+        return bytes.toByteArray();
+    }
+
+    private static void entry(DataOutputStream out, LinTagId id, String name) throws IOException {
+        out.writeByte(id.id());
+        out.writeUTF(name);
+    }
+
+    private static void list(DataOutputStream out, LinTagId elementId, int size) throws IOException {
+        out.writeByte(elementId.id());
+        out.writeInt(size);
+    }
+}
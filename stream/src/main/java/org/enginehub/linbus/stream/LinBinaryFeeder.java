@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An incremental parser for binary NBT, which is given input as it arrives instead of blocking to read it.
+ *
+ * <p>
+ * Input is {@linkplain #feed(ByteBuffer) fed} in fragments of any size, such as those read from a non-blocking
+ * channel. After each fragment, call {@link #nextOrNull()} until it returns {@code null} to get all the tokens that
+ * are complete so far. If it returns {@code null} and {@link #isFinished()} is {@code false}, more input is needed.
+ * </p>
+ *
+ * <p>
+ * Input is copied when fed, so the caller can reuse its buffers. Array content is delivered in chunks, so large
+ * arrays don't need to be buffered in full. Unlike {@link LinStream}, a {@code null} token does not mean the end of
+ * the stream, so a feeder can't be used where a stream is expected.
+ * </p>
+ */
+public interface LinBinaryFeeder {
+    /**
+     * Feed more input to the parser. All the remaining bytes of the buffer are consumed.
+     *
+     * @param data the input
+     * @throws IllegalStateException if {@link #endOfInput()} was called
+     */
+    void feed(ByteBuffer data);
+
+    /**
+     * Signal that no more input will be fed. After this, running out of input is an error.
+     */
+    void endOfInput();
+
+    /**
+     * Get the next complete token.
+     *
+     * @return the next token, or {@code null} if more input is needed or the stream is {@linkplain #isFinished()
+     *     finished}
+     * @throws IOException if the input is not valid NBT, or ends early after {@link #endOfInput()}
+     */
+    @Nullable LinToken nextOrNull() throws IOException;
+
+    /**
+     * {@return {@code true} if the whole root entry has been returned}
+     */
+    boolean isFinished();
+
+    /**
+     * Get the input that was fed but not parsed yet. Once the parser is {@linkplain #isFinished() finished}, this is
+     * any input that followed the NBT.
+     *
+     * @return a read-only view of the remaining input
+     */
+    ByteBuffer remainingInput();
+}
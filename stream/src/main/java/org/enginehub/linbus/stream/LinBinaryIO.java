@@ -20,8 +20,11 @@
 
 import org.enginehub.linbus.common.IOFunction;
 import org.enginehub.linbus.common.LinTagId;
-import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.impl.CursorLinStream;
+import org.enginehub.linbus.stream.impl.LinNbtFeeder;
 import org.enginehub.linbus.stream.impl.LinNbtReader;
+import org.enginehub.linbus.stream.impl.LinNbtWriter;
+import org.enginehub.linbus.stream.impl.NbtInput;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
@@ -30,15 +33,24 @@
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.LongBuffer;
-import java.util.Optional;
-import java.util.OptionalInt;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Reads and writes NBT streams.
  */
 public class LinBinaryIO {
+    /**
+     * Files at least this large are mapped rather than read into memory. Mapping has a fixed cost that isn't worth
+     * paying for small files.
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
     /**
      * Read a stream of NBT tokens from a {@link DataInput}.
      *
@@ -65,7 +77,281 @@ public static LinStream read(DataInput input) {
      * @return the stream of NBT tokens
      */
     public static LinStream read(DataInput input, LinReadOptions options) {
-        return new LinNbtReader(input, options);
+        return new CursorLinStream(cursor(input, options));
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ByteBuffer}, such as one from
+     * {@link java.nio.channels.FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.
+     *
+     * <p>
+     * Reading starts at the buffer's position and stops at its limit. The buffer's position, limit, and byte order
+     * are not modified. Array content tokens are read-only slices of the buffer rather than copies, so the buffer's
+     * content must not be modified while the tokens are in use.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @return the stream of NBT tokens
+     */
+    public static LinStream read(ByteBuffer buffer) {
+        return read(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ByteBuffer}, such as one from
+     * {@link java.nio.channels.FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.
+     *
+     * <p>
+     * Reading starts at the buffer's position and stops at its limit. The buffer's position, limit, and byte order
+     * are not modified. Array content tokens are read-only slices of the buffer rather than copies, so the buffer's
+     * content must not be modified while the tokens are in use.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param options the options for reading
+     * @return the stream of NBT tokens
+     */
+    public static LinStream read(ByteBuffer buffer, LinReadOptions options) {
+        return new CursorLinStream(cursor(buffer, options));
+    }
+
+    /**
+     * Read a stream of NBT tokens from a file, which may be gzip or zlib compressed. The compression is detected from
+     * the first bytes of the file.
+     *
+     * <p>
+     * The file is read into memory, or mapped if it is large, before this method returns.
+     * </p>
+     *
+     * @param file the file to read from
+     * @return the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream readFile(Path file) throws IOException {
+        return readFile(file, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens from a file, which may be gzip or zlib compressed. The compression is detected from
+     * the first bytes of the file.
+     *
+     * <p>
+     * The file is read into memory, or mapped if it is large, before this method returns.
+     * </p>
+     *
+     * @param file the file to read from
+     * @param options the options for reading
+     * @return the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream readFile(Path file, LinReadOptions options) throws IOException {
+        return readCompressed(loadFile(file), options);
+    }
+
+    /**
+     * Read a file into memory, or map it if it is large.
+     *
+     * @param file the file
+     * @return the content of the file
+     * @throws IOException if an I/O error occurs
+     */
+    static ByteBuffer loadFile(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ReadableByteChannel}, which may provide gzip or zlib compressed data.
+     * The compression is detected from the first bytes read.
+     *
+     * <p>
+     * The channel must be in blocking mode. It will not be closed by the iterator. The caller is responsible for
+     * managing the lifetime of the channel. The iterator may read past the end of the NBT data.
+     * </p>
+     *
+     * @param channel the channel to read from
+     * @return the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream read(ReadableByteChannel channel) throws IOException {
+        return read(channel, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ReadableByteChannel}, which may provide gzip or zlib compressed data.
+     * The compression is detected from the first bytes read.
+     *
+     * <p>
+     * The channel must be in blocking mode. It will not be closed by the iterator. The caller is responsible for
+     * managing the lifetime of the channel. The iterator may read past the end of the NBT data.
+     * </p>
+     *
+     * @param channel the channel to read from
+     * @param options the options for reading
+     * @return the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream read(ReadableByteChannel channel, LinReadOptions options) throws IOException {
+        if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("Channel must be in blocking mode, use a feeder for non-blocking input");
+        }
+        return new CursorLinStream(new LinNbtReader(NbtInput.ofCompressed(channel), options));
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ByteBuffer} which may hold gzip or zlib compressed data. The
+     * compression is detected from the first bytes of the buffer.
+     *
+     * <p>
+     * Compressed data is inflated as it is read. Uncompressed data is read as in {@link #read(ByteBuffer)}. In both
+     * cases, the buffer's position, limit, and byte order are not modified.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @return the stream of NBT tokens
+     * @throws IOException if the compressed data has an invalid header
+     */
+    public static LinStream readCompressed(ByteBuffer buffer) throws IOException {
+        return readCompressed(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens from a {@link ByteBuffer} which may hold gzip or zlib compressed data. The
+     * compression is detected from the first bytes of the buffer.
+     *
+     * <p>
+     * Compressed data is inflated as it is read. Uncompressed data is read as in {@link #read(ByteBuffer)}. In both
+     * cases, the buffer's position, limit, and byte order are not modified.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param options the options for reading
+     * @return the stream of NBT tokens
+     * @throws IOException if the compressed data has an invalid header
+     */
+    public static LinStream readCompressed(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        return new CursorLinStream(new LinNbtReader(NbtInput.ofCompressed(buffer), options));
+    }
+
+    /**
+     * Read a stream of NBT tokens for a single unnamed value from a {@link ByteBuffer}, such as the value of a compound
+     * entry without its ID and name. The stream has no {@link LinToken.Name} tokens outside the value, and ends after
+     * it.
+     *
+     * <p>
+     * See {@link #read(ByteBuffer)} for how the buffer is used.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param id the ID of the value
+     * @return the stream of NBT tokens
+     */
+    public static LinStream readValue(ByteBuffer buffer, LinTagId id) {
+        return readValue(buffer, id, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a stream of NBT tokens for a single unnamed value from a {@link ByteBuffer}, such as the value of a compound
+     * entry without its ID and name. The stream has no {@link LinToken.Name} tokens outside the value, and ends after
+     * it.
+     *
+     * <p>
+     * See {@link #read(ByteBuffer)} for how the buffer is used.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param id the ID of the value
+     * @param options the options for reading
+     * @return the stream of NBT tokens
+     */
+    public static LinStream readValue(ByteBuffer buffer, LinTagId id, LinReadOptions options) {
+        return new CursorLinStream(new LinNbtReader(NbtInput.of(buffer), options, id));
+    }
+
+    /**
+     * Read NBT from a {@link DataInput} using a {@link LinCursor}. This avoids allocating a token for every element.
+     *
+     * <p>
+     * The input will not be closed by the cursor. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @return the cursor
+     */
+    public static LinCursor cursor(DataInput input) {
+        return cursor(input, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read NBT from a {@link DataInput} using a {@link LinCursor}. This avoids allocating a token for every element.
+     *
+     * <p>
+     * The input will not be closed by the cursor. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @param options the options for reading
+     * @return the cursor
+     */
+    public static LinCursor cursor(DataInput input, LinReadOptions options) {
+        return new LinNbtReader(NbtInput.of(input), options);
+    }
+
+    /**
+     * Read NBT from a {@link ByteBuffer} using a {@link LinCursor}. This avoids allocating a token for every element.
+     *
+     * <p>
+     * See {@link #read(ByteBuffer)} for how the buffer is used.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @return the cursor
+     */
+    public static LinCursor cursor(ByteBuffer buffer) {
+        return cursor(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read NBT from a {@link ByteBuffer} using a {@link LinCursor}. This avoids allocating a token for every element.
+     *
+     * <p>
+     * See {@link #read(ByteBuffer)} for how the buffer is used.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param options the options for reading
+     * @return the cursor
+     */
+    public static LinCursor cursor(ByteBuffer buffer, LinReadOptions options) {
+        return new LinNbtReader(NbtInput.of(buffer), options);
+    }
+
+    /**
+     * Create an incremental parser, which is fed binary NBT as it arrives instead of reading it.
+     *
+     * @return the parser
+     */
+    public static LinBinaryFeeder feeder() {
+        return feeder(LinReadOptions.builder().build());
+    }
+
+    /**
+     * Create an incremental parser, which is fed binary NBT as it arrives instead of reading it.
+     *
+     * @param options the options for reading
+     * @return the parser
+     */
+    public static LinBinaryFeeder feeder(LinReadOptions options) {
+        return new LinNbtFeeder(options);
     }
 
     /**
@@ -110,7 +396,15 @@ public static LinStream read(DataInput input, LinReadOptions options) {
      *
      * <p>
      * If optional information is not available, it will be calculated. See {@link LinStream#calculateOptionalInfo()}
-     * for details on what that means for memory and speed.
+     * for details on what that means for memory and speed. To bound the memory used, pass a stream that has already
+     * been through {@link LinStream#calculateOptionalInfo(long)}.
+     * </p>
+     *
+     * <p>
+     * The tokens are written through an internal buffer, and the output only receives
+     * {@link DataOutput#write(byte[], int, int)} calls, so an {@link java.io.OutputStream} can be wrapped in a
+     * {@link java.io.DataOutputStream} without any per-value overhead. Everything has been passed to the output when
+     * this method returns. The content buffers of the tokens are not modified.
      * </p>
      *
      * <p>
@@ -122,134 +416,93 @@ public static LinStream read(DataInput input, LinReadOptions options) {
      * @throws IOException if an I/O error occurs
      */
     public static void write(DataOutput output, LinStreamable tokens) throws IOException {
-        // This is essentially free if the info is already there, so we can just do it.
-        LinStream tokenStream = tokens.linStream().calculateOptionalInfo();
-        boolean seenFirstName = false;
-        // This also signals if we're in a compound tag or not.
-        String nextName = null;
-        LinToken token;
-        while ((token = tokenStream.nextOrNull()) != null) {
-            if (!seenFirstName) {
-                if (token instanceof LinToken.Name) {
-                    seenFirstName = true;
-                } else {
-                    // It's not legal to write without a name.
-                    throw new NbtWriteException("Expected first token to be a name");
-                }
-            }
-            switch (token) {
-                case LinToken.Name(String name, Optional<LinTagId> id) ->
-                    // We need to hold this until we print the id
-                    nextName = name;
-                case LinToken.ByteArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.BYTE_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
-                    var copy = new byte[buffer.remaining()];
-                    buffer.get(copy);
-                    output.write(copy);
-                }
-                case LinToken.ByteArrayEnd byteArrayEnd -> {
-                    // Nothing to do
-                }
-                case LinToken.Byte(byte value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.BYTE, nextName);
-                    nextName = null;
-
-                    output.writeByte(value);
-                }
-                case LinToken.CompoundStart compoundStart -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.COMPOUND, nextName);
-                    nextName = null;
-                }
-                case LinToken.CompoundEnd compoundEnd -> output.writeByte(LinTagId.END.id());
-                case LinToken.Double(double value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.DOUBLE, nextName);
-                    nextName = null;
-
-                    output.writeDouble(value);
-                }
-                case LinToken.Float(float value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.FLOAT, nextName);
-                    nextName = null;
-
-                    output.writeFloat(value);
-                }
-                case LinToken.IntArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.INT_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.IntArrayContent(IntBuffer buffer) -> {
-                    while (buffer.hasRemaining()) {
-                        output.writeInt(buffer.get());
-                    }
-                }
-                case LinToken.IntArrayEnd intArrayEnd -> {
-                    // Nothing to do
-                }
-                case LinToken.Int(int value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.INT, nextName);
-                    nextName = null;
-
-                    output.writeInt(value);
-                }
-                case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LIST, nextName);
-                    nextName = null;
-
-                    output.writeByte(elementId.orElseThrow().id());
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.ListEnd listEnd -> {
-                    // Nothing to do
-                }
-                case LinToken.LongArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LONG_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.LongArrayContent(LongBuffer buffer) -> {
-                    while (buffer.hasRemaining()) {
-                        output.writeLong(buffer.get());
-                    }
-                }
-                case LinToken.LongArrayEnd longArrayEnd -> {
-                    // Nothing to do
-                }
-                case LinToken.Long(long value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LONG, nextName);
-                    nextName = null;
-
-                    output.writeLong(value);
-                }
-                case LinToken.Short(short value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.SHORT, nextName);
-                    nextName = null;
+        new LinNbtWriter(LinNbtWriter.Sink.of(output)).write(tokens);
+    }
 
-                    output.writeShort(value);
-                }
-                case LinToken.String(String value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.STRING, nextName);
-                    nextName = null;
+    /**
+     * Write a stream of NBT tokens to a {@link WritableByteChannel}.
+     *
+     * <p>
+     * See {@link #write(DataOutput, LinStreamable)} for how the tokens are written.
+     * </p>
+     *
+     * <p>
+     * The channel must be in blocking mode. It will not be closed by this method. The caller is responsible for
+     * managing the lifetime of the channel.
+     * </p>
+     *
+     * @param channel the channel to write to
+     * @param tokens the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(WritableByteChannel channel, LinStreamable tokens) throws IOException {
+        if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("Channel must be in blocking mode");
+        }
+        new LinNbtWriter(LinNbtWriter.Sink.of(channel)).write(tokens);
+    }
 
-                    output.writeUTF(value);
-                }
-                default -> throw new NbtWriteException("Unknown token: " + token);
-            }
+    /**
+     * Write a stream of NBT tokens to a {@link SeekableByteChannel}, such as a {@link FileChannel}, starting at its
+     * current position.
+     *
+     * <p>
+     * Unlike the other write methods, optional information is not calculated. List and array sizes, and list element
+     * IDs, that are missing from the tokens are written as placeholders and back-patched once their end token is
+     * reached, so memory use doesn't depend on the size of the lists and arrays. Otherwise, see
+     * {@link #write(DataOutput, LinStreamable)} for how the tokens are written.
+     * </p>
+     *
+     * <p>
+     * The channel must be in blocking mode, and must not be in append mode. It will not be closed by this method. The
+     * caller is responsible for managing the lifetime of the channel.
+     * </p>
+     *
+     * @param channel the channel to write to
+     * @param tokens the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(SeekableByteChannel channel, LinStreamable tokens) throws IOException {
+        if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("Channel must be in blocking mode");
         }
+        new LinNbtWriter(LinNbtWriter.Sink.of(channel)).write(tokens);
     }
 
-    private static void writeIdAndNameIfNeeded(DataOutput output, LinTagId id, @Nullable String name) throws IOException {
-        if (name != null) {
-            output.writeByte(id.id());
-            output.writeUTF(name);
+    /**
+     * Write a stream of NBT tokens to a new heap {@link ByteBuffer}, which grows as needed.
+     *
+     * <p>
+     * As with {@link #write(SeekableByteChannel, LinStreamable)}, optional information is not calculated, and missing
+     * sizes are back-patched instead.
+     * </p>
+     *
+     * @param tokens the stream of NBT tokens
+     * @return the buffer, with its position at zero and its limit at the end of the written bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteBuffer writeToBuffer(LinStreamable tokens) throws IOException {
+        return writeToBuffer(tokens, 256);
+    }
+
+    /**
+     * Write a stream of NBT tokens to a new heap {@link ByteBuffer}, which starts with the given capacity and grows as
+     * needed. If the expected size is exact, the buffer is allocated once, and its backing array is exactly full.
+     *
+     * <p>
+     * See {@link #writeToBuffer(LinStreamable)} for how the tokens are written.
+     * </p>
+     *
+     * @param tokens the stream of NBT tokens
+     * @param expectedSize the expected number of bytes
+     * @return the buffer, with its position at zero and its limit at the end of the written bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteBuffer writeToBuffer(LinStreamable tokens, int expectedSize) throws IOException {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative, got " + expectedSize);
         }
+        return LinNbtWriter.writeToBuffer(tokens, expectedSize);
     }
 
     private LinBinaryIO() {
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A pull-style reader of NBT that exposes each element through accessors instead of allocating a {@link LinToken} for
+ * it. Each element corresponds to exactly one token of the equivalent {@link LinStream}.
+ *
+ * <p>
+ * Call {@link #advance()} to move to the next element, then use the accessors matching its {@link Kind}. Accessors
+ * are only valid until the next call to {@link #advance()}, and throw {@link IllegalStateException} if they do not
+ * match the current kind. Buffers returned by the accessors may be reused, so they should be consumed before advancing.
+ * </p>
+ */
+public interface LinCursor extends AutoCloseable {
+    /**
+     * The kinds of element that a cursor can be positioned at. Except for {@link #END_OF_STREAM}, each of these has a
+     * matching {@link LinToken} type.
+     */
+    enum Kind {
+        /**
+         * See {@link LinToken.Name}. Use {@link #name()}, {@link #nameBytes()}, and {@link #tagId()}.
+         */
+        NAME,
+        /**
+         * See {@link LinToken.ByteArrayStart}. Use {@link #arraySize()}.
+         */
+        BYTE_ARRAY_START,
+        /**
+         * See {@link LinToken.ByteArrayContent}. Use {@link #byteArrayContent()}.
+         */
+        BYTE_ARRAY_CONTENT,
+        /**
+         * See {@link LinToken.ByteArrayEnd}.
+         */
+        BYTE_ARRAY_END,
+        /**
+         * See {@link LinToken.Byte}. Use {@link #byteValue()}.
+         */
+        BYTE,
+        /**
+         * See {@link LinToken.CompoundStart}.
+         */
+        COMPOUND_START,
+        /**
+         * See {@link LinToken.CompoundEnd}.
+         */
+        COMPOUND_END,
+        /**
+         * See {@link LinToken.Double}. Use {@link #doubleValue()}.
+         */
+        DOUBLE,
+        /**
+         * See {@link LinToken.Float}. Use {@link #floatValue()}.
+         */
+        FLOAT,
+        /**
+         * See {@link LinToken.IntArrayStart}. Use {@link #arraySize()}.
+         */
+        INT_ARRAY_START,
+        /**
+         * See {@link LinToken.IntArrayContent}. Use {@link #intArrayContent()}.
+         */
+        INT_ARRAY_CONTENT,
+        /**
+         * See {@link LinToken.IntArrayEnd}.
+         */
+        INT_ARRAY_END,
+        /**
+         * See {@link LinToken.Int}. Use {@link #intValue()}.
+         */
+        INT,
+        /**
+         * See {@link LinToken.ListStart}. Use {@link #listSize()} and {@link #listElementId()}.
+         */
+        LIST_START,
+        /**
+         * See {@link LinToken.ListContent}. Use {@link #listContent()}. Only read when
+         * {@linkplain LinReadOptions#packPrimitiveLists() enabled}.
+         */
+        LIST_CONTENT,
+        /**
+         * See {@link LinToken.ListEnd}.
+         */
+        LIST_END,
+        /**
+         * See {@link LinToken.LongArrayStart}. Use {@link #arraySize()}.
+         */
+        LONG_ARRAY_START,
+        /**
+         * See {@link LinToken.LongArrayContent}. Use {@link #longArrayContent()}.
+         */
+        LONG_ARRAY_CONTENT,
+        /**
+         * See {@link LinToken.LongArrayEnd}.
+         */
+        LONG_ARRAY_END,
+        /**
+         * See {@link LinToken.Long}. Use {@link #longValue()}.
+         */
+        LONG,
+        /**
+         * See {@link LinToken.Short}. Use {@link #shortValue()}.
+         */
+        SHORT,
+        /**
+         * See {@link LinToken.String}. Use {@link #stringValue()} and {@link #stringBytes()}.
+         */
+        STRING,
+        /**
+         * The stream is exhausted. Once a cursor reaches this, it stays here.
+         */
+        END_OF_STREAM,
+    }
+
+    /**
+     * Move to the next element.
+     *
+     * @return the kind of the new current element
+     * @throws IOException if an I/O error occurs
+     */
+    Kind advance() throws IOException;
+
+    /**
+     * Skip the value that the next call to {@link #advance()} would start, without reading it. This may be called when
+     * the current element is a {@link Kind#NAME}, or inside a list when there is another element left. In a list read
+     * as {@link Kind#LIST_CONTENT}, this skips a single element.
+     *
+     * <p>
+     * Implementations should skip over the value's bytes without decoding them where possible. The current element
+     * is not changed.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the next element does not start a value
+     */
+    void skipValue() throws IOException;
+
+    /**
+     * {@return the kind of the current element} Before the first call to {@link #advance()}, this is {@code null}.
+     */
+    @Nullable Kind kind();
+
+    /**
+     * {@return the name at the current {@link Kind#NAME} element}
+     *
+     * @throws IOException if the name cannot be decoded
+     */
+    String name() throws IOException;
+
+    /**
+     * {@return the raw, undecoded bytes of the name at the current {@link Kind#NAME} element} These are in the
+     * encoding used by the input, usually the modified UTF-8 of {@link java.io.DataInput#readUTF()}.
+     */
+    ByteBuffer nameBytes();
+
+    /**
+     * {@return the ID of the value named by the current {@link Kind#NAME} element}
+     */
+    LinTagId tagId();
+
+    /**
+     * {@return the value of the current {@link Kind#BYTE} element}
+     */
+    byte byteValue();
+
+    /**
+     * {@return the value of the current {@link Kind#SHORT} element}
+     */
+    short shortValue();
+
+    /**
+     * {@return the value of the current {@link Kind#INT} element}
+     */
+    int intValue();
+
+    /**
+     * {@return the value of the current {@link Kind#LONG} element}
+     */
+    long longValue();
+
+    /**
+     * {@return the value of the current {@link Kind#FLOAT} element}
+     */
+    float floatValue();
+
+    /**
+     * {@return the value of the current {@link Kind#DOUBLE} element}
+     */
+    double doubleValue();
+
+    /**
+     * {@return the value of the current {@link Kind#STRING} element}
+     *
+     * @throws IOException if the string cannot be decoded
+     */
+    String stringValue() throws IOException;
+
+    /**
+     * {@return the raw, undecoded bytes of the current {@link Kind#STRING} element} See {@link #nameBytes()} for the
+     * encoding.
+     */
+    ByteBuffer stringBytes();
+
+    /**
+     * {@return the number of elements in the array at the current {@link Kind#BYTE_ARRAY_START},
+     * {@link Kind#INT_ARRAY_START}, or {@link Kind#LONG_ARRAY_START} element}
+     */
+    int arraySize();
+
+    /**
+     * {@return the number of elements in the list at the current {@link Kind#LIST_START} element}
+     */
+    int listSize();
+
+    /**
+     * {@return the ID of the elements in the list at the current {@link Kind#LIST_START} element}
+     */
+    LinTagId listElementId();
+
+    /**
+     * {@return the elements at the current {@link Kind#LIST_CONTENT} element, as a read-only buffer} See
+     * {@link LinToken.ListContent} for the buffer types.
+     */
+    Buffer listContent();
+
+    /**
+     * {@return the content at the current {@link Kind#BYTE_ARRAY_CONTENT} element, as a read-only buffer}
+     */
+    ByteBuffer byteArrayContent();
+
+    /**
+     * {@return the content at the current {@link Kind#INT_ARRAY_CONTENT} element, as a read-only buffer}
+     */
+    IntBuffer intArrayContent();
+
+    /**
+     * {@return the content at the current {@link Kind#LONG_ARRAY_CONTENT} element, as a read-only buffer}
+     */
+    LongBuffer longArrayContent();
+
+    /**
+     * Release the resources held by this cursor, such as pooled inflaters. Cursors release them by themselves when they
+     * reach the end of the input, so this only needs to be called when a cursor is abandoned early. The cursor must not
+     * be used afterwards.
+     *
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.impl.LinNbtReader;
+import org.enginehub.linbus.stream.impl.NbtInput;
+import org.enginehub.linbus.stream.impl.PathParser;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An index of where every value is in an uncompressed binary NBT root entry, for reading single values without
+ * parsing everything before them.
+ *
+ * <p>
+ * The index records the type, offset, and length of the root compound, every compound entry, and every list element.
+ * Values are found with the path syntax of {@link LinProjection}, plus {@code [n]} for the element at index
+ * {@code n} of a list, e.g. {@code Level.Entities[5012].Pos}. Paths must select a single value, so {@code *} and
+ * {@code [*]} are not allowed. The found value can then be read from the indexed bytes with
+ * {@link #read(ByteBuffer, String)}.
+ * </p>
+ *
+ * <p>
+ * Building an index reads the whole input once, but doesn't decode any values other than names. An index can be
+ * {@linkplain #save(Path) saved} next to the file it was built from, by convention in {@link #indexFile(Path)}, and
+ * {@linkplain #load(Path) loaded} again later. Nothing checks that a loaded index matches the file beyond its length,
+ * so callers should rebuild it when the file changes.
+ * </p>
+ */
+public final class LinNbtIndex {
+    /**
+     * The file extension used by {@link #indexFile(Path)}.
+     */
+    public static final String FILE_EXTENSION = ".linidx";
+
+    private static final int MAGIC = 0x4C494E58; // LINX
+    private static final int VERSION = 1;
+
+    /**
+     * The location of a value in the indexed bytes.
+     *
+     * @param id the ID of the value
+     * @param offset the offset of the value from the start of the indexed bytes
+     * @param length the length of the value in bytes
+     */
+    public record Entry(LinTagId id, int offset, int length) {
+    }
+
+    /**
+     * Get the conventional location of the index for a file, which is next to the file with
+     * {@link #FILE_EXTENSION} appended to its name.
+     *
+     * @param file the file
+     * @return the location of the index
+     */
+    public static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + FILE_EXTENSION);
+    }
+
+    /**
+     * Build an index of a root entry in a buffer.
+     *
+     * @param buffer the buffer to read from, from its position to its limit, which is not modified
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinNbtIndex build(ByteBuffer buffer) throws IOException {
+        return build(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Build an index of a root entry in a buffer.
+     *
+     * @param buffer the buffer to read from, from its position to its limit, which is not modified
+     * @param options the options for reading
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinNbtIndex build(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        return new Builder(buffer, options).build();
+    }
+
+    /**
+     * Load an index that was {@linkplain #save(Path) saved} to a file.
+     *
+     * @param indexFile the file to load from
+     * @return the index
+     * @throws IOException if an I/O error occurs, or the file is not an index
+     */
+    public static LinNbtIndex load(Path indexFile) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC) {
+                throw new NbtParseException("Not an index file: " + indexFile);
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new NbtParseException("Unsupported index version: " + version);
+            }
+            int sourceLength = input.readInt();
+            int size = input.readInt();
+            var index = new LinNbtIndex(sourceLength, size);
+            for (int i = 0; i < size; i++) {
+                index.ids[i] = (byte) input.readUnsignedByte();
+                index.offsets[i] = input.readInt();
+                index.lengths[i] = input.readInt();
+                index.firstChildren[i] = input.readInt();
+                index.childCounts[i] = input.readInt();
+                index.names[i] = input.readBoolean() ? input.readUTF() : null;
+            }
+            index.children = new int[input.readInt()];
+            for (int i = 0; i < index.children.length; i++) {
+                index.children[i] = input.readInt();
+            }
+            return index;
+        }
+    }
+
+    private final int sourceLength;
+    private final int size;
+    private final byte[] ids;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+    private final @Nullable String[] names;
+    private int[] children = new int[0];
+
+    private LinNbtIndex(int sourceLength, int size) {
+        this.sourceLength = sourceLength;
+        this.size = size;
+        this.ids = new byte[size];
+        this.offsets = new int[size];
+        this.lengths = new int[size];
+        this.firstChildren = new int[size];
+        this.childCounts = new int[size];
+        this.names = new String[size];
+    }
+
+    /**
+     * {@return the length of the indexed bytes}
+     */
+    public int sourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * {@return the number of values in the index, including the root compound}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the value at the given path.
+     *
+     * @param path the path of the value
+     * @return the location of the value, or {@code null} if there is no value at the path
+     * @throws IllegalArgumentException if the path is malformed, or doesn't select a single value
+     */
+    public @Nullable Entry find(String path) {
+        int node = 0;
+        for (PathParser.Segment segment : PathParser.parse(path)) {
+            if (node < 0) {
+                continue;
+            }
+            node = switch (segment) {
+                case PathParser.Name name -> findEntry(node, name.name());
+                case PathParser.Element element -> findElement(node, element.index());
+                case PathParser.AnyName anyName -> throw notSingle(path);
+                case PathParser.AllElements allElements -> throw notSingle(path);
+            };
+        }
+        return node < 0 ? null : new Entry(LinTagId.fromId(ids[node]), offsets[node], lengths[node]);
+    }
+
+    private static IllegalArgumentException notSingle(String path) {
+        return new IllegalArgumentException("Path must select a single value: '" + path + "'");
+    }
+
+    private int findEntry(int node, String name) {
+        if (ids[node] != LinTagId.COMPOUND.id()) {
+            return -1;
+        }
+        int first = firstChildren[node];
+        for (int i = first; i < first + childCounts[node]; i++) {
+            if (name.equals(names[children[i]])) {
+                return children[i];
+            }
+        }
+        return -1;
+    }
+
+    private int findElement(int node, int index) {
+        if (ids[node] != LinTagId.LIST.id() || index >= childCounts[node]) {
+            return -1;
+        }
+        return children[firstChildren[node] + index];
+    }
+
+    /**
+     * Read the value at the given path from the indexed bytes.
+     *
+     * @param buffer the buffer holding the indexed bytes, from its position to its limit, which is not modified
+     * @param path the path of the value
+     * @return the stream of NBT tokens for the value, as from {@link LinBinaryIO#readValue(ByteBuffer, LinTagId)}
+     * @throws IllegalArgumentException if the path is malformed or doesn't select a single value, or the buffer is not
+     *     the length of the indexed bytes
+     * @throws NoSuchElementException if there is no value at the path
+     */
+    public LinStream read(ByteBuffer buffer, String path) {
+        return read(buffer, path, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read the value at the given path from the indexed bytes.
+     *
+     * @param buffer the buffer holding the indexed bytes, from its position to its limit, which is not modified
+     * @param path the path of the value
+     * @param options the options for reading
+     * @return the stream of NBT tokens for the value, as from {@link LinBinaryIO#readValue(ByteBuffer, LinTagId)}
+     * @throws IllegalArgumentException if the path is malformed or doesn't select a single value, or the buffer is not
+     *     the length of the indexed bytes
+     * @throws NoSuchElementException if there is no value at the path
+     */
+    public LinStream read(ByteBuffer buffer, String path, LinReadOptions options) {
+        if (buffer.remaining() != sourceLength) {
+            throw new IllegalArgumentException(
+                "Index is for " + sourceLength + " bytes, but the buffer has " + buffer.remaining()
+            );
+        }
+        Entry entry = find(path);
+        if (entry == null) {
+            throw new NoSuchElementException("No value at path '" + path + "'");
+        }
+        return LinBinaryIO.readValue(
+            buffer.slice(buffer.position() + entry.offset(), entry.length()), entry.id(), options
+        );
+    }
+
+    /**
+     * Save this index to a file, replacing it if it exists.
+     *
+     * @param indexFile the file to save to
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Path indexFile) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(sourceLength);
+            output.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                output.writeByte(ids[i]);
+                output.writeInt(offsets[i]);
+                output.writeInt(lengths[i]);
+                output.writeInt(firstChildren[i]);
+                output.writeInt(childCounts[i]);
+                String name = names[i];
+                output.writeBoolean(name != null);
+                if (name != null) {
+                    output.writeUTF(name);
+                }
+            }
+            output.writeInt(children.length);
+            for (int child : children) {
+                output.writeInt(child);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LinNbtIndex{sourceLength=" + sourceLength + ", size=" + size + "}";
+    }
+
+    /**
+     * Scans the input, adding a node for every value. The children of each compound or list are collected on a
+     * shared stack while it is open, and moved to the children array together when it ends, so that they can be
+     * found from the node with an offset and a count.
+     */
+    private static final class Builder {
+        private final NbtInput input;
+        private final LinNbtReader reader;
+        private final int sourceLength;
+        private int size;
+        private byte[] ids = new byte[64];
+        private int[] offsets = new int[64];
+        private int[] lengths = new int[64];
+        private int[] firstChildren = new int[64];
+        private int[] childCounts = new int[64];
+        private @Nullable String[] names = new String[64];
+        private int[] children = new int[64];
+        private int childrenSize;
+        private int[] pending = new int[64];
+        private int pendingSize;
+        // The open compounds and lists, with where their children start on the pending stack,
+        // and for lists, the number of elements left and their ID
+        private int[] open = new int[16];
+        private int[] openPending = new int[16];
+        private int[] openRemaining = new int[16];
+        private LinTagId[] openElementIds = new LinTagId[16];
+        private int depth;
+
+        Builder(ByteBuffer buffer, LinReadOptions options) {
+            this.input = NbtInput.of(buffer);
+            this.reader = new LinNbtReader(input, options);
+            this.sourceLength = buffer.remaining();
+        }
+
+        LinNbtIndex build() throws IOException {
+            // Checks that the root is a compound
+            reader.advance();
+            enter(addNode(null, LinTagId.COMPOUND), LinTagId.COMPOUND);
+            while (depth > 0) {
+                int top = depth - 1;
+                int node = open[top];
+                if (ids[node] == LinTagId.COMPOUND.id()) {
+                    if (reader.advance() == LinCursor.Kind.COMPOUND_END) {
+                        close();
+                        continue;
+                    }
+                    LinTagId id = reader.tagId();
+                    enter(addNode(reader.name(), id), id);
+                } else {
+                    if (openRemaining[top] == 0) {
+                        reader.advance();
+                        close();
+                        continue;
+                    }
+                    openRemaining[top]--;
+                    LinTagId id = openElementIds[top];
+                    enter(addNode(null, id), id);
+                }
+            }
+
+            var index = new LinNbtIndex(sourceLength, size);
+            System.arraycopy(ids, 0, index.ids, 0, size);
+            System.arraycopy(offsets, 0, index.offsets, 0, size);
+            System.arraycopy(lengths, 0, index.lengths, 0, size);
+            System.arraycopy(firstChildren, 0, index.firstChildren, 0, size);
+            System.arraycopy(childCounts, 0, index.childCounts, 0, size);
+            System.arraycopy(names, 0, index.names, 0, size);
+            index.children = Arrays.copyOf(children, childrenSize);
+            return index;
+        }
+
+        private int addNode(@Nullable String name, LinTagId id) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            int node = size++;
+            ids[node] = (byte) id.id();
+            offsets[node] = (int) input.position();
+            names[node] = name;
+            if (depth > 0) {
+                if (pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = node;
+            }
+            return node;
+        }
+
+        private void enter(int node, LinTagId id) throws IOException {
+            if (id != LinTagId.COMPOUND && id != LinTagId.LIST) {
+                reader.skipValue();
+                lengths[node] = (int) input.position() - offsets[node];
+                return;
+            }
+            reader.advance();
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                openPending = Arrays.copyOf(openPending, depth * 2);
+                openRemaining = Arrays.copyOf(openRemaining, depth * 2);
+                openElementIds = Arrays.copyOf(openElementIds, depth * 2);
+            }
+            open[depth] = node;
+            openPending[depth] = pendingSize;
+            if (id == LinTagId.LIST) {
+                openRemaining[depth] = reader.listSize();
+                openElementIds[depth] = reader.listElementId();
+            }
+            depth++;
+        }
+
+        private void close() {
+            depth--;
+            int node = open[depth];
+            int start = openPending[depth];
+            int count = pendingSize - start;
+            lengths[node] = (int) input.position() - offsets[node];
+            if (childrenSize + count > children.length) {
+                children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + count));
+            }
+            System.arraycopy(pending, start, children, childrenSize, count);
+            firstChildren[node] = childrenSize;
+            childCounts[node] = count;
+            childrenSize += count;
+            pendingSize = start;
+        }
+    }
+}
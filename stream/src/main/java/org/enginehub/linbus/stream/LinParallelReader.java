@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.IOFunction;
+import org.enginehub.linbus.stream.impl.CursorLinStream;
+import org.enginehub.linbus.stream.impl.ReaderContext;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reads many independent NBT payloads in parallel, such as the chunks of a region file or a directory of
+ * {@code .dat} files. Each payload may be gzip or zlib compressed, as in {@link LinBinaryIO#readCompressed(ByteBuffer)}.
+ *
+ * <p>
+ * Payloads are loaded and read on the {@linkplain Builder#executor(Executor) executor}. Workers reuse pooled buffers and
+ * inflaters, rather than allocating them for every payload. Results are returned in the order they complete, and at
+ * most {@linkplain Builder#maxInFlight(int) a fixed number} of payloads are being read or waiting to be consumed at
+ * once, which bounds the memory used.
+ * </p>
+ *
+ * <p>
+ * A reader can be used by any number of threads at once. It must be {@linkplain #close() closed} when it is no
+ * longer needed, to release the native resources of its pooled inflaters.
+ * </p>
+ */
+public final class LinParallelReader implements AutoCloseable {
+    /**
+     * Create a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for {@link LinParallelReader}.
+     */
+    public static final class Builder {
+        private Executor executor = ForkJoinPool.commonPool();
+        private int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+        private LinReadOptions options = LinReadOptions.builder().build();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the executor that loads and reads payloads. This defaults to the
+         * {@linkplain ForkJoinPool#commonPool() common pool}.
+         *
+         * <p>
+         * If loading payloads blocks on I/O, such as reading files, an executor of virtual threads may be a better
+         * choice.
+         * </p>
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set the largest number of payloads that are being read, or have been read but not consumed, at once. This
+         * defaults to twice the number of available processors.
+         *
+         * @param maxInFlight the largest number of payloads in flight
+         * @return this builder
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("Max in flight must be positive, got " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Set the options for reading each payload.
+         *
+         * @param options the options for reading
+         * @return this builder
+         */
+        public Builder options(LinReadOptions options) {
+            this.options = options;
+            return this;
+        }
+
+        /**
+         * Build the reader.
+         *
+         * @return the reader
+         */
+        public LinParallelReader build() {
+            return new LinParallelReader(this);
+        }
+
+        @Override
+        public String toString() {
+            return "LinParallelReader.Builder{" +
+                "executor=" + executor +
+                ", maxInFlight=" + maxInFlight +
+                ", options=" + options +
+                '}';
+        }
+    }
+
+    /**
+     * The result of reading one payload.
+     *
+     * @param <S> the type of the payload's source
+     * @param <R> the type of the result
+     */
+    public static final class Result<S, R extends @Nullable Object> {
+        private final S source;
+        private final @Nullable R value;
+        private final @Nullable Exception error;
+
+        private Result(S source, @Nullable R value, @Nullable Exception error) {
+            this.source = source;
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * {@return the source of the payload}
+         */
+        public S source() {
+            return source;
+        }
+
+        /**
+         * Get the value read from the payload, or throw the error that occurred while reading it.
+         *
+         * @return the value
+         * @throws IOException if an I/O error occurred
+         */
+        public R value() throws IOException {
+            Exception error = this.error;
+            if (error == null) {
+                return value;
+            }
+            if (error instanceof IOException e) {
+                throw e;
+            }
+            if (error instanceof RuntimeException e) {
+                throw e;
+            }
+            throw new IOException(error);
+        }
+
+        /**
+         * {@return the error that occurred while reading the payload, or {@code null} if it was read successfully}
+         */
+        public @Nullable Exception error() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "LinParallelReader.Result{" +
+                "source=" + source +
+                ", value=" + value +
+                ", error=" + error +
+                '}';
+        }
+    }
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final LinReadOptions options;
+    private final Queue<ReaderContext> contexts = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    private LinParallelReader(Builder builder) {
+        this.executor = builder.executor;
+        this.maxInFlight = builder.maxInFlight;
+        this.options = builder.options;
+    }
+
+    /**
+     * Read the files at the given paths, which may be gzip or zlib compressed. Files are loaded as in
+     * {@link LinBinaryIO#readFile(Path)}.
+     *
+     * <p>
+     * See {@link #read(Iterator, IOFunction, IOFunction)} for how the results are produced.
+     * </p>
+     *
+     * @param files the files to read
+     * @param transform the function to apply to the stream of NBT tokens of each file
+     * @param <R> the type of the results
+     * @return the results, in the order they complete
+     */
+    public <R extends @Nullable Object> Iterator<Result<Path, R>> readFiles(
+        Iterator<? extends Path> files, IOFunction<? super LinStream, ? extends R> transform
+    ) {
+        return read(files, LinBinaryIO::loadFile, transform);
+    }
+
+    /**
+     * Read the payloads of the given sources.
+     *
+     * <p>
+     * Sources are taken from the iterator on the consuming thread, as the results are consumed. For each source, the
+     * {@code loader} produces the payload and the {@code transform} reads it, on the executor. The transform must be
+     * finished with the stream when it returns. Exceptions are reported in the {@link Result} for the source, rather
+     * than stopping the other payloads from being read. An {@link Error} is rethrown by the iterator instead.
+     * </p>
+     *
+     * <p>
+     * The returned iterator must be used by one thread at a time. Its {@link Iterator#next()} blocks until a result is
+     * available.
+     * </p>
+     *
+     * @param sources the sources of the payloads
+     * @param loader the function to load the payload of each source
+     * @param transform the function to apply to the stream of NBT tokens of each payload
+     * @param <S> the type of the sources
+     * @param <R> the type of the results
+     * @return the results, in the order they complete
+     * @throws IllegalStateException if this reader is closed
+     */
+    public <S, R extends @Nullable Object> Iterator<Result<S, R>> read(
+        Iterator<? extends S> sources,
+        IOFunction<? super S, ? extends ByteBuffer> loader,
+        IOFunction<? super LinStream, ? extends R> transform
+    ) {
+        if (closed) {
+            throw new IllegalStateException("Reader is closed");
+        }
+        return new ResultIterator<>(sources, loader, transform);
+    }
+
+    /**
+     * Release the native resources of the pooled inflaters. Payloads that are still being read finish normally, and
+     * release their resources when they do.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ReaderContext context;
+        while ((context = contexts.poll()) != null) {
+            context.close();
+        }
+    }
+
+    private <S, R extends @Nullable Object> Result<S, R> readOne(
+        S source, IOFunction<? super S, ? extends ByteBuffer> loader, IOFunction<? super LinStream, ? extends R> transform
+    ) {
+        ReaderContext context = contexts.poll();
+        if (context == null) {
+            context = new ReaderContext();
+        }
+        try {
+            ByteBuffer payload = loader.apply(source);
+            R value = transform.apply(new CursorLinStream(context.reader(payload, options)));
+            return new Result<>(source, value, null);
+        } catch (Exception e) {
+            return new Result<>(source, null, e);
+        } finally {
+            // The size check races, but the pool only needs to be roughly bounded
+            if (!closed && contexts.size() < maxInFlight) {
+                contexts.offer(context);
+                // If the reader was closed meanwhile, it may have drained the pool before the offer
+                if (closed && contexts.remove(context)) {
+                    context.close();
+                }
+            } else {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * A payload that finished being read, with either its result or an error to rethrow on the consuming thread.
+     */
+    private record Completion<S, R extends @Nullable Object>(@Nullable Result<S, R> result, @Nullable Error error) {
+    }
+
+    private final class ResultIterator<S, R extends @Nullable Object> implements Iterator<Result<S, R>> {
+        private final Iterator<? extends S> sources;
+        private final IOFunction<? super S, ? extends ByteBuffer> loader;
+        private final IOFunction<? super LinStream, ? extends R> transform;
+        private final BlockingQueue<Completion<S, R>> completed = new LinkedBlockingQueue<>();
+        private int inFlight;
+
+        private ResultIterator(
+            Iterator<? extends S> sources,
+            IOFunction<? super S, ? extends ByteBuffer> loader,
+            IOFunction<? super LinStream, ? extends R> transform
+        ) {
+            this.sources = sources;
+            this.loader = loader;
+            this.transform = transform;
+        }
+
+        private void submitAvailable() {
+            while (inFlight < maxInFlight && sources.hasNext()) {
+                S source = sources.next();
+                inFlight++;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            completed.add(new Completion<>(readOne(source, loader, transform), null));
+                        } catch (Error e) {
+                            // Wake the consumer, so that it doesn't wait forever for this payload
+                            completed.add(new Completion<>(null, e));
+                            throw e;
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight--;
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            submitAvailable();
+            return inFlight > 0;
+        }
+
+        @Override
+        public Result<S, R> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Completion<S, R> completion;
+            try {
+                completion = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for a result"));
+            }
+            inFlight--;
+            if (completion.error() != null) {
+                throw completion.error();
+            }
+            return Objects.requireNonNull(completion.result());
+        }
+    }
+}
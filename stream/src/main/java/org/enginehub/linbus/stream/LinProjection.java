@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.impl.PathParser;
+import org.enginehub.linbus.stream.impl.ProjectingLinStream;
+import org.enginehub.linbus.stream.impl.ProjectionNode;
+
+import java.util.List;
+
+/**
+ * A compiled set of paths into the root compound, used to read only part of a binary NBT stream.
+ *
+ * <p>
+ * Each path is a series of segments separated by {@code .}. A segment is an entry name, or {@code *} to match any
+ * entry of a compound. Names containing special characters can be quoted with {@code "}, with {@code \} escaping
+ * {@code "} and {@code \}. A segment may be followed by any number of {@code [*]} to descend into every element of a
+ * list. For example:
+ * </p>
+ * <ul>
+ *     <li>{@code Level.xPos}</li>
+ *     <li>{@code sections[*].block_states.palette}</li>
+ *     <li>{@code Heightmaps.*}</li>
+ * </ul>
+ *
+ * <p>
+ * The last segment of a path selects the whole value. Compounds that lead to a selected value are emitted with only
+ * their selected entries, and lists that lead to one keep all of their elements, so list sizes are preserved. Entries
+ * that don't match the type a path expects, such as a path descending into an integer, are left out. Everything not
+ * selected is skipped without decoding its names or strings, as names are compared by their raw bytes.
+ * </p>
+ *
+ * <p>
+ * The result can be read into a tree like any other stream, e.g.
+ * {@code LinRootEntry.readFrom(projection.project(LinBinaryIO.cursor(buffer)))}.
+ * </p>
+ */
+public final class LinProjection {
+    /**
+     * Compile a projection from the given paths.
+     *
+     * @param paths the paths to select
+     * @return the projection
+     * @throws IllegalArgumentException if a path is malformed
+     */
+    public static LinProjection of(String... paths) {
+        return of(List.of(paths));
+    }
+
+    /**
+     * Compile a projection from the given paths.
+     *
+     * @param paths the paths to select
+     * @return the projection
+     * @throws IllegalArgumentException if a path is malformed
+     */
+    public static LinProjection of(List<String> paths) {
+        List<String> copy = List.copyOf(paths);
+        var root = new ProjectionNode();
+        for (String path : copy) {
+            ProjectionNode node = root;
+            for (PathParser.Segment segment : PathParser.parse(path)) {
+                node = switch (segment) {
+                    case PathParser.Name name -> node.child(name.name());
+                    case PathParser.AnyName anyName -> node.wildcard();
+                    case PathParser.AllElements allElements -> node.elements();
+                    case PathParser.Element element -> throw new IllegalArgumentException(
+                        "Projections can't select a single list element, in path '" + path + "'"
+                    );
+                };
+            }
+            node.selectAll();
+        }
+        root.finish();
+        return new LinProjection(copy, root);
+    }
+
+    private final List<String> paths;
+    private final ProjectionNode root;
+
+    private LinProjection(List<String> paths, ProjectionNode root) {
+        this.paths = paths;
+        this.root = root;
+    }
+
+    /**
+     * {@return the paths this projection was compiled from}
+     */
+    public List<String> paths() {
+        return paths;
+    }
+
+    /**
+     * Project the stream read by the given cursor.
+     *
+     * <p>
+     * The cursor must not have been advanced yet, and should not be used by anything else afterwards.
+     * </p>
+     *
+     * @param cursor the cursor to read from
+     * @return a stream of the selected parts of the root entry
+     */
+    public LinStream project(LinCursor cursor) {
+        return new ProjectingLinStream(cursor, root);
+    }
+
+    @Override
+    public String toString() {
+        return "LinProjection" + paths;
+    }
+}
@@ -18,6 +18,10 @@
 
 package org.enginehub.linbus.stream;
 
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.util.OptionalInt;
 
 /**
  * Options for reading NBT streams.
@@ -38,6 +42,11 @@ public static Builder builder() {
      */
     public static final class Builder {
         private boolean allowNormalUtf8Encoding = false;
+        private @Nullable LinStringCache stringCache;
+        private boolean internStringValues = false;
+        private int arrayChunkSize = 0;
+        private boolean reuseContentBuffers = false;
+        private boolean packPrimitiveLists = false;
 
         private Builder() {
         }
@@ -59,6 +68,95 @@ public Builder allowNormalUtf8Encoding(boolean allowNormalUtf8Encoding) {
             return this;
         }
 
+        /**
+         * Set the cache used to intern entry names. Names found in the cache are not decoded again, and share one
+         * {@link String} instance.
+         *
+         * <p>
+         * The cache can be shared between any number of options and readers. It is not used by default.
+         * </p>
+         *
+         * @param stringCache the cache to use, or {@code null} to not intern names
+         * @return this builder
+         */
+        public Builder stringCache(@Nullable LinStringCache stringCache) {
+            this.stringCache = stringCache;
+            return this;
+        }
+
+        /**
+         * Set whether to also intern string values using the {@linkplain #stringCache(LinStringCache) string cache}.
+         * This is worthwhile for data with many repeated strings, such as block and item IDs.
+         *
+         * @param internStringValues whether to intern string values
+         * @return this builder
+         */
+        public Builder internStringValues(boolean internStringValues) {
+            this.internStringValues = internStringValues;
+            return this;
+        }
+
+        /**
+         * Set the largest number of bytes in each array content token. Int and long arrays are split on element
+         * boundaries, but always have at least one element per token.
+         *
+         * <p>
+         * Use {@link Integer#MAX_VALUE} to read each array as a single content token. Note that this allocates a
+         * buffer for the whole array up front when reading from a {@link java.io.DataInput}, so it should only be
+         * used with trusted input.
+         * </p>
+         *
+         * <p>
+         * If not set, the chunk size depends on the input. Arrays read from a {@link java.nio.ByteBuffer} are
+         * returned whole, and arrays read from a {@link java.io.DataInput} are split into 8 KiB chunks.
+         * </p>
+         *
+         * @param arrayChunkSize the largest number of bytes per content token
+         * @return this builder
+         */
+        public Builder arrayChunkSize(int arrayChunkSize) {
+            if (arrayChunkSize <= 0) {
+                throw new IllegalArgumentException("Array chunk size must be positive, got " + arrayChunkSize);
+            }
+            this.arrayChunkSize = arrayChunkSize;
+            return this;
+        }
+
+        /**
+         * Set whether to reuse one buffer for all array content that is copied out of the input.
+         *
+         * <p>
+         * When enabled, the buffer of an array or list content token is only valid until the next token is read, after
+         * which it's overwritten. Consumers that hold on to content buffers, rather than copying them, must not use
+         * this. Arrays read from a {@link java.nio.ByteBuffer} are never copied, so this has no effect on them.
+         * </p>
+         *
+         * @param reuseContentBuffers whether to reuse content buffers
+         * @return this builder
+         */
+        public Builder reuseContentBuffers(boolean reuseContentBuffers) {
+            this.reuseContentBuffers = reuseContentBuffers;
+            return this;
+        }
+
+        /**
+         * Set whether to read the elements of lists of numbers in runs, as {@link LinToken.ListContent} tokens,
+         * instead of as one token per element. Runs are split like array content, see
+         * {@link #arrayChunkSize(int)}.
+         *
+         * <p>
+         * Consumers of the tokens must handle {@link LinToken.ListContent}, so this is off by default. The readers
+         * of this library all handle it.
+         * </p>
+         *
+         * @param packPrimitiveLists whether to read lists of numbers in runs
+         * @return this builder
+         */
+        public Builder packPrimitiveLists(boolean packPrimitiveLists) {
+            this.packPrimitiveLists = packPrimitiveLists;
+            return this;
+        }
+
         /**
          * Build the options.
          *
@@ -72,14 +170,29 @@ public LinReadOptions build() {
         public String toString() {
             return "LinReadOptions.Builder{" +
                 "allowNormalUtf8Encoding=" + allowNormalUtf8Encoding +
+                ", stringCache=" + stringCache +
+                ", internStringValues=" + internStringValues +
+                ", arrayChunkSize=" + arrayChunkSize +
+                ", reuseContentBuffers=" + reuseContentBuffers +
+                ", packPrimitiveLists=" + packPrimitiveLists +
                 '}';
         }
     }
 
     private final boolean allowNormalUtf8Encoding;
+    private final @Nullable LinStringCache stringCache;
+    private final boolean internStringValues;
+    private final int arrayChunkSize;
+    private final boolean reuseContentBuffers;
+    private final boolean packPrimitiveLists;
 
     private LinReadOptions(Builder builder) {
         this.allowNormalUtf8Encoding = builder.allowNormalUtf8Encoding;
+        this.stringCache = builder.stringCache;
+        this.internStringValues = builder.internStringValues;
+        this.arrayChunkSize = builder.arrayChunkSize;
+        this.reuseContentBuffers = builder.reuseContentBuffers;
+        this.packPrimitiveLists = builder.packPrimitiveLists;
     }
 
     /**
@@ -95,10 +208,50 @@ public boolean allowNormalUtf8Encoding() {
         return allowNormalUtf8Encoding;
     }
 
+    /**
+     * {@return the cache used to intern entry names, or {@code null} if names are not interned}
+     */
+    public @Nullable LinStringCache stringCache() {
+        return stringCache;
+    }
+
+    /**
+     * {@return whether string values are also interned using the {@linkplain #stringCache() string cache}}
+     */
+    public boolean internStringValues() {
+        return internStringValues;
+    }
+
+    /**
+     * {@return the largest number of bytes in each array content token, or empty to use the input's default}
+     */
+    public OptionalInt arrayChunkSize() {
+        return arrayChunkSize == 0 ? OptionalInt.empty() : OptionalInt.of(arrayChunkSize);
+    }
+
+    /**
+     * {@return whether to reuse one buffer for all array content that is copied out of the input}
+     */
+    public boolean reuseContentBuffers() {
+        return reuseContentBuffers;
+    }
+
+    /**
+     * {@return whether to read the elements of lists of numbers in runs, as {@link LinToken.ListContent} tokens}
+     */
+    public boolean packPrimitiveLists() {
+        return packPrimitiveLists;
+    }
+
     @Override
     public String toString() {
         return "LinReadOptions{" +
             "allowNormalUtf8Encoding=" + allowNormalUtf8Encoding +
+            ", stringCache=" + stringCache +
+            ", internStringValues=" + internStringValues +
+            ", arrayChunkSize=" + arrayChunkSize +
+            ", reuseContentBuffers=" + reuseContentBuffers +
+                ", packPrimitiveLists=" + packPrimitiveLists +
             '}';
     }
 }
@@ -19,7 +19,9 @@
 package org.enginehub.linbus.stream;
 
 import org.enginehub.linbus.common.internal.AbstractIterator;
+import org.enginehub.linbus.stream.exception.NbtParseException;
 import org.enginehub.linbus.stream.impl.OptionalInfoCalculator;
+import org.enginehub.linbus.stream.impl.ValueCounter;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
@@ -31,7 +33,7 @@
 /**
  * Represents a stream of {@link LinToken LinTokens}.
  */
-public interface LinStream extends LinStreamable {
+public interface LinStream extends LinStreamable, AutoCloseable {
     /**
      * {@return an empty stream}
      */
@@ -96,6 +98,34 @@ default Optional<LinToken> next() throws IOException {
         return Optional.ofNullable(nextOrNull());
     }
 
+    /**
+     * Skip the next value in the stream. This should be called when the next token starts a value, such as after a
+     * {@link LinToken.Name} or for an element of a list.
+     *
+     * <p>
+     * By default, this reads and discards the value's tokens. Streams that can skip more efficiently, such as those
+     * from {@link LinBinaryIO}, override this to avoid reading the value at all.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the next token does not start a value
+     */
+    default void skipValue() throws IOException {
+        LinToken first = nextOrNull();
+        if (first == null || first.tagId().isEmpty()) {
+            throw new IllegalStateException("Expected the start of a value, got " + first);
+        }
+        var counter = new ValueCounter();
+        counter.add(first);
+        while (counter.count() == 0) {
+            LinToken token = nextOrNull();
+            if (token == null) {
+                throw new NbtParseException("Expected the end of the value, got end of stream");
+            }
+            counter.add(token);
+        }
+    }
+
     /**
      * Fill in optional information, such as list sizes and types.
      *
@@ -109,12 +139,49 @@ default Optional<LinToken> next() throws IOException {
      * memory.
      * </p>
      *
+     * <p>
+     * Use {@link #calculateOptionalInfo(long)} to bound the memory used.
+     * </p>
+     *
      * @return the content of this stream, but with optional information filled in
      */
     default LinStream calculateOptionalInfo() {
         return new OptionalInfoCalculator(this);
     }
 
+    /**
+     * Fill in optional information, such as list sizes and types, holding at most about {@code memoryBudget} bytes of
+     * tokens in memory.
+     *
+     * <p>
+     * Tokens that must be held past the budget are encoded into a temporary file, and read back from there as the
+     * stream is consumed. The file is deleted once its last token is read, or when the stream is
+     * {@linkplain #close() closed}, which must be done if it is not read to the end. Otherwise, this is the same as
+     * {@link #calculateOptionalInfo()}.
+     * </p>
+     *
+     * @param memoryBudget the approximate number of bytes of tokens to hold in memory
+     * @return the content of this stream, but with optional information filled in
+     */
+    default LinStream calculateOptionalInfo(long memoryBudget) {
+        return new OptionalInfoCalculator(this, memoryBudget);
+    }
+
+    /**
+     * Release the resources held by this stream, such as pooled inflaters or temporary files. Streams release them by
+     * themselves when they are read to the end, so this only needs to be called when a stream is abandoned early. The
+     * stream must not be used afterwards.
+     *
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
     /**
      * A {@link LinStream} is always streamable as itself.
      *
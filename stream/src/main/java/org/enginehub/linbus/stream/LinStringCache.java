@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of decoded names and strings, keyed on their encoded bytes.
+ *
+ * <p>
+ * When a cache is set in {@link LinReadOptions}, readers look up each name (and optionally each string value) by its
+ * raw bytes before decoding it. A hit skips decoding entirely and returns a shared {@link String} instance, so trees
+ * read with the same cache share one instance per distinct key.
+ * </p>
+ *
+ * <p>
+ * The cache is direct-mapped: each encoded form has exactly one slot, and a new entry replaces whatever was there.
+ * It is safe to share between readers on different threads. Only short strings whose bytes decode identically in
+ * both the modified and the normal UTF-8 encoding are cached, so a cache can be shared regardless of
+ * {@link LinReadOptions#allowNormalUtf8Encoding()}.
+ * </p>
+ */
+public final class LinStringCache {
+    /**
+     * The longest encoded form that will be cached. Longer strings are rarely repeated, and would make comparing
+     * the bytes on a hit expensive.
+     */
+    private static final int MAX_CACHED_LENGTH = 128;
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity the number of slots in the cache, rounded up to a power of two
+     * @return the cache
+     */
+    public static LinStringCache create(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity is too large: " + capacity);
+        }
+        int highestBit = Integer.highestOneBit(capacity);
+        return new LinStringCache(highestBit == capacity ? capacity : highestBit << 1);
+    }
+
+    private record Entry(byte[] bytes, String value) {
+    }
+
+    // Entries are immutable, so racing reads and writes can only cause extra misses.
+    private final @Nullable Entry[] entries;
+
+    private LinStringCache(int capacity) {
+        this.entries = new Entry[capacity];
+    }
+
+    /**
+     * {@return the number of slots in this cache}
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Get the string for the given encoded bytes, decoding and caching it if it's not present.
+     *
+     * @param bytes the array holding the encoded bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the string, or {@code null} if the bytes can't be cached and must be decoded by the caller
+     */
+    public @Nullable String get(byte[] bytes, int offset, int length) {
+        if (length > MAX_CACHED_LENGTH) {
+            return null;
+        }
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the high bits down, as short strings only fill the low bits
+        int slot = (hash ^ (hash >>> 16)) & (entries.length - 1);
+        Entry entry = entries[slot];
+        if (entry != null && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, offset, offset + length)) {
+            return entry.value;
+        }
+        if (!isUnambiguous(bytes, offset, length)) {
+            return null;
+        }
+        String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        entries[slot] = new Entry(Arrays.copyOfRange(bytes, offset, offset + length), value);
+        return value;
+    }
+
+    // Checks that the bytes are valid in both the modified and the normal UTF-8 encoding, i.e. strict UTF-8 without
+    // 4-byte sequences. Such bytes decode to the same string either way, and never decide the encoding of a stream.
+    private static boolean isUnambiguous(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int c = bytes[i] & 0xFF;
+            if (c < 0x80) {
+                i++;
+            } else if (c < 0xC2) {
+                // A stray continuation byte, or an overlong 2-byte sequence such as an encoded null
+                return false;
+            } else if (c < 0xE0) {
+                if (i + 1 >= end || !isContinuation(bytes[i + 1])) {
+                    return false;
+                }
+                i += 2;
+            } else if (c < 0xF0) {
+                if (i + 2 >= end || !isContinuation(bytes[i + 1]) || !isContinuation(bytes[i + 2])) {
+                    return false;
+                }
+                int next = bytes[i + 1] & 0xFF;
+                if ((c == 0xE0 && next < 0xA0) || (c == 0xED && next >= 0xA0)) {
+                    // Overlong, or a surrogate
+                    return false;
+                }
+                i += 3;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    @Override
+    public String toString() {
+        return "LinStringCache{capacity=" + entries.length + '}';
+    }
+}
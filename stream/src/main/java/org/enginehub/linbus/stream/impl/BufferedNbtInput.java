@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link NbtInput} that reads through a buffer, which is refilled from some source as needed. Array content is
+ * copied out of the buffer.
+ */
+abstract class BufferedNbtInput implements NbtInput {
+    /**
+     * The default capacity of the buffer.
+     */
+    static final int DEFAULT_CAPACITY = 65536;
+
+    /**
+     * The buffer, ready for reading: the position is the next byte to read, and the limit is the end of the data.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a new input with a buffer of the {@linkplain #DEFAULT_CAPACITY default capacity}.
+     */
+    BufferedNbtInput() {
+        this(ByteBuffer.allocate(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Create a new input using an existing buffer. Its content, position, and limit are overwritten.
+     *
+     * @param buffer the buffer, which must have a capacity of at least 8 bytes
+     */
+    BufferedNbtInput(ByteBuffer buffer) {
+        this.buffer = buffer.clear().flip();
+    }
+
+    /**
+     * Put more data into the buffer.
+     *
+     * @param target the buffer to fill, which always has space remaining
+     * @return the number of bytes added, or {@code -1} if there's no more data
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract int fill(ByteBuffer target) throws IOException;
+
+    /**
+     * Make sure the buffer has at least {@code length} bytes, which must not be more than its capacity.
+     */
+    private void require(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < length) {
+                if (fill(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return Byte.toUnsignedInt(readByte());
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return Short.toUnsignedInt(readShort());
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                require(1);
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                require(1);
+            }
+            int count = (int) Math.min(length, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            length -= count;
+        }
+    }
+
+    @Override
+    public ByteBuffer readContent(int length) throws IOException {
+        byte[] content = new byte[length];
+        readFully(content, 0, length);
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int defaultContentLength() {
+        return 8192;
+    }
+
+    @Override
+    public boolean slicesContent() {
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link NbtInput} that reads from a {@link ByteBuffer}. Array content is returned as slices of the buffer, so it is
+ * never copied.
+ */
+final class ByteBufferNbtInput implements NbtInput {
+    /**
+     * A read-only view of the source. Views of a {@link ByteBuffer} are always big-endian, which is what NBT uses.
+     */
+    private final ByteBuffer buffer;
+    private final int start;
+
+    ByteBufferNbtInput(ByteBuffer buffer) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.start = buffer.position();
+    }
+
+    private void require(int length) throws EOFException {
+        if (buffer.remaining() < length) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return Byte.toUnsignedInt(readByte());
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return Short.toUnsignedInt(readShort());
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        require(len);
+        buffer.get(b, off, len);
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        if (buffer.remaining() < length) {
+            throw new EOFException();
+        }
+        buffer.position(buffer.position() + (int) length);
+    }
+
+    @Override
+    public ByteBuffer readContent(int length) throws IOException {
+        require(length);
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    @Override
+    public int defaultContentLength() {
+        // There's no copy, so there's no reason to split the content up.
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean slicesContent() {
+        return true;
+    }
+
+    @Override
+    public long position() {
+        return buffer.position() - start;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An {@link NbtInput} that reads uncompressed NBT from a channel.
+ */
+final class ChannelNbtInput extends BufferedNbtInput {
+    private final ByteBuffer head;
+    private final ReadableByteChannel channel;
+
+    /**
+     * Create a new input.
+     *
+     * @param head bytes that were already read from the channel, to be read first
+     * @param channel the channel
+     */
+    ChannelNbtInput(ByteBuffer head, ReadableByteChannel channel) {
+        super();
+        this.head = head;
+        this.channel = channel;
+    }
+
+    @Override
+    protected int fill(ByteBuffer target) throws IOException {
+        if (head.hasRemaining()) {
+            int count = Math.min(head.remaining(), target.remaining());
+            target.put(target.position(), head, head.position(), count);
+            target.position(target.position() + count);
+            head.position(head.position() + count);
+            return count;
+        }
+        return channel.read(target);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The compression formats that NBT is commonly stored in, detected from the first two bytes of the data.
+ */
+enum Compression {
+    /**
+     * Gzip, as used by most NBT files.
+     */
+    GZIP,
+    /**
+     * Zlib, as used by region file chunks.
+     */
+    ZLIB,
+    /**
+     * No compression.
+     */
+    NONE,
+    ;
+
+    /**
+     * Detect the compression of some data. Uncompressed NBT starts with a tag ID, which never looks like either of
+     * the compressed headers.
+     *
+     * @param head the data, starting at its position; it is not modified
+     * @return the compression
+     */
+    static Compression detect(ByteBuffer head) {
+        if (head.remaining() < 2) {
+            return NONE;
+        }
+        int first = Byte.toUnsignedInt(head.get(head.position()));
+        int second = Byte.toUnsignedInt(head.get(head.position() + 1));
+        if (first == 0x1F && second == 0x8B) {
+            return GZIP;
+        }
+        // CMF must say deflate, and the header checksum must be valid
+        if ((first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0) {
+            return ZLIB;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Adapts a {@link LinCursor} to a {@link LinStream}, allocating a token for each element.
+ */
+public class CursorLinStream implements LinStream {
+    private final LinCursor cursor;
+
+    /**
+     * Create a new stream over the given cursor.
+     *
+     * @param cursor the cursor
+     */
+    public CursorLinStream(LinCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Create the token for the current element of a cursor.
+     *
+     * @param cursor the cursor
+     * @return the token, or {@code null} if the cursor is at the end of the stream
+     * @throws IOException if a string cannot be decoded
+     */
+    static @Nullable LinToken currentToken(LinCursor cursor) throws IOException {
+        return switch (Objects.requireNonNull(cursor.kind(), "cursor has not been advanced")) {
+            case NAME -> new LinToken.Name(cursor.name(), cursor.tagId());
+            case BYTE_ARRAY_START -> new LinToken.ByteArrayStart(cursor.arraySize());
+            case BYTE_ARRAY_CONTENT -> new LinToken.ByteArrayContent(cursor.byteArrayContent());
+            case BYTE_ARRAY_END -> new LinToken.ByteArrayEnd();
+            case BYTE -> new LinToken.Byte(cursor.byteValue());
+            case COMPOUND_START -> new LinToken.CompoundStart();
+            case COMPOUND_END -> new LinToken.CompoundEnd();
+            case DOUBLE -> new LinToken.Double(cursor.doubleValue());
+            case FLOAT -> new LinToken.Float(cursor.floatValue());
+            case INT_ARRAY_START -> new LinToken.IntArrayStart(cursor.arraySize());
+            case INT_ARRAY_CONTENT -> new LinToken.IntArrayContent(cursor.intArrayContent());
+            case INT_ARRAY_END -> new LinToken.IntArrayEnd();
+            case INT -> new LinToken.Int(cursor.intValue());
+            case LIST_START -> new LinToken.ListStart(cursor.listSize(), cursor.listElementId());
+            case LIST_CONTENT -> new LinToken.ListContent(cursor.listContent());
+            case LIST_END -> new LinToken.ListEnd();
+            case LONG_ARRAY_START -> new LinToken.LongArrayStart(cursor.arraySize());
+            case LONG_ARRAY_CONTENT -> new LinToken.LongArrayContent(cursor.longArrayContent());
+            case LONG_ARRAY_END -> new LinToken.LongArrayEnd();
+            case LONG -> new LinToken.Long(cursor.longValue());
+            case SHORT -> new LinToken.Short(cursor.shortValue());
+            case STRING -> new LinToken.String(cursor.stringValue());
+            case END_OF_STREAM -> null;
+        };
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        cursor.advance();
+        return currentToken(cursor);
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        cursor.skipValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cursor.close();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link NbtInput} that reads from a {@link DataInput}. Array content is copied into fresh buffers.
+ */
+final class DataInputNbtInput implements NbtInput {
+    private final DataInput input;
+
+    DataInputNbtInput(DataInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return input.readByte();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return input.readShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return input.readUnsignedShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return input.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return input.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return input.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return input.readDouble();
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        input.readFully(b, off, len);
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        while (length > 0) {
+            int skipped = input.skipBytes((int) Math.min(Integer.MAX_VALUE, length));
+            if (skipped == 0) {
+                // skipBytes doesn't signal EOF, so check by reading a byte, which throws on EOF.
+                input.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    @Override
+    public ByteBuffer readContent(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        input.readFully(buffer.array(), 0, length);
+        return buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public int defaultContentLength() {
+        return 8192;
+    }
+
+    @Override
+    public boolean slicesContent() {
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link NbtInput} over input that is fed as it arrives. Running out of input throws {@link NeedsInputException}
+ * until the end of the input is signalled, so that the reader can roll back and try again later.
+ */
+final class FeedingNbtInput implements NbtInput {
+    /**
+     * Thrown when there is not enough input yet. This is not an error, so it's shared and has no stack trace.
+     */
+    static final class NeedsInputException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        static final NeedsInputException INSTANCE = new NeedsInputException();
+
+        private NeedsInputException() {
+            super("More input is needed");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * The buffered input, ready for reading: the position is the next byte to read, and the limit is the end of
+     * what was fed.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private int mark;
+    private boolean ended;
+
+    void feed(ByteBuffer data) {
+        if (ended) {
+            throw new IllegalStateException("The end of the input was already signalled");
+        }
+        int unread = buffer.remaining();
+        if (buffer.capacity() - unread < data.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, unread + data.remaining()));
+            grown.put(buffer);
+            buffer = grown;
+        } else {
+            buffer.compact();
+        }
+        buffer.put(data);
+        buffer.flip();
+    }
+
+    void endOfInput() {
+        ended = true;
+    }
+
+    ByteBuffer remaining() {
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Remember the current position, to {@linkplain #reset() return to} if a step runs out of input.
+     */
+    void mark() {
+        mark = buffer.position();
+    }
+
+    void reset() {
+        buffer.position(mark);
+    }
+
+    private void require(long length) throws IOException {
+        if (buffer.remaining() < length) {
+            if (ended) {
+                throw new EOFException();
+            }
+            throw NeedsInputException.INSTANCE;
+        }
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return Byte.toUnsignedInt(readByte());
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return Short.toUnsignedInt(readShort());
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        require(len);
+        buffer.get(b, off, len);
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        require(length);
+        buffer.position(buffer.position() + (int) length);
+    }
+
+    @Override
+    public ByteBuffer readContent(int length) throws IOException {
+        // The buffer is compacted as input is fed, so the content must be copied
+        require(length);
+        byte[] content = new byte[length];
+        buffer.get(content);
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int defaultContentLength() {
+        // Small enough that large arrays don't need to be buffered in full
+        return 8192;
+    }
+
+    @Override
+    public boolean slicesContent() {
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Inflater;
+
+/**
+ * A pool of {@link Inflater Inflaters}, to avoid creating one for every compressed input.
+ */
+final class Inflaters {
+    private static final int MAX_POOLED = 16;
+    private static final Queue<Inflater> RAW = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> ZLIB = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Get an inflater from the pool, or a new one if it's empty.
+     *
+     * @param nowrap {@code true} for raw deflate data, as in gzip, or {@code false} for zlib data
+     * @return the inflater
+     */
+    static Inflater borrow(boolean nowrap) {
+        Inflater inflater = (nowrap ? RAW : ZLIB).poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    /**
+     * Return an inflater to the pool. It must not be used afterwards.
+     *
+     * @param inflater the inflater
+     * @param nowrap the {@code nowrap} setting it was created with
+     */
+    static void release(Inflater inflater, boolean nowrap) {
+        Queue<Inflater> pool = nowrap ? RAW : ZLIB;
+        // The size check races, but the pool only needs to be roughly bounded
+        if (pool.size() < MAX_POOLED) {
+            inflater.reset();
+            pool.offer(inflater);
+        } else {
+            inflater.end();
+        }
+    }
+
+    /**
+     * {@return the number of inflaters in the pool}
+     *
+     * @param nowrap the {@code nowrap} setting of the pooled inflaters
+     */
+    static int pooled(boolean nowrap) {
+        return (nowrap ? RAW : ZLIB).size();
+    }
+
+    private Inflaters() {
+    }
+}
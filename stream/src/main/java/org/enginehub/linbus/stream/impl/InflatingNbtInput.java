@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * An {@link NbtInput} that inflates gzip or zlib compressed NBT straight into its buffer.
+ *
+ * <p>
+ * The compressed data is either entirely in memory, such as a mapped file, or is read from a channel as needed.
+ * Inflaters are either given by the creator, or taken from a shared pool and returned as soon as the compressed data
+ * ends, or when the input is {@linkplain #close() closed}.
+ * </p>
+ */
+final class InflatingNbtInput extends BufferedNbtInput {
+    private static final int GZIP_FLAG_HEADER_CRC = 2;
+    private static final int GZIP_FLAG_EXTRA = 4;
+    private static final int GZIP_FLAG_NAME = 8;
+    private static final int GZIP_FLAG_COMMENT = 16;
+
+    /**
+     * Create an input for gzip data, using a pooled inflater.
+     *
+     * @param compressed the compressed data, or the start of it if there's a channel
+     * @param channel the channel for the rest of the compressed data, if any
+     * @return the input
+     * @throws IOException if the gzip header is invalid
+     */
+    static InflatingNbtInput gzip(ByteBuffer compressed, @Nullable ReadableByteChannel channel) throws IOException {
+        var input = new InflatingNbtInput(compressed, channel, true, ByteBuffer.allocate(DEFAULT_CAPACITY), null);
+        input.skipGzipHeader();
+        return input;
+    }
+
+    /**
+     * Create an input for gzip data that is entirely in memory, using the given buffer and inflater.
+     *
+     * @param compressed the compressed data
+     * @param buffer the buffer to inflate into
+     * @param inflater a reset inflater created with {@code nowrap} set, which is not ended or reset afterwards
+     * @return the input
+     * @throws IOException if the gzip header is invalid
+     */
+    static InflatingNbtInput gzip(ByteBuffer compressed, ByteBuffer buffer, Inflater inflater) throws IOException {
+        var input = new InflatingNbtInput(compressed, null, true, buffer, inflater);
+        input.skipGzipHeader();
+        return input;
+    }
+
+    /**
+     * Create an input for zlib data, using a pooled inflater.
+     *
+     * @param compressed the compressed data, or the start of it if there's a channel
+     * @param channel the channel for the rest of the compressed data, if any
+     * @return the input
+     */
+    static InflatingNbtInput zlib(ByteBuffer compressed, @Nullable ReadableByteChannel channel) {
+        return new InflatingNbtInput(compressed, channel, false, ByteBuffer.allocate(DEFAULT_CAPACITY), null);
+    }
+
+    /**
+     * Create an input for zlib data that is entirely in memory, using the given buffer and inflater.
+     *
+     * @param compressed the compressed data
+     * @param buffer the buffer to inflate into
+     * @param inflater a reset inflater created without {@code nowrap} set, which is not ended or reset afterwards
+     * @return the input
+     */
+    static InflatingNbtInput zlib(ByteBuffer compressed, ByteBuffer buffer, Inflater inflater) {
+        return new InflatingNbtInput(compressed, null, false, buffer, inflater);
+    }
+
+    /**
+     * The compressed data, ready for reading. If there's a channel, this is refilled from it.
+     */
+    private ByteBuffer compressed;
+    private final @Nullable ReadableByteChannel channel;
+    private final boolean nowrap;
+    /**
+     * The inflater given by the creator of this input, which is used instead of a pooled one.
+     */
+    private final @Nullable Inflater ownInflater;
+    private @Nullable Inflater inflater;
+    private boolean finished;
+
+    private InflatingNbtInput(ByteBuffer compressed, @Nullable ReadableByteChannel channel, boolean nowrap,
+                              ByteBuffer buffer, @Nullable Inflater ownInflater) {
+        super(buffer);
+        if (channel != null) {
+            var refillable = ByteBuffer.allocate(Math.max(8192, compressed.remaining()));
+            refillable.put(compressed).flip();
+            compressed = refillable;
+        }
+        this.compressed = compressed;
+        this.channel = channel;
+        this.nowrap = nowrap;
+        this.ownInflater = ownInflater;
+    }
+
+    /**
+     * Make sure there are at least {@code length} bytes of compressed data available, reading from the channel if
+     * needed.
+     */
+    private void requireCompressed(int length) throws IOException {
+        while (compressed.remaining() < length) {
+            if (channel == null) {
+                throw new EOFException("Unexpected end of compressed data");
+            }
+            if (compressed.capacity() < length) {
+                compressed = ByteBuffer.allocate(length * 2).put(compressed).flip();
+            }
+            compressed.compact();
+            int read;
+            try {
+                read = channel.read(compressed);
+            } finally {
+                compressed.flip();
+            }
+            if (read < 0) {
+                throw new EOFException("Unexpected end of compressed data");
+            }
+        }
+    }
+
+    private int readCompressedUnsignedByte() throws IOException {
+        requireCompressed(1);
+        return Byte.toUnsignedInt(compressed.get());
+    }
+
+    private void skipGzipHeader() throws IOException {
+        // Magic (2), method (1), flags (1), modification time (4), extra flags (1), OS (1)
+        requireCompressed(10);
+        compressed.position(compressed.position() + 2);
+        if (compressed.get() != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = Byte.toUnsignedInt(compressed.get());
+        compressed.position(compressed.position() + 6);
+        if ((flags & GZIP_FLAG_EXTRA) != 0) {
+            int length = readCompressedUnsignedByte() | (readCompressedUnsignedByte() << 8);
+            requireCompressed(length);
+            compressed.position(compressed.position() + length);
+        }
+        if ((flags & GZIP_FLAG_NAME) != 0) {
+            while (readCompressedUnsignedByte() != 0) {
+                // Skip the zero-terminated name
+            }
+        }
+        if ((flags & GZIP_FLAG_COMMENT) != 0) {
+            while (readCompressedUnsignedByte() != 0) {
+                // Skip the zero-terminated comment
+            }
+        }
+        if ((flags & GZIP_FLAG_HEADER_CRC) != 0) {
+            requireCompressed(2);
+            compressed.position(compressed.position() + 2);
+        }
+    }
+
+    @Override
+    protected int fill(ByteBuffer target) throws IOException {
+        if (finished) {
+            return -1;
+        }
+        Inflater inflater = this.inflater;
+        if (inflater == null) {
+            inflater = ownInflater != null ? ownInflater : Inflaters.borrow(nowrap);
+            inflater.setInput(compressed);
+            this.inflater = inflater;
+        }
+        try {
+            while (true) {
+                if (inflater.needsInput()) {
+                    requireCompressed(1);
+                    inflater.setInput(compressed);
+                }
+                int count;
+                try {
+                    count = inflater.inflate(target);
+                } catch (DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                }
+                if (inflater.finished()) {
+                    // Don't look at the gzip trailer, the NBT is complete once the reader stops. The reader may not
+                    // ask for more once it has what it needs, so this is the last chance to return the inflater.
+                    release(true);
+                    return count > 0 ? count : -1;
+                }
+                if (count > 0) {
+                    return count;
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Compressed data needs a preset dictionary");
+                }
+            }
+        } catch (IOException e) {
+            // The inflater may be part way through a stream it will never finish, so don't pool it
+            release(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        release(true);
+    }
+
+    /**
+     * Stop inflating, and return a pooled inflater.
+     *
+     * @param reusable {@code true} if the inflater can be put back in the pool, or {@code false} to end it
+     */
+    private void release(boolean reusable) {
+        finished = true;
+        Inflater inflater = this.inflater;
+        if (inflater == null) {
+            return;
+        }
+        this.inflater = null;
+        if (ownInflater == null) {
+            if (reusable) {
+                Inflaters.release(inflater, nowrap);
+            } else {
+                inflater.end();
+            }
+        }
+    }
+}
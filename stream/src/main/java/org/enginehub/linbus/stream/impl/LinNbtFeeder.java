@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinBinaryFeeder;
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link LinBinaryFeeder} that runs a {@link LinNbtReader} over fed input. Each step of the reader either
+ * completes, or runs out of input and is rolled back to be retried when more input arrives.
+ */
+public class LinNbtFeeder implements LinBinaryFeeder {
+    private final FeedingNbtInput input = new FeedingNbtInput();
+    private final LinNbtReader reader;
+    private boolean finished;
+
+    /**
+     * Create a new feeder.
+     *
+     * @param options the options to use when reading
+     */
+    public LinNbtFeeder(LinReadOptions options) {
+        this.reader = new LinNbtReader(input, options);
+    }
+
+    @Override
+    public void feed(ByteBuffer data) {
+        input.feed(data);
+    }
+
+    @Override
+    public void endOfInput() {
+        input.endOfInput();
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        if (finished) {
+            return null;
+        }
+        input.mark();
+        reader.mark();
+        LinCursor.Kind kind;
+        try {
+            kind = reader.advance();
+        } catch (FeedingNbtInput.NeedsInputException e) {
+            input.reset();
+            reader.reset();
+            return null;
+        }
+        if (kind == LinCursor.Kind.END_OF_STREAM) {
+            finished = true;
+            return null;
+        }
+        return CursorLinStream.currentToken(reader);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public ByteBuffer remainingInput() {
+        return input.remaining();
+    }
+}
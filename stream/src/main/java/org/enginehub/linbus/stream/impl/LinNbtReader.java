@@ -19,390 +19,660 @@
 package org.enginehub.linbus.stream.impl;
 
 import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinCursor;
 import org.enginehub.linbus.stream.LinReadOptions;
-import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStringCache;
 import org.enginehub.linbus.stream.exception.NbtParseException;
-import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CoderResult;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.List;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
- * Reads a stream of tokens from a {@link DataInput}.
+ * Reads NBT from an {@link NbtInput}, as a {@link LinCursor}.
  */
-public class LinNbtReader implements LinStream {
+public class LinNbtReader implements LinCursor {
+
+    // The states of the reader. Each state on the stack is an int, with the state in the low byte and, for
+    // READ_VALUE and LIST_ENTRY, the tag ID in the next byte. A count of remaining list elements or array items is
+    // kept in a parallel array, and updated in place.
 
     /**
-     * The start of a 2-byte null character in modified UTF-8.
+     * We need to initialize and return the root name.
      */
-    private static final byte TWO_BYTE_NULL_START = (byte) 0b1100_0000;
+    private static final int INITIAL = 0;
     /**
-     * The end of a 2-byte null character in modified UTF-8.
+     * We need to return {@link Kind#COMPOUND_START}.
      */
-    public static final byte TWO_BYTE_NULL_END = (byte) 0b10000000;
-    private static final int TOP_5_BITS = 0b1111_1000;
+    private static final int COMPOUND_START = 1;
     /**
-     * The start of a 4-byte character in UTF-8 (top 5 bits).
+     * We need to give the name of the next entry. We'll load the ID here too.
      */
-    private static final int FOUR_BYTE_START = 0b1111_0000;
+    private static final int COMPOUND_ENTRY_NAME = 2;
     /**
-     * The 3-byte start {@code 1110} plus {@code 1101}, the start of the surrogate indicator bits.
+     * We're reading the elements of a list. The remaining count is the number of elements left, and the ID is
+     * the ID of the elements.
      */
-    private static final byte THREE_BYTE_SURROGATE_START = (byte) 0b1110_1101;
-    private static final int TOP_3_BITS = 0b1110_0000;
+    private static final int LIST_ENTRY = 3;
     /**
-     * The continuation from {@link #THREE_BYTE_SURROGATE_START} for the surrogate indicator bits, with the
-     * {@code 10} bits for the second byte of a 3-byte character (top 3 bits).
+     * We need to read a value. Usually, we'll just return the value, and not push a new state, unless we need to
+     * read a complex value such as a compound, list, or array.
      */
-    private static final int THREE_BYTE_SURROGATE_CONTINUATION = 0b1010_0000;
-
-    private static StringEncoding getGuaranteedStringEncoding(ByteBuffer bytes) {
-        // The differences between the modified UTF-8 format and the standard UTF-8 format are the following:
-        // The null byte '\u0000' is encoded in 2-byte format rather than 1-byte, so that the encoded strings never have embedded nulls.
-        // Only the 1-byte, 2-byte, and 3-byte formats are used.
-        // Supplementary characters are represented in the form of surrogate pairs.
-
-        // However, the DataInputStream will accept a null-byte.
-        // So we can't use those as a definitive indicator of modified UTF-8 or not.
-        boolean sawTwoByteNullStart = false;
-        boolean sawThreeByteSurrogateStart = false;
-        for (int i = 0; i < bytes.remaining(); i++) {
-            byte b = bytes.get(i);
-            if (b == TWO_BYTE_NULL_START) {
-                sawTwoByteNullStart = true;
-            } else if (sawTwoByteNullStart) {
-                if (b == TWO_BYTE_NULL_END) {
-                    return StringEncoding.MODIFIED_UTF_8;
-                } else {
-                    sawTwoByteNullStart = false;
-                }
-            }
-
-            if ((b & TOP_5_BITS) == FOUR_BYTE_START) {
-                // 4-byte start
-                return StringEncoding.NORMAL_UTF_8;
-            }
+    private static final int READ_VALUE = 4;
+    /**
+     * We're currently reading a byte array. We'll emit content as needed.
+     */
+    private static final int READ_BYTE_ARRAY = 5;
+    /**
+     * We're currently reading an int array. We'll emit content as needed.
+     */
+    private static final int READ_INT_ARRAY = 6;
+    /**
+     * We're currently reading a long array. We'll emit content as needed.
+     */
+    private static final int READ_LONG_ARRAY = 7;
+    /**
+     * We're reading the elements of a list of numbers in runs. The remaining count is the number of elements left,
+     * and the ID is the ID of the elements.
+     */
+    private static final int READ_PACKED_LIST = 8;
 
-            if (b == THREE_BYTE_SURROGATE_START) {
-                sawThreeByteSurrogateStart = true;
-            } else if (sawThreeByteSurrogateStart) {
-                if ((b & TOP_3_BITS) == THREE_BYTE_SURROGATE_CONTINUATION) {
-                    // Assume this is a properly encoded surrogate, and that this is modified UTF-8
-                    // Any errors will be caught by the UTF-8 decoder.
-                    return StringEncoding.MODIFIED_UTF_8;
-                } else {
-                    sawThreeByteSurrogateStart = false;
-                }
-            }
-        }
-        return StringEncoding.UNKNOWN;
+    private static int state(int state, LinTagId id) {
+        return state | (id.id() << 8);
     }
 
-    private sealed interface State {
-        /**
-         * We need to initialize and return the root name.
-         */
-        record Initial() implements State {
-        }
-
-        /**
-         * We need to return {@link LinToken.CompoundStart}.
-         */
-        record CompoundStart() implements State {
-        }
-
-        /**
-         * We need to give the name of the next entry. We'll load the ID here too.
-         */
-        record CompoundEntryName() implements State {
-        }
-
-        /**
-         * This is a bit hacky, we don't want to fill the stack with entries equal to the size of the list. So we record
-         * the remaining entries and the id of the elements, and replace the entry on the stack with a {@link ReadValue}
-         * at the start of the loop.
-         */
-        record ListEntry(int remaining, LinTagId elementId) implements State {
-        }
-
-        /**
-         * We need to read a value. Usually, we'll just return the value, and not push a new state, unless we need to
-         * read a complex value such as a compound, list, or array.
-         */
-        record ReadValue(LinTagId id) implements State {
-        }
+    private static LinTagId stateId(int state) {
+        return LinTagId.fromId(state >>> 8);
+    }
 
-        /**
-         * We're currently reading a byte array. We'll emit content as needed.
-         */
-        record ReadByteArray(int remaining) implements State {
-        }
+    private final NbtInput input;
+    /**
+     * The state stack. We're currently on the one at {@code depth - 1}.
+     */
+    private int[] states = new int[16];
+    /**
+     * The remaining elements or items for each state on the stack, where relevant.
+     */
+    private int[] remaining = new int[16];
+    private int depth;
+    private final StringDecoder stringDecoder;
+    private final @Nullable LinStringCache nameCache;
+    private final @Nullable LinStringCache valueCache;
+    /**
+     * The largest number of bytes to read for each array content element.
+     */
+    private final int chunkSize;
+    private final boolean reuseContentBuffers;
+    private final boolean packPrimitiveLists;
+    // The reused buffer for copied content, with read-only views of it. Only allocated if reuse is enabled.
+    private byte @Nullable [] reusedArray;
+    private @Nullable ByteBuffer reusedContent;
+    private @Nullable IntBuffer reusedIntContent;
+    private @Nullable LongBuffer reusedLongContent;
+
+    // The current element. Only the fields relevant to the kind are set.
+    private @Nullable Kind kind;
+    /**
+     * The tag ID of a {@link Kind#NAME}, or the element ID of a {@link Kind#LIST_START}.
+     */
+    private LinTagId id = LinTagId.END;
+    /**
+     * The value of a number, or the size of an array or list. Floating-point numbers are stored as their raw bits.
+     */
+    private long primitive;
+    private @Nullable Buffer content;
+    /**
+     * The raw bytes of the current name or string. The array is reused, and only the first {@link #stringLength}
+     * bytes are valid.
+     */
+    private byte[] stringBytes = new byte[128];
+    private int stringLength;
+    private @Nullable ByteBuffer stringBytesView;
+    private @Nullable String decodedString;
 
-        /**
-         * We're currently reading an int array. We'll emit content as needed.
-         */
-        record ReadIntArray(int remaining) implements State {
-        }
+    /**
+     * Creates a new reader.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     */
+    public LinNbtReader(NbtInput input, LinReadOptions options) {
+        this.input = input;
+        push(INITIAL, 0);
+        this.stringDecoder = new StringDecoder(options.allowNormalUtf8Encoding());
+        this.nameCache = options.stringCache();
+        this.valueCache = options.internStringValues() ? options.stringCache() : null;
+        this.chunkSize = options.arrayChunkSize().orElse(input.defaultContentLength());
+        this.reuseContentBuffers = options.reuseContentBuffers() && !input.slicesContent();
+        this.packPrimitiveLists = options.packPrimitiveLists();
+    }
 
-        /**
-         * We're currently reading a long array. We'll emit content as needed.
-         */
-        record ReadLongArray(int remaining) implements State {
+    /**
+     * Creates a new reader for a single unnamed value, such as the value of a compound entry without its ID and name.
+     * The stream ends after the value.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     * @param id the ID of the value
+     */
+    public LinNbtReader(NbtInput input, LinReadOptions options, LinTagId id) {
+        this(input, options);
+        if (id == LinTagId.END) {
+            throw new IllegalArgumentException("Cannot read a value of type END");
         }
+        states[0] = state(READ_VALUE, id);
     }
 
-    private enum StringEncoding {
-        MODIFIED_UTF_8,
-        NORMAL_UTF_8,
-        UNKNOWN,
+    @Override
+    public Kind advance() throws IOException {
+        content = null;
+        decodedString = null;
+        Kind kind = readNext();
+        this.kind = kind;
+        return kind;
     }
 
-    private static final class NormalUtf8Decoder {
-        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-        // Default to some small allocation that is likely to cover most strings.
-        private ByteBuffer sourceBuffer = ByteBuffer.allocate(128);
-        private CharBuffer decodeBuffer = CharBuffer.allocate(128);
-
-        void fill(DataInput input, int length) throws IOException {
-            ensureSourceBufferCapacity(length);
-            input.readFully(sourceBuffer.array(), 0, length);
-            sourceBuffer.limit(length);
-        }
-
-        private void ensureSourceBufferCapacity(int requiredCapacity) {
-            if (sourceBuffer.capacity() < requiredCapacity) {
-                sourceBuffer = ByteBuffer.allocate(requiredCapacity);
-            } else {
-                sourceBuffer.clear();
-            }
-        }
-
-        private void ensureCharBufferCapacity(int requiredCapacity) {
-            if (decodeBuffer.capacity() < requiredCapacity) {
-                decodeBuffer = CharBuffer.allocate(requiredCapacity);
-            } else {
-                decodeBuffer.clear();
-            }
-        }
-
-        public String decode() throws CharacterCodingException {
-            int n = (int) (sourceBuffer.remaining() * decoder.averageCharsPerByte());
-            ensureCharBufferCapacity(n);
-
-            if ((n == 0) && (sourceBuffer.remaining() == 0))
-                return "";
-            decoder.reset();
-            for (; ; ) {
-                CoderResult cr = sourceBuffer.hasRemaining()
-                    ? decoder.decode(sourceBuffer, decodeBuffer, true)
-                    : CoderResult.UNDERFLOW;
-                if (cr.isUnderflow()) {
-                    cr = decoder.flush(decodeBuffer);
-                }
+    // A step only changes the top of the stack and pushes above it, so this is all that's needed to undo one.
+    private int markDepth;
+    private int markState;
+    private int markRemaining;
 
-                if (cr.isUnderflow()) {
-                    break;
-                }
-                if (cr.isOverflow()) {
-                    // Ensure progress; n might be 0!
-                    n += n / 2 + 1;
-                    CharBuffer o = CharBuffer.allocate(n);
-                    decodeBuffer.flip();
-                    o.put(decodeBuffer);
-                    decodeBuffer = o;
-                    continue;
-                }
-                cr.throwException();
-            }
-            decodeBuffer.flip();
-            return decodeBuffer.toString();
+    /**
+     * Remember the state before a step, so that it can be {@linkplain #reset() undone} if the input runs out.
+     */
+    void mark() {
+        markDepth = depth;
+        if (depth > 0) {
+            markState = states[depth - 1];
+            markRemaining = remaining[depth - 1];
         }
     }
 
-    private final DataInput input;
     /**
-     * The state stack. We're currently on the one that's LAST.
+     * Undo the step since the last {@link #mark()}.
      */
-    private final Deque<State> stateStack;
-    private StringEncoding stringEncoding;
-    private @Nullable NormalUtf8Decoder decoder;
+    void reset() {
+        depth = markDepth;
+        if (depth > 0) {
+            states[depth - 1] = markState;
+            remaining[depth - 1] = markRemaining;
+        }
+    }
 
-    /**
-     * Creates a new reader.
-     *
-     * @param input the input to read from
-     * @param options the options to use when reading
-     */
-    public LinNbtReader(DataInput input, LinReadOptions options) {
-        this.input = input;
-        this.stateStack = new ArrayDeque<>(List.of(new State.Initial()));
-        // We only need to check strings if we're allowing normal UTF-8 encoding.
-        this.stringEncoding = options.allowNormalUtf8Encoding()
-            ? StringEncoding.UNKNOWN : StringEncoding.MODIFIED_UTF_8;
+    private void push(int state, int count) {
+        if (depth == states.length) {
+            states = Arrays.copyOf(states, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        states[depth] = state;
+        remaining[depth] = count;
+        depth++;
     }
 
-    @Override
-    public @Nullable LinToken nextOrNull() throws IOException {
-        var state = stateStack.pollLast();
-        return switch (state) {
-            case null -> null;
-            case State.Initial initial -> {
+    private Kind readNext() throws IOException {
+        if (depth == 0) {
+            return Kind.END_OF_STREAM;
+        }
+        int top = depth - 1;
+        int state = states[top];
+        return switch (state & 0xFF) {
+            case INITIAL -> {
                 if (input.readUnsignedByte() != LinTagId.COMPOUND.id()) {
                     throw new NbtParseException("NBT stream does not start with a compound tag");
                 }
-                stateStack.addLast(new State.CompoundStart());
-                yield new LinToken.Name(readUtf(), LinTagId.COMPOUND);
+                states[top] = COMPOUND_START;
+                readStringBytes();
+                id = LinTagId.COMPOUND;
+                yield Kind.NAME;
             }
-            case State.CompoundStart compoundStart -> {
-                stateStack.addLast(new State.CompoundEntryName());
-                yield new LinToken.CompoundStart();
+            case COMPOUND_START -> {
+                states[top] = COMPOUND_ENTRY_NAME;
+                yield Kind.COMPOUND_START;
             }
-            case State.CompoundEntryName compoundEntryName -> {
+            case COMPOUND_ENTRY_NAME -> {
                 var id = LinTagId.fromId(input.readUnsignedByte());
                 if (id == LinTagId.END) {
-                    yield new LinToken.CompoundEnd();
+                    depth = top;
+                    yield Kind.COMPOUND_END;
                 }
 
                 // After we read the value, we'll be back at reading the name.
-                stateStack.addLast(new State.CompoundEntryName());
-                stateStack.addLast(new State.ReadValue(id));
-                yield new LinToken.Name(readUtf(), id);
+                push(state(READ_VALUE, id), 0);
+                readStringBytes();
+                this.id = id;
+                yield Kind.NAME;
             }
-            case State.ReadValue(LinTagId id) -> handleReadValue(id);
-            case State.ReadByteArray(int remaining) -> {
-                if (remaining == 0) {
+            case READ_VALUE -> {
+                depth = top;
+                yield handleReadValue(stateId(state));
+            }
+            case READ_BYTE_ARRAY -> {
+                int left = remaining[top];
+                if (left == 0) {
                     // We're done reading the array. Return the end token.
                     // This will also implicitly return to the state in the stack below the array.
-                    yield new LinToken.ByteArrayEnd();
+                    depth = top;
+                    yield Kind.BYTE_ARRAY_END;
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadByteArray(remaining - buffer.remaining()));
-                yield new LinToken.ByteArrayContent(buffer.asReadOnlyBuffer());
+                ByteBuffer buffer = readContent(Math.min(chunkSize, left));
+                remaining[top] = left - buffer.remaining();
+                content = buffer;
+                yield Kind.BYTE_ARRAY_CONTENT;
             }
-            case State.ReadIntArray(int remaining) -> {
-                if (remaining == 0) {
-                    // We're done reading the array. Return the end token.
-                    // This will also implicitly return to the state in the stack below the array.
-                    yield new LinToken.IntArrayEnd();
+            case READ_INT_ARRAY -> {
+                int left = remaining[top];
+                if (left == 0) {
+                    depth = top;
+                    yield Kind.INT_ARRAY_END;
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining * 4));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadIntArray(remaining - buffer.remaining() / 4));
-                yield new LinToken.IntArrayContent(buffer.asIntBuffer().asReadOnlyBuffer());
+                ByteBuffer buffer = readContent(Math.min(Math.max(chunkSize / 4, 1), left) * 4);
+                remaining[top] = left - buffer.remaining() / 4;
+                content = reusedContent == buffer ? reusedIntView(buffer) : buffer.asIntBuffer();
+                yield Kind.INT_ARRAY_CONTENT;
             }
-            case State.ReadLongArray(int remaining) -> {
-                if (remaining == 0) {
-                    // We're done reading the array. Return the end token.
-                    // This will also implicitly return to the state in the stack below the array.
-                    yield new LinToken.LongArrayEnd();
+            case READ_LONG_ARRAY -> {
+                int left = remaining[top];
+                if (left == 0) {
+                    depth = top;
+                    yield Kind.LONG_ARRAY_END;
+                }
+                ByteBuffer buffer = readContent(Math.min(Math.max(chunkSize / 8, 1), left) * 8);
+                remaining[top] = left - buffer.remaining() / 8;
+                content = reusedContent == buffer ? reusedLongView(buffer) : buffer.asLongBuffer();
+                yield Kind.LONG_ARRAY_CONTENT;
+            }
+            case LIST_ENTRY -> {
+                int left = remaining[top];
+                if (left == 0) {
+                    depth = top;
+                    yield Kind.LIST_END;
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining * 8));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadLongArray(remaining - buffer.remaining() / 8));
-                yield new LinToken.LongArrayContent(buffer.asLongBuffer().asReadOnlyBuffer());
+                remaining[top] = left - 1;
+                yield handleReadValue(stateId(state));
             }
-            case State.ListEntry(int remaining, LinTagId elementId) -> {
-                if (remaining == 0) {
-                    yield new LinToken.ListEnd();
+            case READ_PACKED_LIST -> {
+                int left = remaining[top];
+                if (left == 0) {
+                    depth = top;
+                    yield Kind.LIST_END;
                 }
-                stateStack.addLast(new State.ListEntry(remaining - 1, elementId));
-                yield handleReadValue(elementId);
+                LinTagId elementId = stateId(state);
+                int width = fixedWidth(elementId);
+                ByteBuffer buffer = readContent(Math.min(Math.max(chunkSize / width, 1), left) * width);
+                remaining[top] = left - buffer.remaining() / width;
+                content = switch (elementId) {
+                    case BYTE -> buffer;
+                    case SHORT -> buffer.asShortBuffer();
+                    case INT -> reusedContent == buffer ? reusedIntView(buffer) : buffer.asIntBuffer();
+                    case LONG -> reusedContent == buffer ? reusedLongView(buffer) : buffer.asLongBuffer();
+                    case FLOAT -> buffer.asFloatBuffer();
+                    case DOUBLE -> buffer.asDoubleBuffer();
+                    default -> throw new IllegalStateException("Not a number: " + elementId);
+                };
+                yield Kind.LIST_CONTENT;
             }
+            default -> throw new IllegalStateException("Unknown state: " + state);
         };
     }
 
-    private LinToken handleReadValue(LinTagId id) throws IOException {
+    private Kind handleReadValue(LinTagId id) throws IOException {
         return switch (id) {
-            case BYTE -> new LinToken.Byte(input.readByte());
-            case SHORT -> new LinToken.Short(input.readShort());
-            case INT -> new LinToken.Int(input.readInt());
-            case LONG -> new LinToken.Long(input.readLong());
-            case FLOAT -> new LinToken.Float(input.readFloat());
-            case DOUBLE -> new LinToken.Double(input.readDouble());
+            case BYTE -> {
+                primitive = input.readByte();
+                yield Kind.BYTE;
+            }
+            case SHORT -> {
+                primitive = input.readShort();
+                yield Kind.SHORT;
+            }
+            case INT -> {
+                primitive = input.readInt();
+                yield Kind.INT;
+            }
+            case LONG -> {
+                primitive = input.readLong();
+                yield Kind.LONG;
+            }
+            case FLOAT -> {
+                primitive = input.readInt();
+                yield Kind.FLOAT;
+            }
+            case DOUBLE -> {
+                primitive = input.readLong();
+                yield Kind.DOUBLE;
+            }
             case BYTE_ARRAY -> {
                 int size = input.readInt();
-                stateStack.addLast(new State.ReadByteArray(size));
-                yield new LinToken.ByteArrayStart(size);
+                push(READ_BYTE_ARRAY, size);
+                primitive = size;
+                yield Kind.BYTE_ARRAY_START;
+            }
+            case STRING -> {
+                readStringBytes();
+                yield Kind.STRING;
             }
-            case STRING -> new LinToken.String(readUtf());
             case LIST -> {
                 var elementId = LinTagId.fromId(input.readUnsignedByte());
                 int size = input.readInt();
-                stateStack.addLast(new State.ListEntry(size, elementId));
-                yield new LinToken.ListStart(size, elementId);
+                boolean packed = packPrimitiveLists && fixedWidth(elementId) > 0;
+                push(state(packed ? READ_PACKED_LIST : LIST_ENTRY, elementId), size);
+                this.id = elementId;
+                primitive = size;
+                yield Kind.LIST_START;
             }
             case COMPOUND -> {
-                stateStack.addLast(new State.CompoundEntryName());
-                yield new LinToken.CompoundStart();
+                push(COMPOUND_ENTRY_NAME, 0);
+                yield Kind.COMPOUND_START;
             }
             case INT_ARRAY -> {
                 int size = input.readInt();
-                stateStack.addLast(new State.ReadIntArray(size));
-                yield new LinToken.IntArrayStart(size);
+                push(READ_INT_ARRAY, size);
+                primitive = size;
+                yield Kind.INT_ARRAY_START;
             }
             case LONG_ARRAY -> {
                 int size = input.readInt();
-                stateStack.addLast(new State.ReadLongArray(size));
-                yield new LinToken.LongArrayStart(size);
+                push(READ_LONG_ARRAY, size);
+                primitive = size;
+                yield Kind.LONG_ARRAY_START;
             }
             case END -> throw new NbtParseException("Invalid id: " + id);
         };
     }
 
-    private NormalUtf8Decoder getNormalUtf8Decoder() {
-        NormalUtf8Decoder decoder = this.decoder;
-        if (decoder == null) {
-            decoder = new NormalUtf8Decoder();
-            this.decoder = decoder;
+    @Override
+    public void skipValue() throws IOException {
+        int top = depth - 1;
+        if (top >= 0 && (states[top] & 0xFF) == READ_VALUE) {
+            depth = top;
+            skip(stateId(states[top]));
+        } else if (top >= 0 && (states[top] & 0xFF) == COMPOUND_START) {
+            // We're right after the root name, so the value is the root compound's body
+            depth = top;
+            skip(LinTagId.COMPOUND);
+        } else if (top >= 0 && (states[top] & 0xFF) == LIST_ENTRY && remaining[top] > 0) {
+            remaining[top]--;
+            skip(stateId(states[top]));
+        } else if (top >= 0 && (states[top] & 0xFF) == READ_PACKED_LIST && remaining[top] > 0) {
+            remaining[top]--;
+            input.skip(fixedWidth(stateId(states[top])));
+        } else {
+            throw new IllegalStateException("The next element does not start a value");
         }
-        return decoder;
     }
 
-    private String readUtf() throws IOException {
-        return switch (stringEncoding) {
-            case MODIFIED_UTF_8 -> input.readUTF();
-            case NORMAL_UTF_8 -> {
-                int length = input.readUnsignedShort();
-                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
-                decoder.fill(input, length);
-                yield decoder.decode();
-            }
-            case UNKNOWN -> {
-                int length = input.readUnsignedShort();
-                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
-                decoder.fill(input, length);
-                StringEncoding knownEncoding = getGuaranteedStringEncoding(decoder.sourceBuffer);
-                yield switch (knownEncoding) {
-                    case MODIFIED_UTF_8 -> {
-                        stringEncoding = knownEncoding;
-                        byte[] withLength = new byte[length + 2];
-                        withLength[0] = (byte) (length >> 8);
-                        withLength[1] = (byte) length;
-                        System.arraycopy(decoder.sourceBuffer.array(), 0, withLength, 2, length);
-                        yield new DataInputStream(new ByteArrayInputStream(withLength)).readUTF();
+    /**
+     * Skip a value with the given ID, without touching the state stack.
+     *
+     * @param id the ID of the value
+     */
+    private void skip(LinTagId id) throws IOException {
+        switch (id) {
+            case BYTE -> input.skip(Byte.BYTES);
+            case SHORT -> input.skip(Short.BYTES);
+            case INT, FLOAT -> input.skip(Integer.BYTES);
+            case LONG, DOUBLE -> input.skip(Long.BYTES);
+            case BYTE_ARRAY -> input.skip(readSize());
+            case INT_ARRAY -> input.skip(readSize() * (long) Integer.BYTES);
+            case LONG_ARRAY -> input.skip(readSize() * (long) Long.BYTES);
+            case STRING -> input.skip(input.readUnsignedShort());
+            case LIST -> {
+                var elementId = LinTagId.fromId(input.readUnsignedByte());
+                int size = readSize();
+                int width = fixedWidth(elementId);
+                if (width > 0) {
+                    input.skip(size * (long) width);
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        skip(elementId);
                     }
-                    case NORMAL_UTF_8 -> {
-                        stringEncoding = knownEncoding;
-                        yield decoder.decode();
+                }
+            }
+            case COMPOUND -> {
+                while (true) {
+                    var entryId = LinTagId.fromId(input.readUnsignedByte());
+                    if (entryId == LinTagId.END) {
+                        break;
                     }
-                    // These are valid UTF-8 bytes that fit either encoding. Just read them as normal UTF-8,
-                    // but don't change the encoding.
-                    case UNKNOWN -> decoder.decode();
-                };
+                    // Skip the name
+                    input.skip(input.readUnsignedShort());
+                    skip(entryId);
+                }
             }
+            case END -> throw new NbtParseException("Invalid id: " + id);
+        }
+    }
+
+    private int readSize() throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new NbtParseException("Negative size: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * {@return the number of bytes a value with the given ID takes up, or {@code 0} if it varies}
+     *
+     * @param id the ID of the value
+     */
+    private static int fixedWidth(LinTagId id) {
+        return switch (id) {
+            case BYTE -> Byte.BYTES;
+            case SHORT -> Short.BYTES;
+            case INT, FLOAT -> Integer.BYTES;
+            case LONG, DOUBLE -> Long.BYTES;
+            default -> 0;
         };
     }
+
+    /**
+     * Read array content, into the reused buffer if enabled.
+     *
+     * @param length the number of bytes to read
+     * @return the content
+     */
+    private ByteBuffer readContent(int length) throws IOException {
+        if (!reuseContentBuffers) {
+            return input.readContent(length);
+        }
+        byte[] array = reusedArray;
+        ByteBuffer view = reusedContent;
+        if (array == null || view == null || array.length < length) {
+            array = new byte[length];
+            view = ByteBuffer.wrap(array).asReadOnlyBuffer();
+            reusedArray = array;
+            reusedContent = view;
+            reusedIntContent = null;
+            reusedLongContent = null;
+        }
+        input.readFully(array, 0, length);
+        view.limit(length).position(0);
+        return view;
+    }
+
+    private IntBuffer reusedIntView(ByteBuffer content) {
+        IntBuffer view = reusedIntContent;
+        if (view == null) {
+            view = content.duplicate().clear().asIntBuffer();
+            reusedIntContent = view;
+        }
+        view.limit(content.remaining() / 4).position(0);
+        return view;
+    }
+
+    private LongBuffer reusedLongView(ByteBuffer content) {
+        LongBuffer view = reusedLongContent;
+        if (view == null) {
+            view = content.duplicate().clear().asLongBuffer();
+            reusedLongContent = view;
+        }
+        view.limit(content.remaining() / 8).position(0);
+        return view;
+    }
+
+    private void readStringBytes() throws IOException {
+        int length = input.readUnsignedShort();
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+            stringBytesView = null;
+        }
+        input.readFully(stringBytes, 0, length);
+        stringLength = length;
+    }
+
+    private void requireKind(Kind kind) {
+        if (this.kind != kind) {
+            throw new IllegalStateException("Current element is " + this.kind + ", not " + kind);
+        }
+    }
+
+    @Override
+    public @Nullable Kind kind() {
+        return kind;
+    }
+
+    @Override
+    public String name() throws IOException {
+        requireKind(Kind.NAME);
+        return decodeString(nameCache);
+    }
+
+    @Override
+    public ByteBuffer nameBytes() {
+        requireKind(Kind.NAME);
+        return stringBytesView();
+    }
+
+    @Override
+    public LinTagId tagId() {
+        requireKind(Kind.NAME);
+        return id;
+    }
+
+    @Override
+    public byte byteValue() {
+        requireKind(Kind.BYTE);
+        return (byte) primitive;
+    }
+
+    @Override
+    public short shortValue() {
+        requireKind(Kind.SHORT);
+        return (short) primitive;
+    }
+
+    @Override
+    public int intValue() {
+        requireKind(Kind.INT);
+        return (int) primitive;
+    }
+
+    @Override
+    public long longValue() {
+        requireKind(Kind.LONG);
+        return primitive;
+    }
+
+    @Override
+    public float floatValue() {
+        requireKind(Kind.FLOAT);
+        return Float.intBitsToFloat((int) primitive);
+    }
+
+    @Override
+    public double doubleValue() {
+        requireKind(Kind.DOUBLE);
+        return Double.longBitsToDouble(primitive);
+    }
+
+    @Override
+    public String stringValue() throws IOException {
+        requireKind(Kind.STRING);
+        return decodeString(valueCache);
+    }
+
+    @Override
+    public ByteBuffer stringBytes() {
+        requireKind(Kind.STRING);
+        return stringBytesView();
+    }
+
+    @Override
+    public int arraySize() {
+        if (kind != Kind.BYTE_ARRAY_START && kind != Kind.INT_ARRAY_START && kind != Kind.LONG_ARRAY_START) {
+            throw new IllegalStateException("Current element is " + kind + ", not an array start");
+        }
+        return (int) primitive;
+    }
+
+    @Override
+    public int listSize() {
+        requireKind(Kind.LIST_START);
+        return (int) primitive;
+    }
+
+    @Override
+    public LinTagId listElementId() {
+        requireKind(Kind.LIST_START);
+        return id;
+    }
+
+    @Override
+    public Buffer listContent() {
+        requireKind(Kind.LIST_CONTENT);
+        return Objects.requireNonNull(content);
+    }
+
+    @Override
+    public ByteBuffer byteArrayContent() {
+        requireKind(Kind.BYTE_ARRAY_CONTENT);
+        return (ByteBuffer) content;
+    }
+
+    @Override
+    public IntBuffer intArrayContent() {
+        requireKind(Kind.INT_ARRAY_CONTENT);
+        return (IntBuffer) content;
+    }
+
+    @Override
+    public LongBuffer longArrayContent() {
+        requireKind(Kind.LONG_ARRAY_CONTENT);
+        return (LongBuffer) content;
+    }
+
+    private ByteBuffer stringBytesView() {
+        ByteBuffer view = stringBytesView;
+        if (view == null) {
+            view = ByteBuffer.wrap(stringBytes).asReadOnlyBuffer();
+            stringBytesView = view;
+        }
+        view.limit(stringLength).position(0);
+        return view;
+    }
+
+    private String decodeString(@Nullable LinStringCache cache) throws IOException {
+        String decoded = decodedString;
+        if (decoded == null) {
+            if (cache != null) {
+                decoded = cache.get(stringBytes, 0, stringLength);
+            }
+            if (decoded == null) {
+                decoded = stringDecoder.decode(stringBytes, stringLength);
+            }
+            decodedString = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
 }
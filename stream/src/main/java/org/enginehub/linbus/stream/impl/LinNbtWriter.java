@@ -0,0 +1,649 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.internal.DirectLinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Writes NBT tokens through a big-endian buffer, which is handed to a {@link Sink} whenever it fills up and at the
+ * end, or grows to hold everything. Array content is copied into the buffer in bulk, without modifying the content
+ * buffers of the tokens.
+ *
+ * <p>
+ * If the sink {@linkplain Sink#supportsPatching() supports patching}, or the buffer grows, sizes and list element IDs
+ * missing from the tokens are written as placeholders and back-patched once they are known, instead of being
+ * {@linkplain LinStream#calculateOptionalInfo() calculated} up front. This keeps memory use constant for large
+ * lists and arrays.
+ * </p>
+ *
+ * <p>
+ * A {@link DirectLinStream} writes itself to the writer as an {@link NbtOutput}, without creating any tokens.
+ * </p>
+ */
+public final class LinNbtWriter implements NbtOutput {
+    /**
+     * The size of the buffer.
+     */
+    static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    /**
+     * Receives the bytes written.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Write all remaining bytes of the buffer, which is a heap buffer.
+         *
+         * @param buffer the buffer
+         * @throws IOException if an I/O error occurs
+         */
+        void write(ByteBuffer buffer) throws IOException;
+
+        /**
+         * {@return {@code true} if this sink supports {@link #patch(long, ByteBuffer)}}
+         */
+        default boolean supportsPatching() {
+            return false;
+        }
+
+        /**
+         * Overwrite bytes that were already written.
+         *
+         * @param offset the offset from the first byte written to this sink
+         * @param bytes the bytes to write
+         * @throws IOException if an I/O error occurs
+         */
+        default void patch(long offset, ByteBuffer bytes) throws IOException {
+            throw new UnsupportedOperationException("This sink does not support patching");
+        }
+
+        /**
+         * Create a sink that writes to a {@link DataOutput}, using only {@link DataOutput#write(byte[], int, int)}.
+         *
+         * @param output the output
+         * @return the sink
+         */
+        static Sink of(DataOutput output) {
+            return buffer -> {
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            };
+        }
+
+        /**
+         * Create a sink that writes to a blocking {@link WritableByteChannel}.
+         *
+         * @param channel the channel
+         * @return the sink
+         */
+        static Sink of(WritableByteChannel channel) {
+            return buffer -> writeFully(channel, buffer);
+        }
+
+        /**
+         * Create a sink that writes to a blocking {@link SeekableByteChannel}, starting at its current position. It
+         * supports patching, by moving the channel's position back and forth.
+         *
+         * @param channel the channel
+         * @return the sink
+         * @throws IOException if an I/O error occurs
+         */
+        static Sink of(SeekableByteChannel channel) throws IOException {
+            long start = channel.position();
+            return new Sink() {
+                @Override
+                public void write(ByteBuffer buffer) throws IOException {
+                    writeFully(channel, buffer);
+                }
+
+                @Override
+                public boolean supportsPatching() {
+                    return true;
+                }
+
+                @Override
+                public void patch(long offset, ByteBuffer bytes) throws IOException {
+                    long end = channel.position();
+                    channel.position(start + offset);
+                    writeFully(channel, bytes);
+                    channel.position(end);
+                }
+            };
+        }
+
+        private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Write a stream of NBT tokens into a heap buffer, which grows as needed.
+     *
+     * @param tokens the stream of NBT tokens
+     * @param initialCapacity the initial capacity of the buffer
+     * @return the buffer, flipped so that it holds exactly the bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteBuffer writeToBuffer(LinStreamable tokens, int initialCapacity) throws IOException {
+        var writer = new LinNbtWriter(null, initialCapacity);
+        writer.write(tokens);
+        return writer.buffer.flip();
+    }
+
+    // The kinds of open containers
+    private static final byte COMPOUND = 0;
+    private static final byte LIST = 1;
+    private static final byte ARRAY = 2;
+
+    private final @Nullable Sink sink;
+    private final boolean patching;
+    private ByteBuffer buffer;
+    /**
+     * The number of bytes handed to the sink, so the position of the buffer's first byte.
+     */
+    private long flushed;
+    // The open containers, with where their placeholder size and element ID are, if any, and their element count
+    private byte[] kinds = new byte[16];
+    private long[] sizePositions = new long[16];
+    private long[] idPositions = new long[16];
+    private int[] counts = new int[16];
+    private int depth;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param sink the sink to write to
+     */
+    public LinNbtWriter(Sink sink) {
+        this(sink, DEFAULT_CAPACITY);
+    }
+
+    private LinNbtWriter(@Nullable Sink sink, int capacity) {
+        this.sink = sink;
+        this.patching = sink == null || sink.supportsPatching();
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Write a stream of NBT tokens, and hand everything written to the sink.
+     *
+     * @param tokens the stream of NBT tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(LinStreamable tokens) throws IOException {
+        LinStream stream = tokens.linStream();
+        if (stream instanceof DirectLinStream direct) {
+            direct.writeTo(this);
+            flush();
+            return;
+        }
+        // This is essentially free if the info is already there. Missing info can be back-patched instead, if the
+        // output allows it.
+        LinStream tokenStream = patching ? stream : stream.calculateOptionalInfo();
+        boolean seenFirstName = false;
+        // This also signals if we're in a compound tag or not.
+        String nextName = null;
+        LinToken token;
+        while ((token = tokenStream.nextOrNull()) != null) {
+            if (!seenFirstName) {
+                if (token instanceof LinToken.Name) {
+                    seenFirstName = true;
+                } else {
+                    // It's not legal to write without a name.
+                    throw new NbtWriteException("Expected first token to be a name");
+                }
+            }
+            switch (token) {
+                case LinToken.Name(String name, Optional<LinTagId> id) ->
+                    // We need to hold this until we print the id
+                    nextName = name;
+                case LinToken.ByteArrayStart(OptionalInt size) -> {
+                    startValue(LinTagId.BYTE_ARRAY, nextName);
+                    nextName = null;
+
+                    startArray(size);
+                }
+                case LinToken.ByteArrayContent(ByteBuffer content) -> {
+                    countContent(content.remaining());
+                    writeBytes(content);
+                }
+                case LinToken.ByteArrayEnd byteArrayEnd -> end();
+                case LinToken.Byte(byte value) -> {
+                    startValue(LinTagId.BYTE, nextName);
+                    nextName = null;
+
+                    require(Byte.BYTES).put(value);
+                }
+                case LinToken.CompoundStart compoundStart -> {
+                    startValue(LinTagId.COMPOUND, nextName);
+                    nextName = null;
+
+                    push(COMPOUND, -1, -1);
+                }
+                case LinToken.CompoundEnd compoundEnd -> {
+                    require(Byte.BYTES).put((byte) LinTagId.END.id());
+                    end();
+                }
+                case LinToken.Double(double value) -> {
+                    startValue(LinTagId.DOUBLE, nextName);
+                    nextName = null;
+
+                    require(Double.BYTES).putDouble(value);
+                }
+                case LinToken.Float(float value) -> {
+                    startValue(LinTagId.FLOAT, nextName);
+                    nextName = null;
+
+                    require(Float.BYTES).putFloat(value);
+                }
+                case LinToken.IntArrayStart(OptionalInt size) -> {
+                    startValue(LinTagId.INT_ARRAY, nextName);
+                    nextName = null;
+
+                    startArray(size);
+                }
+                case LinToken.IntArrayContent(IntBuffer content) -> {
+                    countContent(content.remaining());
+                    writeInts(content);
+                }
+                case LinToken.IntArrayEnd intArrayEnd -> end();
+                case LinToken.Int(int value) -> {
+                    startValue(LinTagId.INT, nextName);
+                    nextName = null;
+
+                    require(Integer.BYTES).putInt(value);
+                }
+                case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) -> {
+                    startValue(LinTagId.LIST, nextName);
+                    nextName = null;
+
+                    long idPosition = -1;
+                    if (elementId.isPresent() || !patching) {
+                        require(Byte.BYTES).put((byte) elementId.orElseThrow().id());
+                    } else {
+                        // An empty list has no element ID
+                        idPosition = position();
+                        require(Byte.BYTES).put((byte) LinTagId.END.id());
+                    }
+                    push(LIST, putSize(size), idPosition);
+                }
+                case LinToken.ListContent listContent -> {
+                    if (nextName != null || depth == 0 || kinds[depth - 1] != LIST) {
+                        throw new NbtWriteException("List content outside of a list");
+                    }
+                    Buffer content = listContent.buffer();
+                    countElements(listContent.elementId(), content.remaining());
+                    switch (content) {
+                        case ByteBuffer elements -> writeBytes(elements);
+                        case ShortBuffer elements -> writeShorts(elements);
+                        case IntBuffer elements -> writeInts(elements);
+                        case LongBuffer elements -> writeLongs(elements);
+                        case FloatBuffer elements -> writeFloats(elements);
+                        case DoubleBuffer elements -> writeDoubles(elements);
+                        // Checked by the token
+                        default -> throw new IllegalStateException("Unknown list content: " + content);
+                    }
+                }
+                case LinToken.ListEnd listEnd -> end();
+                case LinToken.LongArrayStart(OptionalInt size) -> {
+                    startValue(LinTagId.LONG_ARRAY, nextName);
+                    nextName = null;
+
+                    startArray(size);
+                }
+                case LinToken.LongArrayContent(LongBuffer content) -> {
+                    countContent(content.remaining());
+                    writeLongs(content);
+                }
+                case LinToken.LongArrayEnd longArrayEnd -> end();
+                case LinToken.Long(long value) -> {
+                    startValue(LinTagId.LONG, nextName);
+                    nextName = null;
+
+                    require(Long.BYTES).putLong(value);
+                }
+                case LinToken.Short(short value) -> {
+                    startValue(LinTagId.SHORT, nextName);
+                    nextName = null;
+
+                    require(Short.BYTES).putShort(value);
+                }
+                case LinToken.String(String value) -> {
+                    startValue(LinTagId.STRING, nextName);
+                    nextName = null;
+
+                    writeString(value);
+                }
+                default -> throw new NbtWriteException("Unknown token: " + token);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Write the ID and name of a compound entry, or count a list element.
+     *
+     * @param id the ID of the value
+     * @param name the name of the entry, or {@code null} if this is not a compound entry
+     * @throws IOException if an I/O error occurs
+     */
+    private void startValue(LinTagId id, @Nullable String name) throws IOException {
+        if (name != null) {
+            require(Byte.BYTES).put((byte) id.id());
+            writeString(name);
+        } else if (depth > 0 && kinds[depth - 1] == LIST) {
+            countElements(id, 1);
+        }
+    }
+
+    /**
+     * Count elements of the list being written, which must be the innermost container, and patch in its element ID if
+     * they're the first.
+     *
+     * @param id the ID of the elements
+     * @param count the number of elements
+     * @throws IOException if an I/O error occurs
+     */
+    private void countElements(LinTagId id, int count) throws IOException {
+        int top = depth - 1;
+        if (counts[top] == 0 && idPositions[top] >= 0) {
+            patch(idPositions[top], ByteBuffer.allocate(Byte.BYTES).put(0, (byte) id.id()));
+        }
+        counts[top] += count;
+    }
+
+    private void startArray(OptionalInt size) throws IOException {
+        push(ARRAY, putSize(size), -1);
+    }
+
+    /**
+     * Write a list or array size, or a placeholder if it is not known.
+     *
+     * @param size the size
+     * @return the position of the placeholder, or {@code -1} if the size was written
+     * @throws IOException if an I/O error occurs
+     */
+    private long putSize(OptionalInt size) throws IOException {
+        if (size.isPresent() || !patching) {
+            require(Integer.BYTES).putInt(size.orElseThrow());
+            return -1;
+        }
+        long sizePosition = position();
+        require(Integer.BYTES).putInt(0);
+        return sizePosition;
+    }
+
+    private void push(byte kind, long sizePosition, long idPosition) {
+        if (depth == kinds.length) {
+            kinds = Arrays.copyOf(kinds, depth * 2);
+            sizePositions = Arrays.copyOf(sizePositions, depth * 2);
+            idPositions = Arrays.copyOf(idPositions, depth * 2);
+            counts = Arrays.copyOf(counts, depth * 2);
+        }
+        kinds[depth] = kind;
+        sizePositions[depth] = sizePosition;
+        idPositions[depth] = idPosition;
+        counts[depth] = 0;
+        depth++;
+    }
+
+    private void countContent(int count) {
+        if (depth == 0 || kinds[depth - 1] != ARRAY) {
+            throw new NbtWriteException("Array content outside of an array");
+        }
+        counts[depth - 1] += count;
+    }
+
+    private void end() throws IOException {
+        if (depth == 0) {
+            throw new NbtWriteException("Unexpected end token");
+        }
+        depth--;
+        if (sizePositions[depth] >= 0) {
+            patch(sizePositions[depth], ByteBuffer.allocate(Integer.BYTES).putInt(0, counts[depth]));
+        }
+    }
+
+    /**
+     * {@return the position of the next byte, counting from the first byte written}
+     */
+    private long position() {
+        return flushed + buffer.position();
+    }
+
+    /**
+     * Overwrite bytes that were already written.
+     *
+     * @param position the position of the bytes
+     * @param bytes the bytes
+     * @throws IOException if an I/O error occurs
+     */
+    private void patch(long position, ByteBuffer bytes) throws IOException {
+        if (position >= flushed) {
+            buffer.put((int) (position - flushed), bytes, 0, bytes.remaining());
+        } else {
+            assert sink != null : "Growing writers never flush";
+            sink.patch(position, bytes);
+        }
+    }
+
+    /**
+     * Make room for the given number of bytes, which must be at most the capacity of the buffer unless it grows.
+     *
+     * @param length the number of bytes
+     * @return the buffer
+     * @throws IOException if an I/O error occurs
+     */
+    private ByteBuffer require(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            if (sink == null) {
+                int capacity = (int) Math.min(
+                    Math.max((long) buffer.capacity() * 2, (long) buffer.position() + length),
+                    Integer.MAX_VALUE - 8
+                );
+                if (capacity - buffer.position() < length) {
+                    throw new NbtWriteException("Too much data to write to a buffer");
+                }
+                buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+            } else {
+                flush();
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Make room for at least {@code unit} bytes of array content, or all of the remaining content if the buffer grows.
+     *
+     * @param left the number of bytes of content left
+     * @param unit the size of one element
+     * @return the number of bytes that can be written now
+     * @throws IOException if an I/O error occurs
+     */
+    private int requireContent(long left, int unit) throws IOException {
+        return require(sink == null ? (int) Math.min(left, Integer.MAX_VALUE) : unit).remaining();
+    }
+
+    private void flush() throws IOException {
+        if (sink == null) {
+            return;
+        }
+        buffer.flip();
+        flushed += buffer.remaining();
+        sink.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void writeByte(int value) throws IOException {
+        require(Byte.BYTES).put((byte) value);
+    }
+
+    @Override
+    public void writeShort(int value) throws IOException {
+        require(Short.BYTES).putShort((short) value);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        require(Integer.BYTES).putInt(value);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        require(Long.BYTES).putLong(value);
+    }
+
+    @Override
+    public void writeFloat(float value) throws IOException {
+        require(Float.BYTES).putFloat(value);
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        require(Double.BYTES).putDouble(value);
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        int length = ModifiedUtf8.encodedLength(value);
+        if (length > MAX_STRING_LENGTH) {
+            throw new UTFDataFormatException("Encoded string is too long: " + length + " bytes");
+        }
+        if (sink == null || Short.BYTES + length <= buffer.capacity()) {
+            ModifiedUtf8.encode(value, require(Short.BYTES + length).putShort((short) length));
+        } else {
+            require(Short.BYTES).putShort((short) length);
+            writeBytes(ByteBuffer.wrap(ModifiedUtf8.encode(value)));
+        }
+    }
+
+    @Override
+    public void writeBytes(ByteBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(requireContent(limit - position, 1), limit - position);
+            buffer.put(buffer.position(), content, position, length);
+            buffer.position(buffer.position() + length);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeShorts(ShortBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(
+                requireContent((long) (limit - position) * Short.BYTES, Short.BYTES) / Short.BYTES,
+                limit - position
+            );
+            buffer.asShortBuffer().put(0, content, position, length);
+            buffer.position(buffer.position() + length * Short.BYTES);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeInts(IntBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(
+                requireContent((long) (limit - position) * Integer.BYTES, Integer.BYTES) / Integer.BYTES,
+                limit - position
+            );
+            buffer.asIntBuffer().put(0, content, position, length);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeLongs(LongBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(
+                requireContent((long) (limit - position) * Long.BYTES, Long.BYTES) / Long.BYTES,
+                limit - position
+            );
+            buffer.asLongBuffer().put(0, content, position, length);
+            buffer.position(buffer.position() + length * Long.BYTES);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeFloats(FloatBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(
+                requireContent((long) (limit - position) * Float.BYTES, Float.BYTES) / Float.BYTES,
+                limit - position
+            );
+            buffer.asFloatBuffer().put(0, content, position, length);
+            buffer.position(buffer.position() + length * Float.BYTES);
+            position += length;
+        }
+    }
+
+    @Override
+    public void writeDoubles(DoubleBuffer content) throws IOException {
+        int position = content.position();
+        int limit = content.limit();
+        while (position < limit) {
+            int length = Math.min(
+                requireContent((long) (limit - position) * Double.BYTES, Double.BYTES) / Double.BYTES,
+                limit - position
+            );
+            buffer.asDoubleBuffer().put(0, content, position, length);
+            buffer.position(buffer.position() + length * Double.BYTES);
+            position += length;
+        }
+    }
+}
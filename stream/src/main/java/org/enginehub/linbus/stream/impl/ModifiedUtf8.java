@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding and decoding for the modified UTF-8 format used by {@link java.io.DataInput#readUTF()}.
+ */
+public final class ModifiedUtf8 {
+    /**
+     * Decode the given bytes, exactly as {@link java.io.DataInputStream#readUTF(java.io.DataInput)} would.
+     *
+     * @param bytes the bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the decoded string
+     * @throws UTFDataFormatException if the bytes are not valid modified UTF-8
+     */
+    static String decode(byte[] bytes, int offset, int length) throws UTFDataFormatException {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && bytes[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            // All ASCII, which is the same in Latin-1 and cheaper to construct.
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[length];
+        int charCount = 0;
+        for (int j = offset; j < i; j++) {
+            chars[charCount++] = (char) bytes[j];
+        }
+        while (i < end) {
+            int c = bytes[i] & 0xFF;
+            switch (c >> 4) {
+                case 0, 1, 2, 3, 4, 5, 6, 7 -> {
+                    i++;
+                    chars[charCount++] = (char) c;
+                }
+                case 12, 13 -> {
+                    if (i + 2 > end) {
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    }
+                    int c2 = bytes[i + 1];
+                    if ((c2 & 0xC0) != 0x80) {
+                        throw new UTFDataFormatException("malformed input around byte " + (i + 1 - offset));
+                    }
+                    chars[charCount++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                    i += 2;
+                }
+                case 14 -> {
+                    if (i + 3 > end) {
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    }
+                    int c2 = bytes[i + 1];
+                    int c3 = bytes[i + 2];
+                    if (((c2 & 0xC0) != 0x80) || ((c3 & 0xC0) != 0x80)) {
+                        throw new UTFDataFormatException("malformed input around byte " + (i + 2 - offset));
+                    }
+                    chars[charCount++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+                    i += 3;
+                }
+                default -> throw new UTFDataFormatException("malformed input around byte " + (i - offset));
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * {@return the number of bytes needed to encode the given string}
+     *
+     * @param string the string
+     */
+    public static int encodedLength(String string) {
+        int length = string.length();
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80 || c == 0) {
+                length += (c >= 0x800) ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encode the given string, exactly as {@link java.io.DataOutputStream#writeUTF(String)} would, but without the
+     * length prefix.
+     *
+     * @param string the string
+     * @return the encoded bytes
+     */
+    static byte[] encode(String string) {
+        byte[] bytes = new byte[encodedLength(string)];
+        encode(string, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Encode the given string into a buffer at its position, exactly as
+     * {@link java.io.DataOutputStream#writeUTF(String)} would, but without the length prefix.
+     *
+     * @param string the string
+     * @param buffer the buffer, which must have at least {@link #encodedLength(String)} bytes remaining
+     */
+    static void encode(String string, ByteBuffer buffer) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80 && c != 0) {
+                buffer.put((byte) c);
+            } else if (c >= 0x800) {
+                buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private ModifiedUtf8() {
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The source of bytes for a {@link LinNbtReader}. This is a minimal subset of {@link DataInput}, plus a method for
+ * reading array content in a way that lets implementations avoid copying.
+ */
+public interface NbtInput {
+    /**
+     * Wrap a {@link DataInput}.
+     *
+     * @param input the input
+     * @return the wrapped input
+     */
+    static NbtInput of(DataInput input) {
+        return new DataInputNbtInput(input);
+    }
+
+    /**
+     * Wrap a {@link ByteBuffer}. Reading starts at the buffer's position and ends at its limit. The buffer's position,
+     * limit, and byte order are not modified.
+     *
+     * @param buffer the buffer
+     * @return the wrapped input
+     */
+    static NbtInput of(ByteBuffer buffer) {
+        return new ByteBufferNbtInput(buffer);
+    }
+
+    /**
+     * Wrap a {@link ByteBuffer} that may hold gzip or zlib compressed data, detected from its first bytes. Compressed
+     * data is inflated as it is read, and uncompressed data is used as in {@link #of(ByteBuffer)}. The buffer's
+     * position, limit, and byte order are not modified.
+     *
+     * @param buffer the buffer
+     * @return the wrapped input
+     * @throws IOException if the compressed data has an invalid header
+     */
+    static NbtInput ofCompressed(ByteBuffer buffer) throws IOException {
+        return switch (Compression.detect(buffer)) {
+            case GZIP -> InflatingNbtInput.gzip(buffer.duplicate(), null);
+            case ZLIB -> InflatingNbtInput.zlib(buffer.duplicate(), null);
+            case NONE -> of(buffer);
+        };
+    }
+
+    /**
+     * Wrap a blocking {@link ReadableByteChannel} that may provide gzip or zlib compressed data, detected from its
+     * first bytes. Compressed data is inflated as it is read.
+     *
+     * @param channel the channel
+     * @return the wrapped input
+     * @throws IOException if an I/O error occurs, or the compressed data has an invalid header
+     */
+    static NbtInput ofCompressed(ReadableByteChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(2);
+        while (head.hasRemaining() && channel.read(head) >= 0) {
+            // Keep reading until we have enough to detect the compression
+        }
+        head.flip();
+        return switch (Compression.detect(head)) {
+            case GZIP -> InflatingNbtInput.gzip(head, channel);
+            case ZLIB -> InflatingNbtInput.zlib(head, channel);
+            case NONE -> new ChannelNbtInput(head, channel);
+        };
+    }
+
+    /**
+     * See {@link DataInput#readByte()}.
+     *
+     * @return the byte
+     * @throws IOException if an I/O error occurs
+     */
+    byte readByte() throws IOException;
+
+    /**
+     * See {@link DataInput#readUnsignedByte()}.
+     *
+     * @return the unsigned byte
+     * @throws IOException if an I/O error occurs
+     */
+    int readUnsignedByte() throws IOException;
+
+    /**
+     * See {@link DataInput#readShort()}.
+     *
+     * @return the short
+     * @throws IOException if an I/O error occurs
+     */
+    short readShort() throws IOException;
+
+    /**
+     * See {@link DataInput#readUnsignedShort()}.
+     *
+     * @return the unsigned short
+     * @throws IOException if an I/O error occurs
+     */
+    int readUnsignedShort() throws IOException;
+
+    /**
+     * See {@link DataInput#readInt()}.
+     *
+     * @return the int
+     * @throws IOException if an I/O error occurs
+     */
+    int readInt() throws IOException;
+
+    /**
+     * See {@link DataInput#readLong()}.
+     *
+     * @return the long
+     * @throws IOException if an I/O error occurs
+     */
+    long readLong() throws IOException;
+
+    /**
+     * See {@link DataInput#readFloat()}.
+     *
+     * @return the float
+     * @throws IOException if an I/O error occurs
+     */
+    default float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    /**
+     * See {@link DataInput#readDouble()}.
+     *
+     * @return the double
+     * @throws IOException if an I/O error occurs
+     */
+    default double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * See {@link DataInput#readFully(byte[], int, int)}.
+     *
+     * @param b the buffer to read into
+     * @param off the offset in the buffer
+     * @param len the number of bytes to read
+     * @throws IOException if an I/O error occurs
+     */
+    void readFully(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Skip exactly {@code length} bytes.
+     *
+     * @param length the number of bytes to skip
+     * @throws IOException if an I/O error occurs, including reaching the end of the input early
+     */
+    void skip(long length) throws IOException;
+
+    /**
+     * Read {@code length} bytes of array content.
+     *
+     * @param length the number of bytes to read
+     * @return a read-only, big-endian buffer containing exactly the bytes read, which may share memory with the input
+     * @throws IOException if an I/O error occurs
+     */
+    ByteBuffer readContent(int length) throws IOException;
+
+    /**
+     * {@return the number of bytes that should be requested from {@link #readContent(int)} at once, unless configured
+     * otherwise}
+     */
+    int defaultContentLength();
+
+    /**
+     * {@return {@code true} if {@link #readContent(int)} returns views of the input rather than copies}
+     */
+    boolean slicesContent();
+
+    /**
+     * Release the resources held by this input, if it will not be read to the end. The source of the input is not
+     * closed.
+     *
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     */
+    default void close() {
+    }
+
+    /**
+     * {@return the number of bytes read from this input so far}
+     *
+     * @throws UnsupportedOperationException if this input does not track its position
+     */
+    default long position() {
+        throw new UnsupportedOperationException("This input does not track its position");
+    }
+}
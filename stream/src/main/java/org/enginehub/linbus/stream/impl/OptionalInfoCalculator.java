@@ -26,12 +26,11 @@
 
 import java.io.IOException;
 import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.Optional;
 import java.util.OptionalInt;
 
 /**
- * Implementation of {@link LinStream#calculateOptionalInfo()}.
+ * Implementation of {@link LinStream#calculateOptionalInfo()} and {@link LinStream#calculateOptionalInfo(long)}.
  */
 public class OptionalInfoCalculator implements LinStream {
     private interface OptionalFill {
@@ -43,22 +42,49 @@ private interface OptionalFill {
         @Nullable LinToken tryFill(LinToken token);
     }
 
+    /**
+     * A fill that is waiting for more tokens.
+     *
+     * @param slot the slot of the token to fill in the buffer
+     * @param fill the fill
+     */
+    private record Pending(long slot, OptionalFill fill) {
+    }
+
     private final LinStream original;
-    private @Nullable Deque<LinToken> tokenBuffer;
+    private final TokenBuffer.Budget budget;
+    // The fills waiting for more tokens, innermost last
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private @Nullable TokenBuffer tokenBuffer;
 
     /**
-     * Create a new {@link OptionalInfoCalculator}.
+     * Create a new {@link OptionalInfoCalculator}, which holds all buffered tokens in memory.
      *
      * @param original the original stream
      */
     public OptionalInfoCalculator(LinStream original) {
+        this(original, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a new {@link OptionalInfoCalculator}, which spills buffered tokens to a temporary file past a memory
+     * budget.
+     *
+     * @param original the original stream
+     * @param memoryBudget the approximate number of bytes of tokens to hold in memory
+     */
+    public OptionalInfoCalculator(LinStream original, long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative, got " + memoryBudget);
+        }
         this.original = original;
+        this.budget = new TokenBuffer.Budget(memoryBudget);
     }
 
     @Override
     public @Nullable LinToken nextOrNull() throws IOException {
         if (tokenBuffer != null) {
-            var next = tokenBuffer.pollFirst();
+            var next = tokenBuffer.poll();
             if (next != null) {
                 return next;
             } else {
@@ -69,12 +95,88 @@ public OptionalInfoCalculator(LinStream original) {
         if (next == null) {
             return null;
         }
+        var fill = fillFor(next);
+        if (fill == null) {
+            return next;
+        }
+
+        var buffer = new TokenBuffer(budget);
+        try {
+            fillAll(buffer, next, fill);
+        } catch (Throwable t) {
+            pending.clear();
+            try {
+                buffer.close();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        tokenBuffer = buffer;
+        return buffer.poll();
+    }
+
+    /**
+     * Buffer tokens until the given fill and every fill started after it are done. Each token is stored once, and the
+     * tokens to fill are replaced in the buffer as they are done.
+     *
+     * @param buffer the buffer to fill
+     * @param first the first token to fill
+     * @param firstFill the fill for the first token
+     * @throws IOException if an I/O error occurs
+     */
+    private void fillAll(TokenBuffer buffer, LinToken first, OptionalFill firstFill) throws IOException {
+        pending.addLast(new Pending(buffer.add(first), firstFill));
+        while (!pending.isEmpty()) {
+            var token = original.nextOrNull();
+            if (token == null) {
+                throw new NbtParseException("Optional value not filled by the end of token stream");
+            }
+            long slot = buffer.add(token);
+            // Only the innermost fill sees the token, unless the token completes it. Then the next one out sees it
+            // too, which keeps the outer fills' view of nesting balanced without offering them every inner token.
+            while (!pending.isEmpty()) {
+                var innermost = pending.getLast();
+                var filled = innermost.fill.tryFill(token);
+                if (filled == null) {
+                    break;
+                }
+                buffer.set(innermost.slot, filled);
+                pending.removeLast();
+            }
+            var fill = fillFor(token);
+            if (fill != null) {
+                pending.addLast(new Pending(slot, fill));
+            }
+        }
+    }
 
-        TokenAndBuffer tokenAndBuffer = fillIfNeeded(next);
-        if (tokenAndBuffer.buffer != null && !tokenAndBuffer.buffer.isEmpty()) {
-            tokenBuffer = tokenAndBuffer.buffer;
+    @Override
+    public void skipValue() throws IOException {
+        if (tokenBuffer == null || tokenBuffer.isEmpty()) {
+            // Nothing is buffered, so the original stream is at the same position as us.
+            original.skipValue();
+        } else {
+            LinStream.super.skipValue();
+        }
+    }
+
+    /**
+     * Discard the buffered tokens, deleting the spill file if there is one, and close the original stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        pending.clear();
+        try {
+            if (tokenBuffer != null) {
+                tokenBuffer.close();
+                tokenBuffer = null;
+            }
+        } finally {
+            original.close();
         }
-        return tokenAndBuffer.token;
     }
 
     @Override
@@ -82,58 +184,23 @@ public LinStream calculateOptionalInfo() {
         return this;
     }
 
-    private record TokenAndBuffer(LinToken token, @Nullable Deque<LinToken> buffer) {
+    @Override
+    public LinStream calculateOptionalInfo(long memoryBudget) {
+        return this;
     }
 
-    private TokenAndBuffer fillIfNeeded(LinToken token) throws IOException {
+    private static @Nullable OptionalFill fillFor(LinToken token) {
         return switch (token) {
             case LinToken.ListStart listStart when (listStart.size().isEmpty() || listStart.elementId().isEmpty()) ->
-                getFilled(new ListStartFill(listStart));
-            case LinToken.ByteArrayStart byteArrayStart -> {
-                if (byteArrayStart.size().isPresent()) {
-                    yield new TokenAndBuffer(token, null);
-                }
-                yield getFilled(new ByteArrayStartFill());
-            }
-            case LinToken.IntArrayStart(OptionalInt size) -> {
-                if (size.isPresent()) {
-                    yield new TokenAndBuffer(token, null);
-                }
-                yield getFilled(new IntArrayStartFill());
-            }
-            case LinToken.LongArrayStart(OptionalInt size) when size.isEmpty() -> getFilled(new LongArrayStartFill());
-            case LinToken.Name(String name, Optional<LinTagId> id) when id.isEmpty() -> getFilled(new NameFill(name));
-            default -> new TokenAndBuffer(token, null);
+                new ListStartFill(listStart);
+            case LinToken.ByteArrayStart(OptionalInt size) when size.isEmpty() -> new ByteArrayStartFill();
+            case LinToken.IntArrayStart(OptionalInt size) when size.isEmpty() -> new IntArrayStartFill();
+            case LinToken.LongArrayStart(OptionalInt size) when size.isEmpty() -> new LongArrayStartFill();
+            case LinToken.Name(String name, Optional<LinTagId> id) when id.isEmpty() -> new NameFill(name);
+            default -> null;
         };
     }
 
-    private TokenAndBuffer getFilled(OptionalFill fill) throws IOException {
-        var buffer = new ArrayDeque<LinToken>();
-        var consumedTokenStack = new ArrayDeque<LinToken>();
-        while (true) {
-            var next = buffer.pollFirst();
-            if (next == null) {
-                // Replenish our buffer by taking the next token (and filling if needed).
-                var originalNext = original.nextOrNull();
-                if (originalNext == null) {
-                    throw new NbtParseException("Optional value not filled by the end of token stream");
-                }
-                var tokenAndBuffer = fillIfNeeded(originalNext);
-                buffer.add(tokenAndBuffer.token);
-                consumedTokenStack.add(tokenAndBuffer.token);
-                if (tokenAndBuffer.buffer != null) {
-                    buffer.addAll(tokenAndBuffer.buffer);
-                    consumedTokenStack.addAll(tokenAndBuffer.buffer);
-                }
-                continue;
-            }
-            var filled = fill.tryFill(next);
-            if (filled != null) {
-                return new TokenAndBuffer(filled, consumedTokenStack);
-            }
-        }
-    }
-
     private static final class ListStartFill implements OptionalFill {
         private final int knownSize;
         private final @Nullable ValueCounter counter;
@@ -157,6 +224,8 @@ public ListStartFill(LinToken.ListStart listStart) {
                 if (elementId == null) {
                     if (token instanceof LinToken.ListEnd) {
                         elementId = LinTagId.END;
+                    } else if (token instanceof LinToken.ListContent listContent) {
+                        elementId = listContent.elementId();
                     } else {
                         elementId = token.tagId().orElseThrow(() ->
                             new NbtParseException("Token doesn't represent a tag directly: " + token)
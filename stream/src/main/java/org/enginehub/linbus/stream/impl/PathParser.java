@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses paths into the root compound, as used by {@link org.enginehub.linbus.stream.LinProjection} and
+ * {@link org.enginehub.linbus.stream.LinNbtIndex}.
+ *
+ * <p>
+ * A path is a series of segments separated by {@code .}. A segment is an entry name, or {@code *} to match any entry
+ * of a compound. Names containing special characters can be quoted with {@code "}, with {@code \} escaping {@code "}
+ * and {@code \}. A segment may be followed by any number of {@code [*]} to match every element of a list, or
+ * {@code [n]} to match the element at index {@code n}.
+ * </p>
+ */
+public final class PathParser {
+    /**
+     * A segment of a path.
+     */
+    public sealed interface Segment {
+    }
+
+    /**
+     * Matches the compound entry with the given name.
+     *
+     * @param name the name
+     */
+    public record Name(String name) implements Segment {
+    }
+
+    /**
+     * Matches every entry of a compound.
+     */
+    public record AnyName() implements Segment {
+    }
+
+    /**
+     * Matches every element of a list.
+     */
+    public record AllElements() implements Segment {
+    }
+
+    /**
+     * Matches the list element at the given index.
+     *
+     * @param index the index
+     */
+    public record Element(int index) implements Segment {
+    }
+
+    /**
+     * Parse a path.
+     *
+     * @param path the path
+     * @return the segments of the path
+     * @throws IllegalArgumentException if the path is malformed
+     */
+    public static List<Segment> parse(String path) {
+        return new PathParser(path).parse();
+    }
+
+    private final String path;
+    private final List<Segment> segments = new ArrayList<>();
+    private int index;
+
+    private PathParser(String path) {
+        this.path = path;
+    }
+
+    private List<Segment> parse() {
+        while (true) {
+            parseSegment();
+            while (index < path.length() && path.charAt(index) == '[') {
+                parseElements();
+            }
+            if (index == path.length()) {
+                break;
+            }
+            if (path.charAt(index) != '.') {
+                throw error("Expected '.' or '['");
+            }
+            index++;
+        }
+        return List.copyOf(segments);
+    }
+
+    private void parseSegment() {
+        if (index == path.length()) {
+            throw error("Expected a segment");
+        }
+        char c = path.charAt(index);
+        if (c == '"') {
+            segments.add(new Name(parseQuoted()));
+            return;
+        }
+        int start = index;
+        while (index < path.length() && ".[]\"".indexOf(path.charAt(index)) == -1) {
+            index++;
+        }
+        if (start == index) {
+            throw error("Expected a segment");
+        }
+        String name = path.substring(start, index);
+        segments.add(name.equals("*") ? new AnyName() : new Name(name));
+    }
+
+    private void parseElements() {
+        index++;
+        if (path.startsWith("*]", index)) {
+            index += 2;
+            segments.add(new AllElements());
+            return;
+        }
+        int start = index;
+        while (index < path.length() && path.charAt(index) >= '0' && path.charAt(index) <= '9') {
+            index++;
+        }
+        if (start == index || index == path.length() || path.charAt(index) != ']') {
+            throw error("Expected '*]' or an index followed by ']'");
+        }
+        int elementIndex;
+        try {
+            elementIndex = Integer.parseInt(path, start, index, 10);
+        } catch (NumberFormatException e) {
+            throw error("Index is too large");
+        }
+        index++;
+        segments.add(new Element(elementIndex));
+    }
+
+    private String parseQuoted() {
+        var name = new StringBuilder();
+        index++;
+        while (index < path.length()) {
+            char c = path.charAt(index++);
+            if (c == '"') {
+                return name.toString();
+            }
+            if (c == '\\') {
+                if (index == path.length()) {
+                    break;
+                }
+                c = path.charAt(index++);
+            }
+            name.append(c);
+        }
+        throw error("Unterminated quoted name");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at index " + index + " of path '" + path + "'");
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * A stream over a cursor that only emits the parts of the root compound selected by a projection. Anything else is
+ * skipped without being decoded.
+ */
+public class ProjectingLinStream implements LinStream {
+    private final LinCursor cursor;
+    private final ProjectionNode root;
+    /**
+     * The nodes of the compounds and lists we are currently inside of, excluding those that are passed through. For a
+     * list, this is the node of its elements.
+     */
+    private final Deque<ProjectionNode> containers = new ArrayDeque<>();
+    /**
+     * The node for the compound value that comes next, if any.
+     */
+    private @Nullable ProjectionNode nextCompound;
+    /**
+     * If the next value is passed through entirely.
+     */
+    private boolean passNextValue;
+    /**
+     * The depth inside a value that is passed through entirely.
+     */
+    private int passDepth;
+    private @Nullable LinToken pending;
+
+    /**
+     * Create a new projecting stream.
+     *
+     * @param cursor the cursor to read from, which has not been advanced yet
+     * @param root the finished projection root, applied to the root compound
+     */
+    public ProjectingLinStream(LinCursor cursor, ProjectionNode root) {
+        this.cursor = cursor;
+        this.root = root;
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        if (pending != null) {
+            var token = pending;
+            pending = null;
+            return token;
+        }
+        while (true) {
+            LinCursor.Kind kind = cursor.advance();
+            if (passNextValue || passDepth > 0) {
+                passNextValue = false;
+                switch (kind) {
+                    case BYTE_ARRAY_START, COMPOUND_START, INT_ARRAY_START, LIST_START, LONG_ARRAY_START -> passDepth++;
+                    case BYTE_ARRAY_END, COMPOUND_END, INT_ARRAY_END, LIST_END, LONG_ARRAY_END -> passDepth--;
+                    default -> {
+                    }
+                }
+                return CursorLinStream.currentToken(cursor);
+            }
+            switch (kind) {
+                case END_OF_STREAM -> {
+                    return null;
+                }
+                case NAME -> {
+                    LinToken token = nextName();
+                    if (token != null) {
+                        return token;
+                    }
+                }
+                case COMPOUND_START -> {
+                    ProjectionNode node = nextCompound;
+                    nextCompound = null;
+                    if (node == null) {
+                        // Must be an element of a list of compounds
+                        node = Objects.requireNonNull(containers.peekLast(), "compound outside of a container");
+                    }
+                    containers.addLast(node);
+                    return new LinToken.CompoundStart();
+                }
+                case LIST_START -> {
+                    // Named lists are handled with their name, so this must be an element of a list of lists
+                    ProjectionNode node = Objects.requireNonNull(containers.peekLast(), "list outside of a container");
+                    ProjectionNode elements = node.elementsOrNull();
+                    if (elements != null && elements.isAll()) {
+                        passDepth = 1;
+                        return CursorLinStream.currentToken(cursor);
+                    }
+                    if (elements != null && canSelectElements(elements)) {
+                        containers.addLast(elements);
+                        return CursorLinStream.currentToken(cursor);
+                    }
+                    // The size of the outer list is already out, so leave an empty list in this element's place
+                    LinTagId elementId = cursor.listElementId();
+                    skipListElements();
+                    pending = new LinToken.ListEnd();
+                    return new LinToken.ListStart(0, elementId);
+                }
+                case COMPOUND_END -> {
+                    containers.removeLast();
+                    return new LinToken.CompoundEnd();
+                }
+                case LIST_END -> {
+                    containers.removeLast();
+                    return new LinToken.ListEnd();
+                }
+                default -> throw new NbtParseException("Unexpected " + kind + " in a projected list");
+            }
+        }
+    }
+
+    /**
+     * Handle a name. If the entry is selected, the name token is returned. Otherwise, the entry is skipped and
+     * {@code null} is returned.
+     */
+    private @Nullable LinToken nextName() throws IOException {
+        ProjectionNode compound = containers.peekLast();
+        if (compound == null) {
+            // The root entry
+            nextCompound = root;
+            return CursorLinStream.currentToken(cursor);
+        }
+        ProjectionNode child = compound.childByBytes(cursor.nameBytes());
+        if (child == null) {
+            cursor.skipValue();
+            return null;
+        }
+        LinTagId id = cursor.tagId();
+        ProjectionNode elements = child.elementsOrNull();
+        if (child.isAll() || (id == LinTagId.LIST && elements != null && elements.isAll())) {
+            passNextValue = true;
+            return CursorLinStream.currentToken(cursor);
+        }
+        if (id == LinTagId.COMPOUND && child.selectsEntries()) {
+            nextCompound = child;
+            return CursorLinStream.currentToken(cursor);
+        }
+        if (id == LinTagId.LIST && elements != null) {
+            LinToken name = CursorLinStream.currentToken(cursor);
+            cursor.advance();
+            if (canSelectElements(elements)) {
+                containers.addLast(elements);
+                pending = CursorLinStream.currentToken(cursor);
+                return name;
+            }
+            // Nothing in this list can match, drop it entirely
+            skipListElements();
+            return null;
+        }
+        cursor.skipValue();
+        return null;
+    }
+
+    /**
+     * {@return {@code true} if the elements of the list the cursor is at can be selected by the given node}
+     *
+     * @param elements the node for the elements
+     */
+    private boolean canSelectElements(ProjectionNode elements) {
+        if (cursor.listSize() == 0) {
+            return true;
+        }
+        return switch (cursor.listElementId()) {
+            case COMPOUND -> elements.selectsEntries();
+            case LIST -> elements.selectsElements();
+            default -> false;
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        cursor.close();
+    }
+
+    /**
+     * Skip the elements of the list the cursor is at, and its end.
+     */
+    private void skipListElements() throws IOException {
+        for (int i = cursor.listSize(); i > 0; i--) {
+            cursor.skipValue();
+        }
+        LinCursor.Kind end = cursor.advance();
+        if (end != LinCursor.Kind.LIST_END) {
+            throw new NbtParseException("Expected list end, got " + end);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.jspecify.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A node in a compiled projection. Each node describes which parts of a value are selected.
+ */
+public final class ProjectionNode {
+    private boolean all;
+    private final Map<String, ProjectionNode> children = new LinkedHashMap<>();
+    private @Nullable ProjectionNode wildcard;
+    private @Nullable ProjectionNode elements;
+    private Map<ByteBuffer, ProjectionNode> childrenByBytes = Map.of();
+
+    /**
+     * Construct a new node that selects nothing.
+     */
+    public ProjectionNode() {
+    }
+
+    /**
+     * {@return the node for the named child, creating it if needed}
+     *
+     * @param name the name of the child
+     */
+    public ProjectionNode child(String name) {
+        return children.computeIfAbsent(name, k -> new ProjectionNode());
+    }
+
+    /**
+     * {@return the node for any child of a compound, creating it if needed}
+     */
+    public ProjectionNode wildcard() {
+        if (wildcard == null) {
+            wildcard = new ProjectionNode();
+        }
+        return wildcard;
+    }
+
+    /**
+     * {@return the node for every element of a list, creating it if needed}
+     */
+    public ProjectionNode elements() {
+        if (elements == null) {
+            elements = new ProjectionNode();
+        }
+        return elements;
+    }
+
+    /**
+     * Mark this node as selecting the whole value.
+     */
+    public void selectAll() {
+        all = true;
+    }
+
+    /**
+     * Finish building this node and all nodes below it. No more changes should be made afterwards.
+     *
+     * <p>
+     * Paths under a wildcard are merged into each named child, so that at read time only one node needs to be
+     * followed per name.
+     * </p>
+     */
+    public void finish() {
+        if (wildcard != null) {
+            for (ProjectionNode child : children.values()) {
+                child.mergeFrom(wildcard);
+            }
+            wildcard.finish();
+        }
+        if (elements != null) {
+            elements.finish();
+        }
+        var byBytes = new HashMap<ByteBuffer, ProjectionNode>();
+        for (var entry : children.entrySet()) {
+            ProjectionNode child = entry.getValue();
+            child.finish();
+            // Names are compared before decoding, so accept both encodings that the reader accepts.
+            byte[] modified = ModifiedUtf8.encode(entry.getKey());
+            byBytes.put(ByteBuffer.wrap(modified), child);
+            byte[] normal = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (!Arrays.equals(modified, normal)) {
+                byBytes.put(ByteBuffer.wrap(normal), child);
+            }
+        }
+        childrenByBytes = byBytes;
+    }
+
+    private void mergeFrom(ProjectionNode other) {
+        all |= other.all;
+        for (var entry : other.children.entrySet()) {
+            child(entry.getKey()).mergeFrom(entry.getValue());
+        }
+        if (other.wildcard != null) {
+            wildcard().mergeFrom(other.wildcard);
+        }
+        if (other.elements != null) {
+            elements().mergeFrom(other.elements);
+        }
+    }
+
+    /**
+     * {@return {@code true} if the whole value is selected}
+     */
+    boolean isAll() {
+        return all;
+    }
+
+    /**
+     * {@return {@code true} if this node selects entries of a compound}
+     */
+    boolean selectsEntries() {
+        return !all && (!children.isEmpty() || wildcard != null);
+    }
+
+    /**
+     * {@return {@code true} if this node selects the elements of a list}
+     */
+    boolean selectsElements() {
+        return !all && elements != null;
+    }
+
+    /**
+     * {@return the node for the elements of a list, or {@code null} if no elements are selected}
+     */
+    @Nullable ProjectionNode elementsOrNull() {
+        return elements;
+    }
+
+    /**
+     * Find the node for a compound entry, by the raw bytes of its name.
+     *
+     * @param nameBytes the bytes of the name, from {@link org.enginehub.linbus.stream.LinCursor#nameBytes()}
+     * @return the node, or {@code null} if the entry is not selected
+     */
+    @Nullable ProjectionNode childByBytes(ByteBuffer nameBytes) {
+        ProjectionNode child = childrenByBytes.get(nameBytes);
+        return child != null ? child : wildcard;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinReadOptions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+
+/**
+ * Reusable state for reading many in-memory inputs, one after another. This holds a buffer and inflaters, so that
+ * each input doesn't need to allocate its own.
+ *
+ * <p>
+ * A context must only be used by one thread at a time, and a reader must be finished with before the context creates
+ * the next one.
+ * </p>
+ */
+public final class ReaderContext {
+    private final ByteBuffer buffer = ByteBuffer.allocate(BufferedNbtInput.DEFAULT_CAPACITY);
+    private final Inflater gzipInflater = new Inflater(true);
+    private final Inflater zlibInflater = new Inflater(false);
+
+    /**
+     * Construct a new context. It must be {@linkplain #close() closed} when it is no longer needed.
+     */
+    public ReaderContext() {
+    }
+
+    /**
+     * Create a reader for data which may be gzip or zlib compressed, as in {@link NbtInput#ofCompressed(ByteBuffer)}.
+     * Any reader previously created by this context must no longer be used.
+     *
+     * @param data the data
+     * @param options the options for reading
+     * @return the reader
+     * @throws IOException if the compressed data has an invalid header
+     */
+    public LinNbtReader reader(ByteBuffer data, LinReadOptions options) throws IOException {
+        NbtInput input = switch (Compression.detect(data)) {
+            case GZIP -> {
+                gzipInflater.reset();
+                yield InflatingNbtInput.gzip(data.duplicate(), buffer, gzipInflater);
+            }
+            case ZLIB -> {
+                zlibInflater.reset();
+                yield InflatingNbtInput.zlib(data.duplicate(), buffer, zlibInflater);
+            }
+            case NONE -> NbtInput.of(data);
+        };
+        return new LinNbtReader(input, options);
+    }
+
+    /**
+     * Release the native resources of this context. It must not be used afterwards.
+     */
+    public void close() {
+        gzipInflater.end();
+        zlibInflater.end();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the strings of a single NBT stream, which may use either the modified UTF-8 encoding of
+ * {@link java.io.DataInput} or, if allowed, normal UTF-8.
+ *
+ * <p>
+ * When the encoding isn't known yet, strings that are valid in both encodings are decoded in a single pass. Only a
+ * string that settles the encoding, or is invalid, goes through the slower detection, which then fixes the encoding
+ * for the rest of the stream.
+ * </p>
+ */
+final class StringDecoder {
+    /**
+     * The start of a 2-byte null character in modified UTF-8.
+     */
+    private static final byte TWO_BYTE_NULL_START = (byte) 0b1100_0000;
+    /**
+     * The end of a 2-byte null character in modified UTF-8.
+     */
+    private static final byte TWO_BYTE_NULL_END = (byte) 0b10000000;
+    private static final int TOP_5_BITS = 0b1111_1000;
+    /**
+     * The start of a 4-byte character in UTF-8 (top 5 bits).
+     */
+    private static final int FOUR_BYTE_START = 0b1111_0000;
+    /**
+     * The 3-byte start {@code 1110} plus {@code 1101}, the start of the surrogate indicator bits.
+     */
+    private static final byte THREE_BYTE_SURROGATE_START = (byte) 0b1110_1101;
+    private static final int TOP_3_BITS = 0b1110_0000;
+    /**
+     * The continuation from {@link #THREE_BYTE_SURROGATE_START} for the surrogate indicator bits, with the
+     * {@code 10} bits for the second byte of a 3-byte character (top 3 bits).
+     */
+    private static final int THREE_BYTE_SURROGATE_CONTINUATION = 0b1010_0000;
+
+    private enum StringEncoding {
+        MODIFIED_UTF_8,
+        NORMAL_UTF_8,
+        UNKNOWN,
+    }
+
+    private static StringEncoding getGuaranteedStringEncoding(byte[] bytes, int length) {
+        // The differences between the modified UTF-8 format and the standard UTF-8 format are the following:
+        // The null byte '\u0000' is encoded in 2-byte format rather than 1-byte, so that the encoded strings never have embedded nulls.
+        // Only the 1-byte, 2-byte, and 3-byte formats are used.
+        // Supplementary characters are represented in the form of surrogate pairs.
+
+        // However, the DataInputStream will accept a null-byte.
+        // So we can't use those as a definitive indicator of modified UTF-8 or not.
+        boolean sawTwoByteNullStart = false;
+        boolean sawThreeByteSurrogateStart = false;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == TWO_BYTE_NULL_START) {
+                sawTwoByteNullStart = true;
+            } else if (sawTwoByteNullStart) {
+                if (b == TWO_BYTE_NULL_END) {
+                    return StringEncoding.MODIFIED_UTF_8;
+                } else {
+                    sawTwoByteNullStart = false;
+                }
+            }
+
+            if ((b & TOP_5_BITS) == FOUR_BYTE_START) {
+                // 4-byte start
+                return StringEncoding.NORMAL_UTF_8;
+            }
+
+            if (b == THREE_BYTE_SURROGATE_START) {
+                sawThreeByteSurrogateStart = true;
+            } else if (sawThreeByteSurrogateStart) {
+                if ((b & TOP_3_BITS) == THREE_BYTE_SURROGATE_CONTINUATION) {
+                    // Assume this is a properly encoded surrogate, and that this is modified UTF-8
+                    // Any errors will be caught by the UTF-8 decoder.
+                    return StringEncoding.MODIFIED_UTF_8;
+                } else {
+                    sawThreeByteSurrogateStart = false;
+                }
+            }
+        }
+        return StringEncoding.UNKNOWN;
+    }
+
+    private StringEncoding encoding;
+    // Default to some small allocation that is likely to cover most strings.
+    private char[] chars = new char[128];
+
+    /**
+     * Create a new decoder.
+     *
+     * @param allowNormalUtf8Encoding whether to allow normal UTF-8, rather than only modified UTF-8
+     */
+    StringDecoder(boolean allowNormalUtf8Encoding) {
+        // We only need to check strings if we're allowing normal UTF-8 encoding.
+        this.encoding = allowNormalUtf8Encoding ? StringEncoding.UNKNOWN : StringEncoding.MODIFIED_UTF_8;
+    }
+
+    /**
+     * Decode a string.
+     *
+     * @param bytes the array holding the encoded string, starting at index 0
+     * @param length the number of bytes
+     * @return the decoded string
+     * @throws java.io.UTFDataFormatException if the string is invalid modified UTF-8
+     * @throws MalformedInputException if the string is invalid normal UTF-8
+     */
+    String decode(byte[] bytes, int length) throws IOException {
+        if (encoding == StringEncoding.MODIFIED_UTF_8) {
+            return ModifiedUtf8.decode(bytes, 0, length);
+        }
+        int asciiEnd = 0;
+        while (asciiEnd < length && bytes[asciiEnd] >= 0) {
+            asciiEnd++;
+        }
+        if (asciiEnd == length) {
+            // All ASCII, which is the same in Latin-1 and cheaper to construct.
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        if (encoding == StringEncoding.NORMAL_UTF_8) {
+            return decodeNormal(bytes, asciiEnd, length);
+        }
+        // Decode as if it's valid in both encodings, which is by far the most common case.
+        String decoded = decodeStrict(bytes, asciiEnd, length, false);
+        if (decoded != null) {
+            // This doesn't tell us anything about the encoding, so don't change it.
+            return decoded;
+        }
+        // Either we found which encoding this is, or the string is invalid.
+        StringEncoding knownEncoding = getGuaranteedStringEncoding(bytes, length);
+        return switch (knownEncoding) {
+            case MODIFIED_UTF_8 -> {
+                encoding = knownEncoding;
+                yield ModifiedUtf8.decode(bytes, 0, length);
+            }
+            case NORMAL_UTF_8 -> {
+                encoding = knownEncoding;
+                yield decodeNormal(bytes, asciiEnd, length);
+            }
+            // This isn't valid in either encoding. Report it as normal UTF-8, as we would have decoded it as such.
+            case UNKNOWN -> decodeNormal(bytes, asciiEnd, length);
+        };
+    }
+
+    private String decodeNormal(byte[] bytes, int asciiEnd, int length) throws MalformedInputException {
+        String decoded = decodeStrict(bytes, asciiEnd, length, true);
+        if (decoded == null) {
+            throw new MalformedInputException(length);
+        }
+        return decoded;
+    }
+
+    /**
+     * Decode strict UTF-8, rejecting overlong forms and surrogates.
+     *
+     * @param bytes the array holding the encoded string, starting at index 0
+     * @param asciiEnd the number of leading ASCII bytes
+     * @param length the number of bytes
+     * @param allowFourByte whether to allow 4-byte sequences, which are not valid modified UTF-8
+     * @return the decoded string, or {@code null} if the bytes are not valid
+     */
+    private @Nullable String decodeStrict(byte[] bytes, int asciiEnd, int length, boolean allowFourByte) {
+        // We never produce more chars than bytes
+        char[] chars = this.chars;
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            this.chars = chars;
+        }
+        for (int i = 0; i < asciiEnd; i++) {
+            chars[i] = (char) bytes[i];
+        }
+        int count = asciiEnd;
+        int i = asciiEnd;
+        while (i < length) {
+            int c = bytes[i] & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+                i++;
+            } else if (c < 0xC2) {
+                // A stray continuation byte, or an overlong 2-byte form such as the modified UTF-8 null
+                return null;
+            } else if (c < 0xE0) {
+                if (i + 1 >= length) {
+                    return null;
+                }
+                int c1 = bytes[i + 1] & 0xFF;
+                if (!isContinuation(c1)) {
+                    return null;
+                }
+                chars[count++] = (char) (((c & 0x1F) << 6) | (c1 & 0x3F));
+                i += 2;
+            } else if (c < 0xF0) {
+                if (i + 2 >= length) {
+                    return null;
+                }
+                int c1 = bytes[i + 1] & 0xFF;
+                int c2 = bytes[i + 2] & 0xFF;
+                if (!isContinuation(c1) || !isContinuation(c2)
+                    || (c == 0xE0 && c1 < 0xA0) || (c == 0xED && c1 >= 0xA0)) {
+                    // Overlong, or a surrogate
+                    return null;
+                }
+                chars[count++] = (char) (((c & 0x0F) << 12) | ((c1 & 0x3F) << 6) | (c2 & 0x3F));
+                i += 3;
+            } else if (c < 0xF5 && allowFourByte) {
+                if (i + 3 >= length) {
+                    return null;
+                }
+                int c1 = bytes[i + 1] & 0xFF;
+                int c2 = bytes[i + 2] & 0xFF;
+                int c3 = bytes[i + 3] & 0xFF;
+                if (!isContinuation(c1) || !isContinuation(c2) || !isContinuation(c3)
+                    || (c == 0xF0 && c1 < 0x90) || (c == 0xF4 && c1 >= 0x90)) {
+                    // Overlong, or above U+10FFFF
+                    return null;
+                }
+                int codePoint = ((c & 0x07) << 18) | ((c1 & 0x3F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F);
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            } else {
+                return null;
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static boolean isContinuation(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * A first-in, first-out buffer of tokens for {@link OptionalInfoCalculator}. Tokens are held in memory while the
+ * shared {@link Budget} allows it, and are otherwise encoded into a temporary file and read back from there.
+ *
+ * <p>
+ * All tokens must be added before any are polled. Until then, a token can be replaced using the slot returned when it
+ * was added, which is how placeholders are filled in.
+ * </p>
+ */
+final class TokenBuffer implements Closeable {
+    /**
+     * The approximate number of bytes a token takes in memory, not counting its content.
+     */
+    private static final int TOKEN_OVERHEAD = 32;
+
+    /**
+     * The number of bytes of memory the buffers of one calculator may use together.
+     */
+    static final class Budget {
+        private final long limit;
+        private long used;
+
+        /**
+         * Create a new budget.
+         *
+         * @param limit the number of bytes that may be used
+         */
+        Budget(long limit) {
+            this.limit = limit;
+        }
+
+        private boolean reserve(long bytes) {
+            if (limit - used < bytes) {
+                return false;
+            }
+            used += bytes;
+            return true;
+        }
+
+        private void release(long bytes) {
+            used -= bytes;
+        }
+
+        private void replace(long oldBytes, long newBytes) {
+            // A replacement is the same token with more information, so it's allowed even if it's a little larger
+            used += newBytes - oldBytes;
+        }
+    }
+
+    // Token kinds in the spill file
+    private static final byte NAME = 0;
+    private static final byte BYTE_ARRAY_START = 1;
+    private static final byte BYTE_ARRAY_CONTENT = 2;
+    private static final byte BYTE_ARRAY_END = 3;
+    private static final byte BYTE = 4;
+    private static final byte COMPOUND_START = 5;
+    private static final byte COMPOUND_END = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte INT_ARRAY_START = 9;
+    private static final byte INT_ARRAY_CONTENT = 10;
+    private static final byte INT_ARRAY_END = 11;
+    private static final byte INT = 12;
+    private static final byte LIST_START = 13;
+    private static final byte LIST_END = 14;
+    private static final byte LONG_ARRAY_START = 15;
+    private static final byte LONG_ARRAY_CONTENT = 16;
+    private static final byte LONG_ARRAY_END = 17;
+    private static final byte LONG = 18;
+    private static final byte SHORT = 19;
+    private static final byte STRING = 20;
+    private static final byte LIST_CONTENT = 21;
+
+    private final Budget budget;
+    // The tokens before any that were spilled, and the index of the next one to poll
+    private final ArrayList<@Nullable LinToken> memory = new ArrayList<>();
+    private int memoryIndex;
+    private @Nullable FileChannel spillFile;
+    private @Nullable CountingOutputStream spillCounter;
+    private @Nullable DataOutputStream spillOutput;
+    private @Nullable DataInputStream spillInput;
+    private long spilled;
+
+    /**
+     * Create a new, empty buffer.
+     *
+     * @param budget the budget to keep tokens in memory with
+     */
+    TokenBuffer(Budget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * {@return {@code true} if there are no tokens left to poll}
+     */
+    boolean isEmpty() {
+        return memoryIndex == memory.size() && spilled == 0;
+    }
+
+    /**
+     * Add a token to the end of this buffer.
+     *
+     * @param token the token
+     * @return the slot of the token, for {@link #set(long, LinToken)}
+     * @throws IOException if the token could not be spilled
+     */
+    long add(LinToken token) throws IOException {
+        if (memoryIndex > 0 || spillInput != null) {
+            throw new IllegalStateException("Tokens can't be added once polling has started");
+        }
+        if (spillOutput == null && budget.reserve(memorySize(token))) {
+            memory.add(token);
+            return memory.size() - 1;
+        }
+        if (spillOutput == null) {
+            var path = Files.createTempFile("linbus-tokens", ".tmp");
+            spillFile = FileChannel.open(
+                path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE
+            );
+            spillCounter = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(spillFile)));
+            spillOutput = new DataOutputStream(spillCounter);
+        }
+        assert spillCounter != null;
+        // Spilled slots are negative, so they can't be mistaken for indexes into memory
+        long slot = -1 - spillCounter.count;
+        encode(spillOutput, token);
+        spilled++;
+        return slot;
+    }
+
+    /**
+     * Replace a token that was added to this buffer. The replacement must be the same kind of token, with the same
+     * name or content, so that it takes the same space.
+     *
+     * @param slot the slot returned when the token was added
+     * @param token the replacement
+     * @throws IOException if the token was spilled, and could not be replaced
+     */
+    void set(long slot, LinToken token) throws IOException {
+        if (memoryIndex > 0 || spillInput != null) {
+            throw new IllegalStateException("Tokens can't be replaced once polling has started");
+        }
+        if (slot >= 0) {
+            var old = memory.set((int) slot, token);
+            budget.replace(memorySize(Objects.requireNonNull(old)), memorySize(token));
+            return;
+        }
+        assert spillOutput != null && spillFile != null;
+        var bytes = new ByteArrayOutputStream();
+        encode(new DataOutputStream(bytes), token);
+        // Make sure the original bytes are in the file, then overwrite them there
+        spillOutput.flush();
+        var buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = -1 - slot;
+        while (buffer.hasRemaining()) {
+            position += spillFile.write(buffer, position);
+        }
+    }
+
+    /**
+     * Remove the first token of this buffer. Once the last token is polled, the spill file is deleted.
+     *
+     * @return the token, or {@code null} if the buffer is empty
+     * @throws IOException if a spilled token could not be read back
+     */
+    @Nullable LinToken poll() throws IOException {
+        if (memoryIndex < memory.size()) {
+            var token = Objects.requireNonNull(memory.set(memoryIndex++, null));
+            budget.release(memorySize(token));
+            return token;
+        }
+        if (spilled == 0) {
+            return null;
+        }
+        if (spillInput == null) {
+            assert spillOutput != null && spillFile != null;
+            spillOutput.flush();
+            spillFile.position(0);
+            spillInput = new DataInputStream(new BufferedInputStream(Channels.newInputStream(spillFile)));
+        }
+        var token = decode(spillInput);
+        spilled--;
+        if (spilled == 0) {
+            close();
+        }
+        return token;
+    }
+
+    /**
+     * Discard the remaining tokens, and delete the spill file if there is one.
+     *
+     * @throws IOException if the spill file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        while (memoryIndex < memory.size()) {
+            budget.release(memorySize(Objects.requireNonNull(memory.set(memoryIndex++, null))));
+        }
+        spilled = 0;
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static long memorySize(LinToken token) {
+        return TOKEN_OVERHEAD + switch (token) {
+            case LinToken.Name name -> 2L * name.name().length();
+            case LinToken.String string -> 2L * string.value().length();
+            case LinToken.ByteArrayContent content -> content.buffer().remaining();
+            case LinToken.IntArrayContent content -> (long) content.buffer().remaining() * Integer.BYTES;
+            case LinToken.LongArrayContent content -> (long) content.buffer().remaining() * Long.BYTES;
+            case LinToken.ListContent content -> (long) content.buffer().remaining() * switch (content.elementId()) {
+                case BYTE -> Byte.BYTES;
+                case SHORT -> Short.BYTES;
+                case INT, FLOAT -> Integer.BYTES;
+                default -> Long.BYTES;
+            };
+            default -> 0;
+        };
+    }
+
+    private static void encode(DataOutputStream output, LinToken token) throws IOException {
+        switch (token) {
+            case LinToken.Name(String name, Optional<LinTagId> id) -> {
+                output.writeByte(NAME);
+                writeString(output, name);
+                output.writeByte(id.map(LinTagId::id).orElse(-1));
+            }
+            case LinToken.ByteArrayStart(OptionalInt size) -> {
+                output.writeByte(BYTE_ARRAY_START);
+                output.writeInt(size.orElse(-1));
+            }
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
+                output.writeByte(BYTE_ARRAY_CONTENT);
+                output.writeInt(buffer.remaining());
+                // Content buffers are read-only, so copy out through a chunk rather than using the backing array
+                byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+                for (int i = buffer.position(); i < buffer.limit(); i += chunk.length) {
+                    int length = Math.min(chunk.length, buffer.limit() - i);
+                    buffer.get(i, chunk, 0, length);
+                    output.write(chunk, 0, length);
+                }
+            }
+            case LinToken.ByteArrayEnd byteArrayEnd -> output.writeByte(BYTE_ARRAY_END);
+            case LinToken.Byte(byte value) -> {
+                output.writeByte(BYTE);
+                output.writeByte(value);
+            }
+            case LinToken.CompoundStart compoundStart -> output.writeByte(COMPOUND_START);
+            case LinToken.CompoundEnd compoundEnd -> output.writeByte(COMPOUND_END);
+            case LinToken.Double(double value) -> {
+                output.writeByte(DOUBLE);
+                output.writeDouble(value);
+            }
+            case LinToken.Float(float value) -> {
+                output.writeByte(FLOAT);
+                output.writeFloat(value);
+            }
+            case LinToken.IntArrayStart(OptionalInt size) -> {
+                output.writeByte(INT_ARRAY_START);
+                output.writeInt(size.orElse(-1));
+            }
+            case LinToken.IntArrayContent(IntBuffer buffer) -> {
+                output.writeByte(INT_ARRAY_CONTENT);
+                output.writeInt(buffer.remaining());
+                for (int i = buffer.position(); i < buffer.limit(); i++) {
+                    output.writeInt(buffer.get(i));
+                }
+            }
+            case LinToken.IntArrayEnd intArrayEnd -> output.writeByte(INT_ARRAY_END);
+            case LinToken.Int(int value) -> {
+                output.writeByte(INT);
+                output.writeInt(value);
+            }
+            case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) -> {
+                output.writeByte(LIST_START);
+                output.writeInt(size.orElse(-1));
+                output.writeByte(elementId.map(LinTagId::id).orElse(-1));
+            }
+            case LinToken.ListContent listContent -> {
+                output.writeByte(LIST_CONTENT);
+                output.writeByte(listContent.elementId().id());
+                Buffer content = listContent.buffer();
+                output.writeInt(content.remaining());
+                int start = content.position();
+                int end = content.limit();
+                switch (content) {
+                    case ByteBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeByte(buffer.get(i));
+                        }
+                    }
+                    case ShortBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeShort(buffer.get(i));
+                        }
+                    }
+                    case IntBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeInt(buffer.get(i));
+                        }
+                    }
+                    case LongBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeLong(buffer.get(i));
+                        }
+                    }
+                    case FloatBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeFloat(buffer.get(i));
+                        }
+                    }
+                    case DoubleBuffer buffer -> {
+                        for (int i = start; i < end; i++) {
+                            output.writeDouble(buffer.get(i));
+                        }
+                    }
+                    default -> throw new IllegalStateException("Not a number buffer: " + content);
+                }
+            }
+            case LinToken.ListEnd listEnd -> output.writeByte(LIST_END);
+            case LinToken.LongArrayStart(OptionalInt size) -> {
+                output.writeByte(LONG_ARRAY_START);
+                output.writeInt(size.orElse(-1));
+            }
+            case LinToken.LongArrayContent(LongBuffer buffer) -> {
+                output.writeByte(LONG_ARRAY_CONTENT);
+                output.writeInt(buffer.remaining());
+                for (int i = buffer.position(); i < buffer.limit(); i++) {
+                    output.writeLong(buffer.get(i));
+                }
+            }
+            case LinToken.LongArrayEnd longArrayEnd -> output.writeByte(LONG_ARRAY_END);
+            case LinToken.Long(long value) -> {
+                output.writeByte(LONG);
+                output.writeLong(value);
+            }
+            case LinToken.Short(short value) -> {
+                output.writeByte(SHORT);
+                output.writeShort(value);
+            }
+            case LinToken.String(String value) -> {
+                output.writeByte(STRING);
+                writeString(output, value);
+            }
+        }
+    }
+
+    private static LinToken decode(DataInputStream input) throws IOException {
+        byte kind = input.readByte();
+        return switch (kind) {
+            case NAME -> {
+                String name = readString(input);
+                byte id = input.readByte();
+                yield new LinToken.Name(name, id < 0 ? Optional.empty() : Optional.of(LinTagId.fromId(id)));
+            }
+            case BYTE_ARRAY_START -> new LinToken.ByteArrayStart(readSize(input));
+            case BYTE_ARRAY_CONTENT -> {
+                byte[] content = new byte[input.readInt()];
+                input.readFully(content);
+                yield new LinToken.ByteArrayContent(ByteBuffer.wrap(content).asReadOnlyBuffer());
+            }
+            case BYTE_ARRAY_END -> new LinToken.ByteArrayEnd();
+            case BYTE -> new LinToken.Byte(input.readByte());
+            case COMPOUND_START -> new LinToken.CompoundStart();
+            case COMPOUND_END -> new LinToken.CompoundEnd();
+            case DOUBLE -> new LinToken.Double(input.readDouble());
+            case FLOAT -> new LinToken.Float(input.readFloat());
+            case INT_ARRAY_START -> new LinToken.IntArrayStart(readSize(input));
+            case INT_ARRAY_CONTENT -> {
+                int[] content = new int[input.readInt()];
+                for (int i = 0; i < content.length; i++) {
+                    content[i] = input.readInt();
+                }
+                yield new LinToken.IntArrayContent(IntBuffer.wrap(content).asReadOnlyBuffer());
+            }
+            case INT_ARRAY_END -> new LinToken.IntArrayEnd();
+            case INT -> new LinToken.Int(input.readInt());
+            case LIST_START -> {
+                OptionalInt size = readSize(input);
+                byte elementId = input.readByte();
+                yield new LinToken.ListStart(
+                    size, elementId < 0 ? Optional.empty() : Optional.of(LinTagId.fromId(elementId))
+                );
+            }
+            case LIST_CONTENT -> {
+                var elementId = LinTagId.fromId(input.readUnsignedByte());
+                int size = input.readInt();
+                Buffer content = switch (elementId) {
+                    case BYTE -> {
+                        byte[] elements = new byte[size];
+                        input.readFully(elements);
+                        yield ByteBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    case SHORT -> {
+                        short[] elements = new short[size];
+                        for (int i = 0; i < size; i++) {
+                            elements[i] = input.readShort();
+                        }
+                        yield ShortBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    case INT -> {
+                        int[] elements = new int[size];
+                        for (int i = 0; i < size; i++) {
+                            elements[i] = input.readInt();
+                        }
+                        yield IntBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    case LONG -> {
+                        long[] elements = new long[size];
+                        for (int i = 0; i < size; i++) {
+                            elements[i] = input.readLong();
+                        }
+                        yield LongBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    case FLOAT -> {
+                        float[] elements = new float[size];
+                        for (int i = 0; i < size; i++) {
+                            elements[i] = input.readFloat();
+                        }
+                        yield FloatBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    case DOUBLE -> {
+                        double[] elements = new double[size];
+                        for (int i = 0; i < size; i++) {
+                            elements[i] = input.readDouble();
+                        }
+                        yield DoubleBuffer.wrap(elements).asReadOnlyBuffer();
+                    }
+                    default -> throw new NbtParseException("Corrupt spilled list content of " + elementId);
+                };
+                yield new LinToken.ListContent(content);
+            }
+            case LIST_END -> new LinToken.ListEnd();
+            case LONG_ARRAY_START -> new LinToken.LongArrayStart(readSize(input));
+            case LONG_ARRAY_CONTENT -> {
+                long[] content = new long[input.readInt()];
+                for (int i = 0; i < content.length; i++) {
+                    content[i] = input.readLong();
+                }
+                yield new LinToken.LongArrayContent(LongBuffer.wrap(content).asReadOnlyBuffer());
+            }
+            case LONG_ARRAY_END -> new LinToken.LongArrayEnd();
+            case LONG -> new LinToken.Long(input.readLong());
+            case SHORT -> new LinToken.Short(input.readShort());
+            case STRING -> new LinToken.String(readString(input));
+            default -> throw new NbtParseException("Corrupt spilled token kind: " + kind);
+        };
+    }
+
+    private static OptionalInt readSize(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        return size < 0 ? OptionalInt.empty() : OptionalInt.of(size);
+    }
+
+    // Unlike writeUTF, these allow strings of any length, as tokens can be created with them
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = ModifiedUtf8.encode(value);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return ModifiedUtf8.decode(bytes, 0, bytes.length);
+    }
+}
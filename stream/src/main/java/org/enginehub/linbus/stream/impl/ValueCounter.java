@@ -62,6 +62,11 @@ public void add(LinToken token) {
                 }
             }
             case LinToken.ListStart listStart -> lists++;
+            case LinToken.ListContent listContent -> {
+                if (!isNested()) {
+                    count += listContent.buffer().remaining();
+                }
+            }
             case LinToken.ListEnd listEnd -> {
                 lists--;
                 if (lists < 0) {
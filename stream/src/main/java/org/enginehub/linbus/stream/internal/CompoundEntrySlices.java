@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.impl.LinNbtReader;
+import org.enginehub.linbus.stream.impl.NbtInput;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The entries of a binary NBT compound, located by skipping over their values rather than decoding them. Each value
+ * can then be read on its own with {@link org.enginehub.linbus.stream.LinBinaryIO#readValue(ByteBuffer, LinTagId)}.
+ *
+ * <p>
+ * If a name appears more than once, the last value wins, but the entry keeps the position of the first.
+ * </p>
+ */
+public final class CompoundEntrySlices {
+    /**
+     * Locate the entries of a root compound, starting with its ID and name.
+     *
+     * @param buffer the buffer to read from, which is not modified
+     * @param options the options for reading
+     * @return the entries
+     * @throws IOException if an I/O error occurs
+     */
+    public static CompoundEntrySlices ofRoot(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        NbtInput input = NbtInput.of(buffer);
+        LinNbtReader reader = new LinNbtReader(input, options);
+        reader.advance();
+        return new CompoundEntrySlices(buffer, input, reader, reader.name());
+    }
+
+    /**
+     * Locate the entries of an unnamed compound value, starting with its first entry.
+     *
+     * @param buffer the buffer to read from, which is not modified
+     * @param options the options for reading
+     * @return the entries
+     * @throws IOException if an I/O error occurs
+     */
+    public static CompoundEntrySlices ofValue(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        NbtInput input = NbtInput.of(buffer);
+        return new CompoundEntrySlices(buffer, input, new LinNbtReader(input, options, LinTagId.COMPOUND), null);
+    }
+
+    private final @Nullable String rootName;
+    private final ByteBuffer source;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    private String[] names = new String[8];
+    private LinTagId[] ids = new LinTagId[8];
+    private int[] offsets = new int[8];
+    private int[] lengths = new int[8];
+    private int size;
+
+    private CompoundEntrySlices(
+        ByteBuffer buffer, NbtInput input, LinNbtReader reader, @Nullable String rootName
+    ) throws IOException {
+        this.rootName = rootName;
+        this.source = buffer.slice().asReadOnlyBuffer();
+        // Both kinds of reader are positioned before the compound start, which can't be anything else
+        reader.advance();
+        while (reader.advance() == LinCursor.Kind.NAME) {
+            String name = reader.name();
+            LinTagId id = reader.tagId();
+            int offset = (int) input.position();
+            reader.skipValue();
+            int length = (int) input.position() - offset;
+            Integer existing = indexByName.putIfAbsent(name, size);
+            if (existing != null) {
+                ids[existing] = id;
+                offsets[existing] = offset;
+                lengths[existing] = length;
+                continue;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            names[size] = name;
+            ids[size] = id;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+    }
+
+    /**
+     * {@return the name of the root compound, or {@code null} if these are the entries of an unnamed value}
+     */
+    public @Nullable String rootName() {
+        return rootName;
+    }
+
+    /**
+     * {@return the number of entries}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the index of the entry with the given name.
+     *
+     * @param name the name
+     * @return the index, or {@code -1} if there is no such entry
+     */
+    public int indexOf(String name) {
+        Integer index = indexByName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the name of an entry.
+     *
+     * @param index the index of the entry
+     * @return the name
+     */
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get the ID of an entry's value.
+     *
+     * @param index the index of the entry
+     * @return the ID
+     */
+    public LinTagId id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Get the number of bytes in an entry's value.
+     *
+     * @param index the index of the entry
+     * @return the length of {@link #value(int)}
+     */
+    public int valueLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Get the bytes of an entry's value.
+     *
+     * @param index the index of the entry
+     * @return a read-only slice of the source buffer holding exactly the value
+     */
+    public ByteBuffer value(int index) {
+        return source.slice(offsets[index], lengths[index]);
+    }
+}
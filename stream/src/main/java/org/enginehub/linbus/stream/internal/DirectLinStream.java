@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * A {@link LinStream} that can also write its binary NBT directly, skipping the tokens. Writers check for this before
+ * reading any tokens. The tokens are only created if they are read.
+ */
+public final class DirectLinStream implements LinStream {
+    /**
+     * Writes binary NBT directly.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        /**
+         * Write the same bytes as the tokens of the stream would produce.
+         *
+         * @param output the output to write to
+         * @throws IOException if an I/O error occurs
+         */
+        void writeTo(NbtOutput output) throws IOException;
+    }
+
+    private final Supplier<LinStream> tokens;
+    private final Writer writer;
+    private @Nullable LinStream stream;
+
+    /**
+     * Creates a new direct stream.
+     *
+     * @param tokens creates the tokens, if they are read
+     * @param writer writes the bytes directly
+     */
+    public DirectLinStream(Supplier<LinStream> tokens, Writer writer) {
+        this.tokens = tokens;
+        this.writer = writer;
+    }
+
+    /**
+     * Write the binary NBT of this stream directly. This should only be done instead of reading the tokens.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(NbtOutput output) throws IOException {
+        writer.writeTo(output);
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        if (stream == null) {
+            stream = tokens.get();
+        }
+        return stream.nextOrNull();
+    }
+}
@@ -59,4 +59,12 @@ public FlatteningLinStream(Iterator<? extends LinStreamable> streamables) {
             return token;
         }
     }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.stream.impl.ModifiedUtf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * The destination of binary NBT written directly by a {@link DirectLinStream}. Everything is written big-endian, as
+ * NBT requires.
+ */
+public interface NbtOutput {
+    /**
+     * {@return the number of bytes {@link #writeString(String)} writes for the given string, including its length}
+     *
+     * @param value the string
+     */
+    static int stringSize(String value) {
+        return Short.BYTES + ModifiedUtf8.encodedLength(value);
+    }
+
+    /**
+     * Write a byte.
+     *
+     * @param value the byte, of which only the low eight bits are written
+     * @throws IOException if an I/O error occurs
+     */
+    void writeByte(int value) throws IOException;
+
+    /**
+     * Write a short.
+     *
+     * @param value the short, of which only the low sixteen bits are written
+     * @throws IOException if an I/O error occurs
+     */
+    void writeShort(int value) throws IOException;
+
+    /**
+     * Write an int.
+     *
+     * @param value the int
+     * @throws IOException if an I/O error occurs
+     */
+    void writeInt(int value) throws IOException;
+
+    /**
+     * Write a long.
+     *
+     * @param value the long
+     * @throws IOException if an I/O error occurs
+     */
+    void writeLong(long value) throws IOException;
+
+    /**
+     * Write a float.
+     *
+     * @param value the float
+     * @throws IOException if an I/O error occurs
+     */
+    void writeFloat(float value) throws IOException;
+
+    /**
+     * Write a double.
+     *
+     * @param value the double
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDouble(double value) throws IOException;
+
+    /**
+     * Write a string, as {@link java.io.DataOutput#writeUTF(String)} would.
+     *
+     * @param value the string
+     * @throws java.io.UTFDataFormatException if the string is too long to encode
+     * @throws IOException if an I/O error occurs
+     */
+    void writeString(String value) throws IOException;
+
+    /**
+     * Write the remaining bytes of a buffer, without modifying it.
+     *
+     * @param content the bytes
+     * @throws IOException if an I/O error occurs
+     */
+    void writeBytes(ByteBuffer content) throws IOException;
+
+    /**
+     * Write the remaining shorts of a buffer, without modifying it.
+     *
+     * @param content the shorts
+     * @throws IOException if an I/O error occurs
+     */
+    void writeShorts(ShortBuffer content) throws IOException;
+
+    /**
+     * Write the remaining ints of a buffer, without modifying it.
+     *
+     * @param content the ints
+     * @throws IOException if an I/O error occurs
+     */
+    void writeInts(IntBuffer content) throws IOException;
+
+    /**
+     * Write the remaining longs of a buffer, without modifying it.
+     *
+     * @param content the longs
+     * @throws IOException if an I/O error occurs
+     */
+    void writeLongs(LongBuffer content) throws IOException;
+
+    /**
+     * Write the remaining floats of a buffer, without modifying it.
+     *
+     * @param content the floats
+     * @throws IOException if an I/O error occurs
+     */
+    void writeFloats(FloatBuffer content) throws IOException;
+
+    /**
+     * Write the remaining doubles of a buffer, without modifying it.
+     *
+     * @param content the doubles
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDoubles(DoubleBuffer content) throws IOException;
+}
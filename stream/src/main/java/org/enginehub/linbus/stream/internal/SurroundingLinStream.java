@@ -60,4 +60,12 @@ public SurroundingLinStream(@Nullable LinToken prefix, LinStream stream, @Nullab
         }
         return token;
     }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
 }
@@ -20,9 +20,13 @@
 
 import org.enginehub.linbus.common.LinTagId;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -326,7 +330,7 @@ public Optional<LinTagId> tagId() {
      *
      * <p>
      * Until a {@link ListEnd} is encountered, the stream will contain one or more {@link LinToken LinTokens}
-     * representing the values.
+     * representing the values. The values of a list of numbers may also come in runs, as {@link ListContent} tokens.
      * </p>
      *
      * @param size the size of the list, if known
@@ -363,6 +367,63 @@ public Optional<LinTagId> tagId() {
         }
     }
 
+    /**
+     * Represents a run of elements of a list of numbers, which stands in for one number token per element. Lists of
+     * numbers may mix these with number tokens freely. The readers only produce these when
+     * {@linkplain org.enginehub.linbus.stream.LinReadOptions#packPrimitiveLists() enabled}.
+     *
+     * <p>
+     * The buffer will always be read-only, and not empty. Its type gives the type of the elements: a
+     * {@link ByteBuffer} holds {@link LinTagId#BYTE} elements, a {@link ShortBuffer} holds {@link LinTagId#SHORT}
+     * elements, and so on for {@link IntBuffer}, {@link LongBuffer}, {@link FloatBuffer}, and {@link DoubleBuffer}.
+     * </p>
+     *
+     * @param buffer the buffer containing the elements
+     */
+    record ListContent(Buffer buffer) implements LinToken {
+        /**
+         * Creates a new {@link ListContent} with the given buffer.
+         *
+         * @param buffer the buffer containing the elements
+         */
+        public ListContent {
+            if (!buffer.isReadOnly()) {
+                throw new IllegalArgumentException("buffer must be read-only");
+            }
+            if (!buffer.hasRemaining()) {
+                throw new IllegalArgumentException("buffer must not be empty");
+            }
+            // Checks the buffer type
+            elementId(buffer);
+        }
+
+        private static LinTagId elementId(Buffer buffer) {
+            return switch (buffer) {
+                case ByteBuffer b -> LinTagId.BYTE;
+                case ShortBuffer b -> LinTagId.SHORT;
+                case IntBuffer b -> LinTagId.INT;
+                case LongBuffer b -> LinTagId.LONG;
+                case FloatBuffer b -> LinTagId.FLOAT;
+                case DoubleBuffer b -> LinTagId.DOUBLE;
+                default -> throw new IllegalArgumentException(
+                    "buffer must hold numbers, got " + buffer.getClass().getName()
+                );
+            };
+        }
+
+        /**
+         * {@return the ID of the elements, from the type of the buffer}
+         */
+        public LinTagId elementId() {
+            return elementId(buffer);
+        }
+
+        @Override
+        public boolean isSimpleValue() {
+            return false;
+        }
+    }
+
     /**
      * Represents the end of a list.
      */
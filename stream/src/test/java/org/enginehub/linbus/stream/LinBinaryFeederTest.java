@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinBinaryFeederTest {
+    private static List<LinToken> drain(LinBinaryFeeder feeder) throws IOException {
+        var tokens = new ArrayList<LinToken>();
+        for (LinToken token; (token = feeder.nextOrNull()) != null; ) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 100, 100_000})
+    void sameTokensInFragments(int fragmentSize) throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var expected = ImmutableList.copyOf(LinBinaryIO.read(ByteBuffer.wrap(bytes)).asIterator());
+
+        var feeder = LinBinaryIO.feeder();
+        var tokens = new ArrayList<LinToken>();
+        var fragment = ByteBuffer.allocate(fragmentSize);
+        for (int i = 0; i < bytes.length; i += fragmentSize) {
+            assertThat(feeder.isFinished()).isFalse();
+            fragment.clear().put(bytes, i, Math.min(fragmentSize, bytes.length - i)).flip();
+            feeder.feed(fragment);
+            // The fragment is copied, so it can be reused
+            assertThat(fragment.hasRemaining()).isFalse();
+            tokens.addAll(drain(feeder));
+        }
+        assertThat(feeder.isFinished()).isTrue();
+        assertThat(tokens).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void keepsInputAfterTheEnd() throws IOException {
+        var feeder = LinBinaryIO.feeder();
+        feeder.feed(ByteBuffer.wrap(new byte[]{10, 0, 0, 0, 42, 43}));
+        assertThat(drain(feeder)).hasSize(3);
+        assertThat(feeder.isFinished()).isTrue();
+        assertThat(feeder.remainingInput()).isEqualTo(ByteBuffer.wrap(new byte[]{42, 43}));
+    }
+
+    @Test
+    void endOfInputIsAnErrorMidValue() throws IOException {
+        var feeder = LinBinaryIO.feeder();
+        feeder.feed(ByteBuffer.wrap(new byte[]{10, 0, 0, 3, 0}));
+        assertThat(drain(feeder)).hasSize(2);
+        assertThat(feeder.isFinished()).isFalse();
+        feeder.endOfInput();
+        assertThrows(EOFException.class, feeder::nextOrNull);
+        assertThrows(IllegalStateException.class, () -> feeder.feed(ByteBuffer.allocate(1)));
+    }
+}
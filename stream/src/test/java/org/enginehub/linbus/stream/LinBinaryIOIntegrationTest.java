@@ -20,16 +20,27 @@
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
@@ -115,6 +126,31 @@ void bigtest() throws IOException {
         assertThat(byteCollector.toByteArray()).isEqualTo(bytes);
     }
 
+    @Test
+    void bigtestSkippingValues() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var tokens = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        // The binary reader skips without reading tokens, the token stream uses the default implementation
+        for (var stream : List.of(LinBinaryIO.read(ByteBuffer.wrap(bytes)), streamFromIterator(tokens.iterator()))) {
+            assertThat(stream.nextOrNull()).isEqualTo(new LinToken.Name("Level", LinTagId.COMPOUND));
+            assertThat(stream.nextOrNull()).isEqualTo(new LinToken.CompoundStart());
+            var names = new ArrayList<String>();
+            LinToken token;
+            while ((token = stream.nextOrNull()) instanceof LinToken.Name name) {
+                names.add(name.name());
+                stream.skipValue();
+            }
+            assertThat(token).isEqualTo(new LinToken.CompoundEnd());
+            assertThat(stream.nextOrNull()).isNull();
+            assertThat(names).containsExactly(
+                "longTest", "shortTest", "stringTest", "floatTest", "intTest", "nested compound test",
+                "listTest (long)", "listTest (compound)", "byteTest",
+                "byteArrayTest (the first 1000 values of (n*n*255+n*7)%100, starting with n=0 (0, 62, 34, 16, 8, ...))",
+                "doubleTest"
+            ).inOrder();
+        }
+    }
+
     static final List<LinToken> ALL_TYPES_TOKENS = List.of(
         new LinToken.Name("root", LinTagId.COMPOUND),
         new LinToken.CompoundStart(),
@@ -201,4 +237,77 @@ void allTypes() throws IOException {
         LinBinaryIO.write(byteCollector, streamFromIterator(tokens.iterator()));
         assertThat(byteCollector.toByteArray()).isEqualTo(bytes);
     }
+
+    @Test
+    void allTypesFromByteBuffer() throws IOException {
+        var bytes = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        for (var buffer : List.of(ByteBuffer.wrap(bytes), direct)) {
+            var tokens = ImmutableList.copyOf(LinBinaryIO.read(buffer).asIterator());
+            assertThat(tokens).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+            assertThat(buffer.position()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void allTypesCompressed(@TempDir Path dir) throws IOException {
+        var gzip = Resources.toByteArray(Resources.getResource("all-types.nbt.gz"));
+        var raw = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        var zlib = new ByteArrayOutputStream();
+        try (var output = new DeflaterOutputStream(zlib)) {
+            output.write(raw);
+        }
+        // Trailing data is never read, so this is a cheap way to get a file big enough to be mapped
+        var padded = Arrays.copyOf(gzip, 2 * 1024 * 1024);
+        for (var bytes : List.of(gzip, zlib.toByteArray(), raw, padded)) {
+            var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+            for (var buffer : List.of(ByteBuffer.wrap(bytes), direct)) {
+                var tokens = ImmutableList.copyOf(LinBinaryIO.readCompressed(buffer).asIterator());
+                assertThat(tokens).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+                assertThat(buffer.position()).isEqualTo(0);
+            }
+
+            var file = Files.write(dir.resolve("all-types.nbt"), bytes);
+            var fromFile = ImmutableList.copyOf(LinBinaryIO.readFile(file).asIterator());
+            assertThat(fromFile).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+
+            var channel = Channels.newChannel(new ByteArrayInputStream(bytes));
+            var fromChannel = ImmutableList.copyOf(LinBinaryIO.read(channel).asIterator());
+            assertThat(fromChannel).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+        }
+    }
+
+    @Test
+    void allTypesGzipWithOptionalHeaderFields() throws IOException {
+        var raw = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        var gzip = new ByteArrayOutputStream();
+        gzip.write(new byte[]{
+            0x1F, (byte) 0x8B, // magic
+            8, // deflate
+            2 | 4 | 8 | 16, // header CRC, extra, name, comment
+            0, 0, 0, 0, // modification time
+            0, // extra flags
+            (byte) 255, // unknown OS
+            3, 0, 1, 2, 3, // extra field
+            'a', '.', 'n', 'b', 't', 0, // name
+            'h', 'i', 0, // comment
+            0, 0, // header CRC, which isn't checked
+        });
+        var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(raw);
+        deflater.finish();
+        var chunk = new byte[1024];
+        while (!deflater.finished()) {
+            gzip.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        var bytes = gzip.toByteArray();
+
+        var tokens = ImmutableList.copyOf(LinBinaryIO.readCompressed(ByteBuffer.wrap(bytes)).asIterator());
+        assertThat(tokens).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+
+        var channel = Channels.newChannel(new ByteArrayInputStream(bytes));
+        var fromChannel = ImmutableList.copyOf(LinBinaryIO.read(channel).asIterator());
+        assertThat(fromChannel).containsExactlyElementsIn(ALL_TYPES_TOKENS).inOrder();
+    }
 }
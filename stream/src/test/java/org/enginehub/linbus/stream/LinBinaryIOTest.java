@@ -22,12 +22,34 @@
 import com.google.common.io.ByteStreams;
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.token.LinToken;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -56,10 +78,368 @@ void readUsing() throws IOException {
         assertThat(tokens).isNotEmpty();
     }
 
+    @Test
+    void byteBufferContentIsNotCopied() throws IOException {
+        var bytes = new byte[]{
+            (byte) LinTagId.COMPOUND.id(), // type id
+            0, // name size (0)
+            0,
+            (byte) LinTagId.BYTE_ARRAY.id(), // type id
+            0, // name size (0)
+            0,
+            0, // array size (3)
+            0,
+            0,
+            3,
+            1, // content
+            2,
+            3,
+            0 // end tag
+        };
+        var tokens = ImmutableList.copyOf(LinBinaryIO.read(ByteBuffer.wrap(bytes)).asIterator());
+        assertThat(tokens.get(4)).isEqualTo(new LinToken.ByteArrayContent(
+            ByteBuffer.wrap(new byte[]{1, 2, 3}).asReadOnlyBuffer()
+        ));
+
+        bytes[11] = 42;
+        var content = ((LinToken.ByteArrayContent) tokens.get(4)).buffer();
+        assertThat(content.isReadOnly()).isTrue();
+        assertThat(content.get(1)).isEqualTo((byte) 42);
+    }
+
+    @Test
+    void readValue() throws IOException {
+        var bytes = new byte[]{
+            42, // ignored
+            (byte) LinTagId.INT.id(), // type id
+            0, // name size (1)
+            1,
+            'a',
+            0, // value
+            0,
+            0,
+            7,
+            0 // end tag
+        };
+        var tokens = ImmutableList.copyOf(
+            LinBinaryIO.readValue(ByteBuffer.wrap(bytes, 1, bytes.length - 1), LinTagId.COMPOUND).asIterator()
+        );
+        assertThat(tokens).containsExactly(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.INT),
+            new LinToken.Int(7),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+
+        var value = LinBinaryIO.readValue(ByteBuffer.wrap(bytes, 5, 4), LinTagId.INT);
+        assertThat(ImmutableList.copyOf(value.asIterator())).containsExactly(new LinToken.Int(7));
+        assertThrows(IllegalArgumentException.class, () -> LinBinaryIO.readValue(ByteBuffer.wrap(bytes), LinTagId.END));
+    }
+
+    @Test
+    void byteBufferEndOfInput() {
+        var reader = LinBinaryIO.read(ByteBuffer.wrap(new byte[]{(byte) LinTagId.COMPOUND.id(), 0}));
+        assertThrows(EOFException.class, reader::nextOrNull);
+    }
+
     @Test
     void readUsingUnwrapsIoExceptions() {
         assertThrows(EOFException.class, () ->
             LinBinaryIO.readUsing(new DataInputStream(InputStream.nullInputStream()), LinStream::nextOrNull)
         );
     }
+
+    private static final byte[] SINGLE_BYTE = {
+        (byte) LinTagId.COMPOUND.id(), // type id
+        0, // name size (0)
+        0,
+        (byte) LinTagId.BYTE.id(), // type id
+        0, // name size (0)
+        0,
+        1, // value
+        0 // end tag
+    };
+
+    @Test
+    void compressedEndOfInput() throws IOException {
+        var gzip = new ByteArrayOutputStream();
+        try (var output = new GZIPOutputStream(gzip)) {
+            output.write(SINGLE_BYTE);
+        }
+        var zlib = new ByteArrayOutputStream();
+        try (var output = new DeflaterOutputStream(zlib)) {
+            output.write(SINGLE_BYTE);
+        }
+        for (var bytes : new byte[][]{gzip.toByteArray(), zlib.toByteArray(), SINGLE_BYTE}) {
+            // Cut off in the middle of the compressed data
+            var truncated = Arrays.copyOf(bytes, bytes.length / 2);
+            assertThrows(EOFException.class, () -> {
+                var reader = LinBinaryIO.readCompressed(ByteBuffer.wrap(truncated));
+                while (reader.nextOrNull() != null) {
+                    // Read until the error
+                }
+            });
+            assertThrows(EOFException.class, () -> {
+                var reader = LinBinaryIO.read(Channels.newChannel(new ByteArrayInputStream(truncated)));
+                while (reader.nextOrNull() != null) {
+                    // Read until the error
+                }
+            });
+        }
+    }
+
+    @Test
+    void invalidCompressedData() throws IOException {
+        var unknownMethod = new byte[]{0x1F, (byte) 0x8B, 9, 0, 0, 0, 0, 0, 0, 0};
+        var ex = assertThrows(ZipException.class, () -> LinBinaryIO.readCompressed(ByteBuffer.wrap(unknownMethod)));
+        assertThat(ex).hasMessageThat().isEqualTo("Unsupported compression method");
+
+        // A valid zlib header, followed by a deflate block with an invalid type
+        var corrupt = new byte[]{0x78, (byte) 0x9C, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        var reader = LinBinaryIO.readCompressed(ByteBuffer.wrap(corrupt));
+        assertThrows(ZipException.class, reader::nextOrNull);
+    }
+
+    @Test
+    void nonBlockingChannelIsRejected() throws IOException {
+        var pipe = Pipe.open();
+        try (var source = pipe.source(); var sink = pipe.sink()) {
+            source.configureBlocking(false);
+            var ex = assertThrows(IllegalArgumentException.class, () -> LinBinaryIO.read(source));
+            assertThat(ex).hasMessageThat().contains("blocking");
+            sink.configureBlocking(false);
+            ex = assertThrows(IllegalArgumentException.class, () -> LinBinaryIO.write(sink, LinStream.of()));
+            assertThat(ex).hasMessageThat().contains("blocking");
+        }
+    }
+
+    private static LinStream largeValues(ByteBuffer bytes, IntBuffer ints, LongBuffer longs, String string) {
+        return LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(bytes.remaining()),
+            new LinToken.ByteArrayContent(bytes),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(ints.remaining()),
+            new LinToken.IntArrayContent(ints),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(longs.remaining()),
+            new LinToken.LongArrayContent(longs),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name(string, LinTagId.STRING),
+            new LinToken.String(string),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    @Test
+    void writesLargeValuesInBulk() throws IOException {
+        var bytes = ByteBuffer.allocate(20000);
+        var ints = IntBuffer.allocate(5000);
+        var longs = LongBuffer.allocate(3000);
+        for (int i = 0; i < 20000; i++) {
+            bytes.put(i, (byte) i);
+        }
+        for (int i = 0; i < 5000; i++) {
+            ints.put(i, i * 31);
+        }
+        for (int i = 0; i < 3000; i++) {
+            longs.put(i, i * 0x1_0000_0001L);
+        }
+        // 3 bytes per character in modified UTF-8, so this doesn't fit in the writer's buffer
+        var string = "\u20ac".repeat(5000);
+
+        var expected = new ByteArrayOutputStream();
+        var output = new DataOutputStream(expected);
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeUTF("");
+        output.writeByte(LinTagId.BYTE_ARRAY.id());
+        output.writeUTF("bytes");
+        output.writeInt(20000);
+        output.write(bytes.array());
+        output.writeByte(LinTagId.INT_ARRAY.id());
+        output.writeUTF("ints");
+        output.writeInt(5000);
+        for (int i : ints.array()) {
+            output.writeInt(i);
+        }
+        output.writeByte(LinTagId.LONG_ARRAY.id());
+        output.writeUTF("longs");
+        output.writeInt(3000);
+        for (long l : longs.array()) {
+            output.writeLong(l);
+        }
+        output.writeByte(LinTagId.STRING.id());
+        output.writeUTF(string);
+        output.writeUTF(string);
+        output.writeByte(LinTagId.END.id());
+
+        var bytesView = bytes.asReadOnlyBuffer();
+        var intsView = ints.asReadOnlyBuffer();
+        var longsView = longs.asReadOnlyBuffer();
+        var written = new ByteArrayOutputStream();
+        LinBinaryIO.write(new DataOutputStream(written), largeValues(bytesView, intsView, longsView, string));
+        assertThat(written.toByteArray()).isEqualTo(expected.toByteArray());
+
+        // The content buffers are not consumed, so they can be written again
+        assertThat(bytesView.position()).isEqualTo(0);
+        assertThat(intsView.position()).isEqualTo(0);
+        assertThat(longsView.position()).isEqualTo(0);
+        var channelWritten = new ByteArrayOutputStream();
+        LinBinaryIO.write(
+            Channels.newChannel(channelWritten), largeValues(bytesView, intsView, longsView, string)
+        );
+        assertThat(channelWritten.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void stringTooLong() {
+        var tokens = LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.STRING),
+            new LinToken.String("\u20ac".repeat(30000)),
+            new LinToken.CompoundEnd()
+        );
+        var ex = assertThrows(UTFDataFormatException.class,
+            () -> LinBinaryIO.write(new DataOutputStream(OutputStream.nullOutputStream()), tokens));
+        assertThat(ex).hasMessageThat().isEqualTo("Encoded string is too long: 90000 bytes");
+    }
+
+    private static LinStream unsizedValues() {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name("root"));
+        tokens.add(new LinToken.CompoundStart());
+        tokens.add(new LinToken.Name("empty"));
+        tokens.add(new LinToken.ListStart());
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.Name("nested"));
+        tokens.add(new LinToken.ListStart());
+        for (int i = 0; i < 3; i++) {
+            tokens.add(new LinToken.ListStart());
+            for (int j = 0; j < i; j++) {
+                tokens.add(new LinToken.Short((short) j));
+            }
+            tokens.add(new LinToken.ListEnd());
+        }
+        tokens.add(new LinToken.ListEnd());
+        // Large enough that the size is handed to the output before it is known
+        tokens.add(new LinToken.Name("ints"));
+        tokens.add(new LinToken.IntArrayStart());
+        for (int i = 0; i < 10; i++) {
+            var content = IntBuffer.allocate(1000);
+            for (int j = 0; j < 1000; j++) {
+                content.put(j, i * 1000 + j);
+            }
+            tokens.add(new LinToken.IntArrayContent(content.asReadOnlyBuffer()));
+        }
+        tokens.add(new LinToken.IntArrayEnd());
+        tokens.add(new LinToken.Name("bytes"));
+        tokens.add(new LinToken.ByteArrayStart());
+        tokens.add(new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2, 3}).asReadOnlyBuffer()));
+        tokens.add(new LinToken.ByteArrayEnd());
+        tokens.add(new LinToken.Name("longs"));
+        tokens.add(new LinToken.LongArrayStart());
+        tokens.add(new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{4, 5}).asReadOnlyBuffer()));
+        tokens.add(new LinToken.LongArrayEnd());
+        tokens.add(new LinToken.Name("strings"));
+        tokens.add(new LinToken.ListStart());
+        for (int i = 0; i < 2000; i++) {
+            tokens.add(new LinToken.String("value " + i));
+        }
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.CompoundEnd());
+        return LinStream.of(tokens.toArray(LinToken[]::new));
+    }
+
+    @Test
+    void backPatchesMissingSizes(@TempDir Path dir) throws IOException {
+        var expected = new ByteArrayOutputStream();
+        // This calculates the sizes up front instead
+        LinBinaryIO.write(new DataOutputStream(expected), unsizedValues());
+
+        var buffer = LinBinaryIO.writeToBuffer(unsizedValues());
+        assertThat(buffer.position()).isEqualTo(0);
+        var fromBuffer = new byte[buffer.remaining()];
+        buffer.get(fromBuffer);
+        assertThat(fromBuffer).isEqualTo(expected.toByteArray());
+
+        Path file = dir.resolve("unsized.nbt");
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{9, 9, 9}));
+            LinBinaryIO.write(channel, unsizedValues());
+            assertThat(channel.position()).isEqualTo(3 + expected.size());
+        }
+        var fromFile = Files.readAllBytes(file);
+        assertThat(Arrays.copyOfRange(fromFile, 3, fromFile.length)).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void malformedArrays() {
+        var outsideArray = LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.IntArrayContent(IntBuffer.allocate(1).asReadOnlyBuffer())
+        );
+        assertThrows(NbtWriteException.class, () -> LinBinaryIO.writeToBuffer(outsideArray));
+        var unexpectedEnd = LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd()
+        );
+        assertThrows(NbtWriteException.class, () -> LinBinaryIO.writeToBuffer(unexpectedEnd));
+    }
+
+    private static LinStream withoutListInfo(LinStream tokens) {
+        return () -> {
+            var token = tokens.nextOrNull();
+            return token instanceof LinToken.ListStart ? new LinToken.ListStart() : token;
+        };
+    }
+
+    @Test
+    void writesPackedLists() throws IOException {
+        var options = LinReadOptions.builder().packPrimitiveLists(true).arrayChunkSize(16).build();
+        for (String name : ImmutableList.of("bigtest.nbt.gz", "all-types.nbt.gz")) {
+            var bytes = StreamTestUtil.loadResource(name, InputStream::readAllBytes);
+            var packed = ImmutableList.copyOf(LinBinaryIO.read(ByteBuffer.wrap(bytes), options).asIterator());
+            assertThat(packed.stream().anyMatch(LinToken.ListContent.class::isInstance)).isTrue();
+
+            var written = new ByteArrayOutputStream();
+            LinBinaryIO.write(new DataOutputStream(written), LinStream.of(packed.toArray(LinToken[]::new)));
+            assertThat(written.toByteArray()).isEqualTo(bytes);
+
+            // Both when calculating the sizes up front, and when back-patching them
+            var calculated = new ByteArrayOutputStream();
+            LinBinaryIO.write(
+                new DataOutputStream(calculated),
+                withoutListInfo(LinStream.of(packed.toArray(LinToken[]::new)))
+            );
+            assertThat(calculated.toByteArray()).isEqualTo(bytes);
+            var patched = LinBinaryIO.writeToBuffer(withoutListInfo(LinStream.of(packed.toArray(LinToken[]::new))));
+            var fromBuffer = new byte[patched.remaining()];
+            patched.get(fromBuffer);
+            assertThat(fromBuffer).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    void malformedListContent() {
+        var outsideList = LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.ListContent(IntBuffer.allocate(1).asReadOnlyBuffer())
+        );
+        assertThrows(NbtWriteException.class, () -> LinBinaryIO.writeToBuffer(outsideList));
+        assertThrows(
+            IllegalArgumentException.class, () -> new LinToken.ListContent(IntBuffer.allocate(1))
+        );
+        assertThrows(
+            IllegalArgumentException.class, () -> new LinToken.ListContent(IntBuffer.allocate(0).asReadOnlyBuffer())
+        );
+    }
 }
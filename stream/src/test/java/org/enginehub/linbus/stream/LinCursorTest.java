@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.primitives.Ints;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinCursorTest {
+    @Test
+    void readsAllTypes() throws IOException {
+        var bytes = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        var cursor = LinBinaryIO.cursor(ByteBuffer.wrap(bytes));
+        assertThat(cursor.kind()).isNull();
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.name()).isEqualTo("root");
+        assertThat(cursor.tagId()).isEqualTo(LinTagId.COMPOUND);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.COMPOUND_START);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.nameBytes()).isEqualTo(ByteBuffer.wrap("byte".getBytes(StandardCharsets.UTF_8)));
+        assertThat(cursor.tagId()).isEqualTo(LinTagId.BYTE);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.BYTE);
+        assertThat(cursor.byteValue()).isEqualTo((byte) 1);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.SHORT);
+        assertThat(cursor.shortValue()).isEqualTo((short) 127);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT);
+        assertThat(cursor.intValue()).isEqualTo(127);
+        assertThrows(IllegalStateException.class, cursor::longValue);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LONG);
+        assertThat(cursor.longValue()).isEqualTo(127L);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.FLOAT);
+        assertThat(cursor.floatValue()).isEqualTo(127F);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.DOUBLE);
+        assertThat(cursor.doubleValue()).isEqualTo(127D);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.STRING);
+        assertThat(cursor.stringValue()).isEqualTo("this is a string");
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.BYTE_ARRAY_START);
+        assertThat(cursor.arraySize()).isEqualTo(1);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.BYTE_ARRAY_CONTENT);
+        assertThat(cursor.byteArrayContent()).isEqualTo(ByteBuffer.wrap(new byte[]{1}));
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.BYTE_ARRAY_END);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT_ARRAY_START);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT_ARRAY_CONTENT);
+        assertThat(cursor.intArrayContent().get(0)).isEqualTo(127);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT_ARRAY_END);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LONG_ARRAY_START);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LONG_ARRAY_CONTENT);
+        assertThat(cursor.longArrayContent()).isEqualTo(LongBuffer.wrap(new long[]{127}));
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LONG_ARRAY_END);
+
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.name()).isEqualTo("byteList");
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LIST_START);
+        assertThat(cursor.listSize()).isEqualTo(1);
+        assertThat(cursor.listElementId()).isEqualTo(LinTagId.BYTE);
+        assertThrows(IllegalStateException.class, cursor::arraySize);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.BYTE);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LIST_END);
+    }
+
+    @Test
+    void skipsListElements() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var cursor = LinBinaryIO.cursor(new DataInputStream(new ByteArrayInputStream(bytes)));
+        while (cursor.advance() != LinCursor.Kind.LIST_START || cursor.listElementId() != LinTagId.COMPOUND) {
+            // Find the compound list
+        }
+        assertThat(cursor.listSize()).isEqualTo(2);
+        cursor.skipValue();
+        assertThat(cursor.kind()).isEqualTo(LinCursor.Kind.LIST_START);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.COMPOUND_START);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.STRING);
+        assertThat(cursor.stringValue()).isEqualTo("Compound tag #1");
+        assertThrows(IllegalStateException.class, cursor::skipValue);
+    }
+
+    private static byte[] intArrayOfFive() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeByte(LinTagId.COMPOUND.id());
+        out.writeUTF("");
+        out.writeByte(LinTagId.INT_ARRAY.id());
+        out.writeUTF("ints");
+        out.writeInt(5);
+        for (int i = 1; i <= 5; i++) {
+            out.writeInt(i);
+        }
+        out.writeByte(LinTagId.END.id());
+        return bytes.toByteArray();
+    }
+
+    private static List<List<Integer>> intArrayChunks(LinCursor cursor) throws IOException {
+        var chunks = new ArrayList<List<Integer>>();
+        while (cursor.advance() != LinCursor.Kind.INT_ARRAY_END) {
+            if (cursor.kind() == LinCursor.Kind.INT_ARRAY_CONTENT) {
+                var content = cursor.intArrayContent();
+                var chunk = new int[content.remaining()];
+                content.get(chunk);
+                chunks.add(Ints.asList(chunk));
+            }
+        }
+        return chunks;
+    }
+
+    @Test
+    void splitsArraysIntoChunks() throws IOException {
+        var bytes = intArrayOfFive();
+        var options = LinReadOptions.builder().arrayChunkSize(9).build();
+        assertThat(intArrayChunks(LinBinaryIO.cursor(ByteBuffer.wrap(bytes), options)))
+            .containsExactly(List.of(1, 2), List.of(3, 4), List.of(5)).inOrder();
+
+        // Always at least one element
+        options = LinReadOptions.builder().arrayChunkSize(1).build();
+        assertThat(intArrayChunks(LinBinaryIO.cursor(new DataInputStream(new ByteArrayInputStream(bytes)), options)))
+            .hasSize(5);
+
+        options = LinReadOptions.builder().arrayChunkSize(Integer.MAX_VALUE).build();
+        assertThat(intArrayChunks(LinBinaryIO.cursor(new DataInputStream(new ByteArrayInputStream(bytes)), options)))
+            .containsExactly(List.of(1, 2, 3, 4, 5));
+
+        assertThrows(IllegalArgumentException.class, () -> LinReadOptions.builder().arrayChunkSize(0));
+    }
+
+    @Test
+    void reusesContentBuffers() throws IOException {
+        var bytes = intArrayOfFive();
+        var options = LinReadOptions.builder().arrayChunkSize(8).reuseContentBuffers(true).build();
+        var cursor = LinBinaryIO.cursor(new DataInputStream(new ByteArrayInputStream(bytes)), options);
+        while (cursor.advance() != LinCursor.Kind.INT_ARRAY_CONTENT) {
+            // Find the first chunk
+        }
+        var first = cursor.intArrayContent();
+        assertThat(first.isReadOnly()).isTrue();
+        assertThat(first.get(1)).isEqualTo(2);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT_ARRAY_CONTENT);
+        assertThat(cursor.intArrayContent()).isSameInstanceAs(first);
+        assertThat(first.get(1)).isEqualTo(4);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.INT_ARRAY_CONTENT);
+        assertThat(cursor.intArrayContent()).isEqualTo(IntBuffer.wrap(new int[]{5}));
+
+        // Consumers that copy the content as they go still see all of it
+        var stream = LinBinaryIO.read(new DataInputStream(new ByteArrayInputStream(bytes)), options);
+        var values = new ArrayList<Integer>();
+        for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+            if (token instanceof LinToken.IntArrayContent(IntBuffer buffer)) {
+                while (buffer.hasRemaining()) {
+                    values.add(buffer.get());
+                }
+            }
+        }
+        assertThat(values).containsExactly(1, 2, 3, 4, 5).inOrder();
+    }
+
+    @Test
+    void skipsRootValue() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var cursor = LinBinaryIO.cursor(ByteBuffer.wrap(bytes));
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        cursor.skipValue();
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.END_OF_STREAM);
+
+        var stream = LinBinaryIO.read(ByteBuffer.wrap(bytes));
+        assertThat(stream.nextOrNull()).isEqualTo(new LinToken.Name("Level", LinTagId.COMPOUND));
+        stream.skipValue();
+        assertThat(stream.nextOrNull()).isNull();
+    }
+
+    @Test
+    void packsPrimitiveLists() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var options = LinReadOptions.builder().packPrimitiveLists(true).arrayChunkSize(16).build();
+        var cursor = LinBinaryIO.cursor(ByteBuffer.wrap(bytes), options);
+        while (cursor.advance() != LinCursor.Kind.LIST_START || cursor.listElementId() != LinTagId.LONG) {
+            // Find the long list
+        }
+        assertThat(cursor.listSize()).isEqualTo(5);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LIST_CONTENT);
+        assertThat(cursor.listContent()).isEqualTo(LongBuffer.wrap(new long[]{11, 12}));
+        assertThat(cursor.listContent().isReadOnly()).isTrue();
+        // Skipping takes a single element
+        cursor.skipValue();
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LIST_CONTENT);
+        assertThat(cursor.listContent()).isEqualTo(LongBuffer.wrap(new long[]{14, 15}));
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.LIST_END);
+        assertThrows(IllegalStateException.class, cursor::listContent);
+
+        // Lists of anything else are read as before
+        while (cursor.advance() != LinCursor.Kind.LIST_START) {
+            // Find the compound list
+        }
+        assertThat(cursor.listElementId()).isEqualTo(LinTagId.COMPOUND);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.COMPOUND_START);
+    }
+
+    @Test
+    void staysAtEndOfStream() throws IOException {
+        var empty = new byte[]{(byte) LinTagId.COMPOUND.id(), 0, 0, (byte) LinTagId.END.id()};
+        var cursor = LinBinaryIO.cursor(new DataInputStream(new ByteArrayInputStream(empty)));
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.NAME);
+        assertThat(cursor.name()).isEmpty();
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.COMPOUND_START);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.COMPOUND_END);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.END_OF_STREAM);
+        assertThat(cursor.advance()).isEqualTo(LinCursor.Kind.END_OF_STREAM);
+    }
+}
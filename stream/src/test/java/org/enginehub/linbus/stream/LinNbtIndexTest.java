@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinNbtIndexTest {
+    private static ByteBuffer bigtest() throws IOException {
+        return ByteBuffer.wrap(StreamTestUtil.loadResource("bigtest.nbt.gz", InputStream::readAllBytes));
+    }
+
+    private static List<LinToken> tokens(LinStream stream) {
+        return ImmutableList.copyOf(stream.asIterator());
+    }
+
+    @Test
+    void findsValues() throws IOException {
+        var buffer = bigtest();
+        var index = LinNbtIndex.build(buffer);
+        assertThat(index.sourceLength()).isEqualTo(buffer.remaining());
+
+        var root = index.find("intTest");
+        assertThat(root).isNotNull();
+        assertThat(root.id()).isEqualTo(LinTagId.INT);
+        assertThat(root.length()).isEqualTo(4);
+        assertThat(buffer.getInt(root.offset())).isEqualTo(2147483647);
+
+        assertThat(tokens(index.read(buffer, "nested compound test.egg.name")))
+            .containsExactly(new LinToken.String("Eggbert"));
+        assertThat(tokens(index.read(buffer, "\"listTest (long)\"[4]")))
+            .containsExactly(new LinToken.Long(15));
+        assertThat(tokens(index.read(buffer, "listTest (compound)[1].name")))
+            .containsExactly(new LinToken.String("Compound tag #1"));
+        assertThat(tokens(index.read(buffer, "nested compound test.ham"))).containsExactly(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("name", LinTagId.STRING),
+            new LinToken.String("Hampus"),
+            new LinToken.Name("value", LinTagId.FLOAT),
+            new LinToken.Float(0.75F),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void missingValues() throws IOException {
+        var buffer = bigtest();
+        var index = LinNbtIndex.build(buffer);
+        assertThat(index.find("missing")).isNull();
+        assertThat(index.find("missing.name")).isNull();
+        assertThat(index.find("intTest.name")).isNull();
+        assertThat(index.find("intTest[0]")).isNull();
+        assertThat(index.find("listTest (long)[5]")).isNull();
+        assertThat(index.find("listTest (long).name")).isNull();
+        assertThrows(NoSuchElementException.class, () -> index.read(buffer, "missing"));
+    }
+
+    @Test
+    void invalidPaths() throws IOException {
+        var index = LinNbtIndex.build(bigtest());
+        assertThrows(IllegalArgumentException.class, () -> index.find("*"));
+        assertThrows(IllegalArgumentException.class, () -> index.find("listTest (long)[*]"));
+        assertThrows(IllegalArgumentException.class, () -> index.find("listTest (long)[x]"));
+        assertThrows(IllegalArgumentException.class, () -> index.find("listTest (long)[1"));
+        assertThrows(IllegalArgumentException.class, () -> index.find("listTest (long)[99999999999]"));
+    }
+
+    @Test
+    void rejectsOtherBuffers() throws IOException {
+        var buffer = bigtest();
+        var index = LinNbtIndex.build(buffer);
+        var ex = assertThrows(IllegalArgumentException.class, () -> index.read(buffer.slice(1, 10), "intTest"));
+        assertThat(ex).hasMessageThat().isEqualTo("Index is for " + buffer.remaining() + " bytes, but the buffer has 10");
+    }
+
+    @Test
+    void rootMustBeCompound() {
+        var buffer = ByteBuffer.wrap(new byte[]{(byte) LinTagId.INT.id(), 0, 0, 0, 0, 0, 1});
+        assertThrows(NbtParseException.class, () -> LinNbtIndex.build(buffer));
+    }
+
+    @Test
+    void savesAndLoads(@TempDir Path dir) throws IOException {
+        var buffer = bigtest();
+        var index = LinNbtIndex.build(buffer);
+        Path file = LinNbtIndex.indexFile(dir.resolve("bigtest.nbt"));
+        assertEquals(dir.resolve("bigtest.nbt.linidx"), file);
+        index.save(file);
+
+        var loaded = LinNbtIndex.load(file);
+        assertThat(loaded.size()).isEqualTo(index.size());
+        assertThat(loaded.sourceLength()).isEqualTo(index.sourceLength());
+        for (String path : List.of("intTest", "nested compound test.egg.value", "listTest (compound)[0].created-on")) {
+            assertThat(loaded.find(path)).isEqualTo(index.find(path));
+        }
+
+        Files.write(file, new byte[]{1, 2, 3, 4});
+        assertThrows(NbtParseException.class, () -> LinNbtIndex.load(file));
+        Files.write(file, new byte[]{'L', 'I', 'N', 'X', 0, 0, 0, 9});
+        assertThrows(NbtParseException.class, () -> LinNbtIndex.load(file));
+    }
+}
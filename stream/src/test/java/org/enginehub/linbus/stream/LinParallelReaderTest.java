@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinParallelReaderTest {
+    private interface Compressor {
+        OutputStream wrap(OutputStream output) throws IOException;
+    }
+
+    private static byte[] compress(byte[] bytes, Compressor compressor) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var output = compressor.wrap(compressed)) {
+            output.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static List<LinToken> tokens(LinStream stream) throws IOException {
+        var tokens = ImmutableList.<LinToken>builder();
+        for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+            tokens.add(token);
+        }
+        return tokens.build();
+    }
+
+    @Test
+    void readsAllPayloads() throws IOException {
+        var raw = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var expected = tokens(LinBinaryIO.read(ByteBuffer.wrap(raw)));
+        var payloads = List.of(raw, compress(raw, GZIPOutputStream::new), compress(raw, DeflaterOutputStream::new));
+
+        var executor = Executors.newFixedThreadPool(4);
+        try (var reader = LinParallelReader.builder().executor(executor).maxInFlight(8).build()) {
+            var results = reader.read(
+                IntStream.range(0, 300).iterator(),
+                i -> ByteBuffer.wrap(payloads.get(i % payloads.size())),
+                LinParallelReaderTest::tokens
+            );
+            var seen = new HashSet<Integer>();
+            while (results.hasNext()) {
+                var result = results.next();
+                assertThat(result.error()).isNull();
+                assertThat(result.value()).containsExactlyElementsIn(expected).inOrder();
+                assertThat(seen.add(result.source())).isTrue();
+            }
+            assertThat(seen).hasSize(300);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void boundsPayloadsInFlight() throws IOException {
+        var raw = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var taken = new AtomicInteger();
+        var sources = Iterators.transform(IntStream.range(0, 20).iterator(), i -> {
+            taken.incrementAndGet();
+            return i;
+        });
+        // Run tasks immediately, so every result waits to be consumed
+        try (var reader = LinParallelReader.builder().executor(Runnable::run).maxInFlight(3).build()) {
+            var results = reader.read(sources, i -> ByteBuffer.wrap(raw), LinParallelReaderTest::tokens);
+
+            int consumed = 0;
+            while (results.hasNext()) {
+                assertThat(taken.get()).isAtMost(consumed + 3);
+                results.next();
+                consumed++;
+            }
+            assertThat(consumed).isEqualTo(20);
+        }
+    }
+
+    @Test
+    void reportsErrorsPerPayload() throws IOException {
+        var raw = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var gzip = compress(raw, GZIPOutputStream::new);
+        var truncated = Arrays.copyOf(gzip, gzip.length / 2);
+
+        var errors = new ArrayList<Exception>();
+        int successes = 0;
+        try (var reader = LinParallelReader.builder().build()) {
+            var results = reader.read(
+                List.of(gzip, truncated, gzip).iterator(), ByteBuffer::wrap, LinParallelReaderTest::tokens
+            );
+            while (results.hasNext()) {
+                var result = results.next();
+                var error = result.error();
+                if (error == null) {
+                    successes++;
+                } else {
+                    assertThat(result.source()).isSameInstanceAs(truncated);
+                    assertThrows(EOFException.class, result::value);
+                    errors.add(error);
+                }
+            }
+        }
+        assertThat(successes).isEqualTo(2);
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void readsFiles(@TempDir Path dir) throws IOException {
+        var raw = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        var files = new ArrayList<Path>();
+        for (int i = 0; i < 10; i++) {
+            files.add(Files.write(dir.resolve(i + ".dat"), compress(raw, GZIPOutputStream::new)));
+        }
+
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        try (var reader = LinParallelReader.builder().executor(executor).build()) {
+            var results = reader.readFiles(files.iterator(), LinParallelReaderTest::tokens);
+            var read = new HashSet<Path>();
+            while (results.hasNext()) {
+                var result = results.next();
+                assertThat(result.value()).containsExactlyElementsIn(LinBinaryIOIntegrationTest.ALL_TYPES_TOKENS)
+                    .inOrder();
+                read.add(result.source());
+            }
+            assertThat(read).containsExactlyElementsIn(files);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void rethrowsErrorsOnConsumingThread() throws IOException {
+        var raw = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        // The error is rethrown on the worker too, so keep it from being printed there
+        var executor = Executors.newSingleThreadExecutor(task -> {
+            var thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> {
+            });
+            return thread;
+        });
+        try (var reader = LinParallelReader.builder().executor(executor).build()) {
+            var results = reader.read(List.of(raw).iterator(), ByteBuffer::wrap, stream -> {
+                throw new StackOverflowError("Too deep");
+            });
+            assertThat(results.hasNext()).isTrue();
+            var thrown = assertThrows(StackOverflowError.class, results::next);
+            assertThat(thrown).hasMessageThat().isEqualTo("Too deep");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void cannotReadAfterClose() throws IOException {
+        var raw = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var reader = LinParallelReader.builder().executor(Runnable::run).build();
+        var results = reader.read(List.of(raw, raw).iterator(), ByteBuffer::wrap, LinParallelReaderTest::tokens);
+        assertThat(results.next().value()).isNotEmpty();
+        reader.close();
+        // Payloads already submitted still complete
+        assertThat(results.next().value()).isNotEmpty();
+        var thrown = assertThrows(
+            IllegalStateException.class,
+            () -> reader.read(List.of(raw).iterator(), ByteBuffer::wrap, LinParallelReaderTest::tokens)
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Reader is closed");
+    }
+
+    @Test
+    void rejectsInvalidMaxInFlight() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinParallelReader.builder().maxInFlight(0));
+        assertThat(ex).hasMessageThat().isEqualTo("Max in flight must be positive, got 0");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinProjectionTest {
+    private static LinStream heightmapsAndLists() {
+        return LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("Heightmaps", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("OCEAN_FLOOR", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(ByteBuffer.allocate(8).putLong(0, 5).asLongBuffer().asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("WORLD_SURFACE", LinTagId.INT),
+            new LinToken.Int(7),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("nested", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.STRING),
+            new LinToken.String("minecraft:stone"),
+            new LinToken.Name("count", LinTagId.BYTE),
+            new LinToken.Byte((byte) 3),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("ints", LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    private static ImmutableList<LinToken> project(LinProjection projection) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        LinBinaryIO.write(new DataOutputStream(bytes), heightmapsAndLists());
+        var tokens = ImmutableList.<LinToken>builder();
+        projection.project(LinBinaryIO.cursor(ByteBuffer.wrap(bytes.toByteArray()))).asIterator()
+            .forEachRemaining(tokens::add);
+        return tokens.build();
+    }
+
+    @Test
+    void wildcardSelectsAllEntries() throws IOException {
+        assertThat(project(LinProjection.of("Heightmaps.*"))).containsExactly(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("Heightmaps", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("OCEAN_FLOOR", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(ByteBuffer.allocate(8).putLong(0, 5).asLongBuffer().asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("WORLD_SURFACE", LinTagId.INT),
+            new LinToken.Int(7),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void nestedListsKeepTheirSize() throws IOException {
+        assertThat(project(LinProjection.of("nested[*][*].id", "ints[*].id"))).containsExactly(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("nested", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.STRING),
+            new LinToken.String("minecraft:stone"),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.ListStart(0, LinTagId.INT),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void rejectsMalformedPaths() {
+        assertThrows(IllegalArgumentException.class, () -> LinProjection.of(""));
+        assertThrows(IllegalArgumentException.class, () -> LinProjection.of("a..b"));
+        assertThrows(IllegalArgumentException.class, () -> LinProjection.of("a[0]"));
+        assertThrows(IllegalArgumentException.class, () -> LinProjection.of("\"a"));
+        assertThrows(IllegalArgumentException.class, () -> LinProjection.of("a."));
+    }
+}
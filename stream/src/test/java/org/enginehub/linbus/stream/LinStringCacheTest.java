@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinStringCacheTest {
+    private static String firstStringValue(byte[] bytes, LinReadOptions options) throws IOException {
+        var cursor = LinBinaryIO.cursor(ByteBuffer.wrap(bytes), options);
+        while (cursor.advance() != LinCursor.Kind.STRING) {
+            // Find the first string
+        }
+        return cursor.stringValue();
+    }
+
+    private static String rootName(byte[] bytes, LinReadOptions options) throws IOException {
+        var cursor = LinBinaryIO.cursor(ByteBuffer.wrap(bytes), options);
+        cursor.advance();
+        return cursor.name();
+    }
+
+    @Test
+    void namesAreSharedBetweenReads() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var options = LinReadOptions.builder().stringCache(LinStringCache.create(64)).build();
+
+        assertThat(rootName(bytes, options)).isSameInstanceAs(rootName(bytes, options));
+        assertThat(firstStringValue(bytes, options)).isNotSameInstanceAs(firstStringValue(bytes, options));
+    }
+
+    @Test
+    void stringValuesAreSharedIfEnabled() throws IOException {
+        var bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var options = LinReadOptions.builder()
+            .stringCache(LinStringCache.create(64))
+            .internStringValues(true)
+            .build();
+
+        assertThat(firstStringValue(bytes, options)).isSameInstanceAs(firstStringValue(bytes, options));
+    }
+
+    @Test
+    void onlyCachesUnambiguousBytes() {
+        var cache = LinStringCache.create(16);
+        var plain = "minecraft:stone \u00e9\u4e2d".getBytes(StandardCharsets.UTF_8);
+        assertThat(cache.get(plain, 0, plain.length)).isEqualTo("minecraft:stone \u00e9\u4e2d");
+        assertThat(cache.get(plain, 0, plain.length)).isSameInstanceAs(cache.get(plain, 0, plain.length));
+
+        // Modified UTF-8 null
+        assertThat(cache.get(new byte[]{(byte) 0xC0, (byte) 0x80}, 0, 2)).isNull();
+        // Modified UTF-8 surrogate
+        assertThat(cache.get(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}, 0, 3)).isNull();
+        // Normal UTF-8 supplementary character
+        var emoji = "\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+        assertThat(cache.get(emoji, 0, emoji.length)).isNull();
+        // Truncated sequence
+        assertThat(cache.get(new byte[]{(byte) 0xE4, (byte) 0xB8}, 0, 2)).isNull();
+    }
+
+    @Test
+    void capacityIsRoundedUp() {
+        assertThat(LinStringCache.create(1).capacity()).isEqualTo(1);
+        assertThat(LinStringCache.create(100).capacity()).isEqualTo(128);
+        assertThat(LinStringCache.create(128).capacity()).isEqualTo(128);
+        assertThrows(IllegalArgumentException.class, () -> LinStringCache.create(0));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinCursor;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InflatingNbtInputTest {
+    private static ByteBuffer gzipCompound(int byteArrayLength) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var output = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            output.writeByte(10);
+            output.writeUTF("");
+            output.writeByte(7);
+            output.writeUTF("bytes");
+            output.writeInt(byteArrayLength);
+            var content = new byte[byteArrayLength];
+            // Random bytes don't compress, so the inflated data is spread over many fills
+            new Random(42).nextBytes(content);
+            output.write(content);
+            output.writeByte(0);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Take everything out of the pool, so that the test can see what is returned to it.
+     */
+    private static List<Inflater> drainPool() {
+        var drained = new ArrayList<Inflater>();
+        while (Inflaters.pooled(true) > 0) {
+            drained.add(Inflaters.borrow(true));
+        }
+        return drained;
+    }
+
+    @Test
+    void releasesInflaterWhenDataEnds() throws IOException {
+        var drained = drainPool();
+        try {
+            var reader = new LinNbtReader(NbtInput.ofCompressed(gzipCompound(16)), LinReadOptions.builder().build());
+            while (reader.advance() != LinCursor.Kind.COMPOUND_END) {
+                // Read up to the end of the root compound, which is all inflated in the first fill
+            }
+            assertThat(Inflaters.pooled(true)).isEqualTo(1);
+        } finally {
+            drained.forEach(Inflater::end);
+        }
+    }
+
+    @Test
+    void releasesInflaterWhenClosed() throws IOException {
+        var drained = drainPool();
+        try {
+            var reader = new LinNbtReader(
+                NbtInput.ofCompressed(gzipCompound(1 << 20)), LinReadOptions.builder().build()
+            );
+            reader.advance();
+            assertThat(Inflaters.pooled(true)).isEqualTo(0);
+            reader.close();
+            assertThat(Inflaters.pooled(true)).isEqualTo(1);
+        } finally {
+            drained.forEach(Inflater::end);
+        }
+    }
+}
@@ -27,8 +27,12 @@
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -279,4 +283,176 @@ void fillRecursive() {
             new LinToken.ListEnd()
         ).inOrder();
     }
+
+    private static boolean isSpillFile(Path path) {
+        return path.getFileName().toString().startsWith("linbus-tokens");
+    }
+
+    private static long countSpillFiles() throws IOException {
+        long count;
+        try (var files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            count = files.filter(OptionalInfoCalculatorTest::isSpillFile).count();
+        }
+        // Some systems unlink a delete-on-close file as soon as it's opened, so count the files held open as well
+        var openFiles = Path.of("/proc/self/fd");
+        if (Files.isDirectory(openFiles)) {
+            try (var links = Files.list(openFiles)) {
+                count += links.filter(link -> {
+                    try {
+                        return isSpillFile(Files.readSymbolicLink(link));
+                    } catch (IOException e) {
+                        // The link is gone, such as the one for listing the directory
+                        return false;
+                    }
+                }).count();
+            }
+        }
+        return count;
+    }
+
+    @Test
+    void fillWithSpilling() throws IOException {
+        var originalTokens = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        // Remove what can be calculated, so that the calculator has to buffer
+        var strippedTokens = originalTokens.stream().map(token -> switch (token) {
+            case LinToken.Name name -> new LinToken.Name(name.name());
+            case LinToken.ListStart listStart -> new LinToken.ListStart();
+            case LinToken.ByteArrayStart byteArrayStart -> new LinToken.ByteArrayStart();
+            default -> token;
+        }).collect(ImmutableList.toImmutableList());
+
+        long spillFiles = countSpillFiles();
+        for (long budget : new long[] { 0, 256, Long.MAX_VALUE }) {
+            var result = ImmutableList.copyOf(
+                streamFromIterator(strippedTokens.iterator()).calculateOptionalInfo(budget).asIterator()
+            );
+            assertThat(result).containsExactlyElementsIn(originalTokens).inOrder();
+        }
+        assertThat(countSpillFiles()).isEqualTo(spillFiles);
+    }
+
+    @Test
+    void closeDeletesSpillFile() throws IOException {
+        var originalTokens = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        var strippedTokens = originalTokens.stream().map(token -> switch (token) {
+            case LinToken.ListStart listStart -> new LinToken.ListStart();
+            case LinToken.ByteArrayStart byteArrayStart -> new LinToken.ByteArrayStart();
+            default -> token;
+        }).collect(ImmutableList.toImmutableList());
+
+        long spillFiles = countSpillFiles();
+        var stream = streamFromIterator(strippedTokens.iterator()).calculateOptionalInfo(0);
+        // Stop part way through the first run of buffered tokens
+        int read = 0;
+        while (countSpillFiles() == spillFiles) {
+            assertThat(stream.nextOrNull()).isEqualTo(originalTokens.get(read++));
+        }
+        assertThat(countSpillFiles()).isEqualTo(spillFiles + 1);
+        stream.close();
+        assertThat(countSpillFiles()).isEqualTo(spillFiles);
+    }
+
+    @Test
+    void spilledTokensRoundTrip() {
+        var tokens = ImmutableList.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("byte", LinTagId.BYTE),
+            new LinToken.Byte((byte) -1),
+            new LinToken.Name("short", LinTagId.SHORT),
+            new LinToken.Short((short) -2),
+            new LinToken.Name("int", LinTagId.INT),
+            new LinToken.Int(-3),
+            new LinToken.Name("long", LinTagId.LONG),
+            new LinToken.Long(-4L),
+            new LinToken.Name("float", LinTagId.FLOAT),
+            new LinToken.Float(0.5F),
+            new LinToken.Name("double", LinTagId.DOUBLE),
+            new LinToken.Double(0.25),
+            new LinToken.Name("string \u0000", LinTagId.STRING),
+            new LinToken.String("junk \ud83d\ude0e"),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(3),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[] { 1, 2, 3 }).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(2),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[] { 4, 5 }).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[] { 6 }).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(0, LinTagId.END),
+            new LinToken.ListEnd(),
+            new LinToken.Name("doubles", LinTagId.LIST),
+            new LinToken.ListStart(3, LinTagId.DOUBLE),
+            new LinToken.ListContent(DoubleBuffer.wrap(new double[] { 1, 2 }).asReadOnlyBuffer()),
+            new LinToken.Double(3),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        );
+        var input = ImmutableList.<LinToken>builder()
+            .add(new LinToken.ListStart())
+            .addAll(tokens)
+            .add(new LinToken.ListEnd())
+            .build();
+        var result = ImmutableList.copyOf(LinStream.of(input.toArray(LinToken[]::new))
+            .calculateOptionalInfo(0).asIterator());
+        assertThat(result).containsExactlyElementsIn(ImmutableList.<LinToken>builder()
+            .add(new LinToken.ListStart(1, LinTagId.COMPOUND))
+            .addAll(tokens)
+            .add(new LinToken.ListEnd())
+            .build()
+        ).inOrder();
+    }
+
+    @Test
+    void fillListStartFromContent() {
+        var content = ShortBuffer.wrap(new short[] { 1, 2, 3 }).asReadOnlyBuffer();
+        var result = ImmutableList.copyOf(LinStream.of(
+            new LinToken.ListStart(),
+            new LinToken.ListContent(content),
+            new LinToken.Short((short) 4),
+            new LinToken.ListEnd()
+        ).calculateOptionalInfo().asIterator());
+        assertThat(result).containsExactly(
+            new LinToken.ListStart(4, LinTagId.SHORT),
+            new LinToken.ListContent(content),
+            new LinToken.Short((short) 4),
+            new LinToken.ListEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void negativeMemoryBudget() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinStream.of().calculateOptionalInfo(-1));
+        assertThat(ex).hasMessageThat().isEqualTo("Memory budget must not be negative, got -1");
+    }
+
+    @Test
+    void fillDeeplyNested() {
+        // Deep enough that filling recursively would overflow the stack
+        int depth = 50_000;
+        var input = ImmutableList.<LinToken>builder();
+        var expected = ImmutableList.<LinToken>builder();
+        for (int i = 0; i < depth; i++) {
+            input.add(new LinToken.ListStart());
+            expected.add(new LinToken.ListStart(1, i == depth - 1 ? LinTagId.INT : LinTagId.LIST));
+        }
+        input.add(new LinToken.Int(1));
+        expected.add(new LinToken.Int(1));
+        for (int i = 0; i < depth; i++) {
+            input.add(new LinToken.ListEnd());
+            expected.add(new LinToken.ListEnd());
+        }
+        var inputTokens = input.build();
+        var expectedTokens = expected.build();
+        for (long budget : new long[] { 0, Long.MAX_VALUE }) {
+            var result = ImmutableList.copyOf(
+                streamFromIterator(inputTokens.iterator()).calculateOptionalInfo(budget).asIterator()
+            );
+            assertThat(result).containsExactlyElementsIn(expectedTokens).inOrder();
+        }
+    }
 }
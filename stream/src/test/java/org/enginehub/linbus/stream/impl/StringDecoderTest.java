@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.stream.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StringDecoderTest {
+    private static final String AMBIGUOUS = "caf\u00e9 \u4e2d";
+    private static final String MODIFIED_ONLY = "null \u0000 and emoji \ud83d\ude00";
+
+    private static byte[] modifiedUtf8(String string) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(string);
+        return Arrays.copyOfRange(bytes.toByteArray(), 2, bytes.size());
+    }
+
+    private static String decode(StringDecoder decoder, byte[] bytes) throws IOException {
+        return decoder.decode(bytes, bytes.length);
+    }
+
+    @Test
+    void ambiguousStringsDoNotSettleTheEncoding() throws IOException {
+        var decoder = new StringDecoder(true);
+        assertThat(decode(decoder, "ascii".getBytes(StandardCharsets.US_ASCII))).isEqualTo("ascii");
+        assertThat(decode(decoder, AMBIGUOUS.getBytes(StandardCharsets.UTF_8))).isEqualTo(AMBIGUOUS);
+        // Either encoding can still follow
+        assertThat(decode(decoder, modifiedUtf8(MODIFIED_ONLY))).isEqualTo(MODIFIED_ONLY);
+
+        decoder = new StringDecoder(true);
+        decode(decoder, AMBIGUOUS.getBytes(StandardCharsets.UTF_8));
+        assertThat(decode(decoder, MODIFIED_ONLY.getBytes(StandardCharsets.UTF_8))).isEqualTo(MODIFIED_ONLY);
+    }
+
+    @Test
+    void modifiedUtf8SettlesTheEncoding() throws IOException {
+        var decoder = new StringDecoder(true);
+        assertThat(decode(decoder, modifiedUtf8(MODIFIED_ONLY))).isEqualTo(MODIFIED_ONLY);
+        assertThrows(UTFDataFormatException.class, () -> decode(decoder, MODIFIED_ONLY.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void normalUtf8SettlesTheEncoding() throws IOException {
+        var decoder = new StringDecoder(true);
+        assertThat(decode(decoder, MODIFIED_ONLY.getBytes(StandardCharsets.UTF_8))).isEqualTo(MODIFIED_ONLY);
+        assertThrows(MalformedInputException.class, () -> decode(decoder, modifiedUtf8(MODIFIED_ONLY)));
+    }
+
+    @Test
+    void normalUtf8IsStrict() {
+        var decoder = new StringDecoder(true);
+        // Overlong slash, lone continuation, truncated sequence, and a code point above U+10FFFF
+        assertThrows(MalformedInputException.class, () -> decode(decoder, new byte[]{(byte) 0xC0, (byte) 0xAF}));
+        assertThrows(MalformedInputException.class, () -> decode(decoder, new byte[]{'a', (byte) 0x80}));
+        assertThrows(MalformedInputException.class, () -> decode(decoder, new byte[]{(byte) 0xE4, (byte) 0xB8}));
+        assertThrows(MalformedInputException.class, () -> decode(
+            decoder, new byte[]{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}
+        ));
+    }
+
+    @Test
+    void onlyModifiedUtf8IfNotAllowed() throws IOException {
+        var decoder = new StringDecoder(false);
+        assertThat(decode(decoder, AMBIGUOUS.getBytes(StandardCharsets.UTF_8))).isEqualTo(AMBIGUOUS);
+        assertThrows(UTFDataFormatException.class, () -> decode(decoder, MODIFIED_ONLY.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompoundEntrySlicesTest {
+    private static final LinReadOptions OPTIONS = LinReadOptions.builder().build();
+
+    @Test
+    void locatesEntries() throws IOException {
+        var bytes = new byte[]{
+            (byte) LinTagId.COMPOUND.id(), // type id
+            0, // name size (1)
+            1,
+            'r',
+            (byte) LinTagId.BYTE.id(), // type id
+            0, // name size (1)
+            1,
+            'a',
+            1, // value
+            (byte) LinTagId.SHORT.id(), // type id
+            0, // name size (1)
+            1,
+            'b',
+            0, // value
+            2,
+            (byte) LinTagId.INT.id(), // type id, replacing a
+            0, // name size (1)
+            1,
+            'a',
+            0, // value
+            0,
+            0,
+            3,
+            0 // end tag
+        };
+        var slices = CompoundEntrySlices.ofRoot(ByteBuffer.wrap(bytes), OPTIONS);
+        assertThat(slices.rootName()).isEqualTo("r");
+        assertThat(slices.size()).isEqualTo(2);
+        assertThat(slices.indexOf("a")).isEqualTo(0);
+        assertThat(slices.indexOf("b")).isEqualTo(1);
+        assertThat(slices.indexOf("c")).isEqualTo(-1);
+        assertThat(slices.name(0)).isEqualTo("a");
+        assertThat(slices.id(0)).isEqualTo(LinTagId.INT);
+        assertThat(slices.value(0)).isEqualTo(ByteBuffer.wrap(new byte[]{0, 0, 0, 3}));
+        assertThat(slices.name(1)).isEqualTo("b");
+        assertThat(slices.id(1)).isEqualTo(LinTagId.SHORT);
+        assertThat(slices.value(1)).isEqualTo(ByteBuffer.wrap(new byte[]{0, 2}));
+        assertThat(slices.value(1).isReadOnly()).isTrue();
+
+        var value = CompoundEntrySlices.ofValue(ByteBuffer.wrap(bytes, 4, bytes.length - 4), OPTIONS);
+        assertThat(value.rootName()).isNull();
+        assertThat(value.size()).isEqualTo(2);
+        assertThat(value.value(0)).isEqualTo(ByteBuffer.wrap(new byte[]{0, 0, 0, 3}));
+    }
+
+    @Test
+    void manyEntries() throws IOException {
+        var buffer = ByteBuffer.allocate(20 * 5 + 1);
+        for (int i = 0; i < 20; i++) {
+            buffer.put((byte) LinTagId.BYTE.id()).putShort((short) 1).put((byte) ('a' + i)).put((byte) i);
+        }
+        buffer.put((byte) 0).flip();
+        var slices = CompoundEntrySlices.ofValue(buffer, OPTIONS);
+        assertThat(slices.size()).isEqualTo(20);
+        assertThat(slices.indexOf("t")).isEqualTo(19);
+        assertThat(slices.value(19).get(0)).isEqualTo((byte) 19);
+        assertThat(buffer.position()).isEqualTo(0);
+    }
+
+    @Test
+    void rootMustBeCompound() {
+        var bytes = new byte[]{(byte) LinTagId.BYTE.id(), 0, 0, 1};
+        assertThrows(NbtParseException.class, () -> CompoundEntrySlices.ofRoot(ByteBuffer.wrap(bytes), OPTIONS));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DirectLinStreamTest {
+    private static LinStream tokens() {
+        return LinStream.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(2),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    private static void write(NbtOutput output) throws IOException {
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeString("");
+        output.writeByte(LinTagId.INT_ARRAY.id());
+        output.writeString("a");
+        output.writeInt(2);
+        output.writeInts(IntBuffer.wrap(new int[]{1, 2}));
+        output.writeByte(LinTagId.END.id());
+    }
+
+    @Test
+    void writesDirectly() throws IOException {
+        var created = new AtomicInteger();
+        var stream = new DirectLinStream(() -> {
+            created.incrementAndGet();
+            return tokens();
+        }, DirectLinStreamTest::write);
+
+        var expected = new ByteArrayOutputStream();
+        LinBinaryIO.write(new DataOutputStream(expected), tokens());
+        var direct = new ByteArrayOutputStream();
+        LinBinaryIO.write(new DataOutputStream(direct), () -> stream);
+        assertThat(direct.toByteArray()).isEqualTo(expected.toByteArray());
+        assertThat(created.get()).isEqualTo(0);
+
+        var fromTokens = ImmutableList.copyOf(stream.asIterator());
+        assertThat(fromTokens).isEqualTo(ImmutableList.copyOf(tokens().asIterator()));
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    void writesEveryType() throws IOException {
+        var buffer = LinBinaryIO.writeToBuffer(() -> new DirectLinStream(LinStream::of, output -> {
+            output.writeByte(1);
+            output.writeShort(2);
+            output.writeInt(3);
+            output.writeLong(4);
+            output.writeFloat(5);
+            output.writeDouble(6);
+            output.writeBytes(ByteBuffer.wrap(new byte[]{7}));
+            output.writeLongs(LongBuffer.wrap(new long[]{8}));
+        }));
+        assertThat(buffer.remaining()).isEqualTo(1 + 2 + 4 + 8 + 4 + 8 + 1 + 8);
+        assertThat(buffer.get()).isEqualTo((byte) 1);
+        assertThat(buffer.getShort()).isEqualTo((short) 2);
+        assertThat(buffer.getInt()).isEqualTo(3);
+        assertThat(buffer.getLong()).isEqualTo(4);
+        assertThat(buffer.getFloat()).isEqualTo(5);
+        assertThat(buffer.getDouble()).isEqualTo(6);
+        assertThat(buffer.get()).isEqualTo((byte) 7);
+        assertThat(buffer.getLong()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The entries of an eagerly-read {@link LinCompoundTag}. This is an immutable map that keeps its keys and values in
+ * insertion order, in two parallel arrays. Small maps are searched linearly, larger ones through an open-addressing
+ * hash index of entry positions.
+ */
+final class CompactCompoundMap extends AbstractMap<String, LinTag<?>> implements ImmutableCompoundMap {
+    /**
+     * The largest map that is searched linearly. Beyond this, comparing every key costs more than hashing.
+     */
+    private static final int HASH_INDEX_THRESHOLD = 8;
+
+    private static final CompactCompoundMap EMPTY = new CompactCompoundMap(new String[0], new LinTag<?>[0]);
+
+    /**
+     * {@return an empty map}
+     */
+    static CompactCompoundMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Copy the given map, preserving its iteration order.
+     *
+     * @param map the map to copy
+     * @return the copy, which may be the given map if it is already a {@link CompactCompoundMap}
+     */
+    static CompactCompoundMap copyOf(Map<String, ? extends LinTag<?>> map) {
+        if (map instanceof CompactCompoundMap compact) {
+            return compact;
+        }
+        int size = map.size();
+        if (size == 0) {
+            return EMPTY;
+        }
+        var keys = new String[size];
+        var values = new LinTag<?>[size];
+        int i = 0;
+        for (var entry : map.entrySet()) {
+            keys[i] = Objects.requireNonNull(entry.getKey(), "key is null");
+            values[i] = Objects.requireNonNull(entry.getValue(), "value is null");
+            i++;
+        }
+        return new CompactCompoundMap(keys, values);
+    }
+
+    private final String[] keys;
+    private final LinTag<?>[] values;
+    // Entry index + 1 for each occupied slot, or null if the map is small enough to search linearly
+    private final int @Nullable [] hashIndex;
+
+    private CompactCompoundMap(String[] keys, LinTag<?>[] values) {
+        this(keys, values, keys.length > HASH_INDEX_THRESHOLD ? buildHashIndex(keys) : null);
+    }
+
+    private CompactCompoundMap(String[] keys, LinTag<?>[] values, int @Nullable [] hashIndex) {
+        this.keys = keys;
+        this.values = values;
+        this.hashIndex = hashIndex;
+    }
+
+    private static int[] buildHashIndex(String[] keys) {
+        // At most half full, so probe sequences stay short
+        var table = new int[Integer.highestOneBit(keys.length) << 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = spread(keys[i].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        int[] table = hashIndex;
+        if (table == null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1].equals(key)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get a copy of this map with the given entry added, or replacing the value of an existing key in place. Replacing
+     * a value shares the keys and the hash index with this map, so only the values are copied. Maps of at least
+     * {@link PersistentList#MIN_SIZE} entries are copied into a {@link PersistentCompoundMap} instead, so that further
+     * edits don't copy them again.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the new map, or this map if it already maps the key to the value
+     */
+    @Override
+    public ImmutableCompoundMap with(String key, LinTag<?> value) {
+        Objects.requireNonNull(key, "key is null");
+        Objects.requireNonNull(value, "value is null");
+        int index = indexOf(key);
+        if (index >= 0 && values[index] == value) {
+            return this;
+        }
+        if (keys.length >= PersistentList.MIN_SIZE) {
+            return PersistentCompoundMap.copyOf(this).with(key, value);
+        }
+        if (index >= 0) {
+            var newValues = values.clone();
+            newValues[index] = value;
+            return new CompactCompoundMap(keys, newValues, hashIndex);
+        }
+        var newKeys = Arrays.copyOf(keys, keys.length + 1);
+        var newValues = Arrays.copyOf(values, values.length + 1);
+        newKeys[keys.length] = key;
+        newValues[values.length] = value;
+        return new CompactCompoundMap(newKeys, newValues);
+    }
+
+    /**
+     * Get a copy of this map without the given key. Like {@link #with(String, LinTag)}, large maps are copied into a
+     * {@link PersistentCompoundMap}.
+     *
+     * @param key the key
+     * @return the new map, or this map if it does not contain the key
+     */
+    @Override
+    public ImmutableCompoundMap without(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        if (keys.length == 1) {
+            return EMPTY;
+        }
+        if (keys.length >= PersistentList.MIN_SIZE) {
+            return PersistentCompoundMap.copyOf(this).without(key);
+        }
+        var newKeys = new String[keys.length - 1];
+        var newValues = new LinTag<?>[values.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(values, 0, newValues, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, newKeys.length - index);
+        System.arraycopy(values, index + 1, newValues, index, newValues.length - index);
+        return new CompactCompoundMap(newKeys, newValues);
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf(key) >= 0;
+    }
+
+    @Override
+    public @Nullable LinTag<?> get(Object key) {
+        int index = key instanceof String ? indexOf(key) : -1;
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super LinTag<?>> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, LinTag<?>>> entrySet() {
+        // Not cached, to keep the map itself small
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, LinTag<?>>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, LinTag<?>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return Map.entry(keys[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
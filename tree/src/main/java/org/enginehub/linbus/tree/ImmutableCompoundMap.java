@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+import org.enginehub.linbus.stream.internal.SurroundingLinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The entries of a {@link LinCompoundTag}. Edits return a new map, leaving this one alone.
+ */
+sealed interface ImmutableCompoundMap extends Map<String, LinTag<?>>
+    permits CompactCompoundMap, LazyCompoundMap, PersistentCompoundMap {
+
+    /**
+     * Get a copy of this map with the given entry added, or replacing the value of an existing key in place.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the new map
+     */
+    ImmutableCompoundMap with(String key, LinTag<?> value);
+
+    /**
+     * Get a copy of this map without the given key.
+     *
+     * @param key the key
+     * @return the new map, or this map if it does not contain the key
+     */
+    ImmutableCompoundMap without(String key);
+
+    /**
+     * {@return the entries as name and value tokens}
+     */
+    default Iterator<LinStreamable> entryStreamables() {
+        var entries = entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public LinStreamable next() {
+                var entry = entries.next();
+                return new SurroundingLinStream(
+                    new LinToken.Name(entry.getKey(), entry.getValue().type().id()),
+                    entry.getValue().linStream(),
+                    null
+                );
+            }
+        };
+    }
+
+    /**
+     * Write the entries as binary NBT, without the end tag.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    default void writeEntries(NbtOutput output) throws IOException {
+        for (var entry : entrySet()) {
+            LinTag<?> tag = entry.getValue();
+            output.writeByte(tag.type().id().id());
+            output.writeString(entry.getKey());
+            tag.writeValue(output);
+        }
+    }
+
+    /**
+     * {@return the number of bytes {@link #writeEntries(NbtOutput)} writes}
+     */
+    default long entriesSize() {
+        long size = 0;
+        for (var entry : entrySet()) {
+            size += Byte.BYTES + NbtOutput.stringSize(entry.getKey()) + entry.getValue().serializedSize();
+        }
+        return size;
+    }
+}
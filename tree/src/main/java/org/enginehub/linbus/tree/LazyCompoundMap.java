@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.CompoundEntrySlices;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+import org.enginehub.linbus.stream.internal.SurroundingLinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.enginehub.linbus.tree.impl.LinTagReader;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The entries of a lazily-read {@link LinCompoundTag}. Each value is decoded from its bytes on first access, and
+ * cached. Nested compounds are lazy as well.
+ */
+final class LazyCompoundMap extends AbstractMap<String, LinTag<?>> implements ImmutableCompoundMap {
+    private final CompoundEntrySlices slices;
+    private final LinReadOptions options;
+    private final AtomicReferenceArray<@Nullable LinTag<?>> tags;
+    private @Nullable Set<Map.Entry<String, LinTag<?>>> entrySet;
+
+    LazyCompoundMap(CompoundEntrySlices slices, LinReadOptions options) {
+        this.slices = slices;
+        this.options = options;
+        this.tags = new AtomicReferenceArray<>(slices.size());
+    }
+
+    /**
+     * Get the value of an entry, decoding it if this is the first access.
+     *
+     * @param index the index of the entry
+     * @return the value
+     */
+    LinTag<?> tag(int index) {
+        LinTag<?> tag = tags.get(index);
+        if (tag == null) {
+            tag = decode(index);
+            // If another thread got there first, use its tag so that every caller sees the same instance
+            LinTag<?> witness = tags.compareAndExchange(index, null, tag);
+            if (witness != null) {
+                tag = witness;
+            }
+        }
+        return tag;
+    }
+
+    private LinTag<?> decode(int index) {
+        LinTagId id = slices.id(index);
+        try {
+            if (id == LinTagId.COMPOUND) {
+                return LinCompoundTag.readLazily(slices.value(index), options);
+            }
+            return LinTagReader.readTag(
+                LinBinaryIO.readValue(slices.value(index), id, options), LinTagType.fromId(id)
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the streamable for an entry's value. Values that have not been decoded yet are streamed from their bytes.
+     *
+     * @param index the index of the entry
+     * @return the streamable
+     */
+    LinStreamable streamable(int index) {
+        LinTag<?> tag = tags.get(index);
+        if (tag != null) {
+            return tag;
+        }
+        return () -> LinBinaryIO.readValue(slices.value(index), slices.id(index), options);
+    }
+
+    /**
+     * {@return the entries as name and value tokens, without decoding values that haven't been decoded yet}
+     */
+    @Override
+    public Iterator<LinStreamable> entryStreamables() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < slices.size();
+            }
+
+            @Override
+            public LinStreamable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int index = next++;
+                return new SurroundingLinStream(
+                    new LinToken.Name(slices.name(index), slices.id(index)),
+                    streamable(index).linStream(),
+                    null
+                );
+            }
+        };
+    }
+
+    /**
+     * Get the name of an entry.
+     *
+     * @param index the index of the entry
+     * @return the name
+     */
+    String name(int index) {
+        return slices.name(index);
+    }
+
+    /**
+     * Get the type of an entry's value, without decoding it.
+     *
+     * @param index the index of the entry
+     * @return the type
+     */
+    LinTagId id(int index) {
+        return slices.id(index);
+    }
+
+    /**
+     * Check if the bytes of an entry can be copied as they are when writing. Strings are only known to be in modified
+     * UTF-8 if normal UTF-8 wasn't allowed when reading, so values that may hold strings are otherwise written
+     * through their decoded tags.
+     *
+     * @param index the index of the entry
+     * @return {@code true} if the raw bytes of the entry are written
+     */
+    private boolean copiesBytes(int index) {
+        if (!options.allowNormalUtf8Encoding()) {
+            return true;
+        }
+        return switch (slices.id(index)) {
+            case STRING, LIST, COMPOUND -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Write the value of an entry as binary NBT, copying its bytes where {@link #copiesBytes(int)} allows it.
+     *
+     * @param index the index of the entry
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void writeValue(int index, NbtOutput output) throws IOException {
+        if (copiesBytes(index)) {
+            output.writeBytes(slices.value(index));
+        } else {
+            tag(index).writeValue(output);
+        }
+    }
+
+    /**
+     * Get the number of bytes {@link #writeValue(int, NbtOutput)} writes.
+     *
+     * @param index the index of the entry
+     * @return the size of the value
+     */
+    long valueSize(int index) {
+        if (copiesBytes(index)) {
+            return slices.valueLength(index);
+        }
+        // Re-encoding a normal UTF-8 string as modified UTF-8 may change its length
+        return tag(index).serializedSize();
+    }
+
+    /**
+     * Write the entries as binary NBT, copying the bytes of values where {@link #copiesBytes(int)} allows it.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void writeEntries(NbtOutput output) throws IOException {
+        for (int i = 0; i < slices.size(); i++) {
+            output.writeByte(slices.id(i).id());
+            output.writeString(slices.name(i));
+            writeValue(i, output);
+        }
+    }
+
+    @Override
+    public long entriesSize() {
+        long size = 0;
+        for (int i = 0; i < slices.size(); i++) {
+            size += Byte.BYTES + NbtOutput.stringSize(slices.name(i)) + valueSize(i);
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The entries are copied into a {@link PersistentCompoundMap} without being decoded. Further edits of the copy
+     * share structure with it.
+     * </p>
+     */
+    @Override
+    public ImmutableCompoundMap with(String key, LinTag<?> value) {
+        return PersistentCompoundMap.copyOf(this).with(key, value);
+    }
+
+    @Override
+    public ImmutableCompoundMap without(String key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        return PersistentCompoundMap.copyOf(this).without(key);
+    }
+
+    @Override
+    public int size() {
+        return slices.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && slices.indexOf(name) >= 0;
+    }
+
+    @Override
+    public @Nullable LinTag<?> get(Object key) {
+        int index = key instanceof String name ? slices.indexOf(name) : -1;
+        return index < 0 ? null : tag(index);
+    }
+
+    @Override
+    public Set<Map.Entry<String, LinTag<?>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, LinTag<?>>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < slices.size();
+                        }
+
+                        @Override
+                        public Map.Entry<String, LinTag<?>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return Map.entry(slices.name(index), tag(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return slices.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+}
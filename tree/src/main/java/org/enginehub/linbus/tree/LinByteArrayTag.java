@@ -19,10 +19,12 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
@@ -89,6 +91,17 @@ public LinStream linStream() {
         );
     }
 
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeInt(value.length);
+        output.writeBytes(ByteBuffer.wrap(value));
+    }
+
+    @Override
+    public long serializedSize() {
+        return Integer.BYTES + (long) value.length;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
         if (this == o) return true;
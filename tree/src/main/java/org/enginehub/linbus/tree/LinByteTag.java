@@ -19,8 +19,11 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.token.LinToken;
 
+import java.io.IOException;
+
 /**
  * Represents a byte tag.
  */
@@ -75,4 +78,14 @@ public byte valueAsByte() {
     public LinStream linStream() {
         return LinStream.of(new LinToken.Byte(value));
     }
+
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeByte(value);
+    }
+
+    @Override
+    public long serializedSize() {
+        return Byte.BYTES;
+    }
 }
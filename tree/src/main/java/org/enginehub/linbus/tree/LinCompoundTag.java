@@ -19,17 +19,18 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinReadOptions;
 import org.enginehub.linbus.stream.LinStream;
-import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.CompoundEntrySlices;
 import org.enginehub.linbus.stream.internal.FlatteningLinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.enginehub.linbus.tree.impl.LinTagReader;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -45,7 +46,7 @@ public final class LinCompoundTag extends LinTag<Map<String, ? extends LinTag<?>
      *
      * <p>
      * The map <em>will not</em> be copied using {@link Map#copyOf(Map)}, as that fails to preserve order. Instead, the
-     * map will be copied using {@link LinkedHashMap#LinkedHashMap(Map)}.
+     * map will be copied into a compact immutable map that keeps the iteration order of the given map.
      * </p>
      *
      * @param value the value
@@ -68,14 +69,19 @@ public static Builder builder() {
      * A builder for {@link LinCompoundTag LinCompoundTags}.
      */
     public static final class Builder {
-        private final LinkedHashMap<String, LinTag<?>> collector;
+        // A new builder collects into a mutable map. A builder from a tag edits the tag's map instead, so that it
+        // shares structure with the tag rather than copying it
+        private final @Nullable LinkedHashMap<String, LinTag<?>> collector;
+        private ImmutableCompoundMap edited;
 
         private Builder() {
             this.collector = new LinkedHashMap<>();
+            this.edited = CompactCompoundMap.empty();
         }
 
         private Builder(LinCompoundTag base) {
-            this.collector = new LinkedHashMap<>(base.value);
+            this.collector = null;
+            this.edited = base.value;
         }
 
         /**
@@ -89,7 +95,11 @@ public Builder put(String name, LinTag<?> value) {
             if (value.type().id() == LinTagId.END) {
                 throw new IllegalArgumentException("Cannot add END tag to compound tag");
             }
-            this.collector.put(name, value);
+            if (collector != null) {
+                collector.put(name, value);
+            } else {
+                edited = edited.with(name, value);
+            }
             return this;
         }
 
@@ -111,7 +121,11 @@ public Builder putAll(Map<String, ? extends LinTag<?>> map) {
          * @return this builder
          */
         public Builder remove(String name) {
-            this.collector.remove(name);
+            if (collector != null) {
+                collector.remove(name);
+            } else {
+                edited = edited.without(name);
+            }
             return this;
         }
 
@@ -242,7 +256,7 @@ public Builder putString(String name, String value) {
          * @return the built tag
          */
         public LinCompoundTag build() {
-            return new LinCompoundTag(copyImmutable(this.collector), false);
+            return new LinCompoundTag(collector != null ? copyImmutable(collector) : edited, false);
         }
     }
 
@@ -257,15 +271,64 @@ public static LinCompoundTag readFrom(LinStream tokens) throws IOException {
         return LinTagReader.readCompound(tokens);
     }
 
-    private static Map<String, LinTag<?>> copyImmutable(
+    /**
+     * Read a compound tag lazily from the binary NBT of an unnamed compound value, starting with its first entry. See
+     * {@link #readLazily(ByteBuffer, LinReadOptions)} for how the value is read.
+     *
+     * @param buffer the buffer to read from
+     * @return the compound tag
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinCompoundTag readLazily(ByteBuffer buffer) throws IOException {
+        return readLazily(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a compound tag lazily from the binary NBT of an unnamed compound value, starting with its first entry.
+     *
+     * <p>
+     * Only the names and positions of the entries are read up front. Each value is decoded from the buffer the first
+     * time it is accessed, and then cached. This is safe to do from multiple threads. Nested compounds are read
+     * lazily as well. Values that have not been decoded yet are {@linkplain #linStream() streamed} straight from the
+     * buffer.
+     * </p>
+     *
+     * <p>
+     * The tag keeps a read-only view of the buffer, so the buffer's content must not be modified while the tag is in
+     * use. The buffer's position, limit, and byte order are not modified.
+     * </p>
+     *
+     * @param buffer the buffer to read from
+     * @param options the options for reading
+     * @return the compound tag
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinCompoundTag readLazily(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        return new LinCompoundTag(new LazyCompoundMap(CompoundEntrySlices.ofValue(buffer, options), options), false);
+    }
+
+    /**
+     * Read a compound tag lazily, with the entries located by the given slices.
+     *
+     * @param slices the entries
+     * @param options the options for reading
+     * @return the compound tag
+     */
+    static LinCompoundTag readLazily(CompoundEntrySlices slices, LinReadOptions options) {
+        return new LinCompoundTag(new LazyCompoundMap(slices, options), false);
+    }
+
+    private static ImmutableCompoundMap copyImmutable(
         Map<String, ? extends LinTag<?>> value
     ) {
-        return Collections.unmodifiableMap(new LinkedHashMap<>(value));
+        return CompactCompoundMap.copyOf(value);
     }
 
-    private final Map<String, LinTag<?>> value;
+    private final ImmutableCompoundMap value;
+    // Zero until computed, as a compound always takes at least one byte
+    private volatile long serializedSize;
 
-    private LinCompoundTag(Map<String, LinTag<?>> value, boolean check) {
+    private LinCompoundTag(ImmutableCompoundMap value, boolean check) {
         if (check) {
             for (LinTag<?> tag : value.values()) {
                 if (tag.type().id() == LinTagId.END) {
@@ -290,28 +353,59 @@ public Map<String, LinTag<?>> value() {
     public LinStream linStream() {
         return new SurroundingLinStream(
             new LinToken.CompoundStart(),
-            new FlatteningLinStream(new EntryTokenIterator()),
+            new FlatteningLinStream(value.entryStreamables()),
             new LinToken.CompoundEnd()
         );
     }
 
-    private class EntryTokenIterator implements Iterator<LinStreamable> {
-        private final Iterator<? extends Map.Entry<String, ? extends LinTag<?>>> entryIterator = value.entrySet().iterator();
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        value.writeEntries(output);
+        output.writeByte(LinTagId.END.id());
+    }
 
-        @Override
-        public boolean hasNext() {
-            return entryIterator.hasNext();
+    @Override
+    public long serializedSize() {
+        long size = serializedSize;
+        if (size == 0) {
+            // The entries, then the end tag
+            size = Byte.BYTES + value.entriesSize();
+            serializedSize = size;
         }
+        return size;
+    }
 
-        @Override
-        public LinStreamable next() {
-            var entry = entryIterator.next();
-            return new SurroundingLinStream(
-                new LinToken.Name(entry.getKey(), entry.getValue().type().id()),
-                entry.getValue().linStream(),
-                null
-            );
+    /**
+     * Get a copy of this tag with the given tag added, or replacing an existing tag with the same name.
+     *
+     * <p>
+     * Small compounds copy only the references to their values, and replacing an existing tag shares the names with
+     * this tag as well. Compounds of 64 or more tags, and compounds read {@linkplain #readLazily(ByteBuffer,
+     * LinReadOptions) lazily}, share structure with this tag instead, so the edit takes time logarithmic in the
+     * number of tags. Lazily read values that have not been accessed stay undecoded.
+     * </p>
+     *
+     * @param name the name of the tag
+     * @param value the tag
+     * @return the new compound tag
+     */
+    public LinCompoundTag with(String name, LinTag<?> value) {
+        if (value.type().id() == LinTagId.END) {
+            throw new IllegalArgumentException("Cannot add END tag to compound tag");
         }
+        return new LinCompoundTag(this.value.with(name, value), false);
+    }
+
+    /**
+     * Get a copy of this tag without the tag with the given name. This shares structure with this tag in the same
+     * way as {@link #with(String, LinTag)}.
+     *
+     * @param name the name of the tag
+     * @return the new compound tag, or this tag if there is no tag with the given name
+     */
+    public LinCompoundTag without(String name) {
+        ImmutableCompoundMap edited = value.without(name);
+        return edited == value ? this : new LinCompoundTag(edited, false);
     }
 
     /**
@@ -396,7 +490,8 @@ public <T extends LinTag<?>> LinListTag<T> getListTag(
     }
 
     /**
-     * Converts this tag into a {@link Builder}.
+     * Converts this tag into a {@link Builder}. The builder applies each change as {@link #with(String, LinTag)} and
+     * {@link #without(String)} do, so it shares structure with this tag rather than copying it.
      *
      * @return a new builder
      */
@@ -19,8 +19,11 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.token.LinToken;
 
+import java.io.IOException;
+
 /**
  * Represents a double tag.
  */
@@ -65,4 +68,14 @@ public double valueAsDouble() {
     public LinStream linStream() {
         return LinStream.of(new LinToken.Double(value));
     }
+
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeDouble(value);
+    }
+
+    @Override
+    public long serializedSize() {
+        return Double.BYTES;
+    }
 }
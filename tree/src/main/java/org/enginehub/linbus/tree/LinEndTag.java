@@ -19,6 +19,9 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+
+import java.io.IOException;
 
 /**
  * Represents an end tag.
@@ -53,6 +56,16 @@ public LinStream linStream() {
         return LinStream.of();
     }
 
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        // An end tag has no value
+    }
+
+    @Override
+    public long serializedSize() {
+        return 0;
+    }
+
     @Override
     public int hashCode() {
         return System.identityHashCode(this);
@@ -19,10 +19,12 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.IntBuffer;
 import java.util.Arrays;
 
@@ -90,6 +92,17 @@ public LinStream linStream() {
         );
     }
 
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeInt(value.length);
+        output.writeInts(IntBuffer.wrap(value));
+    }
+
+    @Override
+    public long serializedSize() {
+        return Integer.BYTES + (long) value.length * Integer.BYTES;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
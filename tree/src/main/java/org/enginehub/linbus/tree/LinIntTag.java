@@ -19,8 +19,11 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.token.LinToken;
 
+import java.io.IOException;
+
 /**
  * Represents an int tag.
  */
@@ -65,4 +68,14 @@ public int valueAsInt() {
     public LinStream linStream() {
         return LinStream.of(new LinToken.Int(value));
     }
+
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeInt(value);
+    }
+
+    @Override
+    public long serializedSize() {
+        return Integer.BYTES;
+    }
 }
@@ -20,17 +20,33 @@
 
 import org.enginehub.linbus.stream.LinStream;
 import org.enginehub.linbus.stream.internal.FlatteningLinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Represents a list of {@link LinTag LinTags}.
  *
+ * <p>
+ * Lists of numbers are stored as primitive arrays, and create their element tags as they are accessed. Use the
+ * primitive accessors, such as {@link #getInt(int)} and {@link #intView()}, to read them without creating tags.
+ * </p>
+ *
  * @param <T> the type of the elements in the list
  */
 public final class LinListTag<T extends LinTag<?>> extends LinTag<List<T>> {
@@ -56,7 +72,72 @@ public static <T extends LinTag<?>> LinListTag<T> of(
                     + t.type().name());
             }
         }
-        return new LinListTag<>(elementType, List.copyOf(value));
+        return new LinListTag<>(elementType, copyOf(elementType, value));
+    }
+
+    /**
+     * Creates a new list of byte tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinByteTag> ofBytes(byte... values) {
+        return new LinListTag<>(LinTagType.byteTag(), new PackedNumberList.OfByte(values.clone()));
+    }
+
+    /**
+     * Creates a new list of short tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinShortTag> ofShorts(short... values) {
+        return new LinListTag<>(LinTagType.shortTag(), new PackedNumberList.OfShort(values.clone()));
+    }
+
+    /**
+     * Creates a new list of int tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinIntTag> ofInts(int... values) {
+        return new LinListTag<>(LinTagType.intTag(), new PackedNumberList.OfInt(values.clone()));
+    }
+
+    /**
+     * Creates a new list of long tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinLongTag> ofLongs(long... values) {
+        return new LinListTag<>(LinTagType.longTag(), new PackedNumberList.OfLong(values.clone()));
+    }
+
+    /**
+     * Creates a new list of float tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinFloatTag> ofFloats(float... values) {
+        return new LinListTag<>(LinTagType.floatTag(), new PackedNumberList.OfFloat(values.clone()));
+    }
+
+    /**
+     * Creates a new list of double tags. The array will be {@linkplain Object#clone() cloned}.
+     *
+     * @param values the values of the elements
+     * @return the tag
+     */
+    public static LinListTag<LinDoubleTag> ofDoubles(double... values) {
+        return new LinListTag<>(LinTagType.doubleTag(), new PackedNumberList.OfDouble(values.clone()));
+    }
+
+    private static <T extends LinTag<?>> List<T> copyOf(LinTagType<T> elementType, List<T> value) {
+        List<T> packed = PackedNumberList.pack(elementType, value);
+        return packed != null ? packed : List.copyOf(value);
     }
 
     /**
@@ -78,7 +159,22 @@ public static <T extends LinTag<?>> LinListTag<T> empty(LinTagType<T> elementTyp
      * @return a new builder
      */
     public static <T extends LinTag<?>> Builder<T> builder(LinTagType<T> elementType) {
-        return new Builder<>(elementType);
+        return new Builder<>(elementType, 10);
+    }
+
+    /**
+     * Creates a new builder for a list of the given element type, with room for the given number of elements.
+     *
+     * @param elementType the element type of the list
+     * @param expectedSize the number of elements expected to be added
+     * @param <T> the type of the elements in the list
+     * @return a new builder
+     */
+    public static <T extends LinTag<?>> Builder<T> builder(LinTagType<T> elementType, int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative, got " + expectedSize);
+        }
+        return new Builder<>(elementType, expectedSize);
     }
 
     /**
@@ -88,16 +184,31 @@ public static <T extends LinTag<?>> Builder<T> builder(LinTagType<T> elementType
      */
     public static final class Builder<T extends LinTag<?>> {
         private final LinTagType<T> elementType;
-        private final List<T> collector;
+        // Exactly one of these is set. Numbers are packed, and large lists from a tag are edited in a persistent
+        // list that shares structure with the tag
+        private final @Nullable List<T> collector;
+        private final PackedNumberList.@Nullable Collector packedCollector;
+        private @Nullable PersistentList<T> edited;
 
-        private Builder(LinTagType<T> elementType) {
+        private Builder(LinTagType<T> elementType, int expectedSize) {
             this.elementType = elementType;
-            this.collector = new ArrayList<>();
+            this.packedCollector = PackedNumberList.Collector.of(elementType.id(), expectedSize);
+            this.collector = packedCollector == null ? new ArrayList<>(expectedSize) : null;
         }
 
         private Builder(LinListTag<T> base) {
             this.elementType = base.elementType;
-            this.collector = new ArrayList<>(base.value);
+            if (base.value instanceof PackedNumberList<?> packed) {
+                this.packedCollector = PackedNumberList.Collector.of(packed);
+                this.collector = null;
+            } else if (base.value instanceof PersistentList<T> || base.value.size() >= PersistentList.MIN_SIZE) {
+                this.packedCollector = null;
+                this.collector = null;
+                this.edited = PersistentList.copyOf(base.value);
+            } else {
+                this.packedCollector = null;
+                this.collector = new ArrayList<>(base.value);
+            }
         }
 
         /**
@@ -111,10 +222,97 @@ public Builder<T> add(T tag) {
                 throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
                     + tag.type().name());
             }
-            this.collector.add(tag);
+            if (packedCollector != null) {
+                packedCollector.add(tag);
+            } else if (edited != null) {
+                edited = edited.plus(tag);
+            } else {
+                Objects.requireNonNull(collector).add(tag);
+            }
+            return this;
+        }
+
+        /**
+         * Add a byte element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#byteTag()}
+         */
+        public Builder<T> addByte(byte value) {
+            packed(LinTagType.byteTag()).addByte(value);
+            return this;
+        }
+
+        /**
+         * Add a short element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#shortTag()}
+         */
+        public Builder<T> addShort(short value) {
+            packed(LinTagType.shortTag()).addShort(value);
+            return this;
+        }
+
+        /**
+         * Add a int element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#intTag()}
+         */
+        public Builder<T> addInt(int value) {
+            packed(LinTagType.intTag()).addInt(value);
+            return this;
+        }
+
+        /**
+         * Add a long element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#longTag()}
+         */
+        public Builder<T> addLong(long value) {
+            packed(LinTagType.longTag()).addLong(value);
+            return this;
+        }
+
+        /**
+         * Add a float element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#floatTag()}
+         */
+        public Builder<T> addFloat(float value) {
+            packed(LinTagType.floatTag()).addFloat(value);
             return this;
         }
 
+        /**
+         * Add a double element to the list, without creating a tag.
+         *
+         * @param value the value of the element
+         * @return this builder
+         * @throws IllegalStateException if the element type is not {@link LinTagType#doubleTag()}
+         */
+        public Builder<T> addDouble(double value) {
+            packed(LinTagType.doubleTag()).addDouble(value);
+            return this;
+        }
+
+        private PackedNumberList.Collector packed(LinTagType<?> elementType) {
+            if (elementType != this.elementType) {
+                throw new IllegalStateException(
+                    "List is of type " + this.elementType.name() + ", not " + elementType.name()
+                );
+            }
+            return Objects.requireNonNull(packedCollector);
+        }
+
         /**
          * Add a collection of elements to the list.
          *
@@ -138,7 +336,13 @@ public Builder<T> set(int index, T tag) {
                 throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
                     + tag.type().name());
             }
-            this.collector.set(index, tag);
+            if (packedCollector != null) {
+                packedCollector.set(index, tag);
+            } else if (edited != null) {
+                edited = edited.with(index, tag);
+            } else {
+                Objects.requireNonNull(collector).set(index, tag);
+            }
             return this;
         }
 
@@ -148,12 +352,22 @@ public Builder<T> set(int index, T tag) {
          * @return the built tag
          */
         public LinListTag<T> build() {
-            return new LinListTag<>(this.elementType, List.copyOf(this.collector));
+            if (packedCollector != null) {
+                @SuppressWarnings("unchecked")
+                List<T> packed = (List<T>) packedCollector.build();
+                return new LinListTag<>(this.elementType, packed);
+            }
+            if (edited != null) {
+                return new LinListTag<>(this.elementType, edited);
+            }
+            return new LinListTag<>(this.elementType, List.copyOf(Objects.requireNonNull(collector)));
         }
     }
 
     private final LinTagType<T> elementType;
     private final List<T> value;
+    // Zero until computed, as a list always takes at least five bytes
+    private volatile long serializedSize;
 
     private LinListTag(LinTagType<T> elementType, List<T> value) {
         Objects.requireNonNull(value, "value is null");
@@ -204,11 +418,40 @@ public List<T> value() {
     public LinStream linStream() {
         return new SurroundingLinStream(
             new LinToken.ListStart(value.size(), elementType.id()),
-            new FlatteningLinStream(value.iterator()),
+            value instanceof PackedNumberList<?> packed ? packed.tokens() : new FlatteningLinStream(value.iterator()),
             new LinToken.ListEnd()
         );
     }
 
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeByte(elementType.id().id());
+        output.writeInt(value.size());
+        if (value instanceof PackedNumberList<?> packed) {
+            packed.writeElements(output);
+            return;
+        }
+        for (T element : value) {
+            element.writeValue(output);
+        }
+    }
+
+    @Override
+    public long serializedSize() {
+        if (value instanceof PackedNumberList<?> packed) {
+            return Byte.BYTES + Integer.BYTES + (long) packed.size() * packed.elementSize();
+        }
+        long size = serializedSize;
+        if (size == 0) {
+            size = Byte.BYTES + Integer.BYTES;
+            for (T element : value) {
+                size += element.serializedSize();
+            }
+            serializedSize = size;
+        }
+        return size;
+    }
+
     /**
      * Direct shorthand for {@link #value() value()}{@code .}{@link List#get(int) get(index)}.
      *
@@ -220,7 +463,177 @@ public T get(int index) {
     }
 
     /**
-     * Converts this tag into a {@link Builder}.
+     * Get the element at the given index as a primitive byte, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#byteTag()}
+     */
+    public byte getByte(int index) {
+        return packed(LinTagType.byteTag(), PackedNumberList.OfByte.class).getByte(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link ByteBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#byteTag()}
+     */
+    public ByteBuffer byteView() {
+        return packed(LinTagType.byteTag(), PackedNumberList.OfByte.class).view();
+    }
+
+    /**
+     * Get the element at the given index as a primitive short, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#shortTag()}
+     */
+    public short getShort(int index) {
+        return packed(LinTagType.shortTag(), PackedNumberList.OfShort.class).getShort(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link ShortBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#shortTag()}
+     */
+    public ShortBuffer shortView() {
+        return packed(LinTagType.shortTag(), PackedNumberList.OfShort.class).view();
+    }
+
+    /**
+     * Get the element at the given index as a primitive int, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#intTag()}
+     */
+    public int getInt(int index) {
+        return packed(LinTagType.intTag(), PackedNumberList.OfInt.class).getInt(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link IntBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#intTag()}
+     */
+    public IntBuffer intView() {
+        return packed(LinTagType.intTag(), PackedNumberList.OfInt.class).view();
+    }
+
+    /**
+     * Get the element at the given index as a primitive long, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#longTag()}
+     */
+    public long getLong(int index) {
+        return packed(LinTagType.longTag(), PackedNumberList.OfLong.class).getLong(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link LongBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#longTag()}
+     */
+    public LongBuffer longView() {
+        return packed(LinTagType.longTag(), PackedNumberList.OfLong.class).view();
+    }
+
+    /**
+     * Get the element at the given index as a primitive float, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#floatTag()}
+     */
+    public float getFloat(int index) {
+        return packed(LinTagType.floatTag(), PackedNumberList.OfFloat.class).getFloat(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link FloatBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#floatTag()}
+     */
+    public FloatBuffer floatView() {
+        return packed(LinTagType.floatTag(), PackedNumberList.OfFloat.class).view();
+    }
+
+    /**
+     * Get the element at the given index as a primitive double, without creating a tag.
+     *
+     * @param index the index of the element to get
+     * @return the value of the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#doubleTag()}
+     */
+    public double getDouble(int index) {
+        return packed(LinTagType.doubleTag(), PackedNumberList.OfDouble.class).getDouble(index);
+    }
+
+    /**
+     * Get a read-only view of the elements of this list, which directly wraps the underlying array.
+     *
+     * @return a read-only {@link DoubleBuffer} providing view access to the elements of this list
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#doubleTag()}
+     */
+    public DoubleBuffer doubleView() {
+        return packed(LinTagType.doubleTag(), PackedNumberList.OfDouble.class).view();
+    }
+
+    private <P extends PackedNumberList<?>> P packed(LinTagType<?> elementType, Class<P> packedType) {
+        if (elementType != this.elementType) {
+            throw new IllegalStateException(
+                "List is of type " + this.elementType.name() + ", not " + elementType.name()
+            );
+        }
+        return packedType.cast(value);
+    }
+
+    /**
+     * Get a copy of this tag with the element at the given index replaced. This is cheaper than going through a
+     * {@link Builder} for a single edit.
+     *
+     * <p>
+     * Small lists, and lists of numbers, are copied once. Other lists of 64 or more elements share structure with this
+     * tag instead, so the edit takes time logarithmic in the number of elements.
+     * </p>
+     *
+     * @param index the index of the element to replace
+     * @param element the new element
+     * @return the new list tag
+     */
+    public LinListTag<T> with(int index, T element) {
+        if (element.type() != elementType) {
+            throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
+                + element.type().name());
+        }
+        Objects.checkIndex(index, value.size());
+        if (value instanceof PackedNumberList<?> packed) {
+            @SuppressWarnings("unchecked")
+            List<T> cast = (List<T>) packed.with(index, element);
+            return new LinListTag<>(elementType, cast);
+        }
+        if (value instanceof PersistentList<T> || value.size() >= PersistentList.MIN_SIZE) {
+            return new LinListTag<>(elementType, PersistentList.copyOf(value).with(index, element));
+        }
+        // Wrap the copy rather than copying it again
+        @SuppressWarnings("unchecked")
+        T[] elements = (T[]) value.toArray(new LinTag<?>[0]);
+        elements[index] = element;
+        return new LinListTag<>(elementType, Collections.unmodifiableList(Arrays.asList(elements)));
+    }
+
+    /**
+     * Converts this tag into a {@link Builder}. Lists of numbers share their array with the builder until it is
+     * changed, and changes to other large lists share structure with this tag as {@link #with(int, LinTag)} does.
      *
      * @return a new builder
      */
@@ -20,10 +20,12 @@
 
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.LongBuffer;
 import java.util.Arrays;
 
@@ -91,6 +93,17 @@ public LinStream linStream() {
         );
     }
 
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeInt(value.length);
+        output.writeLongs(LongBuffer.wrap(value));
+    }
+
+    @Override
+    public long serializedSize() {
+        return Integer.BYTES + (long) value.length * Long.BYTES;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
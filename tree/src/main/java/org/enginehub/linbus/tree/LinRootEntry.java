@@ -20,16 +20,20 @@
 
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
 import org.enginehub.linbus.stream.LinStream;
 import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.CompoundEntrySlices;
+import org.enginehub.linbus.stream.internal.DirectLinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.enginehub.linbus.tree.impl.LinTagReader;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 
@@ -54,6 +58,32 @@ public static LinRootEntry readFrom(LinStream tokens) throws IOException {
         return LinTagReader.readRoot(tokens);
     }
 
+    /**
+     * Read a root entry lazily from binary NBT. See {@link LinCompoundTag#readLazily(ByteBuffer, LinReadOptions)} for
+     * how the value is read.
+     *
+     * @param buffer the buffer to read from
+     * @return the root entry
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRootEntry readLazily(ByteBuffer buffer) throws IOException {
+        return readLazily(buffer, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read a root entry lazily from binary NBT. See {@link LinCompoundTag#readLazily(ByteBuffer, LinReadOptions)} for
+     * how the value is read.
+     *
+     * @param buffer the buffer to read from
+     * @param options the options for reading
+     * @return the root entry
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRootEntry readLazily(ByteBuffer buffer, LinReadOptions options) throws IOException {
+        var slices = CompoundEntrySlices.ofRoot(buffer, options);
+        return new LinRootEntry(Objects.requireNonNull(slices.rootName()), LinCompoundTag.readLazily(slices, options));
+    }
+
     /**
      * Create a new root entry with the given name and value.
      *
@@ -65,19 +95,34 @@ public static LinRootEntry readFrom(LinStream tokens) throws IOException {
         Objects.requireNonNull(value);
     }
 
+    /**
+     * Gets the number of bytes this entry takes in binary NBT, including the ID and name of the root.
+     *
+     * @return the number of bytes {@link #writeToArray()} would return
+     * @see LinTag#serializedSize()
+     */
+    public long serializedSize() {
+        return Byte.BYTES + NbtOutput.stringSize(name) + value.serializedSize();
+    }
+
     /**
      * Write this entry to a byte array.
      *
      * @return the byte array
      */
     public byte[] writeToArray() {
-        var output = new ByteArrayOutputStream();
-        try (var dataOutputStream = new DataOutputStream(output)) {
-            LinBinaryIO.write(dataOutputStream, this);
+        long size = serializedSize();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Entry is too large to write to an array: " + size + " bytes");
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = LinBinaryIO.writeToBuffer(this, (int) size);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-        return output.toByteArray();
+        byte[] array = buffer.array();
+        return array.length == buffer.limit() ? array : Arrays.copyOf(array, buffer.limit());
     }
 
     /**
@@ -90,12 +135,24 @@ public LinCompoundTag toLinTag() {
         return LinCompoundTag.of(Map.of(name, value));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Writing the stream with {@link LinBinaryIO} writes the tree directly, without creating the tokens.
+     */
     @Override
     public LinStream linStream() {
-        return new SurroundingLinStream(
-            new LinToken.Name(name, LinTagId.COMPOUND),
-            value.linStream(),
-            null
+        return new DirectLinStream(
+            () -> new SurroundingLinStream(
+                new LinToken.Name(name, LinTagId.COMPOUND),
+                value.linStream(),
+                null
+            ),
+            output -> {
+                output.writeByte(LinTagId.COMPOUND.id());
+                output.writeString(name);
+                value.writeValue(output);
+            }
         );
     }
 }
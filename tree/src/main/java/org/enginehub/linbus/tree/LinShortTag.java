@@ -19,8 +19,11 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.token.LinToken;
 
+import java.io.IOException;
+
 /**
  * Represents a short tag.
  */
@@ -65,4 +68,14 @@ public short valueAsShort() {
     public LinStream linStream() {
         return LinStream.of(new LinToken.Short(value));
     }
+
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeShort(value);
+    }
+
+    @Override
+    public long serializedSize() {
+        return Short.BYTES;
+    }
 }
@@ -19,8 +19,10 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.enginehub.linbus.stream.token.LinToken;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -58,4 +60,14 @@ public String value() {
     public LinStream linStream() {
         return LinStream.of(new LinToken.String(value));
     }
+
+    @Override
+    void writeValue(NbtOutput output) throws IOException {
+        output.writeString(value);
+    }
+
+    @Override
+    public long serializedSize() {
+        return NbtOutput.stringSize(value);
+    }
 }
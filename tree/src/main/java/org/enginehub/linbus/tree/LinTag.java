@@ -19,8 +19,10 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.NbtOutput;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -52,6 +54,26 @@ protected LinTag() {
      */
     public abstract T value();
 
+    /**
+     * Write the binary NBT of this tag's value, which is the same as {@link #linStream()} would produce.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    abstract void writeValue(NbtOutput output) throws IOException;
+
+    /**
+     * Gets the number of bytes this tag's value takes in binary NBT, which does not include the ID or name that
+     * precede it in a compound tag.
+     *
+     * <p>
+     * Compound and list tags remember their size once it has been computed, so this is cheap to call repeatedly.
+     * </p>
+     *
+     * @return the number of bytes written by {@link #writeValue(NbtOutput)}
+     */
+    public abstract long serializedSize();
+
     @Override
     public final LinTag<T> toLinTag() {
         // This could be overriden by subclasses to provide a sharper return type. I didn't do this because it's
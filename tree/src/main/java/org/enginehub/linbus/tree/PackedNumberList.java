@@ -0,0 +1,709 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The elements of a {@link LinListTag} of numbers, stored as a primitive array. Tags are created as elements are
+ * accessed through the {@link List} interface, and are not retained.
+ *
+ * @param <T> the type of the elements in the list
+ */
+abstract sealed class PackedNumberList<T extends LinNumberTag<?>> extends AbstractList<T> implements RandomAccess
+    permits PackedNumberList.OfByte, PackedNumberList.OfShort, PackedNumberList.OfInt, PackedNumberList.OfLong,
+    PackedNumberList.OfFloat, PackedNumberList.OfDouble {
+
+    /**
+     * Pack the given elements, if the element type is a number type.
+     *
+     * @param elementType the element type of the list
+     * @param elements the elements, which must all be of the element type
+     * @param <T> the type of the elements in the list
+     * @return the packed elements, or {@code null} if the element type is not a number type
+     */
+    static <T extends LinTag<?>> @Nullable List<T> pack(LinTagType<T> elementType, List<? extends T> elements) {
+        int i = 0;
+        List<?> packed = switch (elementType.id()) {
+            case BYTE -> {
+                var values = new byte[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinByteTag) element).valueAsByte();
+                }
+                yield new OfByte(values);
+            }
+            case SHORT -> {
+                var values = new short[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinShortTag) element).valueAsShort();
+                }
+                yield new OfShort(values);
+            }
+            case INT -> {
+                var values = new int[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinIntTag) element).valueAsInt();
+                }
+                yield new OfInt(values);
+            }
+            case LONG -> {
+                var values = new long[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinLongTag) element).valueAsLong();
+                }
+                yield new OfLong(values);
+            }
+            case FLOAT -> {
+                var values = new float[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinFloatTag) element).valueAsFloat();
+                }
+                yield new OfFloat(values);
+            }
+            case DOUBLE -> {
+                var values = new double[elements.size()];
+                for (T element : elements) {
+                    values[i++] = ((LinDoubleTag) element).valueAsDouble();
+                }
+                yield new OfDouble(values);
+            }
+            default -> null;
+        };
+        @SuppressWarnings("unchecked")
+        List<T> cast = (List<T>) packed;
+        return cast;
+    }
+
+    // The largest array that can be allocated on most VMs
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private PackedNumberList() {
+    }
+
+    /**
+     * {@return the size of each element in binary NBT}
+     */
+    abstract int elementSize();
+
+    /**
+     * Write the elements as binary NBT.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    abstract void writeElements(NbtOutput output) throws IOException;
+
+    /**
+     * Get the token for the element at the given index.
+     *
+     * @param index the index
+     * @return the token
+     */
+    abstract LinToken token(int index);
+
+    /**
+     * Get a copy of this list with the element at the given index replaced.
+     *
+     * @param index the index
+     * @param element the new element, which must be of this list's element type
+     * @return the new list
+     */
+    abstract PackedNumberList<T> with(int index, LinTag<?> element);
+
+    /**
+     * {@return a stream of the tokens of the elements}
+     */
+    final LinStream tokens() {
+        return new LinStream() {
+            private int index;
+
+            @Override
+            public @Nullable LinToken nextOrNull() {
+                return index < size() ? token(index++) : null;
+            }
+        };
+    }
+
+    /**
+     * Collects the elements of a packed list for a {@link LinListTag.Builder}, growing as needed. Built lists adopt the
+     * collected array when it is full, and the collector copies it before changing it again.
+     */
+    static final class Collector {
+        /**
+         * Create a collector for the given element type.
+         *
+         * @param elementId the element type
+         * @param capacity the number of elements to make room for up front
+         * @return the collector, or {@code null} if the element type is not a number type
+         */
+        static @Nullable Collector of(LinTagId elementId, int capacity) {
+            Buffer elements = switch (elementId) {
+                case BYTE -> ByteBuffer.allocate(capacity);
+                case SHORT -> ShortBuffer.allocate(capacity);
+                case INT -> IntBuffer.allocate(capacity);
+                case LONG -> LongBuffer.allocate(capacity);
+                case FLOAT -> FloatBuffer.allocate(capacity);
+                case DOUBLE -> DoubleBuffer.allocate(capacity);
+                default -> null;
+            };
+            return elements == null ? null : new Collector(elements, false);
+        }
+
+        /**
+         * Create a collector that starts with the elements of the given list.
+         *
+         * @param base the list
+         * @return the collector
+         */
+        static Collector of(PackedNumberList<?> base) {
+            Buffer elements = switch (base) {
+                case OfByte list -> ByteBuffer.wrap(list.values).position(list.values.length);
+                case OfShort list -> ShortBuffer.wrap(list.values).position(list.values.length);
+                case OfInt list -> IntBuffer.wrap(list.values).position(list.values.length);
+                case OfLong list -> LongBuffer.wrap(list.values).position(list.values.length);
+                case OfFloat list -> FloatBuffer.wrap(list.values).position(list.values.length);
+                case OfDouble list -> DoubleBuffer.wrap(list.values).position(list.values.length);
+            };
+            // The list is immutable, so it must be copied before it's changed
+            return new Collector(elements, true);
+        }
+
+        // Heap buffers, with the position at the number of elements
+        private Buffer elements;
+        private boolean shared;
+
+        private Collector(Buffer elements, boolean shared) {
+            this.elements = elements;
+            this.shared = shared;
+        }
+
+        /**
+         * {@return the number of elements collected}
+         */
+        int size() {
+            return elements.position();
+        }
+
+        /**
+         * Make sure there is room for {@code count} more elements, and that the array is not shared with a built list.
+         */
+        private void prepare(int count) {
+            int size = elements.position();
+            int capacity = elements.capacity();
+            if (!shared && count <= capacity - size) {
+                return;
+            }
+            if (count > capacity - size) {
+                if (count > MAX_SIZE - size) {
+                    throw new IllegalStateException("List cannot hold more than " + MAX_SIZE + " elements");
+                }
+                capacity = (int) Math.min(MAX_SIZE, Math.max((long) capacity * 2, Math.max(size + count, 8)));
+            }
+            Buffer source = elements.duplicate().flip();
+            elements = switch (source) {
+                case ByteBuffer typed -> ByteBuffer.allocate(capacity).put(typed);
+                case ShortBuffer typed -> ShortBuffer.allocate(capacity).put(typed);
+                case IntBuffer typed -> IntBuffer.allocate(capacity).put(typed);
+                case LongBuffer typed -> LongBuffer.allocate(capacity).put(typed);
+                case FloatBuffer typed -> FloatBuffer.allocate(capacity).put(typed);
+                case DoubleBuffer typed -> DoubleBuffer.allocate(capacity).put(typed);
+                default -> throw new IllegalStateException("Unknown elements: " + source);
+            };
+            shared = false;
+        }
+
+        /**
+         * Add an element.
+         *
+         * @param element the element, which must be of this collector's element type
+         */
+        void add(LinTag<?> element) {
+            prepare(1);
+            switch (elements) {
+                case ByteBuffer typed -> typed.put(((LinByteTag) element).valueAsByte());
+                case ShortBuffer typed -> typed.put(((LinShortTag) element).valueAsShort());
+                case IntBuffer typed -> typed.put(((LinIntTag) element).valueAsInt());
+                case LongBuffer typed -> typed.put(((LinLongTag) element).valueAsLong());
+                case FloatBuffer typed -> typed.put(((LinFloatTag) element).valueAsFloat());
+                case DoubleBuffer typed -> typed.put(((LinDoubleTag) element).valueAsDouble());
+                default -> throw new IllegalStateException("Unknown elements: " + elements);
+            }
+        }
+
+        void addByte(byte value) {
+            prepare(1);
+            ((ByteBuffer) elements).put(value);
+        }
+
+        void addShort(short value) {
+            prepare(1);
+            ((ShortBuffer) elements).put(value);
+        }
+
+        void addInt(int value) {
+            prepare(1);
+            ((IntBuffer) elements).put(value);
+        }
+
+        void addLong(long value) {
+            prepare(1);
+            ((LongBuffer) elements).put(value);
+        }
+
+        void addFloat(float value) {
+            prepare(1);
+            ((FloatBuffer) elements).put(value);
+        }
+
+        void addDouble(double value) {
+            prepare(1);
+            ((DoubleBuffer) elements).put(value);
+        }
+
+        /**
+         * Replace an element.
+         *
+         * @param index the index of the element
+         * @param element the new element, which must be of this collector's element type
+         */
+        void set(int index, LinTag<?> element) {
+            Objects.checkIndex(index, size());
+            prepare(0);
+            switch (elements) {
+                case ByteBuffer typed -> typed.put(index, ((LinByteTag) element).valueAsByte());
+                case ShortBuffer typed -> typed.put(index, ((LinShortTag) element).valueAsShort());
+                case IntBuffer typed -> typed.put(index, ((LinIntTag) element).valueAsInt());
+                case LongBuffer typed -> typed.put(index, ((LinLongTag) element).valueAsLong());
+                case FloatBuffer typed -> typed.put(index, ((LinFloatTag) element).valueAsFloat());
+                case DoubleBuffer typed -> typed.put(index, ((LinDoubleTag) element).valueAsDouble());
+                default -> throw new IllegalStateException("Unknown elements: " + elements);
+            }
+        }
+
+        /**
+         * {@return a packed list of the collected elements}
+         */
+        PackedNumberList<?> build() {
+            int size = size();
+            boolean adopt = size == elements.capacity();
+            if (adopt) {
+                shared = true;
+            }
+            return switch (elements) {
+                case ByteBuffer typed -> new OfByte(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                case ShortBuffer typed -> new OfShort(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                case IntBuffer typed -> new OfInt(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                case LongBuffer typed -> new OfLong(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                case FloatBuffer typed -> new OfFloat(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                case DoubleBuffer typed -> new OfDouble(adopt ? typed.array() : Arrays.copyOf(typed.array(), size));
+                default -> throw new IllegalStateException("Unknown elements: " + elements);
+            };
+        }
+    }
+
+    static final class OfByte extends PackedNumberList<LinByteTag> {
+        private final byte[] values;
+
+        OfByte(byte[] values) {
+            this.values = values;
+        }
+
+        byte getByte(int index) {
+            return values[index];
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinByteTag get(int index) {
+            return LinByteTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Byte.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeBytes(ByteBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Byte(values[index]);
+        }
+
+        @Override
+        OfByte with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinByteTag) element).valueAsByte();
+            return new OfByte(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfByte that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+
+    static final class OfShort extends PackedNumberList<LinShortTag> {
+        private final short[] values;
+
+        OfShort(short[] values) {
+            this.values = values;
+        }
+
+        short getShort(int index) {
+            return values[index];
+        }
+
+        ShortBuffer view() {
+            return ShortBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinShortTag get(int index) {
+            return LinShortTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Short.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeShorts(ShortBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Short(values[index]);
+        }
+
+        @Override
+        OfShort with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinShortTag) element).valueAsShort();
+            return new OfShort(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfShort that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+
+    static final class OfInt extends PackedNumberList<LinIntTag> {
+        private final int[] values;
+
+        OfInt(int[] values) {
+            this.values = values;
+        }
+
+        int getInt(int index) {
+            return values[index];
+        }
+
+        IntBuffer view() {
+            return IntBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinIntTag get(int index) {
+            return LinIntTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeInts(IntBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Int(values[index]);
+        }
+
+        @Override
+        OfInt with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinIntTag) element).valueAsInt();
+            return new OfInt(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfInt that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+
+    static final class OfLong extends PackedNumberList<LinLongTag> {
+        private final long[] values;
+
+        OfLong(long[] values) {
+            this.values = values;
+        }
+
+        long getLong(int index) {
+            return values[index];
+        }
+
+        LongBuffer view() {
+            return LongBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinLongTag get(int index) {
+            return LinLongTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Long.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeLongs(LongBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Long(values[index]);
+        }
+
+        @Override
+        OfLong with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinLongTag) element).valueAsLong();
+            return new OfLong(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfLong that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+
+    static final class OfFloat extends PackedNumberList<LinFloatTag> {
+        private final float[] values;
+
+        OfFloat(float[] values) {
+            this.values = values;
+        }
+
+        float getFloat(int index) {
+            return values[index];
+        }
+
+        FloatBuffer view() {
+            return FloatBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinFloatTag get(int index) {
+            return LinFloatTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Float.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeFloats(FloatBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Float(values[index]);
+        }
+
+        @Override
+        OfFloat with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinFloatTag) element).valueAsFloat();
+            return new OfFloat(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfFloat that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+
+    static final class OfDouble extends PackedNumberList<LinDoubleTag> {
+        private final double[] values;
+
+        OfDouble(double[] values) {
+            this.values = values;
+        }
+
+        double getDouble(int index) {
+            return values[index];
+        }
+
+        DoubleBuffer view() {
+            return DoubleBuffer.wrap(values).asReadOnlyBuffer();
+        }
+
+        @Override
+        public LinDoubleTag get(int index) {
+            return LinDoubleTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        int elementSize() {
+            return Double.BYTES;
+        }
+
+        @Override
+        void writeElements(NbtOutput output) throws IOException {
+            output.writeDoubles(DoubleBuffer.wrap(values));
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Double(values[index]);
+        }
+
+        @Override
+        OfDouble with(int index, LinTag<?> element) {
+            var newValues = values.clone();
+            newValues[index] = ((LinDoubleTag) element).valueAsDouble();
+            return new OfDouble(newValues);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof OfDouble that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the List contract, as each tag hashes the same as its boxed value
+            return Arrays.hashCode(values);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.internal.NbtOutput;
+import org.enginehub.linbus.stream.internal.SurroundingLinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compound map that shares structure with the map it was edited from, so that adding, replacing, or removing an
+ * entry takes time logarithmic in the size of the map.
+ *
+ * <p>
+ * The entries are kept in insertion order in a {@link PersistentList}, with removed entries left as {@code null}
+ * until they outnumber the live ones. A hash trie maps each key to the position of its entry. Entries copied from a
+ * {@link LazyCompoundMap} stay undecoded until they are accessed.
+ * </p>
+ */
+final class PersistentCompoundMap extends AbstractMap<String, LinTag<?>> implements ImmutableCompoundMap {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Copy the given map, preserving its iteration order. Values that a {@link LazyCompoundMap} has not decoded yet
+     * are not decoded by the copy.
+     *
+     * @param map the map to copy
+     * @return the copy, which may be the given map if it is already a {@link PersistentCompoundMap}
+     */
+    static PersistentCompoundMap copyOf(ImmutableCompoundMap map) {
+        if (map instanceof PersistentCompoundMap persistent) {
+            return persistent;
+        }
+        var slots = new ArrayList<Slot>(map.size());
+        if (map instanceof LazyCompoundMap lazy) {
+            for (int i = 0; i < lazy.size(); i++) {
+                slots.add(new Slot.Undecoded(lazy.name(i), lazy, i));
+            }
+        } else {
+            map.forEach((key, value) -> slots.add(new Slot.Decoded(key, value)));
+        }
+        return of(slots);
+    }
+
+    private static PersistentCompoundMap of(ArrayList<Slot> slots) {
+        @Nullable IndexNode index = null;
+        for (int i = 0; i < slots.size(); i++) {
+            String key = slots.get(i).key();
+            var leaf = new Leaf(key.hashCode(), key, i);
+            index = index == null ? leaf : insert(index, leaf, 0);
+        }
+        return new PersistentCompoundMap(PersistentList.copyOf(slots), index, slots.size());
+    }
+
+    private final PersistentList<@Nullable Slot> slots;
+    private final @Nullable IndexNode index;
+    private final int size;
+
+    private PersistentCompoundMap(PersistentList<@Nullable Slot> slots, @Nullable IndexNode index, int size) {
+        this.slots = slots;
+        this.index = index;
+        this.size = size;
+    }
+
+    @Override
+    public ImmutableCompoundMap with(String key, LinTag<?> value) {
+        Objects.requireNonNull(key, "key is null");
+        Objects.requireNonNull(value, "value is null");
+        int hash = key.hashCode();
+        int position = find(index, hash, key);
+        if (position >= 0) {
+            if (slots.get(position) instanceof Slot.Decoded(var ignored, var existing) && existing == value) {
+                return this;
+            }
+            // The key keeps its position, so the index is shared as is
+            return new PersistentCompoundMap(slots.with(position, new Slot.Decoded(key, value)), index, size);
+        }
+        var leaf = new Leaf(hash, key, slots.size());
+        return new PersistentCompoundMap(
+            slots.plus(new Slot.Decoded(key, value)),
+            index == null ? leaf : insert(index, leaf, 0),
+            size + 1
+        );
+    }
+
+    @Override
+    public ImmutableCompoundMap without(String key) {
+        int hash = key.hashCode();
+        int position = find(index, hash, key);
+        if (position < 0) {
+            return this;
+        }
+        if (size == 1) {
+            return CompactCompoundMap.empty();
+        }
+        var removed = slots.with(position, null);
+        // Once the holes outnumber the entries, rebuild so that they don't pile up
+        if (removed.size() - (size - 1) > size - 1) {
+            var live = new ArrayList<Slot>(size - 1);
+            for (Slot slot : removed) {
+                if (slot != null) {
+                    live.add(slot);
+                }
+            }
+            return of(live);
+        }
+        return new PersistentCompoundMap(removed, remove(Objects.requireNonNull(index), hash, key, 0), size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && find(index, name.hashCode(), name) >= 0;
+    }
+
+    @Override
+    public @Nullable LinTag<?> get(Object key) {
+        int position = key instanceof String name ? find(index, name.hashCode(), name) : -1;
+        return position < 0 ? null : Objects.requireNonNull(slots.get(position)).value();
+    }
+
+    @Override
+    public Iterator<LinStreamable> entryStreamables() {
+        var iterator = new SlotIterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public LinStreamable next() {
+                Slot slot = iterator.next();
+                return new SurroundingLinStream(
+                    new LinToken.Name(slot.key(), slot.id()),
+                    slot.streamable().linStream(),
+                    null
+                );
+            }
+        };
+    }
+
+    @Override
+    public void writeEntries(NbtOutput output) throws IOException {
+        for (var iterator = new SlotIterator(); iterator.hasNext(); ) {
+            Slot slot = iterator.next();
+            output.writeByte(slot.id().id());
+            output.writeString(slot.key());
+            slot.writeValue(output);
+        }
+    }
+
+    @Override
+    public long entriesSize() {
+        long size = 0;
+        for (var iterator = new SlotIterator(); iterator.hasNext(); ) {
+            Slot slot = iterator.next();
+            size += Byte.BYTES + NbtOutput.stringSize(slot.key()) + slot.valueSize();
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, LinTag<?>>> entrySet() {
+        // Not cached, to keep the map itself small
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, LinTag<?>>> iterator() {
+                var iterator = new SlotIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, LinTag<?>> next() {
+                        Slot slot = iterator.next();
+                        return Map.entry(slot.key(), slot.value());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates the live slots, skipping removed entries.
+     */
+    private final class SlotIterator implements Iterator<Slot> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < slots.size() && slots.get(from) == null) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < slots.size();
+        }
+
+        @Override
+        public Slot next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Slot slot = Objects.requireNonNull(slots.get(next));
+            next = advance(next + 1);
+            return slot;
+        }
+    }
+
+    /**
+     * An entry, with its value either decoded or still in the buffer of a {@link LazyCompoundMap}.
+     */
+    private sealed interface Slot {
+        String key();
+
+        LinTag<?> value();
+
+        LinTagId id();
+
+        LinStreamable streamable();
+
+        void writeValue(NbtOutput output) throws IOException;
+
+        long valueSize();
+
+        record Decoded(String key, LinTag<?> value) implements Slot {
+            @Override
+            public LinTagId id() {
+                return value.type().id();
+            }
+
+            @Override
+            public LinStreamable streamable() {
+                return value;
+            }
+
+            @Override
+            public void writeValue(NbtOutput output) throws IOException {
+                value.writeValue(output);
+            }
+
+            @Override
+            public long valueSize() {
+                return value.serializedSize();
+            }
+        }
+
+        record Undecoded(String key, LazyCompoundMap source, int index) implements Slot {
+            @Override
+            public LinTag<?> value() {
+                return source.tag(index);
+            }
+
+            @Override
+            public LinTagId id() {
+                return source.id(index);
+            }
+
+            @Override
+            public LinStreamable streamable() {
+                return source.streamable(index);
+            }
+
+            @Override
+            public void writeValue(NbtOutput output) throws IOException {
+                source.writeValue(index, output);
+            }
+
+            @Override
+            public long valueSize() {
+                return source.valueSize(index);
+            }
+        }
+    }
+
+    // The hash trie. A branch has a child for each set bit of its bitmap, indexed by the next five bits of the hash.
+    // Keys are only ever inserted when absent and removed when present, as replacing a value keeps its position.
+
+    private sealed interface IndexNode permits Branch, Leaf, Collision {
+    }
+
+    private record Branch(int bitmap, IndexNode[] children) implements IndexNode {
+    }
+
+    private record Leaf(int hash, String key, int position) implements IndexNode {
+    }
+
+    // Keys whose hashes are fully equal
+    private record Collision(int hash, Leaf[] leaves) implements IndexNode {
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int find(@Nullable IndexNode node, int hash, String key) {
+        int shift = 0;
+        while (true) {
+            switch (node) {
+                case null -> {
+                    return -1;
+                }
+                case Branch branch -> {
+                    int bit = bit(hash, shift);
+                    if ((branch.bitmap & bit) == 0) {
+                        return -1;
+                    }
+                    node = branch.children[Integer.bitCount(branch.bitmap & (bit - 1))];
+                    shift += BITS;
+                }
+                case Leaf leaf -> {
+                    return leaf.hash == hash && leaf.key.equals(key) ? leaf.position : -1;
+                }
+                case Collision collision -> {
+                    if (collision.hash == hash) {
+                        for (Leaf leaf : collision.leaves) {
+                            if (leaf.key.equals(key)) {
+                                return leaf.position;
+                            }
+                        }
+                    }
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private static IndexNode insert(IndexNode node, Leaf leaf, int shift) {
+        return switch (node) {
+            case Branch branch -> {
+                int bit = bit(leaf.hash, shift);
+                int i = Integer.bitCount(branch.bitmap & (bit - 1));
+                IndexNode[] children;
+                if ((branch.bitmap & bit) == 0) {
+                    children = new IndexNode[branch.children.length + 1];
+                    System.arraycopy(branch.children, 0, children, 0, i);
+                    System.arraycopy(branch.children, i, children, i + 1, branch.children.length - i);
+                    children[i] = leaf;
+                } else {
+                    children = branch.children.clone();
+                    children[i] = insert(children[i], leaf, shift + BITS);
+                }
+                yield new Branch(branch.bitmap | bit, children);
+            }
+            case Leaf existing -> merge(existing, existing.hash, leaf, shift);
+            case Collision collision -> merge(collision, collision.hash, leaf, shift);
+        };
+    }
+
+    private static IndexNode merge(IndexNode existing, int existingHash, Leaf leaf, int shift) {
+        if (existingHash == leaf.hash) {
+            if (existing instanceof Collision collision) {
+                var leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+                leaves[collision.leaves.length] = leaf;
+                return new Collision(leaf.hash, leaves);
+            }
+            return new Collision(leaf.hash, new Leaf[] { (Leaf) existing, leaf });
+        }
+        int existingBit = bit(existingHash, shift);
+        int bit = bit(leaf.hash, shift);
+        if (existingBit == bit) {
+            return new Branch(bit, new IndexNode[] { merge(existing, existingHash, leaf, shift + BITS) });
+        }
+        return new Branch(
+            existingBit | bit,
+            Integer.compareUnsigned(existingBit, bit) < 0
+                ? new IndexNode[] { existing, leaf }
+                : new IndexNode[] { leaf, existing }
+        );
+    }
+
+    private static @Nullable IndexNode remove(IndexNode node, int hash, String key, int shift) {
+        return switch (node) {
+            case Leaf ignored -> null;
+            case Collision collision -> {
+                if (collision.leaves.length == 2) {
+                    yield collision.leaves[0].key.equals(key) ? collision.leaves[1] : collision.leaves[0];
+                }
+                var leaves = new Leaf[collision.leaves.length - 1];
+                int i = 0;
+                for (Leaf leaf : collision.leaves) {
+                    if (!leaf.key.equals(key)) {
+                        leaves[i++] = leaf;
+                    }
+                }
+                yield new Collision(hash, leaves);
+            }
+            case Branch branch -> {
+                int bit = bit(hash, shift);
+                int i = Integer.bitCount(branch.bitmap & (bit - 1));
+                IndexNode child = remove(branch.children[i], hash, key, shift + BITS);
+                if (child != null) {
+                    // A lone leaf doesn't need a branch above it, as leaves are found by their full hash
+                    if (branch.children.length == 1 && !(child instanceof Branch)) {
+                        yield child;
+                    }
+                    var children = branch.children.clone();
+                    children[i] = child;
+                    yield new Branch(branch.bitmap, children);
+                }
+                if (branch.children.length == 1) {
+                    yield null;
+                }
+                if (branch.children.length == 2 && !(branch.children[1 - i] instanceof Branch)) {
+                    yield branch.children[1 - i];
+                }
+                var children = new IndexNode[branch.children.length - 1];
+                System.arraycopy(branch.children, 0, children, 0, i);
+                System.arraycopy(branch.children, i + 1, children, i, children.length - i);
+                yield new Branch(branch.bitmap & ~bit, children);
+            }
+        };
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.enginehub.linbus.tree;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list stored as a 32-way trie. Replacing or appending an element copies only the path to it, and shares
+ * the rest of the trie with the original list.
+ *
+ * <p>
+ * Elements may be {@code null}, as {@link PersistentCompoundMap} uses {@code null} for removed entries.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+    /**
+     * The smallest collection that is worth editing through a trie. Smaller ones are cheaper to copy whole.
+     */
+    static final int MIN_SIZE = 64;
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(new Object[WIDTH], 0, 0);
+
+    /**
+     * {@return an empty list}
+     *
+     * @param <E> the type of the elements
+     */
+    static <E> PersistentList<E> empty() {
+        @SuppressWarnings("unchecked")
+        PersistentList<E> empty = (PersistentList<E>) EMPTY;
+        return empty;
+    }
+
+    /**
+     * Copy the given elements.
+     *
+     * @param elements the elements
+     * @param <E> the type of the elements
+     * @return the list, which may be the given collection if it is already a {@link PersistentList}
+     */
+    static <E> PersistentList<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentList<?>) {
+            @SuppressWarnings("unchecked")
+            PersistentList<E> list = (PersistentList<E>) elements;
+            return list;
+        }
+        Object[] array = elements.toArray();
+        int size = array.length;
+        if (size == 0) {
+            return empty();
+        }
+        // Fill the leaves, then build each level over the one below until a single node is left
+        Object[] level = new Object[(size + MASK) >>> BITS];
+        for (int i = 0; i < level.length; i++) {
+            var leaf = new Object[WIDTH];
+            System.arraycopy(array, i << BITS, leaf, 0, Math.min(WIDTH, size - (i << BITS)));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                var node = new Object[WIDTH];
+                System.arraycopy(level, i << BITS, node, 0, Math.min(WIDTH, level.length - (i << BITS)));
+                parents[i] = node;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentList<>((Object[]) level[0], shift, size);
+    }
+
+    private final Object[] root;
+    // The shift of the root's index bits, zero when the root is a leaf
+    private final int shift;
+    private final int size;
+
+    private PersistentList(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        @SuppressWarnings("unchecked")
+        E element = (E) node[index & MASK];
+        return element;
+    }
+
+    /**
+     * Get a copy of this list with the element at the given index replaced.
+     *
+     * @param index the index
+     * @param element the new element
+     * @return the new list
+     */
+    PersistentList<E> with(int index, @Nullable E element) {
+        Objects.checkIndex(index, size);
+        return new PersistentList<>(assoc(root, shift, index, element), shift, size);
+    }
+
+    /**
+     * Get a copy of this list with the given element appended.
+     *
+     * @param element the element
+     * @return the new list
+     */
+    PersistentList<E> plus(@Nullable E element) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("List is full");
+        }
+        // When the trie is full, push it down under a new root
+        if (shift < Integer.SIZE - BITS && size == 1 << (shift + BITS)) {
+            var newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            return new PersistentList<>(assoc(newRoot, shift + BITS, size, element), shift + BITS, size + 1);
+        }
+        return new PersistentList<>(assoc(root, shift, size, element), shift, size + 1);
+    }
+
+    private static Object[] assoc(Object[] node, int shift, int index, @Nullable Object element) {
+        Object[] copy = node.clone();
+        if (shift == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int slot = (index >>> shift) & MASK;
+            Object[] child = (Object[]) node[slot];
+            copy[slot] = assoc(child == null ? new Object[WIDTH] : child, shift - BITS, index, element);
+        }
+        return copy;
+    }
+}
@@ -41,14 +41,21 @@
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 
 /**
  * Class to hold methods to read tags.
  */
 public class LinTagReader {
+    // Lists claim their own size, so a corrupt one could otherwise demand an enormous allocation up front
+    private static final int MAX_PRESIZED_ELEMENTS = 1 << 16;
+
     /**
      * Read the root entry.
      *
@@ -106,6 +113,23 @@ public static LinCompoundTag readCompound(LinStream tokens) throws IOException {
         throw new NbtParseException("Expected compound end");
     }
 
+    /**
+     * Read a tag of the given type.
+     *
+     * <p>
+     * This will {@linkplain LinStream#calculateOptionalInfo() calculate optional info} before reading.
+     * </p>
+     *
+     * @param tokens the tokens to read from
+     * @param type the type of the tag
+     * @param <T> the type of the tag
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public static <T extends LinTag<?>> T readTag(LinStream tokens, LinTagType<T> type) throws IOException {
+        return readValue(tokens.calculateOptionalInfo(), type);
+    }
+
     private static LinByteArrayTag readByteArray(LinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.ByteArrayStart start)) {
             throw new NbtParseException("Expected byte array start");
@@ -183,14 +207,106 @@ private static <T extends LinTag<?>> LinListTag<T> readList(LinStream tokens) th
             throw new NbtParseException("Expected list start");
         }
         LinTagType<T> elementType = LinTagType.fromId(start.elementId().orElseThrow());
-        var builder = LinListTag.builder(elementType);
-        for (int i = 0; i < start.size().orElseThrow(); i++) {
-            T tag = readValue(tokens, elementType);
-            builder.add(tag);
+        int size = start.size().orElseThrow();
+        if (size < 0) {
+            throw new NbtParseException("Negative list size: " + size);
+        }
+        LinListTag<T> list;
+        if (isNumber(elementType.id())) {
+            list = readNumberList(tokens, elementType, size);
+        } else {
+            var builder = LinListTag.builder(elementType, Math.min(size, MAX_PRESIZED_ELEMENTS));
+            for (int i = 0; i < size; i++) {
+                T tag = readValue(tokens, elementType);
+                builder.add(tag);
+            }
+            list = builder.build();
         }
         if (!(tokens.nextOrNull() instanceof LinToken.ListEnd)) {
             throw new NbtParseException("Expected list end");
         }
+        return list;
+    }
+
+    private static boolean isNumber(LinTagId id) {
+        return switch (id) {
+            case BYTE, SHORT, INT, LONG, FLOAT, DOUBLE -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Read the elements of a list of numbers straight into the builder's primitive array. They may come as one token
+     * each, or in runs.
+     */
+    private static <T extends LinTag<?>> LinListTag<T> readNumberList(
+        LinStream tokens, LinTagType<T> elementType, int size
+    ) throws IOException {
+        // Don't trust a size from the stream with an allocation bigger than this, the builder grows past it if needed
+        var builder = LinListTag.builder(elementType, Math.min(size, MAX_PRESIZED_ELEMENTS));
+        int read = 0;
+        while (read < size) {
+            LinToken token = requireNextToken(tokens);
+            int count = 1;
+            switch (token) {
+                case LinToken.ListContent listContent -> {
+                    if (listContent.elementId() != elementType.id()) {
+                        throw new NbtParseException(
+                            "Expected list content of " + elementType.id() + ", got " + listContent.elementId()
+                        );
+                    }
+                    Buffer content = listContent.buffer();
+                    count = content.remaining();
+                    if (count > size - read) {
+                        throw new NbtParseException("List content is longer than the list");
+                    }
+                    // Index the content directly, so that its position is left alone
+                    switch (content) {
+                        case ByteBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addByte(elements.get(i));
+                            }
+                        }
+                        case ShortBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addShort(elements.get(i));
+                            }
+                        }
+                        case IntBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addInt(elements.get(i));
+                            }
+                        }
+                        case LongBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addLong(elements.get(i));
+                            }
+                        }
+                        case FloatBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addFloat(elements.get(i));
+                            }
+                        }
+                        case DoubleBuffer elements -> {
+                            for (int i = elements.position(); i < elements.limit(); i++) {
+                                builder.addDouble(elements.get(i));
+                            }
+                        }
+                        default -> throw new IllegalStateException("Unknown list content: " + content);
+                    }
+                }
+                case LinToken.Byte(byte value) when elementType.id() == LinTagId.BYTE -> builder.addByte(value);
+                case LinToken.Short(short value) when elementType.id() == LinTagId.SHORT -> builder.addShort(value);
+                case LinToken.Int(int value) when elementType.id() == LinTagId.INT -> builder.addInt(value);
+                case LinToken.Long(long value) when elementType.id() == LinTagId.LONG -> builder.addLong(value);
+                case LinToken.Float(float value) when elementType.id() == LinTagId.FLOAT -> builder.addFloat(value);
+                case LinToken.Double(double value) when elementType.id() == LinTagId.DOUBLE -> builder.addDouble(value);
+                default -> throw new NbtParseException(
+                    "Expected a list element of " + elementType.id() + ", got " + token
+                );
+            }
+            read += count;
+        }
         return builder.build();
     }
 
@@ -221,4 +221,135 @@ void builderSpecialization() {
         assertThat(tag).getTagByKey("short").shortValue().isEqualTo((short) 0xCAFE);
         assertThat(tag).getTagByKey("string").stringValue().isEqualTo("Hello World!");
     }
+
+    @Test
+    void keepsInsertionOrderAtAnySize() {
+        for (int size : new int[] { 0, 1, 8, 9, 100 }) {
+            var expected = new LinkedHashMap<String, LinTag<?>>();
+            for (int i = size - 1; i >= 0; i--) {
+                expected.put("key" + i, LinIntTag.of(i));
+            }
+            var tag = LinCompoundTag.builder().putAll(expected).build();
+            assertThat(tag.value()).containsExactlyEntriesIn(expected).inOrder();
+            assertThat(tag.value()).isEqualTo(expected);
+            assertThat(tag.value().hashCode()).isEqualTo(expected.hashCode());
+            for (int i = 0; i < size; i++) {
+                assertThat(tag.getTag("key" + i, LinTagType.intTag())).isEqualTo(LinIntTag.of(i));
+            }
+            assertThat(tag.value().get("key" + size)).isNull();
+            assertThat(tag.value().containsKey(1)).isFalse();
+        }
+    }
+
+    @Test
+    void valueIsImmutable() {
+        var tag = LinCompoundTag.builder().putInt("a", 1).build();
+        assertThrows(UnsupportedOperationException.class, () -> tag.value().put("b", LinIntTag.of(2)));
+        assertThrows(UnsupportedOperationException.class, () -> tag.value().remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> tag.value().entrySet().clear());
+        assertThrows(UnsupportedOperationException.class, () -> tag.value().keySet().iterator().remove());
+    }
+
+    @Test
+    void rejectsNullKeys() {
+        var map = new LinkedHashMap<String, LinTag<?>>();
+        map.put(null, LinIntTag.of(1));
+        var thrown = assertThrows(NullPointerException.class, () -> LinCompoundTag.of(map));
+        assertThat(thrown).hasMessageThat().isEqualTo("key is null");
+    }
+
+    @Test
+    void withAndWithout() {
+        for (int size : new int[] { 3, 20, 200 }) {
+            var builder = LinCompoundTag.builder();
+            for (int i = 0; i < size; i++) {
+                builder.putInt("key" + i, i);
+            }
+            var original = builder.build();
+
+            var replaced = original.with("key1", LinStringTag.of("one"));
+            assertThat(replaced).isEqualTo(builder.put("key1", LinStringTag.of("one")).build());
+            assertThat(original.getTag("key1", LinTagType.intTag())).isEqualTo(LinIntTag.of(1));
+
+            var added = replaced.with("new", LinByteTag.of((byte) 1));
+            assertThat(added.value().keySet()).containsExactlyElementsIn(
+                builder.put("new", LinByteTag.of((byte) 1)).build().value().keySet()
+            ).inOrder();
+            assertThat(added.getTag("new", LinTagType.byteTag())).isEqualTo(LinByteTag.of((byte) 1));
+
+            var removed = added.without("key0");
+            assertThat(removed).isEqualTo(builder.remove("key0").build());
+            assertThat(removed.value().containsKey("key0")).isFalse();
+            assertThat(removed.without("key0")).isSameInstanceAs(removed);
+        }
+    }
+
+    @Test
+    void withChecksForEndTag() {
+        var thrown = assertThrows(
+            IllegalArgumentException.class,
+            () -> LinCompoundTag.builder().build().with("Hello", LinEndTag.instance())
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Cannot add END tag to compound tag");
+    }
+
+    @Test
+    void persistentEditsMatchMap() throws IOException {
+        var expected = new LinkedHashMap<String, LinTag<?>>();
+        // "Aa" and "BB" have the same hash code, so some of these keys collide in every bit
+        var keys = new String[] { "Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB" };
+        for (int i = 0; i < 100; i++) {
+            expected.put("key" + i, LinIntTag.of(i));
+        }
+        var tag = LinCompoundTag.of(expected);
+        for (String key : keys) {
+            tag = tag.with(key, LinStringTag.of(key));
+            expected.put(key, LinStringTag.of(key));
+        }
+        var before = tag;
+        tag = tag.with("BB", LinByteTag.of((byte) 2));
+        expected.put("BB", LinByteTag.of((byte) 2));
+        // Remove enough to rebuild the entries, then add some back
+        for (int i = 0; i < 100; i += 2) {
+            tag = tag.without("key" + i);
+            expected.remove("key" + i);
+        }
+        tag = tag.without("Aa").without("AaBB").without("missing");
+        expected.remove("Aa");
+        expected.remove("AaBB");
+        for (int i = 0; i < 10; i++) {
+            tag = tag.with("key" + i, LinLongTag.of(i));
+            expected.put("key" + i, LinLongTag.of(i));
+        }
+
+        assertThat(tag.value()).containsExactlyEntriesIn(expected).inOrder();
+        assertThat(tag.value().hashCode()).isEqualTo(expected.hashCode());
+        for (String key : keys) {
+            assertThat(tag.value().get(key)).isEqualTo(expected.get(key));
+            assertThat(tag.value().containsKey(key)).isEqualTo(expected.containsKey(key));
+        }
+        assertThat(tag.value().get("key0")).isEqualTo(LinLongTag.of(0));
+        assertThat(tag.value().get("key98")).isNull();
+        assertThat(tag).isEqualTo(LinCompoundTag.of(expected));
+        TagTestUtil.assertRoundTrip(tag);
+
+        // Earlier versions are left alone
+        assertThat(before.value().get("BB")).isEqualTo(LinStringTag.of("BB"));
+        assertThat(before.value().get("key0")).isEqualTo(LinIntTag.of(0));
+        assertThat(before.value()).hasSize(106);
+    }
+
+    @Test
+    void toBuilderOfLargeCompound() {
+        var builder = LinCompoundTag.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.putInt("key" + i, i);
+        }
+        var original = builder.build();
+        var edited = original.toBuilder().putInt("key5", -5).remove("key6").putInt("new", 1).build();
+        assertThat(edited).isEqualTo(builder.putInt("key5", -5).remove("key6").putInt("new", 1).build());
+        assertThat(original.value()).hasSize(100);
+        assertThat(original.getTag("key5", LinTagType.intTag())).isEqualTo(LinIntTag.of(5));
+        assertThat(edited.toBuilder().build()).isEqualTo(edited);
+    }
 }
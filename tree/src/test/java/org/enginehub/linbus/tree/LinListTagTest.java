@@ -21,6 +21,7 @@
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -134,4 +135,151 @@ void addsAllFromCollection() {
             LinStringTag.of("World!")
         ).inOrder();
     }
+
+    @Test
+    void packedRoundTrip() throws IOException {
+        TagTestUtil.assertRoundTrip(LinListTag.ofBytes((byte) 1, Byte.MIN_VALUE, Byte.MAX_VALUE));
+        TagTestUtil.assertRoundTrip(LinListTag.ofShorts((short) 1, Short.MIN_VALUE, Short.MAX_VALUE));
+        TagTestUtil.assertRoundTrip(LinListTag.ofInts(1, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        TagTestUtil.assertRoundTrip(LinListTag.ofLongs(1, Long.MIN_VALUE, Long.MAX_VALUE));
+        TagTestUtil.assertRoundTrip(LinListTag.ofFloats(1, Float.NaN, -0.0f));
+        TagTestUtil.assertRoundTrip(LinListTag.ofDoubles(1, Double.NaN, -0.0));
+        TagTestUtil.assertRoundTrip(LinListTag.ofInts());
+    }
+
+    @Test
+    void packedEqualsTagList() {
+        var packed = LinListTag.ofInts(1, 2, 3);
+        var tags = LinListTag.of(LinTagType.intTag(), List.of(
+            LinIntTag.of(1), LinIntTag.of(2), LinIntTag.of(3)
+        ));
+        assertThat(packed).isEqualTo(tags);
+        assertThat(packed.hashCode()).isEqualTo(tags.hashCode());
+        assertThat(packed.value().hashCode()).isEqualTo(new ArrayList<>(packed.value()).hashCode());
+        assertThat(LinListTag.ofDoubles(0.0)).isNotEqualTo(LinListTag.ofDoubles(-0.0));
+        assertThat(packed.toString()).isEqualTo("LinListTag[LinIntTag[1], LinIntTag[2], LinIntTag[3]]");
+    }
+
+    @Test
+    void primitiveAccess() {
+        var tag = LinListTag.of(LinTagType.doubleTag(), List.of(LinDoubleTag.of(0.5), LinDoubleTag.of(-1.5)))
+            .toBuilder()
+            .add(LinDoubleTag.of(2))
+            .build();
+        assertThat(tag.getDouble(1)).isEqualTo(-1.5);
+        assertThat(tag.get(2)).isEqualTo(LinDoubleTag.of(2));
+        var view = tag.doubleView();
+        assertThat(view.isReadOnly()).isTrue();
+        assertThat(view.remaining()).isEqualTo(3);
+        assertThat(view.get(0)).isEqualTo(0.5);
+        assertThrows(IndexOutOfBoundsException.class, () -> tag.getDouble(3));
+    }
+
+    @Test
+    void packedArrayIsCopied() {
+        var values = new long[] { 1, 2 };
+        var tag = LinListTag.ofLongs(values);
+        values[0] = 3;
+        assertThat(tag.getLong(0)).isEqualTo(1);
+    }
+
+    @Test
+    void primitiveAccessRequiresElementType() {
+        var thrown = assertThrows(IllegalStateException.class, () -> LinListTag.ofInts(1).getLong(0));
+        assertThat(thrown).hasMessageThat().isEqualTo("List is of type INT, not LONG");
+        thrown = assertThrows(
+            IllegalStateException.class, () -> LinListTag.empty(LinTagType.stringTag()).intView()
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("List is of type STRING, not INT");
+    }
+
+    @Test
+    void withReplacesElement() {
+        var strings = LinListTag.of(LinTagType.stringTag(), List.of(
+            LinStringTag.of("Hello"),
+            LinStringTag.of("World!")
+        ));
+        assertThat(strings.with(0, LinStringTag.of("Goodbye...")))
+            .isEqualTo(strings.toBuilder().set(0, LinStringTag.of("Goodbye...")).build());
+        assertThat(strings.get(0)).isEqualTo(LinStringTag.of("Hello"));
+
+        var ints = LinListTag.ofInts(1, 2, 3);
+        assertThat(ints.with(2, LinIntTag.of(4))).isEqualTo(LinListTag.ofInts(1, 2, 4));
+        assertThat(ints.getInt(2)).isEqualTo(3);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> ints.with(3, LinIntTag.of(4)));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        var thrown = assertThrows(
+            IllegalArgumentException.class,
+            () -> ((LinListTag) ints).with(0, LinDoubleTag.of(0.0))
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Element is not of type INT but DOUBLE");
+    }
+
+    @Test
+    void primitiveAddsOnBuilder() {
+        var builder = LinListTag.builder(LinTagType.intTag(), 1)
+            .addInt(1)
+            .add(LinIntTag.of(2))
+            .addInt(3);
+        var first = builder.build();
+        assertThat(first).isEqualTo(LinListTag.ofInts(1, 2, 3));
+        // The built list must not see later changes to the builder
+        builder.set(0, LinIntTag.of(4)).addInt(5);
+        assertThat(first).isEqualTo(LinListTag.ofInts(1, 2, 3));
+        assertThat(builder.build()).isEqualTo(LinListTag.ofInts(4, 2, 3, 5));
+
+        var thrown = assertThrows(
+            IllegalStateException.class, () -> LinListTag.builder(LinTagType.intTag()).addLong(1)
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("List is of type INT, not LONG");
+        thrown = assertThrows(
+            IllegalStateException.class, () -> LinListTag.builder(LinTagType.stringTag()).addInt(1)
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("List is of type STRING, not INT");
+    }
+
+    @Test
+    void toBuilderLeavesPackedListAlone() {
+        var tag = LinListTag.ofShorts((short) 1, (short) 2);
+        var changed = tag.toBuilder().set(1, LinShortTag.of((short) 3)).build();
+        assertThat(tag.getShort(1)).isEqualTo(2);
+        assertThat(changed.getShort(1)).isEqualTo(3);
+        assertThat(tag.toBuilder().build()).isEqualTo(tag);
+    }
+
+    @Test
+    void persistentEditsOfLargeList() throws IOException {
+        var expected = new ArrayList<LinStringTag>();
+        for (int i = 0; i < 1024; i++) {
+            expected.add(LinStringTag.of("element" + i));
+        }
+        // Exactly fills a two-level trie, so that adding pushes it down under a new root
+        var original = LinListTag.of(LinTagType.stringTag(), expected);
+
+        var edited = original.with(0, LinStringTag.of("first")).with(1023, LinStringTag.of("last"));
+        var builder = edited.toBuilder().set(500, LinStringTag.of("middle"));
+        for (int i = 0; i < 40; i++) {
+            builder.add(LinStringTag.of("added" + i));
+        }
+        var built = builder.build();
+
+        expected.set(0, LinStringTag.of("first"));
+        expected.set(1023, LinStringTag.of("last"));
+        assertThat(edited.value()).containsExactlyElementsIn(expected).inOrder();
+        expected.set(500, LinStringTag.of("middle"));
+        for (int i = 0; i < 40; i++) {
+            expected.add(LinStringTag.of("added" + i));
+        }
+        assertThat(built).isEqualTo(LinListTag.of(LinTagType.stringTag(), expected));
+        assertThat(built.value().hashCode()).isEqualTo(expected.hashCode());
+        TagTestUtil.assertRoundTrip(built);
+
+        // Earlier versions are left alone
+        assertThat(original.get(0)).isEqualTo(LinStringTag.of("element0"));
+        assertThat(edited.get(500)).isEqualTo(LinStringTag.of("element500"));
+        assertThat(edited.value()).hasSize(1024);
+        assertThrows(IndexOutOfBoundsException.class, () -> edited.with(1024, LinStringTag.of("out")));
+        assertThrows(IndexOutOfBoundsException.class, () -> edited.get(1024));
+    }
 }
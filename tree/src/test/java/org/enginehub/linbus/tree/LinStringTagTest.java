@@ -28,5 +28,7 @@ void roundTrip() throws IOException {
         TagTestUtil.assertRoundTrip(LinStringTag.of(""));
         TagTestUtil.assertRoundTrip(LinStringTag.of("Hello World!"));
         TagTestUtil.assertRoundTrip(LinStringTag.of("ⓝⓘⓒⓔ ⓜⓔⓜⓔ!"));
+        // Modified UTF-8 uses two bytes for NUL, and six for a surrogate pair
+        TagTestUtil.assertRoundTrip(LinStringTag.of("\u0000 \ud83d\ude00"));
     }
 }
@@ -20,12 +20,21 @@
 
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
+import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinProjection;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStreamable;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
 
 import static com.google.common.truth.Truth.assertAbout;
@@ -107,6 +116,203 @@ void bigtest() throws IOException {
         assertThat(tagData.root().writeToArray()).isEqualTo(tagData.serializedForm());
     }
 
+    @Test
+    void bigtestProjected() throws IOException {
+        TestTagData tagData = load("bigtest.nbt.gz");
+        var projection = LinProjection.of(
+            "nested compound test.*.name",
+            "\"listTest (compound)\"[*].name",
+            "intTest",
+            "longTest.notACompound",
+            "listTest (long)[*].notACompound",
+            "missing"
+        );
+        var projected = LinRootEntry.readFrom(
+            projection.project(LinBinaryIO.cursor(ByteBuffer.wrap(tagData.serializedForm())))
+        );
+        assertThat(projected).isEqualTo(new LinRootEntry("Level", LinCompoundTag.builder()
+            .putCompound("nested compound test", Map.of(
+                "egg", LinCompoundTag.builder().putString("name", "Eggbert").build(),
+                "ham", LinCompoundTag.builder().putString("name", "Hampus").build()
+            ))
+            .put("listTest (compound)", LinListTag.of(LinTagType.compoundTag(), List.of(
+                LinCompoundTag.builder().putString("name", "Compound tag #0").build(),
+                LinCompoundTag.builder().putString("name", "Compound tag #1").build()
+            )))
+            .putInt("intTest", 2147483647)
+            .build()));
+    }
+
+    @Test
+    void bigtestLazy() throws IOException {
+        TestTagData tagData = load("bigtest.nbt.gz");
+        var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(tagData.serializedForm()));
+        var nested = lazy.value().getTag("nested compound test", LinTagType.compoundTag());
+        assertThat(nested.getTag("egg", LinTagType.compoundTag()).getTag("name", LinTagType.stringTag()).value())
+            .isEqualTo("Eggbert");
+        assertThat(lazy.value().findTag("intTest", LinTagType.intTag())).isEqualTo(LinIntTag.of(2147483647));
+        assertThat(lazy.value().findTag("intTest", LinTagType.longTag())).isNull();
+        assertThat(lazy.value().findTag("missing", LinTagType.intTag())).isNull();
+        // Decoded values are cached
+        assertThat(lazy.value().getTag("nested compound test", LinTagType.compoundTag())).isSameInstanceAs(nested);
+
+        // Streams both decoded and undecoded entries
+        assertThat(lazy.writeToArray()).isEqualTo(tagData.serializedForm());
+        assertThat(lazy).isEqualTo(tagData.root());
+        assertThat(lazy.hashCode()).isEqualTo(tagData.root().hashCode());
+        assertThat(lazy.value().value().keySet())
+            .containsExactlyElementsIn(tagData.root().value().value().keySet()).inOrder();
+    }
+
+    private static byte[] writeTokens(LinStreamable streamable) throws IOException {
+        var tokens = streamable.linStream();
+        var bytes = new ByteArrayOutputStream();
+        // Hide the stream's type, so that its tokens are written instead of the tree
+        LinBinaryIO.write(new DataOutputStream(bytes), () -> tokens::nextOrNull);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void directWriteMatchesTokens() throws IOException {
+        for (String name : List.of("bigtest.nbt.gz", "all-types.nbt.gz")) {
+            TestTagData tagData = load(name);
+            assertThat(writeTokens(tagData.root())).isEqualTo(tagData.serializedForm());
+
+            var direct = new ByteArrayOutputStream();
+            LinBinaryIO.write(new DataOutputStream(direct), tagData.root());
+            assertThat(direct.toByteArray()).isEqualTo(tagData.serializedForm());
+        }
+    }
+
+    @Test
+    void readPackedLists() throws IOException {
+        var options = LinReadOptions.builder().packPrimitiveLists(true).arrayChunkSize(16).build();
+        for (String name : List.of("bigtest.nbt.gz", "all-types.nbt.gz")) {
+            TestTagData tagData = load(name);
+            var root = LinRootEntry.readFrom(LinBinaryIO.read(ByteBuffer.wrap(tagData.serializedForm()), options));
+            assertThat(root).isEqualTo(tagData.root());
+        }
+    }
+
+    @Test
+    void serializedSize() throws IOException {
+        for (String name : List.of("bigtest.nbt.gz", "all-types.nbt.gz")) {
+            TestTagData tagData = load(name);
+            assertThat(tagData.root().serializedSize()).isEqualTo(tagData.serializedForm().length);
+            // Asking again uses the remembered size
+            assertThat(tagData.root().serializedSize()).isEqualTo(tagData.serializedForm().length);
+
+            var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(tagData.serializedForm()));
+            assertThat(lazy.serializedSize()).isEqualTo(tagData.serializedForm().length);
+        }
+    }
+
+    @Test
+    void lazyDirectWrite() throws IOException {
+        TestTagData tagData = load("bigtest.nbt.gz");
+        var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(tagData.serializedForm()));
+        // Mix decoded and undecoded entries, at more than one level
+        lazy.value().getTag("nested compound test", LinTagType.compoundTag()).findTag("egg", LinTagType.compoundTag());
+        lazy.value().findTag("listTest (compound)", LinTagType.listTag());
+        assertThat(lazy.writeToArray()).isEqualTo(tagData.serializedForm());
+        assertThat(writeTokens(lazy)).isEqualTo(tagData.serializedForm());
+    }
+
+    @Test
+    void lazyNormalUtf8IsWrittenAsModifiedUtf8() throws IOException {
+        // "x" and U+1F600, which normal UTF-8 encodes in 4 bytes and modified UTF-8 in 6
+        var normalUtf8 = new byte[]{'x', (byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80};
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeByte(LinTagId.COMPOUND.id());
+        out.writeUTF("");
+        out.writeByte(LinTagId.STRING.id());
+        out.writeUTF("s");
+        out.writeShort(normalUtf8.length);
+        out.write(normalUtf8);
+        out.writeByte(LinTagId.LIST.id());
+        out.writeUTF("list");
+        out.writeByte(LinTagId.STRING.id());
+        out.writeInt(1);
+        out.writeShort(normalUtf8.length);
+        out.write(normalUtf8);
+        out.writeByte(LinTagId.COMPOUND.id());
+        out.writeUTF("nested");
+        out.writeByte(LinTagId.STRING.id());
+        out.writeUTF("s");
+        out.writeShort(normalUtf8.length);
+        out.write(normalUtf8);
+        out.writeByte(LinTagId.END.id());
+        out.writeByte(LinTagId.INT.id());
+        out.writeUTF("int");
+        out.writeInt(42);
+        out.writeByte(LinTagId.END.id());
+
+        var options = LinReadOptions.builder().allowNormalUtf8Encoding(true).build();
+        var eager = LinRootEntry.readFrom(LinBinaryIO.read(ByteBuffer.wrap(bytes.toByteArray()), options));
+        assertThat(eager.value().getTag("s", LinTagType.stringTag()).value()).isEqualTo("x\uD83D\uDE00");
+        var expected = eager.writeToArray();
+
+        var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(bytes.toByteArray()), options);
+        assertThat(lazy.serializedSize()).isEqualTo(expected.length);
+        assertThat(lazy.writeToArray()).isEqualTo(expected);
+        assertThat(writeTokens(lazy)).isEqualTo(expected);
+        // The output is modified UTF-8, so reading it back doesn't need normal UTF-8 allowed
+        assertThat(LinRootEntry.readFrom(LinBinaryIO.read(ByteBuffer.wrap(lazy.writeToArray())))).isEqualTo(eager);
+
+        var edited = new LinRootEntry("", lazy.value().with("int", LinIntTag.of(7)));
+        assertThat(edited.serializedSize()).isEqualTo(expected.length);
+        assertThat(edited.writeToArray())
+            .isEqualTo(new LinRootEntry("", eager.value().with("int", LinIntTag.of(7))).writeToArray());
+    }
+
+    @Test
+    void lazyEdits() throws IOException {
+        TestTagData tagData = load("bigtest.nbt.gz");
+        var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(tagData.serializedForm()));
+        var eager = tagData.root().value();
+
+        var edited = lazy.value()
+            .with("intTest", LinIntTag.of(1))
+            .with("added", LinStringTag.of("new"))
+            .without("byteTest");
+        var expected = eager
+            .with("intTest", LinIntTag.of(1))
+            .with("added", LinStringTag.of("new"))
+            .without("byteTest");
+        assertThat(edited).isEqualTo(expected);
+        assertThat(edited.value().keySet()).containsExactlyElementsIn(expected.value().keySet()).inOrder();
+        assertThat(edited.serializedSize()).isEqualTo(expected.serializedSize());
+        var expectedBytes = new LinRootEntry(tagData.root().name(), expected).writeToArray();
+        assertThat(new LinRootEntry(tagData.root().name(), edited).writeToArray()).isEqualTo(expectedBytes);
+        assertThat(writeTokens(new LinRootEntry(tagData.root().name(), edited))).isEqualTo(expectedBytes);
+
+        // Untouched entries are decoded through the original compound, and shared with it
+        assertThat(edited.getTag("nested compound test", LinTagType.compoundTag()))
+            .isSameInstanceAs(lazy.value().getTag("nested compound test", LinTagType.compoundTag()));
+        // The original is left alone
+        assertThat(lazy.value().getTag("intTest", LinTagType.intTag())).isEqualTo(LinIntTag.of(2147483647));
+        assertThat(lazy.writeToArray()).isEqualTo(tagData.serializedForm());
+    }
+
+    @Test
+    void lazyDecodingIsThreadSafe() throws Exception {
+        TestTagData tagData = load("all-types.nbt.gz");
+        var lazy = LinRootEntry.readLazily(ByteBuffer.wrap(tagData.serializedForm())).value();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = executor.invokeAll(
+                Collections.nCopies(8, () -> lazy.getTag("compound1", LinTagType.compoundTag()))
+            );
+            for (var result : results) {
+                assertThat(result.get()).isSameInstanceAs(results.get(0).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(lazy).isEqualTo(tagData.root().value());
+    }
+
     @Test
     void allTypes() throws IOException {
         TestTagData tagData = load("all-types.nbt.gz");
@@ -25,6 +25,7 @@
 import java.io.IOException;
 import java.util.Map;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.enginehub.linbus.tree.truth.LinTagSubject.assertThat;
 
 class TagTestUtil {
@@ -33,10 +34,9 @@ class TagTestUtil {
     static <T extends LinTag<?>> void assertRoundTrip(T input) throws IOException {
         ByteArrayDataOutput dataOutput = ByteStreams.newDataOutput();
         // It's not legal to use bare streams, so we wrap in a root entry and compound.
-        LinBinaryIO.write(
-            dataOutput,
-            new LinRootEntry("", LinCompoundTag.of(Map.of(NESTING_KEY, input)))
-        );
+        var root = new LinRootEntry("", LinCompoundTag.of(Map.of(NESTING_KEY, input)));
+        LinBinaryIO.write(dataOutput, root);
+        assertThat(root.serializedSize()).isEqualTo(dataOutput.toByteArray().length);
         @SuppressWarnings("unchecked")
         T recreated = LinBinaryIO.readUsing(
             ByteStreams.newDataInput(dataOutput.toByteArray()),
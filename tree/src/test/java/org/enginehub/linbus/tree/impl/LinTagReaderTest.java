@@ -387,4 +387,33 @@ void unexpectedEndId() {
         );
         assertThat(thrown).hasMessageThat().isEqualTo("Unexpected END id");
     }
+
+    @Test
+    void negativeListSize() {
+        var thrown = assertThrows(
+            NbtParseException.class,
+            () -> LinTagReader.readRoot(LinStream.of(
+                new LinToken.Name("root", LinTagId.COMPOUND),
+                new LinToken.CompoundStart(),
+                new LinToken.Name("inner", LinTagId.LIST),
+                new LinToken.ListStart(-1, LinTagId.INT)
+            ))
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Negative list size: -1");
+    }
+
+    @Test
+    void hugeListSizeIsNotAllocatedUpFront() {
+        var thrown = assertThrows(
+            NbtParseException.class,
+            () -> LinTagReader.readRoot(LinStream.of(
+                new LinToken.Name("root", LinTagId.COMPOUND),
+                new LinToken.CompoundStart(),
+                new LinToken.Name("inner", LinTagId.LIST),
+                new LinToken.ListStart(Integer.MAX_VALUE, LinTagId.LONG),
+                new LinToken.Long(1)
+            ))
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Unexpected end of stream");
+    }
 }